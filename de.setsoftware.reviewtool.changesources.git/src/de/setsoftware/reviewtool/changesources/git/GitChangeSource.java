@@ -27,6 +27,7 @@ import de.setsoftware.reviewtool.model.api.IFileHistoryNode;
 import de.setsoftware.reviewtool.model.api.IRevisionedFile;
 import de.setsoftware.reviewtool.model.changestructure.AbstractChangeSource;
 import de.setsoftware.reviewtool.model.changestructure.ChangestructureFactory;
+import de.setsoftware.reviewtool.model.changestructure.FileDiffScheduler;
 
 /**
  * A change source that loads the changes from Git.
@@ -108,21 +109,41 @@ public class GitChangeSource extends AbstractChangeSource {
     private List<ICommit> convertRepoRevisionsToChanges(
             final List<GitRevision> revisions,
             final ICortProgressMonitor ui) throws IOException {
+        // the diffs are computed in the background, earlier commits (i.e. the first tours) first
+        final FileDiffScheduler.Batch diffs = FileDiffScheduler.getInstance().startBatch();
         final List<ICommit> ret = new ArrayList<>();
-        for (final GitRevision e : revisions) {
-            if (ui.isCanceled()) {
-                throw BackgroundJobExecutor.createOperationCanceledException();
+        try {
+            final List<List<IFileHistoryNode>> changedNodes = new ArrayList<>();
+            for (final GitRevision e : revisions) {
+                if (ui.isCanceled()) {
+                    throw BackgroundJobExecutor.createOperationCanceledException();
+                }
+                final List<IFileHistoryNode> nodes = this.determineChangedNodes(e);
+                for (final IFileHistoryNode node : nodes) {
+                    this.scheduleDiffsInFile(diffs, node, changedNodes.size());
+                }
+                changedNodes.add(nodes);
             }
-            this.convertToCommitIfPossible(e, ret, ui);
+
+            for (int i = 0; i < revisions.size(); i++) {
+                if (ui.isCanceled()) {
+                    throw BackgroundJobExecutor.createOperationCanceledException();
+                }
+                this.convertToCommitIfPossible(revisions.get(i), changedNodes.get(i), ret, ui);
+            }
+        } finally {
+            // the conversion has requested all diffs it needs (or has been aborted), the remaining ones are unneeded
+            diffs.cancel();
         }
         return ret;
     }
 
     private void convertToCommitIfPossible(
             final GitRevision e,
+            final List<IFileHistoryNode> changedNodes,
             final Collection<? super ICommit> result,
-            final ICortProgressMonitor ui) throws IOException {
-        final List<? extends IChange> changes = this.determineChangesInCommit(e, ui);
+            final ICortProgressMonitor ui) {
+        final List<? extends IChange> changes = this.determineChangesInCommit(e, changedNodes, ui);
         if (!changes.isEmpty()) {
             result.add(ChangestructureFactory.createCommit(
                     e.getWorkingCopy(),
@@ -135,25 +156,37 @@ public class GitChangeSource extends AbstractChangeSource {
 
     private List<? extends IChange> determineChangesInCommit(
             final GitRevision e,
-            final ICortProgressMonitor ui) throws IOException {
+            final List<IFileHistoryNode> changedNodes,
+            final ICortProgressMonitor ui) {
 
         final List<IChange> ret = new ArrayList<>();
-        final Set<String> changedPaths = e.getChangedPaths();
-        final List<String> sortedPaths = new ArrayList<>(changedPaths);
-        Collections.sort(sortedPaths);
-        for (final String path : sortedPaths) {
+        for (final IFileHistoryNode node : changedNodes) {
             if (ui.isCanceled()) {
                 throw BackgroundJobExecutor.createOperationCanceledException();
             }
 
+            try {
+                ret.addAll(this.determineChangesInFile(e.getWorkingCopy(), node));
+            } catch (final Exception ex) {
+                Logger.error("An error occurred while computing changes for " + node.getFile().toString(), ex);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Returns the nodes of the files changed in the given revision, sorted by path.
+     */
+    private List<IFileHistoryNode> determineChangedNodes(final GitRevision e) throws IOException {
+        final List<IFileHistoryNode> ret = new ArrayList<>();
+        final Set<String> changedPaths = e.getChangedPaths();
+        final List<String> sortedPaths = new ArrayList<>(changedPaths);
+        Collections.sort(sortedPaths);
+        for (final String path : sortedPaths) {
             final IRevisionedFile fileInfo = ChangestructureFactory.createFileInRevision(path, e.toRevision());
             final IFileHistoryNode node = e.getWorkingCopy().getFileHistoryGraph().getNodeFor(fileInfo);
             if (node != null) {
-                try {
-                    ret.addAll(this.determineChangesInFile(e.getWorkingCopy(), node));
-                } catch (final Exception ex) {
-                    Logger.error("An error occurred while computing changes for " + fileInfo.toString(), ex);
-                }
+                ret.add(node);
             } else {
                 Logger.debug("history node is null for " + fileInfo);
             }
@@ -105,15 +105,14 @@ final class GitRepository extends AbstractRepository {
     }
 
     private synchronized void saveCache() {
-        synchronized (this.fileHistoryGraph) {
-            this.saveCacheWaiting.set(false);
-            try (FileOutputStream in = new FileOutputStream(getCacheFilePath(this.workingCopyRoot, this.cacheDir))) {
-                final ObjectOutputStream os = new ObjectOutputStream(new BufferedOutputStream(in));
-                os.writeObject(this);
-                os.close();
-            } catch (final Exception e) {
-                Logger.warn("could not save git repo cache file", e);
-            }            
+        // the file history graph holds its read lock while being serialized, so it is not changed meanwhile
+        this.saveCacheWaiting.set(false);
+        try (FileOutputStream in = new FileOutputStream(getCacheFilePath(this.workingCopyRoot, this.cacheDir))) {
+            final ObjectOutputStream os = new ObjectOutputStream(new BufferedOutputStream(in));
+            os.writeObject(this);
+            os.close();
+        } catch (final Exception e) {
+            Logger.warn("could not save git repo cache file", e);
         }
     }
 
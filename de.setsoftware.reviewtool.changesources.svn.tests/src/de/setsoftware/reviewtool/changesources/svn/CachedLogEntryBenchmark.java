@@ -0,0 +1,104 @@
+package de.setsoftware.reviewtool.changesources.svn;
+
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.tmatesoft.svn.core.SVNLogEntry;
+import org.tmatesoft.svn.core.SVNLogEntryPath;
+import org.tmatesoft.svn.core.SVNNodeKind;
+
+/**
+ * Measures the heap usage and the serialized size of {@link CachedLogEntry} objects for a synthetic log.
+ * The log has the typical shape of a long-living repository: a trunk with several modules and deep package
+ * hierarchies, commits touching few files that mostly stay in the same area, and occasional branches.
+ * Not a unit test, run it manually, e.g. with the number of revisions as an argument.
+ */
+public class CachedLogEntryBenchmark {
+
+    private static final String[] AUTHORS = {"tb", "sm", "jd", "ak", "build"};
+
+    public static void main(String[] args) throws Exception {
+        final int numberOfRevisions = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+
+        final long heapAtStart = usedHeap();
+        final List<SVNLogEntry> log = createLog(numberOfRevisions, new Random(42));
+
+        final List<CachedLogEntry> entries = new ArrayList<>();
+        for (int i = 0; i < log.size(); i++) {
+            entries.add(new CachedLogEntry(log.get(i)));
+            log.set(i, null);
+        }
+
+        log.clear();
+        // includes the path table, as it did not exist at start
+        final long heapWithEntries = usedHeap();
+
+        final ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(serialized)) {
+            oos.writeObject(entries);
+        }
+
+        System.out.println(String.format("%d revisions: heap %d KiB, serialized %d KiB, %d distinct paths",
+                entries.size(),
+                (heapWithEntries - heapAtStart) / 1024,
+                serialized.size() / 1024,
+                SvnPathTable.size()));
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+    }
+
+    private static List<SVNLogEntry> createLog(final int numberOfRevisions, final Random random) {
+        final List<String> files = new ArrayList<>();
+        for (int module = 0; module < 40; module++) {
+            for (int pkg = 0; pkg < 25; pkg++) {
+                for (int file = 0; file < 20; file++) {
+                    files.add("/module" + module + "/src/main/java/de/example/product/module" + module
+                            + "/package" + pkg + "/SomeClass" + file + ".java");
+                }
+            }
+        }
+
+        final List<SVNLogEntry> log = new ArrayList<>();
+        final List<String> branches = new ArrayList<>();
+        branches.add("/trunk");
+        int lastFile = 0;
+        for (int revision = 1; revision <= numberOfRevisions; revision++) {
+            // strings are copied to simulate the fresh instances created when parsing the server's response
+            final Map<String, SVNLogEntryPath> changedPaths = new LinkedHashMap<>();
+            if (random.nextInt(500) == 0) {
+                final String branch = "/branches/feature" + branches.size();
+                changedPaths.put(new String(branch), new SVNLogEntryPath(
+                        new String(branch), SVNLogEntryPath.TYPE_ADDED, "/trunk", revision - 1, SVNNodeKind.DIR));
+                branches.add(branch);
+            } else {
+                final String branch = branches.get(random.nextInt(3) == 0 ? random.nextInt(branches.size()) : 0);
+                final int numberOfChanges = 1 + random.nextInt(random.nextInt(10) == 0 ? 50 : 5);
+                for (int i = 0; i < numberOfChanges; i++) {
+                    lastFile = Math.floorMod(lastFile + random.nextInt(41) - 20, files.size());
+                    final String path = branch + files.get(lastFile);
+                    changedPaths.put(new String(path), new SVNLogEntryPath(
+                            new String(path), SVNLogEntryPath.TYPE_MODIFIED, null, -1, SVNNodeKind.FILE));
+                }
+            }
+            log.add(new SVNLogEntry(
+                    changedPaths,
+                    revision,
+                    new String(AUTHORS[random.nextInt(AUTHORS.length)]),
+                    new Date(1500000000000L + revision * 60000L),
+                    "change " + revision));
+        }
+        return log;
+    }
+}
@@ -10,10 +10,8 @@ import org.tmatesoft.svn.core.SVNException;
 import org.tmatesoft.svn.core.SVNURL;
 
 import de.setsoftware.reviewtool.diffalgorithms.DiffAlgorithmFactory;
-import de.setsoftware.reviewtool.model.api.IMutableFileHistoryGraph;
 import de.setsoftware.reviewtool.model.api.IRepoRevision;
 import de.setsoftware.reviewtool.model.changestructure.AbstractRepository;
-import de.setsoftware.reviewtool.model.changestructure.FileHistoryGraph;
 
 /**
  * A stub implementation of {@link AbstractRepository} for use by tests.
@@ -23,7 +21,8 @@ public final class StubRepo extends AbstractRepository implements ISvnRepo {
     public static StubRepo INSTANCE = new StubRepo("");
     private static final long serialVersionUID = 1L;
 
-    private IMutableFileHistoryGraph fileHistoryGraph = new FileHistoryGraph(DiffAlgorithmFactory.createDefault());
+    private transient SvnFileHistoryGraph fileHistoryGraph = new SvnFileHistoryGraph(
+            DiffAlgorithmFactory.createDefault(), new java.io.File(""), Collections.<SvnHistoryFragment>emptyList());
     private final String relPath;
 
     public StubRepo(final String relPath) {
@@ -41,7 +40,7 @@ public final class StubRepo extends AbstractRepository implements ISvnRepo {
     }
 
     @Override
-    public IMutableFileHistoryGraph getFileHistoryGraph() {
+    public SvnFileHistoryGraph getFileHistoryGraph() {
         return this.fileHistoryGraph;
     }
 
@@ -71,7 +70,13 @@ public final class StubRepo extends AbstractRepository implements ISvnRepo {
     }
 
     @Override
-    public void getLog(final long startRevision, final ISVNLogEntryHandler handler) throws SVNException {
+    public java.io.File getHistoryFragmentDirectory() {
+        return new java.io.File("");
+    }
+
+    @Override
+    public void getLog(final long startRevision, final long endRevision, final ISVNLogEntryHandler handler)
+            throws SVNException {
         throw new UnsupportedOperationException();
     }
 
@@ -81,7 +86,7 @@ public final class StubRepo extends AbstractRepository implements ISvnRepo {
     }
 
     @Override
-    public void setFileHistoryGraph(final IMutableFileHistoryGraph fileHistoryGraph) {
+    public void setFileHistoryGraph(final SvnFileHistoryGraph fileHistoryGraph) {
         this.fileHistoryGraph = fileHistoryGraph;
     }
 
@@ -90,7 +95,28 @@ public final class StubRepo extends AbstractRepository implements ISvnRepo {
         return Collections.emptySet();
     }
 
+    @Override
+    public void prefetchFileContents(final long revision, final Collection<String> paths) {
+    }
+
+    @Override
+    public void prefetchFileHistory(final String path, final Collection<Long> revisions) {
+    }
+
+    @Override
+    public long getNumberOfBytesReceived() {
+        return 0;
+    }
+
     @Override
     public void clearCache() {
     }
+
+    /**
+     * Like a real repository, the shared instance stays unique when serialised, so that revisions referencing it
+     * are still equal after deserialisation.
+     */
+    private Object readResolve() {
+        return this.relPath.isEmpty() ? INSTANCE : this;
+    }
 }
@@ -0,0 +1,195 @@
+package de.setsoftware.reviewtool.changesources.svn;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+import de.setsoftware.reviewtool.model.api.BackgroundJobExecutor;
+import de.setsoftware.reviewtool.model.api.IChangeSourceUi;
+import de.setsoftware.reviewtool.model.api.ICortProgressMonitor;
+
+/**
+ * Benchmarks for the main operations of the SVN change source on a generated local repository
+ * (see {@link SvnFixtureGenerator}). Every operation is timed on its own:
+ * <ul>
+ * <li>loading and processing the log by the {@link SvnRepositoryManager},</li>
+ * <li>serialising and deserialising the cache,</li>
+ * <li>assembling the file history graph from the deserialised fragments,</li>
+ * <li>looking up the revisions of a ticket in the cached log,</li>
+ * <li>retrieving the files touched by these revisions, one by one and prefetched,</li>
+ * <li>determining the working copy status, for the whole working copy and for single files.</li>
+ * </ul>
+ * Not a unit test, run it manually. Optional arguments: number of revisions, fan-out, depth, files per directory.
+ */
+public class SvnBenchmarkSuite {
+
+    /**
+     * Executes background jobs not at all, so that they do not distort the timings.
+     * The operations they would perform are benchmarked explicitly.
+     */
+    private static final class IgnoringJobExecutor extends BackgroundJobExecutor {
+        @Override
+        protected void startJob(
+                String name, Object mutexResource, Function<ICortProgressMonitor, Throwable> job, long delay) {
+        }
+
+        @Override
+        protected RuntimeException doCreateOperationCanceledException() {
+            return new RuntimeException("canceled");
+        }
+    }
+
+    /**
+     * A UI that ignores all progress information.
+     */
+    private static final class SilentUi implements IChangeSourceUi {
+        @Override
+        public boolean isCanceled() {
+            return false;
+        }
+
+        @Override
+        public void beginTask(String name, int totalWork) {
+        }
+
+        @Override
+        public void subTask(String name) {
+        }
+
+        @Override
+        public void done() {
+        }
+
+        @Override
+        public Boolean handleLocalWorkingIncomplete(String detailInfo) {
+            return true;
+        }
+
+        @Override
+        public void increaseTaskNestingLevel() {
+        }
+
+        @Override
+        public void decreaseTaskNestingLevel() {
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        final SvnFixtureGenerator generator = new SvnFixtureGenerator()
+                .revisions(args.length > 0 ? Integer.parseInt(args[0]) : 500)
+                .fanOut(args.length > 1 ? Integer.parseInt(args[1]) : 4)
+                .depth(args.length > 2 ? Integer.parseInt(args[2]) : 3)
+                .filesPerDirectory(args.length > 3 ? Integer.parseInt(args[3]) : 5);
+
+        final SvnTestdataRepo fixture = time("generating fixture", () -> generator.generate());
+        try {
+            run(fixture);
+        } finally {
+            fixture.clean();
+        }
+    }
+
+    private static void run(SvnTestdataRepo fixture) throws Exception {
+        BackgroundJobExecutor.setInstance(new IgnoringJobExecutor());
+        final File cacheDir = Files.createTempDirectory("svnbenchmarkcache").toFile();
+        SvnRepositoryManager.getInstance().init(fixture.getClientManager(), Integer.MAX_VALUE, cacheDir);
+        final SvnRepositoryManager manager = SvnRepositoryManager.getInstance();
+        final IChangeSourceUi ui = new SilentUi();
+
+        final SvnWorkingCopy wc = SvnWorkingCopyManager.getInstance().getWorkingCopy(fixture.getWorkingCopyDir());
+        final ISvnRepo repo = wc.getRepository();
+
+        time("loading log", () -> manager.traverseRecentEntries(repo, (CachedLogEntry entry) -> false, ui));
+
+        time("serialising cache", () -> {
+            manager.storeCacheToFile(repo);
+            return null;
+        });
+        System.out.println("  cache file size: " + repo.getCacheFilePath().length() / 1024 + " KiB");
+
+        final SvnRepo reloadedRepo = new SvnRepo(
+                manager.getSessionPool(fixture.getUrl()), fixture.getUrl(), cacheDir);
+        time("deserialising cache", () -> {
+            manager.readCacheFromFile(reloadedRepo);
+            return null;
+        });
+        final int numPaths = time("assembling file history graph",
+                () -> reloadedRepo.getFileHistoryGraph().getPaths().size());
+        System.out.println("  paths in graph: " + numPaths);
+
+        final Pattern ticketPattern = Pattern.compile(SvnFixtureGenerator.ticketKey(7) + "[^0-9].*", Pattern.DOTALL);
+        final CachedLogLookupHandler ticketHandler = (CachedLogEntry entry) ->
+                entry.getMessage() != null && ticketPattern.matcher(entry.getMessage()).matches();
+        final List<SvnRepoRevision> revisions = time("ticket lookup",
+                () -> manager.traverseRecentEntries(repo, ticketHandler, ui).getSecond());
+        System.out.println("  matching revisions: " + revisions.size());
+
+        final SortedMap<Long, Set<String>> neededFiles = new TreeMap<>();
+        for (final SvnRepoRevision revision : revisions) {
+            for (final Map.Entry<String, CachedLogEntryPath> e : revision.getChangedPaths().entrySet()) {
+                if (e.getValue().isFile() && !e.getValue().isDeleted()) {
+                    neededFiles.computeIfAbsent(revision.getRevisionNumber(), (Long r) -> new TreeSet<>())
+                        .add(e.getKey());
+                }
+            }
+        }
+        final SvnFileCache singleCache = new SvnFileCache(manager.getSessionPool(fixture.getUrl()));
+        time("file retrieval one by one", () -> {
+            for (final Map.Entry<Long, Set<String>> e : neededFiles.entrySet()) {
+                for (final String path : e.getValue()) {
+                    singleCache.getFileContents(path, e.getKey());
+                }
+            }
+            return null;
+        });
+        final SvnFileCache prefetchingCache = new SvnFileCache(manager.getSessionPool(fixture.getUrl()));
+        time("file retrieval prefetched", () -> {
+            for (final Map.Entry<Long, Set<String>> e : neededFiles.entrySet()) {
+                prefetchingCache.prefetchFiles(e.getKey(), e.getValue());
+            }
+            return null;
+        });
+        System.out.println("  requests: " + singleCache.getNumberOfRequests() + " one by one, "
+                + prefetchingCache.getNumberOfRequests() + " prefetched");
+
+        final List<File> changedFiles = modifySomeFiles(fixture.getWorkingCopyDir());
+        time("working copy status, full", () -> {
+            SvnWorkingCopyManager.getInstance().collectWorkingCopyChanges(null);
+            return null;
+        });
+        time("working copy status, changed files", () -> {
+            SvnWorkingCopyManager.getInstance().collectWorkingCopyChanges(changedFiles);
+            return null;
+        });
+    }
+
+    private static List<File> modifySomeFiles(File wcDir) throws IOException {
+        final List<File> changedFiles = new ArrayList<>();
+        final File trunk = new File(wcDir, "trunk");
+        for (int i = 0; i < 3; i++) {
+            final File file = new File(trunk, "file" + i + ".txt");
+            Files.write(file.toPath(), "local change\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+            changedFiles.add(file);
+        }
+        return changedFiles;
+    }
+
+    private static <T> T time(String name, Callable<T> operation) throws Exception {
+        final long start = System.nanoTime();
+        final T result = operation.call();
+        System.out.println(String.format("%-40s %8d ms", name, (System.nanoTime() - start) / 1000000L));
+        return result;
+    }
+}
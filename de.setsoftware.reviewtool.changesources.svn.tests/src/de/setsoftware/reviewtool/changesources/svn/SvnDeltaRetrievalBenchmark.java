@@ -0,0 +1,63 @@
+package de.setsoftware.reviewtool.changesources.svn;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Compares loading the revisions of a large file with many small edits as full texts with loading them as deltas.
+ * For every edit, the changed revision and its predecessor are needed, like when determining the changes of a review.
+ * Not a unit test, run it manually. Optional arguments: number of lines of the file, number of edits.
+ */
+public class SvnDeltaRetrievalBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        final int numberOfLines = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        final int numberOfEdits = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        final String path = "/trunk/Large.java";
+
+        final SvnTestdataRepo repo = new SvnTestdataRepo();
+        try {
+            final StringBuilder content = new StringBuilder();
+            for (int i = 0; i < numberOfLines; i++) {
+                content.append("    // line ").append(i).append(" of a large generated file\n");
+            }
+            repo.addFile(path.substring(1), content.toString());
+            repo.commit("add large file");
+
+            final List<Long> neededRevisions = new ArrayList<>();
+            for (int i = 0; i < numberOfEdits; i++) {
+                final int pos = content.indexOf("\n", (int) ((long) content.length() * i / numberOfEdits));
+                content.insert(pos, " edited " + i);
+                repo.changeFile(path.substring(1), content.toString());
+                final long revision = repo.commit("edit " + i);
+                neededRevisions.add(revision - 1);
+                neededRevisions.add(revision);
+            }
+
+            final SvnFileCache fullCache = new SvnFileCache(repo.createSessionPool(1));
+            final long fullStart = System.nanoTime();
+            for (final Long revision : neededRevisions) {
+                fullCache.prefetchFiles(revision, Collections.singleton(path));
+            }
+            final long fullTime = System.nanoTime() - fullStart;
+
+            final SvnFileCache deltaCache = new SvnFileCache(repo.createSessionPool(1));
+            final long deltaStart = System.nanoTime();
+            deltaCache.prefetchFileHistory(path, neededRevisions);
+            final long deltaTime = System.nanoTime() - deltaStart;
+
+            System.out.println(String.format("%d lines, %d edits", numberOfLines, numberOfEdits));
+            System.out.println(String.format("full texts: %d requests, %d KiB, %d ms",
+                    fullCache.getNumberOfRequests(),
+                    fullCache.getNumberOfBytesReceived() / 1024,
+                    fullTime / 1000000));
+            System.out.println(String.format("deltas:     %d requests, %d KiB, %d ms",
+                    deltaCache.getNumberOfRequests(),
+                    deltaCache.getNumberOfBytesReceived() / 1024,
+                    deltaTime / 1000000));
+        } finally {
+            repo.clean();
+        }
+    }
+}
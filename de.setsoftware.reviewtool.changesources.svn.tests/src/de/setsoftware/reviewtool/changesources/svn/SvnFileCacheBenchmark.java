@@ -0,0 +1,48 @@
+package de.setsoftware.reviewtool.changesources.svn;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares loading the files of a review one by one with loading them in batches per revision.
+ * Not a unit test, run it manually, e.g. with the number of files as an argument.
+ */
+public class SvnFileCacheBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        final int numberOfFiles = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+
+        final SvnTestdataRepo repo = new SvnTestdataRepo();
+        try {
+            final List<String> paths = new ArrayList<>();
+            for (int i = 0; i < numberOfFiles; i++) {
+                final String path = "trunk/module" + (i % 10) + "/src/File" + i + ".java";
+                repo.addFile(path, 200);
+                paths.add("/" + path);
+            }
+            final long revision = repo.commit("add files");
+
+            final SvnFileCache singleCache = new SvnFileCache(repo.createSessionPool(1));
+            final long singleStart = System.nanoTime();
+            for (final String path : paths) {
+                singleCache.getFileContents(path, revision);
+            }
+            final long singleTime = System.nanoTime() - singleStart;
+
+            final SvnFileCache batchCache = new SvnFileCache(repo.createSessionPool(1));
+            final long batchStart = System.nanoTime();
+            batchCache.prefetchFiles(revision, paths);
+            for (final String path : paths) {
+                batchCache.getFileContents(path, revision);
+            }
+            final long batchTime = System.nanoTime() - batchStart;
+
+            System.out.println(String.format("%d files, one by one: %d requests, %d ms",
+                    numberOfFiles, singleCache.getNumberOfRequests(), singleTime / 1000000));
+            System.out.println(String.format("%d files, batched:    %d requests, %d ms",
+                    numberOfFiles, batchCache.getNumberOfRequests(), batchTime / 1000000));
+        } finally {
+            repo.clean();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package de.setsoftware.reviewtool.changesources.svn;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link SvnFileCache}.
+ */
+public class SvnFileCacheTest {
+
+    @Test
+    public void testPrefetchedContentsEqualSingleRequests() throws Exception {
+        final SvnTestdataRepo repo = new SvnTestdataRepo();
+        try {
+            final List<String> paths = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                repo.addFile("trunk/dir" + (i % 3) + "/file" + i + ".txt", 10 + i);
+                paths.add("/trunk/dir" + (i % 3) + "/file" + i + ".txt");
+            }
+            repo.commit("add files");
+            for (int i = 0; i < 20; i += 2) {
+                repo.changeFile("trunk/dir" + (i % 3) + "/file" + i + ".txt", "changed " + i + "\n");
+            }
+            final long revision = repo.commit("change files");
+            paths.add("/trunk/doesNotExist.txt");
+
+            final SvnFileCache singleCache = new SvnFileCache(repo.createSessionPool(1));
+            final SvnFileCache batchCache = new SvnFileCache(repo.createSessionPool(1));
+            batchCache.prefetchFiles(revision, paths);
+            assertThat(batchCache.getNumberOfRequests(), is(equalTo(1L)));
+
+            for (final String path : paths) {
+                assertArrayEquals(
+                        singleCache.getFileContents(path, revision),
+                        batchCache.getFileContents(path, revision));
+            }
+            assertThat(batchCache.getNumberOfRequests(), is(equalTo(1L)));
+            assertThat(singleCache.getNumberOfRequests(), is(equalTo(2L * 20 + 1)));
+        } finally {
+            repo.clean();
+        }
+    }
+
+    @Test
+    public void testFileHistoryEqualsFullTexts() throws Exception {
+        final SvnTestdataRepo repo = new SvnTestdataRepo();
+        try {
+            repo.addFile("trunk/big.txt", 2000).addFile("trunk/other.txt", "x\n");
+            final List<Long> revisions = new ArrayList<>();
+            revisions.add(repo.commit("add files"));
+            final StringBuilder content = new StringBuilder();
+            for (int i = 0; i < 2000; i++) {
+                content.append("line ").append(i).append('\n');
+            }
+            for (int i = 0; i < 5; i++) {
+                content.replace(0, 6, "edit" + i + " ");
+                repo.changeFile("trunk/big.txt", content.toString());
+                revisions.add(repo.commit("change " + i));
+                // a revision that does not touch the file
+                repo.changeFile("trunk/other.txt", "x" + i + "\n");
+                revisions.add(repo.commit("change other " + i));
+            }
+
+            final SvnFileCache fullCache = new SvnFileCache(repo.createSessionPool(1));
+            final SvnFileCache deltaCache = new SvnFileCache(repo.createSessionPool(1));
+            deltaCache.prefetchFileHistory("/trunk/big.txt", revisions);
+            assertThat(deltaCache.getNumberOfRequests(), is(equalTo(1L)));
+
+            for (final Long revision : revisions) {
+                fullCache.prefetchFiles(revision, Arrays.asList("/trunk/big.txt"));
+                assertArrayEquals(
+                        fullCache.getFileContents("/trunk/big.txt", revision),
+                        deltaCache.getFileContents("/trunk/big.txt", revision));
+            }
+            assertThat(deltaCache.getNumberOfRequests(), is(equalTo(1L)));
+            assertTrue(deltaCache.getNumberOfBytesReceived() < fullCache.getNumberOfBytesReceived() / 5);
+        } finally {
+            repo.clean();
+        }
+    }
+
+    @Test
+    public void testPrefetchSkipsCachedFiles() throws Exception {
+        final SvnTestdataRepo repo = new SvnTestdataRepo();
+        try {
+            repo.addFile("trunk/a.txt", "a\n").addFile("trunk/b.txt", "b\n");
+            final long revision = repo.commit("add files");
+
+            final SvnFileCache cache = new SvnFileCache(repo.createSessionPool(1));
+            cache.prefetchFiles(revision, Arrays.asList("/trunk/a.txt", "/trunk/b.txt"));
+            cache.prefetchFiles(revision, Arrays.asList("/trunk/a.txt"));
+            assertThat(cache.getNumberOfRequests(), is(equalTo(1L)));
+            assertArrayEquals("b\n".getBytes("UTF-8"), cache.getFileContents("/trunk/b.txt", revision));
+        } finally {
+            repo.clean();
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package de.setsoftware.reviewtool.changesources.svn;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import de.setsoftware.reviewtool.base.ComparableWrapper;
+import de.setsoftware.reviewtool.diffalgorithms.DiffAlgorithmFactory;
+import de.setsoftware.reviewtool.model.api.IMutableFileHistoryGraph;
+import de.setsoftware.reviewtool.model.api.IRevision;
+import de.setsoftware.reviewtool.model.changestructure.ChangestructureFactory;
+import de.setsoftware.reviewtool.model.changestructure.FileHistoryGraph;
+
+/**
+ * Tests for {@link SvnFileHistoryGraph} and {@link SvnHistoryFragment}.
+ */
+public class SvnFileHistoryGraphTest {
+
+    private static IRevision rev(final long revision) {
+        return ChangestructureFactory.createRepoRevision(ComparableWrapper.wrap(revision), StubRepo.INSTANCE);
+    }
+
+    private static void buildFirstRange(final IMutableFileHistoryGraph graph) {
+        graph.addAddition("/trunk/a.txt", rev(1));
+        graph.addAddition("/trunk/b.txt", rev(1));
+        graph.addChange("/trunk/a.txt", rev(2), Collections.singleton(rev(1)));
+        graph.addCopy("/trunk/a.txt", rev(2), "/trunk/c.txt", rev(3));
+    }
+
+    private static void buildSecondRange(final IMutableFileHistoryGraph graph) {
+        graph.addDeletion("/trunk/b.txt", rev(4));
+        graph.addChange("/trunk/c.txt", rev(5), Collections.singleton(rev(3)));
+    }
+
+    private static void buildThirdRange(final IMutableFileHistoryGraph graph) {
+        graph.addCopy("/trunk/c.txt", rev(5), "/trunk/d.txt", rev(6));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<SvnHistoryFragment> roundTrip(final List<SvnHistoryFragment> fragments)
+            throws IOException, ClassNotFoundException {
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(buffer)) {
+            oos.writeObject(new ArrayList<>(fragments));
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(buffer.toByteArray()))) {
+            return (List<SvnHistoryFragment>) ois.readObject();
+        }
+    }
+
+    private static void deleteDirectory(final File dir) {
+        final File[] files = dir.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void testReplayedGraphEqualsDirectlyBuiltGraph() throws Exception {
+        final File dir = Files.createTempDirectory("svnfragments").toFile();
+        try {
+            final SvnFileHistoryGraph recorded = new SvnFileHistoryGraph(
+                    DiffAlgorithmFactory.createDefault(), dir, Collections.<SvnHistoryFragment>emptyList());
+            buildFirstRange(recorded);
+            recorded.completeFragment(1, 3);
+            buildSecondRange(recorded);
+            recorded.completeFragment(4, 5);
+            recorded.storeFragments();
+            assertFalse(recorded.isMaterialised());
+
+            final SvnFileHistoryGraph reloaded = new SvnFileHistoryGraph(
+                    DiffAlgorithmFactory.createDefault(), dir, roundTrip(recorded.getFragments()));
+            assertThat(reloaded.getFragments().size(), is(equalTo(2)));
+            assertFalse(reloaded.isMaterialised());
+
+            final FileHistoryGraph expected = new FileHistoryGraph(DiffAlgorithmFactory.createDefault());
+            buildFirstRange(expected);
+            buildSecondRange(expected);
+
+            assertThat(reloaded.toString(), is(equalTo(expected.toString())));
+            assertThat(reloaded.getPaths(), is(equalTo(expected.getPaths())));
+            assertTrue(reloaded.isMaterialised());
+        } finally {
+            deleteDirectory(dir);
+        }
+    }
+
+    @Test
+    public void testMutationsAfterAssemblyAreAppliedAndRecorded() throws Exception {
+        final File dir = Files.createTempDirectory("svnfragments").toFile();
+        try {
+            final SvnFileHistoryGraph graph = new SvnFileHistoryGraph(
+                    DiffAlgorithmFactory.createDefault(), dir, Collections.<SvnHistoryFragment>emptyList());
+            buildFirstRange(graph);
+            graph.completeFragment(1, 3);
+            graph.storeFragments();
+            graph.getPaths();
+
+            buildSecondRange(graph);
+            graph.completeFragment(4, 5);
+            buildThirdRange(graph);
+            graph.completeFragment(6, 6);
+
+            final FileHistoryGraph expected = new FileHistoryGraph(DiffAlgorithmFactory.createDefault());
+            buildFirstRange(expected);
+            buildSecondRange(expected);
+            buildThirdRange(expected);
+            assertThat(graph.toString(), is(equalTo(expected.toString())));
+
+            graph.storeFragments();
+            assertThat(dir.list().length, is(equalTo(3)));
+            final SvnFileHistoryGraph reloaded = new SvnFileHistoryGraph(
+                    DiffAlgorithmFactory.createDefault(), dir, roundTrip(graph.getFragments()));
+            assertThat(reloaded.toString(), is(equalTo(expected.toString())));
+        } finally {
+            deleteDirectory(dir);
+        }
+    }
+
+    @Test
+    public void testNeighbouringFragmentsOfSimilarSizeAreMerged() throws Exception {
+        final File dir = Files.createTempDirectory("svnfragments").toFile();
+        try {
+            final SvnFileHistoryGraph graph = new SvnFileHistoryGraph(
+                    DiffAlgorithmFactory.createDefault(), dir, Collections.<SvnHistoryFragment>emptyList());
+            final FileHistoryGraph expected = new FileHistoryGraph(DiffAlgorithmFactory.createDefault());
+            graph.addAddition("/trunk/a.txt", rev(1));
+            expected.addAddition("/trunk/a.txt", rev(1));
+            for (long r = 2; r <= 20; r++) {
+                graph.addChange("/trunk/a.txt", rev(r), Collections.singleton(rev(r - 1)));
+                expected.addChange("/trunk/a.txt", rev(r), Collections.singleton(rev(r - 1)));
+            }
+            graph.completeFragment(1, 20);
+            graph.storeFragments();
+            final SvnHistoryFragment large = graph.getFragments().get(0);
+
+            // fragments with a single operation each are merged with each other, but not with the large one
+            final List<String> rangesAfterStoring = new ArrayList<>();
+            for (long r = 21; r <= 27; r++) {
+                graph.addChange("/trunk/a.txt", rev(r), Collections.singleton(rev(r - 1)));
+                expected.addChange("/trunk/a.txt", rev(r), Collections.singleton(rev(r - 1)));
+                graph.completeFragment(r, r);
+                graph.storeFragments();
+                rangesAfterStoring.add(graph.getFragments().toString());
+                assertThat(graph.getFragments().get(0), is(sameInstance(large)));
+            }
+            assertThat(rangesAfterStoring, is(equalTo(Arrays.asList(
+                    "[1..20, 21..21]",
+                    "[1..20, 21..21, 22..22]",
+                    "[1..20, 21..21, 22..22, 23..23]",
+                    "[1..20, 21..24]",
+                    "[1..20, 21..24, 25..25]",
+                    "[1..20, 21..24, 25..25, 26..26]",
+                    "[1..20, 21..27]"))));
+            assertFalse(graph.isMaterialised());
+
+            final SvnFileHistoryGraph reloaded = new SvnFileHistoryGraph(
+                    DiffAlgorithmFactory.createDefault(), dir, roundTrip(graph.getFragments()));
+            assertThat(reloaded.toString(), is(equalTo(expected.toString())));
+        } finally {
+            deleteDirectory(dir);
+        }
+    }
+
+    @Test
+    public void testEmptyRangeCreatesNoFragment() {
+        final SvnFileHistoryGraph graph = new SvnFileHistoryGraph(
+                DiffAlgorithmFactory.createDefault(), new File(""), Collections.<SvnHistoryFragment>emptyList());
+        graph.completeFragment(1, 10);
+        assertThat(graph.getFragments().size(), is(equalTo(0)));
+    }
+}
@@ -0,0 +1,186 @@
+package de.setsoftware.reviewtool.changesources.svn;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.tmatesoft.svn.core.SVNException;
+
+/**
+ * Creates local Subversion repositories with a reproducible, configurable history for tests and benchmarks.
+ *
+ * <p>The repository has the usual layout with trunk and branches. The first revision adds a directory tree below
+ * trunk with the configured fan-out and depth and some files in every directory. Each following revision either
+ * creates a branch by copying trunk, copies a file or changes some files. Changes happen mostly on trunk,
+ * sometimes on a branch. Every commit message starts with the key of one of the configured number of tickets.
+ */
+public class SvnFixtureGenerator {
+
+    private int numberOfRevisions = 200;
+    private int fanOut = 4;
+    private int depth = 3;
+    private int filesPerDirectory = 5;
+    private int filesPerCommit = 3;
+    private int copyEvery = 20;
+    private int branchEvery = 50;
+    private int numberOfTickets = 20;
+    private long seed = 42L;
+
+    /**
+     * Sets the number of revisions in the generated repository.
+     */
+    public SvnFixtureGenerator revisions(int count) {
+        this.numberOfRevisions = count;
+        return this;
+    }
+
+    /**
+     * Sets the number of subdirectories per directory.
+     */
+    public SvnFixtureGenerator fanOut(int count) {
+        this.fanOut = count;
+        return this;
+    }
+
+    /**
+     * Sets the number of directory levels below trunk.
+     */
+    public SvnFixtureGenerator depth(int levels) {
+        this.depth = levels;
+        return this;
+    }
+
+    /**
+     * Sets the number of files per directory.
+     */
+    public SvnFixtureGenerator filesPerDirectory(int count) {
+        this.filesPerDirectory = count;
+        return this;
+    }
+
+    /**
+     * Sets the number of files changed in a normal commit.
+     */
+    public SvnFixtureGenerator filesPerCommit(int count) {
+        this.filesPerCommit = count;
+        return this;
+    }
+
+    /**
+     * Sets that every n-th revision copies a file. Zero means no file copies.
+     */
+    public SvnFixtureGenerator copyEvery(int n) {
+        this.copyEvery = n;
+        return this;
+    }
+
+    /**
+     * Sets that every n-th revision creates a new branch. Zero means no branches.
+     */
+    public SvnFixtureGenerator branchEvery(int n) {
+        this.branchEvery = n;
+        return this;
+    }
+
+    /**
+     * Sets the number of different tickets referenced by the commit messages.
+     */
+    public SvnFixtureGenerator tickets(int count) {
+        this.numberOfTickets = count;
+        return this;
+    }
+
+    /**
+     * Sets the seed for the random decisions, so that different but reproducible histories can be created.
+     */
+    public SvnFixtureGenerator seed(long value) {
+        this.seed = value;
+        return this;
+    }
+
+    /**
+     * Returns the key of the ticket with the given number, as used in the commit messages.
+     */
+    public static String ticketKey(int number) {
+        return "TICKET-" + number;
+    }
+
+    /**
+     * Creates a new repository with the configured history. The caller has to clean it up afterwards.
+     */
+    public SvnTestdataRepo generate() throws IOException, SVNException {
+        final Random random = new Random(this.seed);
+        final SvnTestdataRepo repo = new SvnTestdataRepo();
+        try {
+            final List<String> trunkFiles = new ArrayList<>();
+            this.addFiles(repo, "trunk", 0, trunkFiles);
+            repo.addFile("branches/.keep", "");
+            repo.commit(this.message(random, "initial import"));
+
+            final List<String> branches = new ArrayList<>();
+            final List<List<String>> branchFiles = new ArrayList<>();
+            for (int revision = 2; revision <= this.numberOfRevisions; revision++) {
+                if (this.branchEvery > 0 && revision % this.branchEvery == 0) {
+                    final String branch = "branches/branch" + branches.size();
+                    repo.copyDirectoryInRepository("trunk", branch, this.message(random, "create " + branch));
+                    branches.add(branch);
+                    final List<String> files = new ArrayList<>();
+                    for (final String file : trunkFiles) {
+                        files.add(branch + file.substring("trunk".length()));
+                    }
+                    branchFiles.add(files);
+                    continue;
+                }
+
+                final List<String> files = branches.isEmpty() || random.nextInt(4) != 0
+                        ? trunkFiles : branchFiles.get(random.nextInt(branchFiles.size()));
+                if (this.copyEvery > 0 && revision % this.copyEvery == 0) {
+                    final String source = files.get(random.nextInt(files.size()));
+                    final String target = source.replace(".txt", "_copy" + revision + ".txt");
+                    repo.copyFile(source, target);
+                    files.add(target);
+                }
+                for (int i = 0; i < this.filesPerCommit; i++) {
+                    final String file = files.get(random.nextInt(files.size()));
+                    repo.changeFile(file, content(file, revision));
+                }
+                repo.commit(this.message(random, "change in revision " + revision));
+            }
+            return repo;
+        } catch (final IOException | SVNException | RuntimeException e) {
+            repo.clean();
+            throw e;
+        }
+    }
+
+    private void addFiles(SvnTestdataRepo repo, String dir, int level, List<String> files)
+            throws IOException, SVNException {
+        for (int i = 0; i < this.filesPerDirectory; i++) {
+            final String file = dir + "/file" + i + ".txt";
+            repo.addFile(file, content(file, 1));
+            files.add(file);
+        }
+        if (level < this.depth) {
+            for (int i = 0; i < this.fanOut; i++) {
+                this.addFiles(repo, dir + "/dir" + level + "_" + i, level + 1, files);
+            }
+        }
+    }
+
+    private String message(Random random, String text) {
+        return ticketKey(1 + random.nextInt(this.numberOfTickets)) + ": " + text;
+    }
+
+    private static String content(String file, int revision) {
+        final StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            content.append(file).append(" line ").append(i);
+            if (i == revision % 20) {
+                content.append(" changed in revision ").append(revision);
+            }
+            content.append('\n');
+        }
+        return content.toString();
+    }
+}
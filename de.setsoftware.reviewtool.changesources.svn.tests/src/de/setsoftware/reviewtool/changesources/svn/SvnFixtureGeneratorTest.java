@@ -0,0 +1,40 @@
+package de.setsoftware.reviewtool.changesources.svn;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+import org.tmatesoft.svn.core.SVNNodeKind;
+import org.tmatesoft.svn.core.io.SVNRepository;
+
+/**
+ * Tests for {@link SvnFixtureGenerator}.
+ */
+public class SvnFixtureGeneratorTest {
+
+    @Test
+    public void testGeneratesConfiguredHistory() throws Exception {
+        final SvnTestdataRepo repo = new SvnFixtureGenerator()
+                .revisions(12)
+                .fanOut(2)
+                .depth(1)
+                .filesPerDirectory(2)
+                .copyEvery(5)
+                .branchEvery(4)
+                .generate();
+        try {
+            final SvnSessionPool pool = repo.createSessionPool(1);
+            assertThat(pool.execute("", (final SVNRepository session) -> session.getLatestRevision()),
+                    is(equalTo(12L)));
+            assertThat(pool.execute("", (final SVNRepository session) ->
+                    session.checkPath("/trunk/dir0_1/file1.txt", 1)), is(equalTo(SVNNodeKind.FILE)));
+            assertThat(pool.execute("", (final SVNRepository session) ->
+                    session.checkPath("/branches/branch2/dir0_0/file0.txt", 12)), is(equalTo(SVNNodeKind.FILE)));
+            assertThat(pool.execute("", (final SVNRepository session) ->
+                    session.checkPath("/branches/branch3", 12)), is(equalTo(SVNNodeKind.NONE)));
+        } finally {
+            repo.clean();
+        }
+    }
+}
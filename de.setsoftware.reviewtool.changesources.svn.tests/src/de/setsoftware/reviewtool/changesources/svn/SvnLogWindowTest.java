@@ -0,0 +1,77 @@
+package de.setsoftware.reviewtool.changesources.svn;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link SvnLogWindow}.
+ */
+public class SvnLogWindowTest {
+
+    private static final long MILLIS = 1000000L;
+
+    @Test
+    public void testBlockSizeGrowsForFastServer() {
+        final SvnLogWindow window = new SvnLogWindow(1000);
+        window.recordBlock(500, 500, 10 * MILLIS, 100 * MILLIS);
+        assertThat(window.getBlockSize(), is(equalTo(2000L)));
+        window.recordBlock(2000, 2000, 10 * MILLIS, 100 * MILLIS);
+        assertThat(window.getBlockSize(), is(equalTo(8000L)));
+        window.recordBlock(8000, 8000, 10 * MILLIS, 100 * MILLIS);
+        assertThat(window.getBlockSize(), is(equalTo(SvnLogWindow.MAX_BLOCK_SIZE)));
+    }
+
+    @Test
+    public void testBlockSizeShrinksForSlowServer() {
+        final SvnLogWindow window = new SvnLogWindow(1000);
+        window.recordBlock(500, 500, 100 * MILLIS, 25000 * MILLIS);
+        assertThat(window.getBlockSize(), is(equalTo(100L)));
+        window.recordBlock(100, 100, 100 * MILLIS, 100000 * MILLIS);
+        assertThat(window.getBlockSize(), is(equalTo(SvnLogWindow.MIN_BLOCK_SIZE)));
+    }
+
+    @Test
+    public void testHighLatencyLeadsToLongerBlocks() {
+        final SvnLogWindow window = new SvnLogWindow(1000);
+        // a latency of 1 s: blocks should take 10 s instead of 5 s
+        window.recordBlock(500, 500, 1000 * MILLIS, 1000 * MILLIS);
+        assertThat(window.getBlockSize(), is(equalTo(2000L)));
+        window.recordBlock(2000, 2000, 1000 * MILLIS, 2000 * MILLIS);
+        assertThat(window.getBlockSize(), is(equalTo(8000L)));
+        window.recordBlock(8000, 8000, 1000 * MILLIS, 8000 * MILLIS);
+        assertThat(window.getBlockSize(), is(equalTo(10000L)));
+    }
+
+    @Test
+    public void testPartialBlockDoesNotChangeBlockSize() {
+        final SvnLogWindow window = new SvnLogWindow(1000);
+        window.recordBlock(3, 3, 10 * MILLIS, 10 * MILLIS);
+        assertThat(window.getBlockSize(), is(equalTo(SvnLogWindow.INITIAL_BLOCK_SIZE)));
+    }
+
+    @Test
+    public void testInitialWindowFollowsHitDistance() {
+        final SvnLogWindow window = new SvnLogWindow(1000);
+        assertThat(window.getInitialWindow(), is(equalTo(1000L)));
+        window.recordHitDistance(300);
+        assertThat(window.getInitialWindow(), is(equalTo(1000L)));
+        window.recordHitDistance(2500);
+        window.recordHitDistance(700);
+        assertThat(window.getInitialWindow(), is(equalTo(5000L)));
+        window.recordHitDistance(10000000);
+        assertThat(window.getInitialWindow(), is(equalTo(SvnLogWindow.MAX_INITIAL_WINDOW)));
+    }
+
+    @Test
+    public void testOnlyLargerHitDistancesAreReported() {
+        final SvnLogWindow window = new SvnLogWindow(1000);
+        assertThat(window.recordHitDistance(300), is(equalTo(true)));
+        assertThat(window.recordHitDistance(300), is(equalTo(false)));
+        assertThat(window.recordHitDistance(200), is(equalTo(false)));
+        assertThat(window.recordHitDistance(400), is(equalTo(true)));
+        assertThat(window.getMaxHitDistance(), is(equalTo(400L)));
+    }
+}
@@ -0,0 +1,172 @@
+package de.setsoftware.reviewtool.changesources.svn;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.SVNNodeKind;
+import org.tmatesoft.svn.core.io.SVNRepository;
+
+/**
+ * Tests for {@link SvnSessionPool}.
+ */
+public class SvnSessionPoolTest {
+
+    @Test
+    public void testConcurrentUseIsBounded() throws Exception {
+        final SvnTestdataRepo repo = new SvnTestdataRepo();
+        try {
+            repo.addFile("trunk/a.txt", "a\n").addFile("trunk/sub/b.txt", "b\n");
+            final long revision = repo.commit("add files");
+
+            final SvnSessionPool pool = repo.createSessionPool(3);
+            final AtomicInteger sessionsInUse = new AtomicInteger();
+            final AtomicInteger maxSessionsInUse = new AtomicInteger();
+
+            final ExecutorService executor = Executors.newFixedThreadPool(16);
+            final List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 400; i++) {
+                final String path = i % 2 == 0 ? "/trunk/a.txt" : "/trunk/sub/b.txt";
+                results.add(executor.submit(() -> pool.execute("", (final SVNRepository session) -> {
+                    final int inUse = sessionsInUse.incrementAndGet();
+                    maxSessionsInUse.accumulateAndGet(inUse, Math::max);
+                    try {
+                        final ByteArrayOutputStream contents = new ByteArrayOutputStream();
+                        session.getFile(path, revision, null, contents);
+                        return session.getLatestRevision() == revision
+                                && session.checkPath(path, revision) == SVNNodeKind.FILE
+                                && contents.size() == 2;
+                    } finally {
+                        sessionsInUse.decrementAndGet();
+                    }
+                })));
+            }
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+            for (final Future<Boolean> result : results) {
+                assertThat(result.get(), is(equalTo(true)));
+            }
+            assertTrue(maxSessionsInUse.get() <= 3);
+            assertTrue(pool.getNumberOfCreatedSessions() <= 3);
+            assertThat(pool.getNumberOfIdleSessions(), is(equalTo((int) pool.getNumberOfCreatedSessions())));
+        } finally {
+            repo.clean();
+        }
+    }
+
+    @Test
+    public void testNestedUseDoesNotBlock() throws Exception {
+        final SvnTestdataRepo repo = new SvnTestdataRepo();
+        try {
+            repo.addFile("trunk/a.txt", "a\n");
+            final long revision = repo.commit("add file");
+
+            final SvnSessionPool pool = repo.createSessionPool(1);
+            final long nestedResult = pool.execute("trunk", (final SVNRepository outer) ->
+                    pool.execute("", (final SVNRepository inner) -> inner.getLatestRevision()));
+
+            assertThat(nestedResult, is(equalTo(revision)));
+            assertThat(pool.getNumberOfCreatedSessions(), is(equalTo(2L)));
+        } finally {
+            repo.clean();
+        }
+    }
+
+    @Test
+    public void testNestedCallsShareOneSession() throws Exception {
+        final SvnTestdataRepo repo = new SvnTestdataRepo();
+        try {
+            repo.addFile("trunk/a.txt", "a\n");
+            repo.commit("add file");
+
+            final SvnSessionPool pool = repo.createSessionPool(1);
+            pool.execute("trunk", (final SVNRepository outer) -> {
+                for (int i = 0; i < 10; i++) {
+                    pool.execute(i % 2 == 0 ? "" : "trunk", (final SVNRepository inner) -> inner.getLatestRevision());
+                }
+                return null;
+            });
+
+            assertThat(pool.getNumberOfCreatedSessions(), is(equalTo(2L)));
+            assertThat(pool.getNumberOfIdleSessions(), is(equalTo(2)));
+        } finally {
+            repo.clean();
+        }
+    }
+
+    @Test
+    public void testSessionsAreReused() throws Exception {
+        final SvnTestdataRepo repo = new SvnTestdataRepo();
+        try {
+            repo.addFile("trunk/a.txt", "a\n");
+            repo.commit("add file");
+
+            final SvnSessionPool pool = repo.createSessionPool(2);
+            for (int i = 0; i < 10; i++) {
+                pool.execute(i % 2 == 0 ? "" : "trunk", (final SVNRepository session) -> session.getLatestRevision());
+            }
+
+            assertThat(pool.getNumberOfCreatedSessions(), is(equalTo(1L)));
+            assertThat(pool.getNumberOfIdleSessions(), is(equalTo(1)));
+        } finally {
+            repo.clean();
+        }
+    }
+
+    @Test
+    public void testIdleSessionsAreEvicted() throws Exception {
+        final SvnTestdataRepo repo = new SvnTestdataRepo();
+        try {
+            repo.addFile("trunk/a.txt", "a\n");
+            repo.commit("add file");
+
+            final SvnSessionPool pool = new SvnSessionPool(repo.getClientManager(), repo.getUrl(), 2, 0L, 0L);
+            pool.execute("", (final SVNRepository session) -> session.getLatestRevision());
+            assertThat(pool.getNumberOfIdleSessions(), is(equalTo(0)));
+            pool.execute("", (final SVNRepository session) -> session.getLatestRevision());
+
+            assertThat(pool.getNumberOfCreatedSessions(), is(equalTo(2L)));
+        } finally {
+            repo.clean();
+        }
+    }
+
+    @Test
+    public void testSessionIsDiscardedAfterFailure() throws Exception {
+        final SvnTestdataRepo repo = new SvnTestdataRepo();
+        try {
+            repo.addFile("trunk/a.txt", "a\n");
+            final long revision = repo.commit("add file");
+
+            final SvnSessionPool pool = repo.createSessionPool(2);
+            try {
+                pool.execute("", (final SVNRepository session) ->
+                        session.getFile("/trunk/doesNotExist.txt", revision, null, new ByteArrayOutputStream()));
+                fail("expected exception");
+            } catch (final SVNException e) {
+                // expected
+            }
+            assertThat(pool.getNumberOfIdleSessions(), is(equalTo(0)));
+
+            pool.execute("", (final SVNRepository session) -> session.getLatestRevision());
+            assertThat(pool.getNumberOfCreatedSessions(), is(equalTo(2L)));
+            assertThat(pool.getNumberOfIdleSessions(), is(equalTo(1)));
+        } finally {
+            repo.clean();
+        }
+    }
+}
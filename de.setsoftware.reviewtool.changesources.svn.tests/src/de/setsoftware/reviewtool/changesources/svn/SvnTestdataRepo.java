@@ -0,0 +1,142 @@
+package de.setsoftware.reviewtool.changesources.svn;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.tmatesoft.svn.core.SVNDepth;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.internal.io.fs.FSRepositoryFactory;
+import org.tmatesoft.svn.core.io.SVNRepositoryFactory;
+import org.tmatesoft.svn.core.wc.SVNClientManager;
+import org.tmatesoft.svn.core.wc.SVNCopySource;
+import org.tmatesoft.svn.core.wc.SVNRevision;
+
+/**
+ * A local Subversion repository accessed via a file:// URL, together with a working copy of it.
+ * Changes are made in the working copy and committed to the repository.
+ */
+public class SvnTestdataRepo {
+
+    private final File baseDir;
+    private final SVNURL url;
+    private final File wcDir;
+    private final SVNClientManager mgr;
+
+    public SvnTestdataRepo() throws IOException, SVNException {
+        FSRepositoryFactory.setup();
+        this.baseDir = Files.createTempDirectory("svntesttemp").toFile();
+        this.url = SVNRepositoryFactory.createLocalRepository(new File(this.baseDir, "repo"), true, false);
+        this.wcDir = new File(this.baseDir, "wc");
+        this.mgr = SVNClientManager.newInstance();
+        this.mgr.getUpdateClient().doCheckout(
+                this.url, this.wcDir, SVNRevision.HEAD, SVNRevision.HEAD, SVNDepth.INFINITY, false);
+    }
+
+    public SVNURL getUrl() {
+        return this.url;
+    }
+
+    public File getWorkingCopyDir() {
+        return this.wcDir;
+    }
+
+    public SVNClientManager getClientManager() {
+        return this.mgr;
+    }
+
+    /**
+     * Returns a new session pool for the repository.
+     */
+    SvnSessionPool createSessionPool(int maxSessions) {
+        return new SvnSessionPool(this.mgr, this.url, maxSessions, 30 * 1000L, 5 * 60 * 1000L);
+    }
+
+    public void clean() throws IOException {
+        this.mgr.dispose();
+        try (Stream<Path> files = Files.walk(this.baseDir.toPath())) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    public SvnTestdataRepo addFile(String filename, String content) throws IOException, SVNException {
+        final File file = this.resolvePath(filename);
+        final boolean existed = file.exists();
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        if (!existed) {
+            this.mgr.getWCClient().doAdd(file, true, false, true, SVNDepth.INFINITY, false, true);
+        }
+        return this;
+    }
+
+    public SvnTestdataRepo addFile(String filename, int numberOfLines) throws IOException, SVNException {
+        final StringBuilder content = new StringBuilder();
+        for (int i = 0; i < numberOfLines; i++) {
+            content.append("line ").append(i).append('\n');
+        }
+        return this.addFile(filename, content.toString());
+    }
+
+    public SvnTestdataRepo changeFile(String filename, String content) throws IOException {
+        Files.write(this.resolvePath(filename).toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return this;
+    }
+
+    public SvnTestdataRepo copyFile(String source, String target) throws SVNException {
+        final SVNCopySource copySource =
+                new SVNCopySource(SVNRevision.WORKING, SVNRevision.WORKING, this.resolvePath(source));
+        this.mgr.getCopyClient().doCopy(
+                new SVNCopySource[] {copySource},
+                this.resolvePath(target),
+                false,
+                true,
+                true);
+        return this;
+    }
+
+    public SvnTestdataRepo deleteFile(String filename) throws SVNException {
+        this.mgr.getWCClient().doDelete(this.resolvePath(filename), true, false);
+        return this;
+    }
+
+    /**
+     * Copies a directory directly in the repository, e.g. to create a branch, and updates the working copy.
+     * @return The new revision.
+     */
+    public long copyDirectoryInRepository(String source, String target, String commitComment) throws SVNException {
+        final SVNCopySource copySource =
+                new SVNCopySource(SVNRevision.HEAD, SVNRevision.HEAD, this.url.appendPath(source, false));
+        final long revision = this.mgr.getCopyClient().doCopy(
+                new SVNCopySource[] {copySource},
+                this.url.appendPath(target, false),
+                false,
+                true,
+                true,
+                commitComment,
+                null).getNewRevision();
+        this.mgr.getUpdateClient().doUpdate(this.wcDir, SVNRevision.HEAD, SVNDepth.INFINITY, false, false);
+        return revision;
+    }
+
+    /**
+     * Commits all changes in the working copy and updates it afterwards.
+     * @return The new revision.
+     */
+    public long commit(String commitComment) throws SVNException {
+        final long revision = this.mgr.getCommitClient().doCommit(
+                new File[] {this.wcDir}, false, commitComment, null, null, false, false, SVNDepth.INFINITY)
+                .getNewRevision();
+        this.mgr.getUpdateClient().doUpdate(this.wcDir, SVNRevision.HEAD, SVNDepth.INFINITY, false, false);
+        return revision;
+    }
+
+    private File resolvePath(String filename) {
+        return new File(this.wcDir, filename);
+    }
+}
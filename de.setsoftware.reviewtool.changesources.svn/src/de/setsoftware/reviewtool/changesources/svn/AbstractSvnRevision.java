@@ -69,7 +69,9 @@ abstract class AbstractSvnRevision implements SvnRevision {
                             // check if we found a leaf
                             if (Optional.ofNullable(node.getValue()).orElse(false)) {
                                 final String deletedPath = String.join("/", entry.getFirst());
-                                graph.addDeletion(deletedPath.isEmpty() ? path : path + "/" + deletedPath, revision);
+                                graph.addDeletion(
+                                        SvnPathTable.intern(deletedPath.isEmpty() ? path : path + "/" + deletedPath),
+                                        revision);
                             }
                         }
 
@@ -81,7 +83,7 @@ abstract class AbstractSvnRevision implements SvnRevision {
                     // check ancestor revision for contents of this path and remove all leafs
                     for (final ISvnRepo.File deletedFile :
                             this.getRelevantFilePaths(pathInfo, path, pathInfo.getAncestorRevision())) {
-                        graph.addDeletion(deletedFile.getName(), revision);
+                        graph.addDeletion(SvnPathTable.intern(deletedFile.getName()), revision);
                     }
                 }
             }
@@ -100,8 +102,9 @@ abstract class AbstractSvnRevision implements SvnRevision {
 
                         for (final ISvnRepo.File copySource :
                                 this.getRelevantFilePaths(pathInfo, copyPath, copyRevisionNumber)) {
-                            final String copySourcePath = copySource.getName();
-                            final String copyTargetPath = path + copySourcePath.substring(copyPathLen);
+                            final String copySourcePath = SvnPathTable.intern(copySource.getName());
+                            final String copyTargetPath =
+                                    SvnPathTable.intern(path + copySourcePath.substring(copyPathLen));
                             graph.addCopy(
                                     copySourcePath,
                                     copyRevision,
@@ -31,10 +31,30 @@ final class CachedLogEntry implements Serializable {
 
         this.paths = new TreeMap<>();
         for (final Entry<String, SVNLogEntryPath> e : logEntry.getChangedPaths().entrySet()) {
-            this.paths.put(e.getKey(), new CachedLogEntryPath(e.getValue(), this.revision - 1));
+            final CachedLogEntryPath path = new CachedLogEntryPath(e.getValue(), this.revision - 1);
+            this.paths.put(path.getPath(), path);
         }
     }
 
+    private CachedLogEntry(final CachedLogEntry deserializedEntry) {
+        this.revision = deserializedEntry.revision;
+        this.message = deserializedEntry.message;
+        this.author = deserializedEntry.author;
+        this.date = deserializedEntry.date;
+
+        this.paths = new TreeMap<>();
+        for (final CachedLogEntryPath path : deserializedEntry.paths.values()) {
+            this.paths.put(path.getPath(), path);
+        }
+    }
+
+    /**
+     * Replaces the paths of a deserialized entry by their canonical instances in the {@link SvnPathTable}.
+     */
+    private Object readResolve() {
+        return new CachedLogEntry(this);
+    }
+
     String getMessage() {
         return this.message;
     }
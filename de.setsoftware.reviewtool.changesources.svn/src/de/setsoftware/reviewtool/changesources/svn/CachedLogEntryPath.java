@@ -25,9 +25,9 @@ final class CachedLogEntryPath implements Serializable {
     private final char kind;
 
     CachedLogEntryPath(final SVNLogEntryPath value, final long prevRevision) {
-        this.path = value.getPath();
+        this.path = SvnPathTable.intern(value.getPath());
         this.localPath = null;
-        this.copyPath = value.getCopyPath();
+        this.copyPath = SvnPathTable.intern(value.getCopyPath());
         this.prevRevision = prevRevision;
         this.copyRevision = value.getCopyRevision();
         this.type = value.getType();
@@ -43,11 +43,12 @@ final class CachedLogEntryPath implements Serializable {
 
         final String copySourceUrl = status.getCopyFromURL();
         if (copySourceUrl != null) {
-            this.path = '/' + status.getRepositoryRelativePath();
-            this.copyPath = copySourceUrl.substring(repo.getRemoteUrl().toString().length());
+            this.path = SvnPathTable.intern('/' + status.getRepositoryRelativePath());
+            this.copyPath = SvnPathTable.intern(
+                    copySourceUrl.substring(repo.getRemoteUrl().toString().length()));
             this.copyRevision = status.getCopyFromRevision().getNumber();
         } else {
-            this.path = '/' + status.getRepositoryRelativePath();
+            this.path = SvnPathTable.intern('/' + status.getRepositoryRelativePath());
             this.copyPath = null;
             this.copyRevision = -1;
         }
@@ -56,6 +57,23 @@ final class CachedLogEntryPath implements Serializable {
         this.kind = mapStatusKind(status.getKind());
     }
 
+    private CachedLogEntryPath(final CachedLogEntryPath deserializedPath) {
+        this.path = SvnPathTable.intern(deserializedPath.path);
+        this.localPath = deserializedPath.localPath;
+        this.copyPath = SvnPathTable.intern(deserializedPath.copyPath);
+        this.prevRevision = deserializedPath.prevRevision;
+        this.copyRevision = deserializedPath.copyRevision;
+        this.type = deserializedPath.type;
+        this.kind = deserializedPath.kind;
+    }
+
+    /**
+     * Replaces the paths of a deserialized object by their canonical instances in the {@link SvnPathTable}.
+     */
+    private Object readResolve() {
+        return new CachedLogEntryPath(this);
+    }
+
     private static char mapStatusKind(final SVNNodeKind nodeKind) {
         if (nodeKind.equals(SVNNodeKind.FILE)) {
             return 'F';
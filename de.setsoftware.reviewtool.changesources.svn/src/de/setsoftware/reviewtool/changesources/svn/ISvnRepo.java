@@ -56,9 +56,15 @@ interface ISvnRepo extends IRepository {
     public abstract java.io.File getCacheFilePath();
 
     /**
-     * Determines all commits between passed revision and the latest one.
+     * Returns the path to the directory containing the fragments of the cached file history graph.
      */
-    public abstract void getLog(final long startRevision, final ISVNLogEntryHandler handler) throws SVNException;
+    public abstract java.io.File getHistoryFragmentDirectory();
+
+    /**
+     * Determines all commits between the passed revisions (both inclusive).
+     */
+    public abstract void getLog(final long startRevision, final long endRevision, final ISVNLogEntryHandler handler)
+            throws SVNException;
 
     /**
      * Returns the latest revision of this repository.
@@ -80,13 +86,36 @@ interface ISvnRepo extends IRepository {
      */
     public abstract Set<? extends File> getFiles(String path, IRepoRevision<?> revision);
 
+    /**
+     * Loads the contents of the given files in the given revision into the file cache at one go, so that subsequent
+     * calls to {@link #getFileContents(String, IRepoRevision)} for them do not need to access the server anymore.
+     *
+     * @param revision The revision of the files.
+     * @param paths The absolute paths of the files in the repository.
+     */
+    public abstract void prefetchFileContents(long revision, Collection<String> paths) throws SVNException;
+
+    /**
+     * Loads the contents of a file in the given revisions into the file cache at one go, using deltas between the
+     * revisions instead of full texts. Revisions that cannot be loaded this way are loaded on demand later.
+     *
+     * @param path The absolute path of the file in the repository.
+     * @param revisions The revisions of the file.
+     */
+    public abstract void prefetchFileHistory(String path, Collection<Long> revisions) throws SVNException;
+
+    /**
+     * Returns the number of bytes received from the server for loading file contents so far.
+     */
+    public abstract long getNumberOfBytesReceived();
+
     @Override
-    public abstract IMutableFileHistoryGraph getFileHistoryGraph();
+    public abstract SvnFileHistoryGraph getFileHistoryGraph();
 
     /**
      * Sets the underlying {@link SvnFileHistoryGraph}.
      */
-    public abstract void setFileHistoryGraph(final IMutableFileHistoryGraph fileHistoryGraph);
+    public abstract void setFileHistoryGraph(final SvnFileHistoryGraph fileHistoryGraph);
 
     /**
      * Clears the cache, both on disk and in memory.
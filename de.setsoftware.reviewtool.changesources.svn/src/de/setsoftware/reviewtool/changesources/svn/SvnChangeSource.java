@@ -9,6 +9,9 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.regex.Pattern;
 
 import org.tmatesoft.svn.core.SVNDepth;
@@ -17,6 +20,7 @@ import org.tmatesoft.svn.core.internal.wc.DefaultSVNAuthenticationManager;
 import org.tmatesoft.svn.core.wc.SVNClientManager;
 import org.tmatesoft.svn.core.wc.SVNRevision;
 
+import de.setsoftware.reviewtool.base.ComparableWrapper;
 import de.setsoftware.reviewtool.base.Logger;
 import de.setsoftware.reviewtool.base.Pair;
 import de.setsoftware.reviewtool.model.api.BackgroundJobExecutor;
@@ -26,10 +30,16 @@ import de.setsoftware.reviewtool.model.api.IChangeData;
 import de.setsoftware.reviewtool.model.api.IChangeSourceUi;
 import de.setsoftware.reviewtool.model.api.ICommit;
 import de.setsoftware.reviewtool.model.api.ICortProgressMonitor;
+import de.setsoftware.reviewtool.model.api.IFileHistoryEdge;
 import de.setsoftware.reviewtool.model.api.IFileHistoryNode;
+import de.setsoftware.reviewtool.model.api.ILocalRevision;
+import de.setsoftware.reviewtool.model.api.IRepoRevision;
+import de.setsoftware.reviewtool.model.api.IRevisionVisitor;
 import de.setsoftware.reviewtool.model.api.IRevisionedFile;
+import de.setsoftware.reviewtool.model.api.IUnknownRevision;
 import de.setsoftware.reviewtool.model.changestructure.AbstractChangeSource;
 import de.setsoftware.reviewtool.model.changestructure.ChangestructureFactory;
+import de.setsoftware.reviewtool.model.changestructure.FileDiffScheduler;
 
 /**
  * A simple change source that loads the changes from subversion.
@@ -37,6 +47,7 @@ import de.setsoftware.reviewtool.model.changestructure.ChangestructureFactory;
 final class SvnChangeSource extends AbstractChangeSource {
 
     private final SVNClientManager mgr = SVNClientManager.newInstance();
+    private final boolean useDeltaRetrieval;
 
     SvnChangeSource(
             final String logMessagePattern,
@@ -44,14 +55,17 @@ final class SvnChangeSource extends AbstractChangeSource {
             final String pwd,
             final long maxTextDiffThreshold,
             final int logCacheMinSize,
+            final boolean useDeltaRetrieval,
+            final long refreshTimeoutMillis,
             final File cacheDir) {
         super(logMessagePattern, maxTextDiffThreshold);
+        this.useDeltaRetrieval = useDeltaRetrieval;
 
         this.mgr.setAuthenticationManager(new DefaultSVNAuthenticationManager(
                 null, false, user, pwd.toCharArray(), null, null));
 
         SvnRepositoryManager.getInstance().init(this.mgr, logCacheMinSize, cacheDir);
-        SvnWorkingCopyManager.getInstance().init(this.mgr);
+        SvnWorkingCopyManager.getInstance().init(this.mgr, refreshTimeoutMillis);
     }
 
     @Override
@@ -85,6 +99,8 @@ final class SvnChangeSource extends AbstractChangeSource {
             final Map<ISvnRepo, Long> neededRevisionPerRepo = this.determineMaxRevisionPerRepo(revisions);
             ui.subTask("Checking state of working copy...");
             this.checkWorkingCopiesUpToDate(neededRevisionPerRepo, ui);
+            ui.subTask("Loading file contents...");
+            this.prefetchFileContents(revisions, ui);
             ui.subTask("Analyzing commits...");
             final List<ICommit> commits = this.convertRepoRevisionsToChanges(revisions, ui);
             return ChangestructureFactory.createChangeData(commits);
@@ -181,15 +197,131 @@ final class SvnChangeSource extends AbstractChangeSource {
         return SvnWorkingCopyManager.getInstance().traverseRecentEntries(handler, ui);
     }
 
+    /**
+     * Loads the contents of all files in repository revisions that are needed for determining the changes of the
+     * given revisions. This needs one request per revision instead of one request per file.
+     * If delta retrieval is enabled, files needed in several revisions are loaded first by one request per file
+     * that transfers only the deltas between the revisions.
+     */
+    private void prefetchFileContents(
+            final List<Pair<SvnWorkingCopy, SvnRepoRevision>> revisions,
+            final ICortProgressMonitor ui) throws SVNException {
+
+        final Map<ISvnRepo, SortedMap<Long, Set<String>>> neededFilesPerRepo = new LinkedHashMap<>();
+        for (final Pair<SvnWorkingCopy, SvnRepoRevision> p : revisions) {
+            final SvnWorkingCopy wc = p.getFirst();
+            final SvnRepoRevision revision = p.getSecond();
+            final SortedMap<Long, Set<String>> neededFiles =
+                    neededFilesPerRepo.computeIfAbsent(wc.getRepository(), (final ISvnRepo repo) -> new TreeMap<>());
+
+            for (final CachedLogEntryPath path : revision.getChangedPaths().values()) {
+                if (!path.isFile()) {
+                    continue;
+                }
+                // this assembles the file history graph, which is needed for converting the revisions anyway
+                final IFileHistoryNode node = wc.getFileHistoryGraph().getNodeFor(
+                        ChangestructureFactory.createFileInRevision(path.getPath(), revision.toRevision()));
+                if (node != null) {
+                    addNeededFile(neededFiles, node.getFile());
+                    for (final IFileHistoryEdge ancestorEdge : node.getAncestors()) {
+                        addNeededFile(neededFiles, ancestorEdge.getAncestor().getFile());
+                    }
+                }
+            }
+        }
+
+        for (final Map.Entry<ISvnRepo, SortedMap<Long, Set<String>>> e : neededFilesPerRepo.entrySet()) {
+            final ISvnRepo repo = e.getKey();
+            final long startTime = System.currentTimeMillis();
+            final long bytesBefore = repo.getNumberOfBytesReceived();
+
+            if (this.useDeltaRetrieval) {
+                for (final Map.Entry<String, Set<Long>> revisionsOfFile : invert(e.getValue()).entrySet()) {
+                    if (ui.isCanceled()) {
+                        throw BackgroundJobExecutor.createOperationCanceledException();
+                    }
+                    if (revisionsOfFile.getValue().size() > 1) {
+                        repo.prefetchFileHistory(revisionsOfFile.getKey(), revisionsOfFile.getValue());
+                    }
+                }
+            }
+            // loads everything not loaded yet, already cached files are skipped
+            for (final Map.Entry<Long, Set<String>> filesInRevision : e.getValue().entrySet()) {
+                if (ui.isCanceled()) {
+                    throw BackgroundJobExecutor.createOperationCanceledException();
+                }
+                repo.prefetchFileContents(filesInRevision.getKey(), filesInRevision.getValue());
+            }
+
+            Logger.info("Loaded file contents of " + e.getValue().size() + " revisions from " + repo + " in "
+                    + (System.currentTimeMillis() - startTime) + " ms, "
+                    + (repo.getNumberOfBytesReceived() - bytesBefore) + " bytes received"
+                    + (this.useDeltaRetrieval ? " (delta retrieval)" : ""));
+        }
+    }
+
+    private static Map<String, Set<Long>> invert(final SortedMap<Long, Set<String>> filesPerRevision) {
+        final Map<String, Set<Long>> revisionsPerFile = new LinkedHashMap<>();
+        for (final Map.Entry<Long, Set<String>> e : filesPerRevision.entrySet()) {
+            for (final String path : e.getValue()) {
+                revisionsPerFile.computeIfAbsent(path, (final String p) -> new TreeSet<>()).add(e.getKey());
+            }
+        }
+        return revisionsPerFile;
+    }
+
+    private static void addNeededFile(final SortedMap<Long, Set<String>> neededFiles, final IRevisionedFile file) {
+        file.getRevision().accept(new IRevisionVisitor<Void>() {
+
+            @Override
+            public Void handleLocalRevision(final ILocalRevision revision) {
+                return null;
+            }
+
+            @Override
+            public Void handleRepoRevision(final IRepoRevision<?> revision) {
+                final Long revisionNumber = ComparableWrapper.<Long> unwrap(revision.getId());
+                neededFiles.computeIfAbsent(revisionNumber, (final Long r) -> new LinkedHashSet<>())
+                        .add(file.getPath());
+                return null;
+            }
+
+            @Override
+            public Void handleUnknownRevision(final IUnknownRevision revision) {
+                return null;
+            }
+        });
+    }
+
     private List<ICommit> convertRepoRevisionsToChanges(
             final List<Pair<SvnWorkingCopy, SvnRepoRevision>> revisions,
             final ICortProgressMonitor ui) {
+        // the diffs are computed in the background, earlier commits (i.e. the first tours) first
+        final FileDiffScheduler.Batch diffs = FileDiffScheduler.getInstance().startBatch();
         final List<ICommit> ret = new ArrayList<>();
-        for (final Pair<SvnWorkingCopy, SvnRepoRevision> e : revisions) {
-            if (ui.isCanceled()) {
-                throw BackgroundJobExecutor.createOperationCanceledException();
+        try {
+            final List<List<IFileHistoryNode>> changedNodes = new ArrayList<>();
+            for (final Pair<SvnWorkingCopy, SvnRepoRevision> e : revisions) {
+                if (ui.isCanceled()) {
+                    throw BackgroundJobExecutor.createOperationCanceledException();
+                }
+                final List<IFileHistoryNode> nodes = this.determineChangedNodes(e.getFirst(), e.getSecond());
+                for (final IFileHistoryNode node : nodes) {
+                    this.scheduleDiffsInFile(diffs, node, changedNodes.size());
+                }
+                changedNodes.add(nodes);
+            }
+
+            for (int i = 0; i < revisions.size(); i++) {
+                if (ui.isCanceled()) {
+                    throw BackgroundJobExecutor.createOperationCanceledException();
+                }
+                final Pair<SvnWorkingCopy, SvnRepoRevision> e = revisions.get(i);
+                this.convertToCommitIfPossible(e.getFirst(), e.getSecond(), changedNodes.get(i), ret, ui);
             }
-            this.convertToCommitIfPossible(e.getFirst(), e.getSecond(), ret, ui);
+        } finally {
+            // the conversion has requested all diffs it needs (or has been aborted), the remaining ones are unneeded
+            diffs.cancel();
         }
         return ret;
     }
@@ -197,9 +329,10 @@ final class SvnChangeSource extends AbstractChangeSource {
     private void convertToCommitIfPossible(
             final SvnWorkingCopy wc,
             final SvnRevision e,
+            final List<IFileHistoryNode> changedNodes,
             final Collection<? super ICommit> result,
             final ICortProgressMonitor ui) {
-        final List<? extends IChange> changes = this.determineChangesInCommit(wc, e, ui);
+        final List<? extends IChange> changes = this.determineChangesInCommit(wc, changedNodes, ui);
         if (!changes.isEmpty()) {
             result.add(ChangestructureFactory.createCommit(
                     wc,
@@ -242,20 +375,35 @@ final class SvnChangeSource extends AbstractChangeSource {
 
     private List<? extends IChange> determineChangesInCommit(
             final SvnWorkingCopy wc,
-            final SvnRevision e,
+            final List<IFileHistoryNode> changedNodes,
             final ICortProgressMonitor ui) {
 
         final List<IChange> ret = new ArrayList<>();
+        for (final IFileHistoryNode node : changedNodes) {
+            if (ui.isCanceled()) {
+                throw BackgroundJobExecutor.createOperationCanceledException();
+            }
+
+            try {
+                ret.addAll(this.determineChangesInFile(wc, node));
+            } catch (final Exception ex) {
+                Logger.error("An error occurred while computing changes for " + node.getFile().toString(), ex);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Returns the nodes of the files changed in the given revision, sorted by path.
+     */
+    private List<IFileHistoryNode> determineChangedNodes(final SvnWorkingCopy wc, final SvnRevision e) {
+        final List<IFileHistoryNode> ret = new ArrayList<>();
         final Map<String, CachedLogEntryPath> changedPaths = e.getChangedPaths();
         final DirectoryCopyInfo dirCopies = new DirectoryCopyInfo(changedPaths.values());
         final Set<String> copySources = this.determineCopySources(changedPaths.values(), dirCopies);
         final List<String> sortedPaths = new ArrayList<>(changedPaths.keySet());
         Collections.sort(sortedPaths);
         for (final String path : sortedPaths) {
-            if (ui.isCanceled()) {
-                throw BackgroundJobExecutor.createOperationCanceledException();
-            }
-
             final CachedLogEntryPath value = changedPaths.get(path);
             if (!value.isFile()) {
                 continue;
@@ -268,11 +416,7 @@ final class SvnChangeSource extends AbstractChangeSource {
             final IRevisionedFile fileInfo = ChangestructureFactory.createFileInRevision(path, e.toRevision());
             final IFileHistoryNode node = wc.getFileHistoryGraph().getNodeFor(fileInfo);
             if (node != null) {
-                try {
-                    ret.addAll(this.determineChangesInFile(wc, node));
-                } catch (final Exception ex) {
-                    Logger.error("An error occurred while computing changes for " + fileInfo.toString(), ex);
-                }
+                ret.add(node);
             }
         }
         return ret;
@@ -26,10 +26,14 @@ public class SvnChangesourceConfigurator implements IConfigurator {
         final String pattern = xml.getAttribute("pattern");
         final String maxTextDiffThreshold = xml.getAttribute("maxTextDiffFileSizeThreshold");
         final String minLogCacheSize = xml.getAttribute("minLogCacheSize");
+        final String deltaRetrieval = xml.getAttribute("deltaRetrieval");
+        final String refreshTimeout = xml.getAttribute("refreshTimeoutSeconds");
         configurable.configureWith(new SvnChangeSource(
                 pattern, user, pwd,
                 Long.parseLong(maxTextDiffThreshold),
                 minLogCacheSize.isEmpty() ? 1000 : Integer.parseInt(minLogCacheSize),
+                Boolean.parseBoolean(deltaRetrieval),
+                (refreshTimeout.isEmpty() ? 600L : Long.parseLong(refreshTimeout)) * 1000L,
                 configurable.getStateDirectory()));
     }
 
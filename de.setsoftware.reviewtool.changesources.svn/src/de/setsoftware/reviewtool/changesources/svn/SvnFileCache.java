@@ -1,15 +1,40 @@
 package de.setsoftware.reviewtool.changesources.svn;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
-import java.util.HashMap;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.tmatesoft.svn.core.SVNCommitInfo;
+import org.tmatesoft.svn.core.SVNDepth;
 import org.tmatesoft.svn.core.SVNException;
 import org.tmatesoft.svn.core.SVNNodeKind;
+import org.tmatesoft.svn.core.SVNPropertyValue;
+import org.tmatesoft.svn.core.io.ISVNEditor;
+import org.tmatesoft.svn.core.io.ISVNFileRevisionHandler;
+import org.tmatesoft.svn.core.io.ISVNReporter;
+import org.tmatesoft.svn.core.io.ISVNReporterBaton;
+import org.tmatesoft.svn.core.io.SVNFileRevision;
 import org.tmatesoft.svn.core.io.SVNRepository;
+import org.tmatesoft.svn.core.io.diff.SVNDeltaProcessor;
+import org.tmatesoft.svn.core.io.diff.SVNDiffWindow;
+
+import de.setsoftware.reviewtool.base.Logger;
+import de.setsoftware.reviewtool.base.Pair;
 
 /**
  * Represents a cache for file contents for a single SVN repository.
+ *
+ * <p>Contents are loaded without holding a lock, so that several files can be loaded in parallel (each with a
+ * session of its own). Concurrent requests for the same file share a single load.
  */
 final class SvnFileCache {
 
@@ -46,16 +71,195 @@ final class SvnFileCache {
         }
     }
 
-    private final SVNRepository repo;
+    /**
+     * Receives the files sent by the server in response to an update report and collects their contents.
+     * As the report pretends that the requested files are missing, every file arrives as an addition
+     * whose text delta is relative to an empty file.
+     */
+    private static final class FileCollectingEditor implements ISVNEditor {
+
+        private final Map<String, byte[]> contents = new LinkedHashMap<>();
+        private final SVNDeltaProcessor deltaProcessor = new SVNDeltaProcessor();
+        private ByteArrayOutputStream currentContents;
+        private long bytesReceived;
+
+        Map<String, byte[]> getContents() {
+            return this.contents;
+        }
+
+        long getBytesReceived() {
+            return this.bytesReceived;
+        }
+
+        @Override
+        public void addFile(final String path, final String copyFromPath, final long copyFromRevision) {
+            this.currentContents = new ByteArrayOutputStream();
+        }
+
+        @Override
+        public void openFile(final String path, final long revision) {
+            this.currentContents = new ByteArrayOutputStream();
+        }
+
+        @Override
+        public void applyTextDelta(final String path, final String baseChecksum) {
+            this.deltaProcessor.applyTextDelta(new ByteArrayInputStream(new byte[0]), this.currentContents, false);
+        }
+
+        @Override
+        public OutputStream textDeltaChunk(final String path, final SVNDiffWindow diffWindow) throws SVNException {
+            this.bytesReceived += diffWindow.getDataLength();
+            return this.deltaProcessor.textDeltaChunk(diffWindow);
+        }
+
+        @Override
+        public void textDeltaEnd(final String path) throws SVNException {
+            this.deltaProcessor.textDeltaEnd();
+        }
+
+        @Override
+        public void closeFile(final String path, final String textChecksum) {
+            this.contents.put(path.startsWith("/") ? path : "/" + path, this.currentContents.toByteArray());
+            this.currentContents = null;
+        }
+
+        @Override
+        public void abortEdit() {
+        }
+
+        @Override
+        public void absentDir(final String path) {
+        }
+
+        @Override
+        public void absentFile(final String path) {
+        }
+
+        @Override
+        public SVNCommitInfo closeEdit() {
+            return null;
+        }
+
+        @Override
+        public void deleteEntry(final String path, final long revision) {
+        }
+
+        @Override
+        public void targetRevision(final long revision) {
+        }
+
+        @Override
+        public void addDir(final String path, final String copyFromPath, final long copyFromRevision) {
+        }
+
+        @Override
+        public void changeDirProperty(final String name, final SVNPropertyValue value) {
+        }
+
+        @Override
+        public void changeFileProperty(
+                final String path,
+                final String propertyName,
+                final SVNPropertyValue propertyValue) {
+        }
+
+        @Override
+        public void closeDir() {
+        }
+
+        @Override
+        public void openDir(final String path, final long revision) {
+        }
+
+        @Override
+        public void openRoot(final long revision) {
+        }
+    }
+
+    /**
+     * Receives the interesting revisions of a file, i.e. those in which it has been changed, and reconstructs
+     * their contents. The server sends the first revision as a delta against an empty file and every further one
+     * as a delta against its predecessor, so only the changed parts have to be transferred.
+     */
+    private static final class FileRevisionCollector implements ISVNFileRevisionHandler {
+
+        private final TreeMap<Long, Pair<String, byte[]>> revisions = new TreeMap<>();
+        private final SVNDeltaProcessor deltaProcessor = new SVNDeltaProcessor();
+        private byte[] previousContents = new byte[0];
+        private ByteArrayOutputStream currentContents;
+        private long currentRevision;
+        private String currentPath;
+        private long bytesReceived;
+
+        /**
+         * Returns the contents of the file with the given path in the given revision, or null if they cannot be
+         * determined from the received revisions.
+         */
+        byte[] getContents(final String path, final long revision) {
+            final Map.Entry<Long, Pair<String, byte[]>> entry = this.revisions.floorEntry(revision);
+            if (entry == null || !entry.getValue().getFirst().equals(path)) {
+                return null;
+            }
+            return entry.getValue().getSecond();
+        }
+
+        long getBytesReceived() {
+            return this.bytesReceived;
+        }
+
+        @Override
+        public void openRevision(final SVNFileRevision fileRevision) {
+            this.currentRevision = fileRevision.getRevision();
+            this.currentPath = fileRevision.getPath();
+            this.currentContents = null;
+        }
+
+        @Override
+        public void applyTextDelta(final String path, final String baseChecksum) {
+            this.currentContents = new ByteArrayOutputStream();
+            this.deltaProcessor.applyTextDelta(
+                    new ByteArrayInputStream(this.previousContents), this.currentContents, false);
+        }
+
+        @Override
+        public OutputStream textDeltaChunk(final String path, final SVNDiffWindow diffWindow) throws SVNException {
+            this.bytesReceived += diffWindow.getDataLength();
+            return this.deltaProcessor.textDeltaChunk(diffWindow);
+        }
+
+        @Override
+        public void textDeltaEnd(final String path) throws SVNException {
+            this.deltaProcessor.textDeltaEnd();
+        }
+
+        @Override
+        public void closeRevision(final String token) {
+            // revisions without a text delta only changed properties, so the contents stay the same
+            if (this.currentContents != null) {
+                this.previousContents = this.currentContents.toByteArray();
+            }
+            this.revisions.put(this.currentRevision, Pair.create(this.currentPath, this.previousContents));
+        }
+    }
+
+    private final SvnSessionPool sessionPool;
     private final Map<CachedFile, byte[]> fileContents;
+    /**
+     * The loads that are running at the moment. A load completes its future with null if it could not determine
+     * the contents of the file, so that a waiting request loads it on its own.
+     */
+    private final Map<CachedFile, CompletableFuture<byte[]>> runningLoads;
+    private final AtomicLong numberOfRequests = new AtomicLong();
+    private final AtomicLong bytesReceived = new AtomicLong();
 
     /**
      * Constructor.
-     * @param repo The {@link SVNRepository}.
+     * @param sessionPool The pool of sessions for the repository.
      */
-    SvnFileCache(final SVNRepository repo) {
-        this.repo = repo;
-        this.fileContents = new HashMap<>();
+    SvnFileCache(final SvnSessionPool sessionPool) {
+        this.sessionPool = sessionPool;
+        this.fileContents = new ConcurrentHashMap<>();
+        this.runningLoads = new ConcurrentHashMap<>();
     }
 
     /**
@@ -67,12 +271,214 @@ final class SvnFileCache {
      */
     byte[] getFileContents(final String path, final long revision) throws SVNException {
         final CachedFile entry = new CachedFile(path, revision);
-        byte[] contents = this.fileContents.get(entry);
-        if (contents == null) {
-            contents = this.loadFile(path, revision);
+        while (true) {
+            final byte[] cached = this.fileContents.get(entry);
+            if (cached != null) {
+                return cached;
+            }
+            final CompletableFuture<byte[]> ownLoad = new CompletableFuture<>();
+            final CompletableFuture<byte[]> runningLoad = this.runningLoads.putIfAbsent(entry, ownLoad);
+            if (runningLoad != null) {
+                final byte[] loaded = waitFor(runningLoad);
+                if (loaded != null) {
+                    return loaded;
+                }
+                continue;
+            }
+
+            try {
+                // the contents might have been stored after the lookup above
+                byte[] contents = this.fileContents.get(entry);
+                if (contents == null) {
+                    contents = this.loadFile(path, revision);
+                    this.fileContents.put(entry, contents);
+                }
+                this.finishLoad(entry, ownLoad, contents);
+                return contents;
+            } catch (final SVNException | RuntimeException | Error e) {
+                this.runningLoads.remove(entry, ownLoad);
+                ownLoad.completeExceptionally(e);
+                throw e;
+            }
+        }
+    }
+
+    private static byte[] waitFor(final CompletableFuture<byte[]> load) throws SVNException {
+        try {
+            return load.join();
+        } catch (final CompletionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof SVNException) {
+                throw (SVNException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw (RuntimeException) cause;
+        }
+    }
+
+    /**
+     * Registers loads for those of the given files that are neither cached nor being loaded already.
+     * @return The registered loads of the files, which have to be finished by the caller.
+     */
+    private <K> Map<K, CompletableFuture<byte[]>> startLoads(final Map<K, CachedFile> files) {
+        final Map<K, CompletableFuture<byte[]>> ret = new LinkedHashMap<>();
+        for (final Map.Entry<K, CachedFile> e : files.entrySet()) {
+            if (this.fileContents.containsKey(e.getValue())) {
+                continue;
+            }
+            final CompletableFuture<byte[]> load = new CompletableFuture<>();
+            if (this.runningLoads.putIfAbsent(e.getValue(), load) == null) {
+                ret.put(e.getKey(), load);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Ends a registered load. Waiting requests get the given contents or, if they are null, load the file
+     * on their own.
+     */
+    private void finishLoad(final CachedFile entry, final CompletableFuture<byte[]> load, final byte[] contents) {
+        this.runningLoads.remove(entry, load);
+        load.complete(contents);
+    }
+
+    /**
+     * Loads the contents of several files of the same revision into the cache using a single request.
+     * Files that are already cached are skipped. Files that do not exist as files in the given revision
+     * are cached with empty contents, just like {@link #getFileContents(String, long)} does.
+     *
+     * <p>The request is an update report that claims a complete working copy of the given revision
+     * in which exactly the requested files are missing, so the server streams the full contents of these files
+     * and nothing else.
+     *
+     * @param revision The revision of the files.
+     * @param paths The absolute paths of the files in the repository.
+     * @throws SVNException if some error occurs.
+     */
+    void prefetchFiles(final long revision, final Collection<String> paths) throws SVNException {
+        final Map<String, CachedFile> files = new LinkedHashMap<>();
+        for (final String path : paths) {
+            files.put(path, new CachedFile(path, revision));
+        }
+        final Map<String, CompletableFuture<byte[]>> missingFiles = this.startLoads(files);
+        if (missingFiles.isEmpty()) {
+            return;
+        }
+
+        final ISVNReporterBaton reporter = new ISVNReporterBaton() {
+            @Override
+            public void report(final ISVNReporter reporter) throws SVNException {
+                reporter.setPath("", null, revision, SVNDepth.INFINITY, false);
+                for (final String path : missingFiles.keySet()) {
+                    reporter.deletePath(path.startsWith("/") ? path.substring(1) : path);
+                }
+                reporter.finishReport();
+            }
+        };
+        final FileCollectingEditor editor = new FileCollectingEditor();
+
+        try {
+            // the report has to be relative to the repository root, as the paths requested are absolute ones
+            this.sessionPool.execute("", (final SVNRepository session) -> {
+                session.update(revision, null, SVNDepth.INFINITY, false, reporter, editor);
+                return null;
+            });
+        } catch (final SVNException | RuntimeException | Error e) {
+            for (final Map.Entry<String, CompletableFuture<byte[]>> load : missingFiles.entrySet()) {
+                this.finishLoad(files.get(load.getKey()), load.getValue(), null);
+            }
+            throw e;
+        } finally {
+            this.numberOfRequests.incrementAndGet();
+            this.bytesReceived.addAndGet(editor.getBytesReceived());
+        }
+
+        for (final Map.Entry<String, CompletableFuture<byte[]>> load : missingFiles.entrySet()) {
+            final byte[] received = editor.getContents().get(load.getKey());
+            final byte[] contents = received == null ? new byte[0] : received;
+            final CachedFile entry = files.get(load.getKey());
             this.fileContents.put(entry, contents);
+            this.finishLoad(entry, load.getValue(), contents);
         }
-        return contents;
+        Logger.debug("Prefetched " + missingFiles.size() + " files of revision " + revision + " with one request");
+    }
+
+    /**
+     * Loads the contents of a file in several revisions into the cache using a single request.
+     * Revisions that are already cached are skipped.
+     *
+     * <p>Instead of the full texts, the server sends the contents of the oldest needed revision as a delta against
+     * an empty file and each later change as a delta against its predecessor. For large files with small changes,
+     * this transfers much less data than {@link #prefetchFiles(long, Collection)}. Revisions whose contents cannot be
+     * determined this way (e.g. because the file did not exist under this path yet or has been deleted later on)
+     * are left to be loaded on demand.
+     *
+     * @param path The absolute path of the file in the repository.
+     * @param revisions The revisions of the file.
+     * @throws SVNException if some error occurs.
+     */
+    void prefetchFileHistory(final String path, final Collection<Long> revisions) throws SVNException {
+        final Map<Long, CachedFile> files = new TreeMap<>();
+        for (final Long revision : revisions) {
+            files.put(revision, new CachedFile(path, revision));
+        }
+        final SortedMap<Long, CompletableFuture<byte[]>> missingRevisions = new TreeMap<>(this.startLoads(files));
+        if (missingRevisions.isEmpty()) {
+            return;
+        }
+
+        final FileRevisionCollector handler = new FileRevisionCollector();
+        try {
+            this.sessionPool.execute("", (final SVNRepository session) -> session.getFileRevisions(
+                    path,
+                    missingRevisions.firstKey(),
+                    missingRevisions.lastKey(),
+                    false,
+                    handler));
+        } catch (final SVNException | RuntimeException | Error e) {
+            for (final Map.Entry<Long, CompletableFuture<byte[]>> load : missingRevisions.entrySet()) {
+                this.finishLoad(files.get(load.getKey()), load.getValue(), null);
+            }
+            if (!(e instanceof SVNException)) {
+                throw e;
+            }
+            Logger.debug("Could not retrieve file history of " + path + ", falling back to full texts: "
+                    + e.getMessage());
+            return;
+        } finally {
+            this.numberOfRequests.incrementAndGet();
+            this.bytesReceived.addAndGet(handler.getBytesReceived());
+        }
+
+        int numberOfPrefetchedRevisions = 0;
+        for (final Map.Entry<Long, CompletableFuture<byte[]>> load : missingRevisions.entrySet()) {
+            final CachedFile entry = files.get(load.getKey());
+            final byte[] contents = handler.getContents(path, load.getKey());
+            if (contents != null) {
+                this.fileContents.put(entry, contents);
+                numberOfPrefetchedRevisions++;
+            }
+            this.finishLoad(entry, load.getValue(), contents);
+        }
+        Logger.debug("Prefetched " + numberOfPrefetchedRevisions + " revisions of " + path + " with one request ("
+                + handler.getBytesReceived() + " bytes)");
+    }
+
+    /**
+     * Returns the number of requests sent to the server for loading file contents so far.
+     */
+    long getNumberOfRequests() {
+        return this.numberOfRequests.get();
+    }
+
+    /**
+     * Returns the number of bytes received for loading file contents so far.
+     * For delta transfers, this is the size of the deltas, not of the reconstructed file contents.
+     */
+    long getNumberOfBytesReceived() {
+        return this.bytesReceived.get();
     }
 
     /**
@@ -83,11 +489,16 @@ final class SvnFileCache {
      * @throws SVNException if some error occurs.
      */
     private byte[] loadFile(final String path, final long revision) throws SVNException {
-        final ByteArrayOutputStream contents = new ByteArrayOutputStream();
-        if (this.repo.checkPath(path, revision) != SVNNodeKind.FILE) {
-            return new byte[0];
-        }
-        this.repo.getFile(path, revision, null, contents);
-        return contents.toByteArray();
+        return this.sessionPool.execute("", (final SVNRepository session) -> {
+            final ByteArrayOutputStream contents = new ByteArrayOutputStream();
+            this.numberOfRequests.incrementAndGet();
+            if (session.checkPath(path, revision) != SVNNodeKind.FILE) {
+                return new byte[0];
+            }
+            this.numberOfRequests.incrementAndGet();
+            session.getFile(path, revision, null, contents);
+            this.bytesReceived.addAndGet(contents.size());
+            return contents.toByteArray();
+        });
     }
 }
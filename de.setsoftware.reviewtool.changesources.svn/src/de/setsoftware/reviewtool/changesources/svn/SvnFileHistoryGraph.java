@@ -0,0 +1,311 @@
+package de.setsoftware.reviewtool.changesources.svn;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.setsoftware.reviewtool.base.Logger;
+import de.setsoftware.reviewtool.base.ReviewtoolException;
+import de.setsoftware.reviewtool.model.api.IDiffAlgorithm;
+import de.setsoftware.reviewtool.model.api.IFileHistoryNode;
+import de.setsoftware.reviewtool.model.api.IMutableFileHistoryGraph;
+import de.setsoftware.reviewtool.model.api.IMutableFileHistoryNode;
+import de.setsoftware.reviewtool.model.api.IRevision;
+import de.setsoftware.reviewtool.model.api.IRevisionedFile;
+import de.setsoftware.reviewtool.model.changestructure.FileHistoryGraph;
+
+/**
+ * The file history graph of a remote Subversion repository, kept as a sequence of {@link SvnHistoryFragment}s.
+ *
+ * <p>All mutations are recorded into the fragment of the revision range that is currently being processed.
+ * The underlying {@link FileHistoryGraph} is only assembled when the graph is queried for the first time,
+ * by replaying the fragments in order. Until then, neither the operations of fragments loaded from disk nor
+ * the graph itself need to be held in memory, so that refreshing the log and looking up the revisions of a ticket
+ * stay cheap. Determining the changes of a review needs the graph, beginning with the files to prefetch.
+ * After the graph has been assembled, further mutations are applied to it directly.
+ *
+ * <p>Every block of processed revisions results in a fragment. When there are more than
+ * {@link #MAX_UNMERGED_FRAGMENTS} fragments, the newest ones are merged with their older neighbours of similar size
+ * before storing (see {@link #MERGE_RATIO}), so that the sizes of the fragments decrease from old to new. Thereby
+ * the number of fragment files only grows logarithmically with the number of operations, and every operation is
+ * only rewritten a logarithmic number of times, while large old fragments are left alone.
+ */
+final class SvnFileHistoryGraph implements IMutableFileHistoryGraph {
+
+    private static final long serialVersionUID = 5473216874913082374L;
+
+    /**
+     * Up to this number of fragments, nothing is merged.
+     */
+    static final int MAX_UNMERGED_FRAGMENTS = 4;
+
+    /**
+     * A fragment is merged with all newer fragments if it has at most this many times as many operations as they
+     * have together.
+     */
+    static final int MERGE_RATIO = 2;
+
+    private final IDiffAlgorithm diffAlgorithm;
+    private final File fragmentDirectory;
+    private final List<SvnHistoryFragment> fragments;
+    private final List<SvnHistoryFragment.Operation> pendingOperations;
+    private volatile FileHistoryGraph graph;
+
+    /**
+     * Constructor.
+     * @param diffAlgorithm The algorithm to be used for computing differences between file revisions.
+     * @param fragmentDirectory The directory the fragments are stored in.
+     * @param fragments The fragments processed so far, ordered by revision.
+     */
+    SvnFileHistoryGraph(
+            final IDiffAlgorithm diffAlgorithm,
+            final File fragmentDirectory,
+            final Collection<SvnHistoryFragment> fragments) {
+        this.diffAlgorithm = diffAlgorithm;
+        this.fragmentDirectory = fragmentDirectory;
+        this.fragments = new ArrayList<>(fragments);
+        this.pendingOperations = new ArrayList<>();
+    }
+
+    /**
+     * Returns all completed fragments of this graph, ordered by revision.
+     */
+    synchronized List<SvnHistoryFragment> getFragments() {
+        return Collections.unmodifiableList(new ArrayList<>(this.fragments));
+    }
+
+    /**
+     * Completes the fragment for the given revision range, consisting of all mutations since the last call.
+     * If there were no mutations, no fragment is created.
+     */
+    synchronized void completeFragment(final long firstRevision, final long lastRevision) {
+        if (this.pendingOperations.isEmpty()) {
+            return;
+        }
+        this.fragments.add(new SvnHistoryFragment(firstRevision, lastRevision, this.pendingOperations));
+        this.pendingOperations.clear();
+    }
+
+    /**
+     * Stores all fragments that have not been stored yet. The newest fragments are merged first if necessary.
+     * The files of merged fragments are left in place, as they are referenced until the cache file is written anew.
+     */
+    void storeFragments() throws IOException {
+        final SvnHistoryFragment merged = this.mergeFragments();
+        for (final SvnHistoryFragment fragment : this.getFragments()) {
+            fragment.storeIfMissing(this.fragmentDirectory);
+        }
+        if (merged != null && this.isMaterialised()) {
+            // the assembled graph contains the operations already
+            merged.releaseIfStored(this.fragmentDirectory);
+        }
+    }
+
+    /**
+     * Replaces the newest fragments by a single fragment if there are more than {@link #MAX_UNMERGED_FRAGMENTS},
+     * beginning with the newest one and taking in older ones as long as they have at most {@link #MERGE_RATIO}
+     * times as many operations as the fragments taken so far.
+     * @return The new fragment, or null if nothing has been merged.
+     */
+    private SvnHistoryFragment mergeFragments() {
+        final List<SvnHistoryFragment> current = this.getFragments();
+        if (current.size() <= MAX_UNMERGED_FRAGMENTS) {
+            return null;
+        }
+        int first = current.size() - 1;
+        long operationCount = current.get(first).getOperationCount();
+        while (first > 0 && current.get(first - 1).getOperationCount() <= MERGE_RATIO * operationCount) {
+            first--;
+            operationCount += current.get(first).getOperationCount();
+        }
+        if (first == current.size() - 1) {
+            return null;
+        }
+        final List<SvnHistoryFragment> toMerge = current.subList(first, current.size());
+
+        // the operations are loaded without holding the lock, see getGraph
+        final List<SvnHistoryFragment.Operation> operations = new ArrayList<>();
+        for (final SvnHistoryFragment fragment : toMerge) {
+            operations.addAll(this.loadOperations(fragment));
+        }
+        final SvnHistoryFragment merged = new SvnHistoryFragment(
+                toMerge.get(0).getFirstRevision(),
+                toMerge.get(toMerge.size() - 1).getLastRevision(),
+                operations);
+
+        synchronized (this) {
+            // fragments are only appended in the meantime, so the merged ones are still at the same position
+            this.fragments.subList(first, first + toMerge.size()).clear();
+            this.fragments.add(first, merged);
+        }
+        Logger.debug("Merged " + toMerge.size() + " SVN history fragments into " + merged);
+        return merged;
+    }
+
+    /**
+     * Returns whether the underlying graph has been assembled already.
+     */
+    synchronized boolean isMaterialised() {
+        return this.graph != null;
+    }
+
+    /**
+     * Returns the underlying graph, assembling it first if necessary.
+     *
+     * <p>The operations of the fragments are read from disk without holding the lock of this object, as resolving
+     * the revisions contained in them may need to access the {@link SvnRepositoryManager}, which in turn may
+     * mutate this graph while holding its own lock. Once assembled, the graph is returned without locking, so that
+     * queries are not blocked by concurrent mutations of the underlying graph.
+     */
+    private FileHistoryGraph getGraph() {
+        final FileHistoryGraph assembled = this.graph;
+        if (assembled != null) {
+            return assembled;
+        }
+
+        final long startTime = System.nanoTime();
+        final Map<SvnHistoryFragment, List<SvnHistoryFragment.Operation>> operationsPerFragment =
+                new IdentityHashMap<>();
+        for (final SvnHistoryFragment fragment : this.getFragments()) {
+            operationsPerFragment.put(fragment, this.loadOperations(fragment));
+        }
+
+        synchronized (this) {
+            if (this.graph == null) {
+                final FileHistoryGraph newGraph = new FileHistoryGraph(this.diffAlgorithm);
+                int numOperations = 0;
+                for (final SvnHistoryFragment fragment : this.fragments) {
+                    // fragments merged in the meantime have not been loaded yet
+                    List<SvnHistoryFragment.Operation> operations = operationsPerFragment.get(fragment);
+                    if (operations == null) {
+                        operations = this.loadOperations(fragment);
+                    }
+                    for (final SvnHistoryFragment.Operation operation : operations) {
+                        operation.applyTo(newGraph);
+                    }
+                    numOperations += operations.size();
+                }
+                for (final SvnHistoryFragment.Operation operation : this.pendingOperations) {
+                    operation.applyTo(newGraph);
+                }
+                this.graph = newGraph;
+                for (final SvnHistoryFragment fragment : this.fragments) {
+                    fragment.releaseIfStored(this.fragmentDirectory);
+                }
+                Logger.debug("Assembled file history graph from " + this.fragments.size() + " fragments with "
+                        + numOperations + " stored operations in "
+                        + (System.nanoTime() - startTime) / 1000000L + " ms");
+            }
+            return this.graph;
+        }
+    }
+
+    private List<SvnHistoryFragment.Operation> loadOperations(final SvnHistoryFragment fragment) {
+        try {
+            return fragment.getOperations(this.fragmentDirectory);
+        } catch (final IOException | ClassNotFoundException e) {
+            throw new ReviewtoolException("Problem while loading SVN history fragment " + fragment
+                    + " from " + this.fragmentDirectory, e);
+        }
+    }
+
+    private synchronized void record(final SvnHistoryFragment.Operation operation) {
+        this.pendingOperations.add(operation);
+        if (this.graph != null) {
+            operation.applyTo(this.graph);
+        }
+    }
+
+    @Override
+    public Set<String> getPaths() {
+        return this.getGraph().getPaths();
+    }
+
+    @Override
+    public IMutableFileHistoryNode getNodeFor(final IRevisionedFile file) {
+        return this.getGraph().getNodeFor(file);
+    }
+
+    @Override
+    public Set<? extends IFileHistoryNode> findAncestorsFor(final IRevisionedFile file) {
+        return this.getGraph().findAncestorsFor(file);
+    }
+
+    @Override
+    public List<IRevisionedFile> getLatestFiles(final IRevisionedFile file, final boolean ignoreNonLocalCopies) {
+        return this.getGraph().getLatestFiles(file, ignoreNonLocalCopies);
+    }
+
+    @Override
+    public Set<IFileHistoryNode> getIncompleteFlowStarts() {
+        return this.getGraph().getIncompleteFlowStarts();
+    }
+
+    @Override
+    public IDiffAlgorithm getDiffAlgorithm() {
+        return this.diffAlgorithm;
+    }
+
+    @Override
+    public void addAddition(final String path, final IRevision revision) {
+        this.record(SvnHistoryFragment.Operation.addition(path, revision));
+    }
+
+    @Override
+    public void addChange(
+            final String path,
+            final IRevision revision,
+            final Set<? extends IRevision> ancestorRevisions) {
+        this.record(SvnHistoryFragment.Operation.change(path, revision, ancestorRevisions));
+    }
+
+    @Override
+    public void addDeletion(final String path, final IRevision revision) {
+        this.record(SvnHistoryFragment.Operation.deletion(path, revision));
+    }
+
+    @Override
+    public void addCopy(
+            final String pathFrom,
+            final IRevision revisionFrom,
+            final String pathTo,
+            final IRevision revisionTo) {
+        this.record(SvnHistoryFragment.Operation.copy(pathFrom, revisionFrom, pathTo, revisionTo));
+    }
+
+    @Override
+    public void removeFile(final String path, final IRevision revision) {
+        this.record(SvnHistoryFragment.Operation.removal(path, revision));
+    }
+
+    @Override
+    public void performBatch(final Runnable mutations) {
+        // the lock of this object is always acquired before the lock of the underlying graph, as in record
+        synchronized (this) {
+            if (this.graph == null) {
+                mutations.run();
+            } else {
+                this.graph.performBatch(mutations);
+            }
+        }
+    }
+
+    /**
+     * The graph is persisted as fragments by the {@link SvnRepositoryManager}. If it is serialised as part of
+     * something else, the assembled graph is written instead.
+     */
+    private Object writeReplace() {
+        return this.getGraph();
+    }
+
+    @Override
+    public String toString() {
+        return this.getGraph().toString();
+    }
+}
@@ -0,0 +1,230 @@
+package de.setsoftware.reviewtool.changesources.svn;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import de.setsoftware.reviewtool.model.api.IMutableFileHistoryGraph;
+import de.setsoftware.reviewtool.model.api.IRevision;
+
+/**
+ * The mutations of a file history graph that result from processing a contiguous range of revisions.
+ *
+ * <p>A fragment is stored in a file of its own, so that newly processed revisions can be persisted without writing
+ * the whole history again. Only the revision range and the name of this file are part of the serialised form of a
+ * fragment; the operations are loaded from the file when they are needed for the first time.
+ */
+final class SvnHistoryFragment implements Serializable {
+
+    /**
+     * A single mutation of a file history graph.
+     */
+    static final class Operation implements Serializable {
+
+        private static final long serialVersionUID = -3541260924370880523L;
+
+        /**
+         * The kind of mutation, corresponding to the methods of {@link IMutableFileHistoryGraph}.
+         */
+        private enum Kind {
+            ADDITION,
+            CHANGE,
+            DELETION,
+            COPY,
+            REMOVAL
+        }
+
+        private final Kind kind;
+        private final String path;
+        private final IRevision revision;
+        private final String sourcePath;
+        private final IRevision sourceRevision;
+        private final Set<? extends IRevision> ancestorRevisions;
+
+        private Operation(
+                final Kind kind,
+                final String path,
+                final IRevision revision,
+                final String sourcePath,
+                final IRevision sourceRevision,
+                final Set<? extends IRevision> ancestorRevisions) {
+            this.kind = kind;
+            this.path = SvnPathTable.intern(path);
+            this.revision = revision;
+            this.sourcePath = sourcePath == null ? null : SvnPathTable.intern(sourcePath);
+            this.sourceRevision = sourceRevision;
+            this.ancestorRevisions = ancestorRevisions;
+        }
+
+        static Operation addition(final String path, final IRevision revision) {
+            return new Operation(Kind.ADDITION, path, revision, null, null, null);
+        }
+
+        static Operation change(
+                final String path,
+                final IRevision revision,
+                final Set<? extends IRevision> ancestorRevisions) {
+            return new Operation(Kind.CHANGE, path, revision, null, null, new LinkedHashSet<>(ancestorRevisions));
+        }
+
+        static Operation deletion(final String path, final IRevision revision) {
+            return new Operation(Kind.DELETION, path, revision, null, null, null);
+        }
+
+        static Operation copy(
+                final String pathFrom,
+                final IRevision revisionFrom,
+                final String pathTo,
+                final IRevision revisionTo) {
+            return new Operation(Kind.COPY, pathTo, revisionTo, pathFrom, revisionFrom, null);
+        }
+
+        static Operation removal(final String path, final IRevision revision) {
+            return new Operation(Kind.REMOVAL, path, revision, null, null, null);
+        }
+
+        /**
+         * Performs this mutation on the given graph.
+         */
+        void applyTo(final IMutableFileHistoryGraph graph) {
+            switch (this.kind) {
+            case ADDITION:
+                graph.addAddition(this.path, this.revision);
+                break;
+            case CHANGE:
+                graph.addChange(this.path, this.revision, this.ancestorRevisions);
+                break;
+            case DELETION:
+                graph.addDeletion(this.path, this.revision);
+                break;
+            case COPY:
+                graph.addCopy(this.sourcePath, this.sourceRevision, this.path, this.revision);
+                break;
+            case REMOVAL:
+                graph.removeFile(this.path, this.revision);
+                break;
+            default:
+                throw new AssertionError("unknown operation " + this.kind);
+            }
+        }
+
+        private Object readResolve() {
+            return new Operation(
+                    this.kind, this.path, this.revision, this.sourcePath, this.sourceRevision, this.ancestorRevisions);
+        }
+    }
+
+    private static final long serialVersionUID = 2841765390124878521L;
+
+    private final long firstRevision;
+    private final long lastRevision;
+    private final String fileName;
+    private final int operationCount;
+    private transient volatile List<Operation> operations;
+
+    /**
+     * Constructor for a fragment that has just been recorded.
+     * @param firstRevision The first revision of the range.
+     * @param lastRevision The last revision of the range.
+     * @param operations The graph mutations in the order they were performed.
+     */
+    SvnHistoryFragment(final long firstRevision, final long lastRevision, final List<Operation> operations) {
+        this.firstRevision = firstRevision;
+        this.lastRevision = lastRevision;
+        this.fileName = "r" + firstRevision + "-" + lastRevision + ".fragment";
+        this.operationCount = operations.size();
+        this.operations = Collections.unmodifiableList(new ArrayList<>(operations));
+    }
+
+    /**
+     * Returns the first revision of the range covered by this fragment.
+     */
+    long getFirstRevision() {
+        return this.firstRevision;
+    }
+
+    /**
+     * Returns the last revision of the range covered by this fragment.
+     */
+    long getLastRevision() {
+        return this.lastRevision;
+    }
+
+    /**
+     * Returns the number of graph mutations of this fragment without loading them.
+     * Fragments stored by older versions did not record it and return 0.
+     */
+    int getOperationCount() {
+        return this.operationCount;
+    }
+
+    /**
+     * Returns the file inside the given directory this fragment is stored in.
+     */
+    File getFile(final File directory) {
+        return new File(directory, this.fileName);
+    }
+
+    /**
+     * Returns the graph mutations of this fragment. If they have not been loaded yet, they are read from
+     * the fragment's file in the given directory.
+     */
+    synchronized List<Operation> getOperations(final File directory) throws IOException, ClassNotFoundException {
+        if (this.operations == null) {
+            try (ObjectInputStream ois = new ObjectInputStream(
+                    new BufferedInputStream(new FileInputStream(this.getFile(directory))))) {
+                @SuppressWarnings("unchecked") final List<Operation> value = (List<Operation>) ois.readObject();
+                this.operations = Collections.unmodifiableList(value);
+            }
+        }
+        return this.operations;
+    }
+
+    /**
+     * Drops the graph mutations of this fragment from memory if they are stored in the given directory.
+     * They will be loaded again if needed.
+     */
+    synchronized void releaseIfStored(final File directory) {
+        if (this.getFile(directory).exists()) {
+            this.operations = null;
+        }
+    }
+
+    /**
+     * Stores the graph mutations of this fragment to its file in the given directory, unless that file exists already.
+     * Fragments never change after they have been recorded, so an existing file is always up to date.
+     */
+    void storeIfMissing(final File directory) throws IOException {
+        final File file = this.getFile(directory);
+        final List<Operation> ops = this.operations;
+        if (file.exists() || ops == null) {
+            return;
+        }
+        directory.mkdirs();
+        final File tempFile = new File(directory, this.fileName + ".tmp");
+        try (ObjectOutputStream oos =
+                new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+            oos.writeObject(new ArrayList<>(ops));
+        }
+        if (!tempFile.renameTo(file)) {
+            tempFile.delete();
+            throw new IOException("Could not rename " + tempFile + " to " + file);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return this.firstRevision + ".." + this.lastRevision;
+    }
+}
@@ -0,0 +1,113 @@
+package de.setsoftware.reviewtool.changesources.svn;
+
+/**
+ * Determines how many revisions of a repository's log are requested at once and how far back the log is loaded
+ * initially. Both values adapt to what has been observed so far:
+ * <ul>
+ * <li>The block size is chosen such that a block takes about {@link #TARGET_BLOCK_MILLIS}, but at least ten times
+ *      the server's latency, given the throughput of the previous blocks. So fast servers and sparse logs get large
+ *      blocks, while slow servers and busy repositories get small blocks that still allow timely cancellation.</li>
+ * <li>The initial window is the configured minimum, but is increased to twice the largest distance between the
+ *      latest revision and a revision that matched a ticket, so that a reload still finds all relevant revisions.
+ *      The largest distance is stored with the log cache (see {@link SvnRepositoryManager#storeCacheToFile}), so
+ *      that it is known before the log is loaded anew in a later session.</li>
+ * </ul>
+ */
+final class SvnLogWindow {
+
+    static final long INITIAL_BLOCK_SIZE = 500L;
+    static final long MIN_BLOCK_SIZE = 50L;
+    static final long MAX_BLOCK_SIZE = 20000L;
+    static final long TARGET_BLOCK_MILLIS = 5000L;
+    static final long MAX_INITIAL_WINDOW = 100000L;
+    private static final long MAX_GROWTH_FACTOR = 4L;
+
+    private final long minCount;
+    private long blockSize;
+    private long latencyMillis;
+    private double revisionsPerSecond;
+    private double entriesPerSecond;
+    private long maxHitDistance;
+
+    /**
+     * Constructor.
+     * @param minCount The minimum number of revisions to load initially.
+     */
+    SvnLogWindow(final long minCount) {
+        this.minCount = minCount;
+        this.blockSize = INITIAL_BLOCK_SIZE;
+    }
+
+    /**
+     * Returns the number of revisions to load if the log of the repository has not been loaded yet.
+     */
+    synchronized long getInitialWindow() {
+        return Math.max(this.minCount, Math.min(MAX_INITIAL_WINDOW, 2 * this.maxHitDistance));
+    }
+
+    /**
+     * Returns the number of revisions to request with the next log request.
+     */
+    synchronized long getBlockSize() {
+        return this.blockSize;
+    }
+
+    /**
+     * Records the outcome of a log request and adapts the block size accordingly.
+     * @param numRevisions The number of revisions covered by the request.
+     * @param numEntries The number of log entries received. Can be lower than the number of revisions
+     *      if the repository URL does not point to the repository root.
+     * @param latencyNanos The time until the first log entry was received or the request finished.
+     * @param durationNanos The total time the request and the processing of its entries took.
+     */
+    synchronized void recordBlock(
+            final long numRevisions,
+            final long numEntries,
+            final long latencyNanos,
+            final long durationNanos) {
+
+        this.latencyMillis = latencyNanos / 1000000L;
+        final double seconds = Math.max(durationNanos, 1L) / 1e9;
+        this.revisionsPerSecond = numRevisions / seconds;
+        this.entriesPerSecond = numEntries / seconds;
+
+        if (numRevisions < this.blockSize / 2) {
+            // a partial block at the end of the log says little about the throughput
+            return;
+        }
+        final long targetMillis = Math.max(TARGET_BLOCK_MILLIS, 10 * this.latencyMillis);
+        final long desiredBlockSize = (long) (this.revisionsPerSecond * targetMillis / 1000.0);
+        this.blockSize = Math.max(MIN_BLOCK_SIZE, Math.min(MAX_BLOCK_SIZE,
+                Math.min(this.blockSize * MAX_GROWTH_FACTOR, desiredBlockSize)));
+    }
+
+    /**
+     * Records that a revision at the given distance from the latest revision matched a ticket.
+     * @return true iff the distance is larger than all distances recorded before.
+     */
+    synchronized boolean recordHitDistance(final long distance) {
+        if (distance <= this.maxHitDistance) {
+            return false;
+        }
+        this.maxHitDistance = distance;
+        return true;
+    }
+
+    /**
+     * Returns the largest distance from the latest revision of a revision that matched a ticket so far.
+     */
+    synchronized long getMaxHitDistance() {
+        return this.maxHitDistance;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(
+                "block size %d, initial window %d, latency %d ms, %.1f revisions/s, %.1f entries/s",
+                this.blockSize,
+                this.getInitialWindow(),
+                this.latencyMillis,
+                this.revisionsPerSecond,
+                this.entriesPerSecond);
+    }
+}
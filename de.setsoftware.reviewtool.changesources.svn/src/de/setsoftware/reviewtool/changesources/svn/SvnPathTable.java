@@ -0,0 +1,50 @@
+package de.setsoftware.reviewtool.changesources.svn;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Dictionary of repository paths used by the cached log entries and the SVN history graphs.
+ * The same paths occur in a great number of revisions, so every path is stored only once and all users
+ * share this instance. This reduces the heap usage and also the size of the cache files, as Java's serialization
+ * writes a back reference instead of the string for every further occurrence of an identical string.
+ *
+ * <p>The table only holds its paths weakly, so that paths that are not used anymore (e.g. after a cache of a
+ * repository has been cleared) are garbage collected.
+ */
+final class SvnPathTable {
+
+    private static final Map<String, WeakReference<String>> PATHS = new WeakHashMap<>();
+
+    private SvnPathTable() {
+    }
+
+    /**
+     * Returns the canonical instance of the given path.
+     * @param path The path. May be null, in which case null is returned.
+     */
+    static String intern(final String path) {
+        if (path == null) {
+            return null;
+        }
+        synchronized (PATHS) {
+            final WeakReference<String> ref = PATHS.get(path);
+            final String existing = ref == null ? null : ref.get();
+            if (existing != null) {
+                return existing;
+            }
+            PATHS.put(path, new WeakReference<>(path));
+            return path;
+        }
+    }
+
+    /**
+     * Returns the number of different paths in the table.
+     */
+    static int size() {
+        synchronized (PATHS) {
+            return PATHS.size();
+        }
+    }
+}
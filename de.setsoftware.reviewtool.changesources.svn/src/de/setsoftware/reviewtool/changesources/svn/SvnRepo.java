@@ -30,10 +30,8 @@ import de.setsoftware.reviewtool.base.ComparableWrapper;
 import de.setsoftware.reviewtool.base.Logger;
 import de.setsoftware.reviewtool.base.ValueWrapper;
 import de.setsoftware.reviewtool.diffalgorithms.DiffAlgorithmFactory;
-import de.setsoftware.reviewtool.model.api.IMutableFileHistoryGraph;
 import de.setsoftware.reviewtool.model.api.IRepoRevision;
 import de.setsoftware.reviewtool.model.changestructure.AbstractRepository;
-import de.setsoftware.reviewtool.model.changestructure.FileHistoryGraph;
 
 /**
  * Represents a remote Subversion repository.
@@ -99,26 +97,27 @@ final class SvnRepo extends AbstractRepository implements ISvnRepo {
     private static final long serialVersionUID = 8792151363600093081L;
 
     private final java.io.File cacheDir;
-    private final SVNRepository svnRepo;
+    private final SvnSessionPool sessionPool;
     private final String id;
     private final SVNURL remoteUrl;
     private final String relPath;
     private final SvnFileCache fileCache;
     private final List<CachedLogEntry> entries;
-    private IMutableFileHistoryGraph fileHistoryGraph;
+    private SvnFileHistoryGraph fileHistoryGraph;
 
-    SvnRepo(final SVNRepository svnRepo, final SVNURL remoteUrl, java.io.File cacheDir) throws SVNException {
+    SvnRepo(final SvnSessionPool sessionPool, final SVNURL remoteUrl, java.io.File cacheDir) throws SVNException {
         this.cacheDir = cacheDir;
-        this.svnRepo = svnRepo;
-        this.id = svnRepo.getRepositoryUUID(true);
+        this.sessionPool = sessionPool;
+        this.id = sessionPool.execute("", (final SVNRepository session) -> session.getRepositoryUUID(true));
         this.remoteUrl = remoteUrl;
-        this.fileCache = new SvnFileCache(this.svnRepo);
+        this.fileCache = new SvnFileCache(this.sessionPool);
         this.entries = new ArrayList<>();
-        this.fileHistoryGraph = new FileHistoryGraph(DiffAlgorithmFactory.createDefault());
+        this.fileHistoryGraph = this.createEmptyFileHistoryGraph();
 
-        final SVNURL repositoryRoot = svnRepo.getRepositoryRoot(true);
+        final SVNURL repositoryRoot = sessionPool.getRootUrl();
         if (!repositoryRoot.equals(remoteUrl)) {
-            this.relPath = remoteUrl.toString().substring(repositoryRoot.toString().length());
+            // the decoded path is needed, as the session pool encodes the path when appending it to the root URL
+            this.relPath = remoteUrl.getPath().substring(repositoryRoot.getPath().length());
         } else {
             this.relPath = "";
         }
@@ -144,6 +143,18 @@ final class SvnRepo extends AbstractRepository implements ISvnRepo {
         return new java.io.File(this.cacheDir, "svnlog-" + encodeString(this.remoteUrl.toString()) + ".cache");
     }
 
+    @Override
+    public java.io.File getHistoryFragmentDirectory() {
+        return new java.io.File(this.cacheDir, "svnlog-" + encodeString(this.remoteUrl.toString()) + ".fragments");
+    }
+
+    private SvnFileHistoryGraph createEmptyFileHistoryGraph() {
+        return new SvnFileHistoryGraph(
+                DiffAlgorithmFactory.createDefault(),
+                this.getHistoryFragmentDirectory(),
+                Collections.<SvnHistoryFragment>emptyList());
+    }
+
     @Override
     public String getId() {
         return this.id;
@@ -154,6 +165,21 @@ final class SvnRepo extends AbstractRepository implements ISvnRepo {
         return this.fileCache.getFileContents(path, ComparableWrapper.<Long> unwrap(revision.getId()));
     }
 
+    @Override
+    public void prefetchFileContents(final long revision, final Collection<String> paths) throws SVNException {
+        this.fileCache.prefetchFiles(revision, paths);
+    }
+
+    @Override
+    public void prefetchFileHistory(final String path, final Collection<Long> revisions) throws SVNException {
+        this.fileCache.prefetchFileHistory(path, revisions);
+    }
+
+    @Override
+    public long getNumberOfBytesReceived() {
+        return this.fileCache.getNumberOfBytesReceived();
+    }
+
     @Override
     public Set<File> getFiles(final String path, final IRepoRevision<?> revision) {
         final Set<File> result = new LinkedHashSet<>();
@@ -251,7 +277,7 @@ final class SvnRepo extends AbstractRepository implements ISvnRepo {
 
         try {
             //
-            // We have to use a temporary repository here for two reasons:
+            // We have to use a session pointing at the directory here for two reasons:
             // (1) The subversion protocol requires that the target path passed to the status() call below consist of
             //     at most one path component. (Note that an empty target path (or {@code null}, equivalently) is also
             //     allowed.) Paths with multiple components are not allowed and lead to server errors as follows:
@@ -261,12 +287,14 @@ final class SvnRepo extends AbstractRepository implements ISvnRepo {
             //     See the discussion of the topic "ra_dav and mod_dav_svn target problem" at the URL
             //     https://svn.haxx.se/dev/archive-2003-08/0184.shtml for details.
             // (2) While we process a commit in an ISVNLogEntryHandler, we are not allowed to call back the server
-            //     using the same repository object as SVNRepository methods are not reentrant.
+            //     using the same session as SVNRepository methods are not reentrant. The session pool takes care
+            //     of this by using a separate session for nested calls, which is shared by all nested calls of the
+            //     log operation.
             //
-            final SVNRepository repo = SvnRepositoryManager.getInstance().getTemporaryRepo(
-                    this.svnRepo.getRepositoryRoot(false),
-                    path);
-            repo.status(revisionNumber, null, SVNDepth.INFINITY, reporter, editor);
+            this.sessionPool.execute(path, (final SVNRepository session) -> {
+                session.status(revisionNumber, null, SVNDepth.INFINITY, reporter, editor);
+                return null;
+            });
         } catch (final SVNException e) {
             Logger.warn("Error while collecting files for directory " + path + "@" + revisionNumber, e);
         }
@@ -274,12 +302,12 @@ final class SvnRepo extends AbstractRepository implements ISvnRepo {
     }
 
     @Override
-    public IMutableFileHistoryGraph getFileHistoryGraph() {
+    public SvnFileHistoryGraph getFileHistoryGraph() {
         return this.fileHistoryGraph;
     }
 
     @Override
-    public void setFileHistoryGraph(final IMutableFileHistoryGraph fileHistoryGraph) {
+    public void setFileHistoryGraph(final SvnFileHistoryGraph fileHistoryGraph) {
         this.fileHistoryGraph = fileHistoryGraph;
     }
 
@@ -289,17 +317,18 @@ final class SvnRepo extends AbstractRepository implements ISvnRepo {
     }
 
     @Override
-    public void getLog(final long startRevision, final ISVNLogEntryHandler handler) throws SVNException {
-        this.svnRepo.log(
+    public void getLog(final long startRevision, final long endRevision, final ISVNLogEntryHandler handler)
+            throws SVNException {
+        this.sessionPool.execute(this.relPath, (final SVNRepository session) -> session.log(
                 null,   // no target paths (retrieve log entries of whole repository)
                 startRevision,
-                this.svnRepo.getLatestRevision(),
+                endRevision,
                 true,   // discover changed paths
                 false,  // don't stop at copy operations
                 0,      // no log limit
                 false,  // don't include merge history
                 new String[0],
-                handler);
+                handler));
     }
 
     @Override
@@ -311,16 +340,16 @@ final class SvnRepo extends AbstractRepository implements ISvnRepo {
                 latestRevision.setValue(logEntry.getRevision());
             }
         };
-        this.svnRepo.log(
+        this.sessionPool.execute(this.relPath, (final SVNRepository session) -> session.log(
                 null,   // no target paths (retrieve log entries of whole repository)
-                this.svnRepo.getLatestRevision(),
+                session.getLatestRevision(),
                 0,
                 false,  // don't discover changed paths
                 true,   // stop at copy operations
                 1,      // consider only the latest revision
                 false,  // don't include merge history
                 new String[0],
-                handler);
+                handler));
         return latestRevision.get();
     }
 
@@ -340,7 +369,14 @@ final class SvnRepo extends AbstractRepository implements ISvnRepo {
     @Override
     public void clearCache() {
         this.getCacheFilePath().delete();
-        this.setFileHistoryGraph(new FileHistoryGraph(DiffAlgorithmFactory.createDefault()));
+        final java.io.File[] fragmentFiles = this.getHistoryFragmentDirectory().listFiles();
+        if (fragmentFiles != null) {
+            for (final java.io.File fragmentFile : fragmentFiles) {
+                fragmentFile.delete();
+            }
+        }
+        this.getHistoryFragmentDirectory().delete();
+        this.setFileHistoryGraph(this.createEmptyFileHistoryGraph());
         this.entries.clear();
     }
 }
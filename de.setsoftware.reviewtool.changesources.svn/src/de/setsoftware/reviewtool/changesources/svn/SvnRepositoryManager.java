@@ -2,6 +2,7 @@ package de.setsoftware.reviewtool.changesources.svn;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -11,9 +12,12 @@ import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.tmatesoft.svn.core.ISVNLogEntryHandler;
 import org.tmatesoft.svn.core.SVNException;
@@ -24,10 +28,11 @@ import org.tmatesoft.svn.core.wc.SVNClientManager;
 
 import de.setsoftware.reviewtool.base.Logger;
 import de.setsoftware.reviewtool.base.Pair;
+import de.setsoftware.reviewtool.base.ValueWrapper;
+import de.setsoftware.reviewtool.diffalgorithms.DiffAlgorithmFactory;
 import de.setsoftware.reviewtool.model.api.BackgroundJobExecutor;
 import de.setsoftware.reviewtool.model.api.IChangeSourceUi;
 import de.setsoftware.reviewtool.model.api.ICortProgressMonitor;
-import de.setsoftware.reviewtool.model.api.IMutableFileHistoryGraph;
 
 /**
  * Manages all known remote repositories.
@@ -35,9 +40,14 @@ import de.setsoftware.reviewtool.model.api.IMutableFileHistoryGraph;
 final class SvnRepositoryManager {
 
     private static final SvnRepositoryManager INSTANCE = new SvnRepositoryManager();
-    private static final long REVISION_BLOCK_SIZE = 500L;
+    private static final int MAX_SESSIONS_PER_REPOSITORY = 4;
+    private static final long SESSION_HEALTH_CHECK_INTERVAL_MILLIS = 30 * 1000L;
+    private static final long MAX_SESSION_IDLE_MILLIS = 5 * 60 * 1000L;
 
     private final Map<SVNURL, SvnRepo> repoPerRemoteUrl;
+    private final Map<SVNURL, SvnSessionPool> sessionPoolPerRootUrl;
+    private final Map<ISvnRepo, SvnLogWindow> logWindowPerRepo;
+    private final Map<ISvnRepo, ReentrantLock> lockPerRepo;
     private SVNClientManager mgr;
     private int minCount;
     private File cacheDir;
@@ -47,6 +57,9 @@ final class SvnRepositoryManager {
      */
     private SvnRepositoryManager() {
         this.repoPerRemoteUrl = new LinkedHashMap<>();
+        this.sessionPoolPerRootUrl = new LinkedHashMap<>();
+        this.logWindowPerRepo = new LinkedHashMap<>();
+        this.lockPerRepo = new LinkedHashMap<>();
         this.minCount = 1000;
     }
 
@@ -62,7 +75,17 @@ final class SvnRepositoryManager {
      * @param mgr The {@link SVNClientManager} for retrieving information about working copies.
      * @param minCount maximum initial size of the log
      */
-    void init(final SVNClientManager mgr, final int minCount, File cacheDir) {
+    synchronized void init(final SVNClientManager mgr, final int minCount, File cacheDir) {
+        for (final SvnSessionPool pool : this.sessionPoolPerRootUrl.values()) {
+            pool.close();
+        }
+        this.sessionPoolPerRootUrl.clear();
+        // the distances of matching revisions have been read from the cache files, which are not read again
+        for (final Map.Entry<ISvnRepo, SvnLogWindow> e : this.logWindowPerRepo.entrySet()) {
+            final SvnLogWindow window = new SvnLogWindow(minCount);
+            window.recordHitDistance(e.getValue().getMaxHitDistance());
+            e.setValue(window);
+        }
         this.mgr = mgr;
         this.minCount = minCount;
         this.cacheDir = cacheDir;
@@ -84,8 +107,8 @@ final class SvnRepositoryManager {
         SvnRepo c = this.repoPerRemoteUrl.get(remoteUrl);
         if (c == null) {
             try {
-                final SVNRepository svnRepo = this.mgr.createRepository(remoteUrl, false);
-                c = new SvnRepo(svnRepo, remoteUrl, this.cacheDir);
+                final SvnSessionPool pool = this.getSessionPool(this.determineRepositoryRoot(remoteUrl));
+                c = new SvnRepo(pool, remoteUrl, this.cacheDir);
             } catch (final SVNException e) {
                 Logger.error("Could not access repository " + remoteUrl, e);
                 return null;
@@ -98,14 +121,52 @@ final class SvnRepositoryManager {
     }
 
     /**
-     * Returns a reusable {@link SVNRepository} referring to a path in a remote repository.
+     * Returns the pool of sessions for a remote repository. All accesses to the repository should go through it.
      * @param remoteRootUrl The root URL of the remote repository.
-     * @param path The path at the remote repository.
-     * @return A {@link SVNRepository} that refers to the specified path in the remote repository.
-     * @throws SVNException if an error occurs.
+     * @return The session pool.
+     */
+    synchronized SvnSessionPool getSessionPool(final SVNURL remoteRootUrl) {
+        SvnSessionPool pool = this.sessionPoolPerRootUrl.get(remoteRootUrl);
+        if (pool == null) {
+            pool = new SvnSessionPool(
+                    this.mgr,
+                    remoteRootUrl,
+                    MAX_SESSIONS_PER_REPOSITORY,
+                    SESSION_HEALTH_CHECK_INTERVAL_MILLIS,
+                    MAX_SESSION_IDLE_MILLIS);
+            this.sessionPoolPerRootUrl.put(remoteRootUrl, pool);
+        }
+        return pool;
+    }
+
+    /**
+     * Returns the parameters used for loading the log of the given repository.
+     */
+    synchronized SvnLogWindow getLogWindow(final ISvnRepo repo) {
+        SvnLogWindow window = this.logWindowPerRepo.get(repo);
+        if (window == null) {
+            window = new SvnLogWindow(this.minCount);
+            this.logWindowPerRepo.put(repo, window);
+        }
+        return window;
+    }
+
+    /**
+     * Returns the lock that makes processing and storing the log of the given repository exclusive.
+     * Unlike a monitor, waiting for it can be interrupted, so that a refresh waiting for a repository
+     * whose processing hangs can be cancelled.
      */
-    synchronized SVNRepository getTemporaryRepo(final SVNURL remoteRootUrl, final String path) throws SVNException {
-        return this.mgr.createRepository(remoteRootUrl.appendPath(path, false), true);
+    private synchronized ReentrantLock getLock(final ISvnRepo repo) {
+        return this.lockPerRepo.computeIfAbsent(repo, (final ISvnRepo r) -> new ReentrantLock());
+    }
+
+    private SVNURL determineRepositoryRoot(final SVNURL remoteUrl) throws SVNException {
+        final SVNRepository session = this.mgr.createRepository(remoteUrl, false);
+        try {
+            return session.getRepositoryRoot(true);
+        } finally {
+            session.closeSession();
+        }
     }
 
     /**
@@ -118,24 +179,35 @@ final class SvnRepositoryManager {
      *
      * @param repo The repository.
      * @param handler The log entry handler to use for revision filtering.
-     * @return A pair of a boolean value and a list of repository revisions. The boolean flag indicates whether new
-     *         history entries have been processed.
+     * @return A pair of the log entries that have been newly processed and a list of matching repository revisions.
      */
-    Pair<Boolean, List<SvnRepoRevision>> traverseRecentEntries(
+    Pair<List<CachedLogEntry>, List<SvnRepoRevision>> traverseRecentEntries(
             final ISvnRepo repo,
             final CachedLogLookupHandler handler,
             final IChangeSourceUi ui) throws SVNException {
 
         final List<SvnRepoRevision> result = new ArrayList<>();
-        final Pair<Boolean, List<CachedLogEntry>> entries = this.getEntries(repo, ui);
-        for (final CachedLogEntry entry : entries.getSecond()) {
+        final Pair<List<CachedLogEntry>, List<CachedLogEntry>> entries = this.getEntries(repo, ui);
+        final List<CachedLogEntry> allEntries = entries.getSecond();
+        final long latestRevision = allEntries.isEmpty() ? 0 : allEntries.get(allEntries.size() - 1).getRevision();
+        final SvnLogWindow window = this.getLogWindow(repo);
+        boolean hitDistanceIncreased = false;
+        for (final CachedLogEntry entry : allEntries) {
             if (ui.isCanceled()) {
                 throw BackgroundJobExecutor.createOperationCanceledException();
             }
             if (handler.handleLogEntry(entry)) {
                 result.add(new SvnRepoRevision(repo, entry));
+                hitDistanceIncreased |= window.recordHitDistance(latestRevision - entry.getRevision());
             }
         }
+        if (hitDistanceIncreased) {
+            // the distance is stored with the cache, so that it is known when the log has to be loaded anew
+            BackgroundJobExecutor.executeWithMutex(
+                    "Storing SVN review cache for " + repo,
+                    repo.getCacheFilePath(),
+                    (ICortProgressMonitor monitor) -> tryToStoreCacheToFile(repo));
+        }
         return Pair.create(entries.getFirst(), result);
     }
 
@@ -146,15 +218,28 @@ final class SvnRepositoryManager {
      * <p>Completely processed log entries are stored to disk in the background even if not all log entries could be
      * loaded due to cancellation via {@link IProgressMonitor#setCanceled(boolean)}.
      *
+     * <p>Different repositories can be processed concurrently, the processing of a single repository is exclusive.
+     *
      * @param repo The repository.
-     * @return A pair of a boolean value and a list of log entries. The boolean flag indicates whether new history
-     *         entries have been processed.
+     * @return A pair of the log entries that have been newly processed and all log entries.
      */
-    private synchronized Pair<Boolean, List<CachedLogEntry>> getEntries(final ISvnRepo repo, final IChangeSourceUi ui)
-            throws SVNException {
+    private Pair<List<CachedLogEntry>, List<CachedLogEntry>> getEntries(
+            final ISvnRepo repo,
+            final IChangeSourceUi ui) throws SVNException {
 
-        final boolean gotNewEntries = this.loadNewEntries(repo, ui);
-        return Pair.create(gotNewEntries, repo.getEntries());
+        final ReentrantLock lock = this.getLock(repo);
+        try {
+            lock.lockInterruptibly();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw BackgroundJobExecutor.createOperationCanceledException();
+        }
+        try {
+            final List<CachedLogEntry> newEntries = this.loadNewEntries(repo, ui);
+            return Pair.create(newEntries, repo.getEntries());
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -164,25 +249,26 @@ final class SvnRepositoryManager {
      * loaded due to cancellation via {@link IProgressMonitor#setCanceled(boolean)}.
      *
      * @param repo The repository.
-     * @return {@code true} iff new history entries have been processed.
+     * @return The log entries that have been newly processed. Empty if the cache was up to date.
      */
-    private boolean loadNewEntries(final ISvnRepo repo, final IChangeSourceUi ui) throws SVNException {
+    private List<CachedLogEntry> loadNewEntries(final ISvnRepo repo, final IChangeSourceUi ui) throws SVNException {
         final List<CachedLogEntry> entries = repo.getEntries();
         final long lastKnownRevision = entries.isEmpty() ? 0 : entries.get(entries.size() - 1).getRevision();
 
         final long latestRevision = repo.getLatestRevision();
         if (lastKnownRevision < latestRevision) {
             final long startRevision = lastKnownRevision == 0
-                    ? Math.max(0, latestRevision - this.minCount + 1) : lastKnownRevision + 1;
-            this.loadNewEntries(repo, startRevision, latestRevision, ui);
-            return true;
+                    ? Math.max(0, latestRevision - this.getLogWindow(repo).getInitialWindow() + 1)
+                    : lastKnownRevision + 1;
+            return this.loadNewEntries(repo, startRevision, latestRevision, ui);
         } else {
-            return false;
+            return Collections.emptyList();
         }
     }
 
     /**
      * Loads and processes a range of log entries from the repository that have not been processed yet.
+     * The range is loaded in blocks whose size is determined by the repository's {@link SvnLogWindow}.
      *
      * <p>Completely processed log entries are stored to disk in the background even if not all log entries could be
      * loaded due to cancellation via {@link IProgressMonitor#setCanceled(boolean)}.
@@ -190,26 +276,35 @@ final class SvnRepositoryManager {
      * @param repo The repository.
      * @param firstRevision The first revision to process.
      * @param lastRevision The last revision to process.
+     * @return The log entries that have been processed.
      */
-    private void loadNewEntries(
+    private List<CachedLogEntry> loadNewEntries(
             final ISvnRepo repo,
             final long firstRevision,
             final long lastRevision,
             final IChangeSourceUi ui) throws SVNException {
 
         if (lastRevision < firstRevision) {
-            return;
+            return Collections.emptyList();
         }
 
         final List<CachedLogEntry> newEntries = new ArrayList<>();
         final long numRevisionsTotal = lastRevision - firstRevision + 1;
+        final SvnLogWindow window = this.getLogWindow(repo);
+        final long startTime = System.nanoTime();
+        final ValueWrapper<Long> firstEntryTime = new ValueWrapper<>();
+        long blockStart = firstRevision;
 
-        Logger.info("Processing revisions " + firstRevision + ".." + lastRevision + " from " + repo);
+        Logger.info("Processing revisions " + firstRevision + ".." + lastRevision + " from " + repo
+                + " (" + window + ")");
         ui.increaseTaskNestingLevel();
         try {
             final ISVNLogEntryHandler handler = new ISVNLogEntryHandler() {
                 @Override
                 public void handleLogEntry(final SVNLogEntry logEntry) throws SVNException {
+                    if (firstEntryTime.get() == null) {
+                        firstEntryTime.setValue(System.nanoTime());
+                    }
                     final CachedLogEntry entry = new CachedLogEntry(logEntry);
                     SvnRepositoryManager.this.processLogEntry(
                             entry,
@@ -220,11 +315,38 @@ final class SvnRepositoryManager {
                     newEntries.add(entry);
                 }
             };
-            repo.getLog(firstRevision, handler);
+            while (blockStart <= lastRevision) {
+                final long blockEnd = Math.min(lastRevision, blockStart + window.getBlockSize() - 1);
+                final int numEntriesBefore = newEntries.size();
+                final long blockStartTime = System.nanoTime();
+                firstEntryTime.setValue(null);
+
+                repo.getLog(blockStart, blockEnd, handler);
+                repo.getFileHistoryGraph().completeFragment(blockStart, blockEnd);
+
+                final long blockEndTime = System.nanoTime();
+                window.recordBlock(
+                        blockEnd - blockStart + 1,
+                        newEntries.size() - numEntriesBefore,
+                        (firstEntryTime.get() == null ? blockEndTime : firstEntryTime.get()) - blockStartTime,
+                        blockEndTime - blockStartTime);
+                Logger.debug("Processed revisions " + blockStart + ".." + blockEnd + " from " + repo
+                        + " (" + window + ")");
+                blockStart = blockEnd + 1;
+            }
         } finally {
             ui.decreaseTaskNestingLevel();
+            if (!newEntries.isEmpty() && blockStart <= lastRevision) {
+                // the last block has been interrupted, keep what has been processed so far
+                repo.getFileHistoryGraph().completeFragment(
+                        blockStart, newEntries.get(newEntries.size() - 1).getRevision());
+            }
             repo.appendNewEntries(newEntries);
 
+            final long durationMillis = Math.max(1L, (System.nanoTime() - startTime) / 1000000L);
+            Logger.info("Processed " + newEntries.size() + " log entries from " + repo + " in " + durationMillis
+                    + " ms (" + (newEntries.size() * 1000L / durationMillis) + " entries/s, " + window + ")");
+
             if (!newEntries.isEmpty()) {
                 BackgroundJobExecutor.executeWithMutex(
                         "Storing SVN review cache for " + repo,
@@ -232,6 +354,7 @@ final class SvnRepositoryManager {
                         (ICortProgressMonitor monitor) -> tryToStoreCacheToFile(repo));
             }
         }
+        return newEntries;
     }
 
     private void tryToReadCacheFromFile(final ISvnRepo repo) {
@@ -242,12 +365,21 @@ final class SvnRepositoryManager {
         }
     }
 
-    private synchronized void readCacheFromFile(final ISvnRepo repo)
+    /**
+     * Loads the log entries of the given repository from its cache file, if present, together with the list of
+     * fragments its file history graph consists of. The fragments themselves are only loaded when the graph is
+     * needed for the first time (see {@link SvnFileHistoryGraph}). The distance of the matching revisions stored
+     * with the log entries is passed to the repository's {@link SvnLogWindow}, even if the log entries cannot be
+     * used, so that loading the log anew starts from a sufficiently old revision.
+     */
+    synchronized void readCacheFromFile(final ISvnRepo repo)
             throws IOException, ClassNotFoundException {
 
         final File cache = repo.getCacheFilePath();
+        final File fragmentDir = repo.getHistoryFragmentDirectory();
         if (!cache.exists()) {
             Logger.info("SVN cache " + cache + " is missing for " + repo + ", nothing to load");
+            deleteUnusedFragments(fragmentDir, Collections.<SvnHistoryFragment>emptyList());
             return;
         }
         Logger.info("Loading SVN history data for " + repo + " from " + cache);
@@ -256,14 +388,66 @@ final class SvnRepositoryManager {
 
             @SuppressWarnings("unchecked") final List<CachedLogEntry> value =
                     (List<CachedLogEntry>) ois.readObject();
-            final IMutableFileHistoryGraph historyGraph = (IMutableFileHistoryGraph) ois.readObject();
+            final Object fragmentList = ois.readObject();
+            if (!(fragmentList instanceof List)) {
+                // written by an older version that stored the complete file history graph
+                Logger.info("SVN cache " + cache + " for " + repo + " has an outdated format, ignoring it");
+                deleteUnusedFragments(fragmentDir, Collections.<SvnHistoryFragment>emptyList());
+                return;
+            }
+            @SuppressWarnings("unchecked") final List<SvnHistoryFragment> fragments =
+                    (List<SvnHistoryFragment>) fragmentList;
+            this.getLogWindow(repo).recordHitDistance(readMaxHitDistance(ois));
+            for (final SvnHistoryFragment fragment : fragments) {
+                if (!fragment.getFile(fragmentDir).exists()) {
+                    Logger.info("SVN history fragment " + fragment.getFile(fragmentDir) + " for " + repo
+                            + " is missing, ignoring cache " + cache);
+                    deleteUnusedFragments(fragmentDir, Collections.<SvnHistoryFragment>emptyList());
+                    return;
+                }
+            }
+            deleteUnusedFragments(fragmentDir, fragments);
 
             repo.appendNewEntries(value);
-            repo.setFileHistoryGraph(historyGraph);
+            repo.setFileHistoryGraph(
+                    new SvnFileHistoryGraph(DiffAlgorithmFactory.createDefault(), fragmentDir, fragments));
         }
         Logger.info("Loaded SVN history data for " + repo + " from " + cache);
     }
 
+    /**
+     * Reads the largest distance of a matching revision stored after the list of fragments.
+     * Returns 0 if the cache file has been written by an older version that did not store it.
+     */
+    private static long readMaxHitDistance(final ObjectInputStream ois) throws IOException, ClassNotFoundException {
+        try {
+            return (Long) ois.readObject();
+        } catch (final EOFException e) {
+            return 0L;
+        }
+    }
+
+    /**
+     * Deletes all files from the fragment directory that do not belong to one of the given fragments.
+     * Such files are left over if storing the cache has been interrupted, and must not be mistaken for
+     * up-to-date fragments later.
+     */
+    private static void deleteUnusedFragments(final File fragmentDir, final List<SvnHistoryFragment> fragments) {
+        final File[] files = fragmentDir.listFiles();
+        if (files == null) {
+            return;
+        }
+        final Set<File> usedFiles = new HashSet<>();
+        for (final SvnHistoryFragment fragment : fragments) {
+            usedFiles.add(fragment.getFile(fragmentDir));
+        }
+        for (final File file : files) {
+            if (!usedFiles.contains(file)) {
+                file.delete();
+            }
+        }
+    }
+
     private void tryToStoreCacheToFile(final ISvnRepo repo) {
         try {
             this.storeCacheToFile(repo);
@@ -272,16 +456,43 @@ final class SvnRepositoryManager {
         }
     }
 
-    private synchronized void storeCacheToFile(final ISvnRepo repo) throws IOException {
-        final File cache = repo.getCacheFilePath();
-        Logger.info("Storing SVN history data for " + repo + " to " + cache);
-        try (ObjectOutputStream oos =
-                new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(cache)))) {
-
-            oos.writeObject(repo.getEntries());
-            oos.writeObject(repo.getFileHistoryGraph());
+    /**
+     * Stores the log entries of the given repository to its cache file. Of the file history graph, only the
+     * fragments that have not been stored yet are written, each to a file of its own. The cache file references
+     * all fragments of the graph, the files of fragments that have been merged are deleted afterwards.
+     * The largest distance of a matching revision known to the repository's {@link SvnLogWindow} is stored, too.
+     *
+     * <p>Locks only the given repository, so that other repositories can be processed in the meantime.
+     * Nothing is stored if the thread is interrupted while waiting for the lock.
+     */
+    void storeCacheToFile(final ISvnRepo repo) throws IOException {
+        final ReentrantLock lock = this.getLock(repo);
+        try {
+            lock.lockInterruptibly();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Logger.info("Interrupted while waiting to store SVN history data for " + repo);
+            return;
+        }
+        try {
+            final File cache = repo.getCacheFilePath();
+            Logger.info("Storing SVN history data for " + repo + " to " + cache);
+            final SvnFileHistoryGraph historyGraph = repo.getFileHistoryGraph();
+            historyGraph.storeFragments();
+            final List<SvnHistoryFragment> fragments = historyGraph.getFragments();
+            try (ObjectOutputStream oos =
+                    new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(cache)))) {
+
+                oos.writeObject(repo.getEntries());
+                oos.writeObject(new ArrayList<>(fragments));
+                oos.writeObject(this.getLogWindow(repo).getMaxHitDistance());
+            }
+            // fragments that have been merged are not referenced anymore
+            deleteUnusedFragments(repo.getHistoryFragmentDirectory(), fragments);
+            Logger.info("Stored SVN history data for " + repo + " to " + cache);
+        } finally {
+            lock.unlock();
         }
-        Logger.info("Stored SVN history data for " + repo + " to " + cache);
     }
 
     private void processLogEntry(
@@ -300,9 +511,5 @@ final class SvnRepositoryManager {
         ui.subTask("Processing revision " + revision.getRevisionNumber()
                 + " (" + numEntriesProcessedNow + "/" + numRevisionsTotal + ")...");
         revision.integrateInto(repo.getFileHistoryGraph());
-
-        if (numEntriesProcessedNow % REVISION_BLOCK_SIZE == 0) {
-            Logger.debug(numEntriesProcessedNow + " revisions processed");
-        }
     }
 }
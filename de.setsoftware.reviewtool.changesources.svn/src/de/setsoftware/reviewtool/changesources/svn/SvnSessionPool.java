@@ -0,0 +1,252 @@
+package de.setsoftware.reviewtool.changesources.svn;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+import org.tmatesoft.svn.core.ISVNCanceller;
+import org.tmatesoft.svn.core.SVNCancelException;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.io.SVNRepository;
+import org.tmatesoft.svn.core.wc.SVNClientManager;
+
+import de.setsoftware.reviewtool.base.Logger;
+
+/**
+ * A bounded pool of authenticated {@link SVNRepository} sessions for a single repository root.
+ * All accesses to the remote repository go through this pool, so that the setup costs for connections
+ * and authentication are paid only once per session and not once per operation.
+ *
+ * <p>At most a given number of top-level operations run at the same time, further threads wait until one of them
+ * is finished. A top-level operation borrows its session once and keeps it until it is finished. Operations nested
+ * in it (e.g. while handling log entries) do not wait for the pool, as this could deadlock. As {@link SVNRepository}
+ * is not reentrant, they cannot use the session of the enclosing operation, but all operations on the same nesting
+ * level share one session that is also kept until the top-level operation is finished. So every top-level operation
+ * uses at most one session per nesting level.
+ *
+ * <p>Sessions that have been idle for some time are checked before being handed out again and replaced if the
+ * check fails. Sessions that have been idle for too long are closed. Sessions used in an operation that failed
+ * are closed, too, as their state is unknown.
+ *
+ * <p>Operations can be aborted by interrupting their thread: Waiting for the pool and running requests then fail
+ * with a {@link SVNCancelException}.
+ */
+final class SvnSessionPool {
+
+    /**
+     * An operation that is performed using a pooled session.
+     * @param <T> The type of the operation's result.
+     */
+    interface Operation<T> {
+        /**
+         * Performs the operation.
+         * @param session The session. It must not be used after the operation has finished.
+         * @return The result of the operation.
+         * @throws SVNException if some error occurs.
+         */
+        public abstract T run(SVNRepository session) throws SVNException;
+    }
+
+    /**
+     * A pooled session together with the time of its last use.
+     */
+    private static final class IdleSession {
+        final SVNRepository session;
+        final long idleSince;
+
+        IdleSession(final SVNRepository session, final long idleSince) {
+            this.session = session;
+            this.idleSince = idleSince;
+        }
+    }
+
+    /**
+     * Cancels the requests of sessions whose thread has been interrupted.
+     */
+    private static final ISVNCanceller INTERRUPTION_CANCELLER = () -> {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new SVNCancelException();
+        }
+    };
+
+    private final SVNClientManager mgr;
+    private final SVNURL rootUrl;
+    private final Semaphore permits;
+    private final long healthCheckIntervalMillis;
+    private final long maxIdleMillis;
+    private final Deque<IdleSession> idleSessions;
+    private final ThreadLocal<Integer> nestingLevel;
+    private final ThreadLocal<List<SVNRepository>> sessionsOfThread;
+    private long numberOfCreatedSessions;
+
+    /**
+     * Constructor.
+     * @param mgr The {@link SVNClientManager} used to create new sessions.
+     * @param rootUrl The root URL of the repository.
+     * @param maxSessions The maximum number of top-level operations performed concurrently by different threads.
+     * @param healthCheckIntervalMillis Sessions idle for at least this time are checked before being reused.
+     * @param maxIdleMillis Sessions idle for at least this time are closed.
+     */
+    SvnSessionPool(
+            final SVNClientManager mgr,
+            final SVNURL rootUrl,
+            final int maxSessions,
+            final long healthCheckIntervalMillis,
+            final long maxIdleMillis) {
+        this.mgr = mgr;
+        this.rootUrl = rootUrl;
+        this.permits = new Semaphore(maxSessions, true);
+        this.healthCheckIntervalMillis = healthCheckIntervalMillis;
+        this.maxIdleMillis = maxIdleMillis;
+        this.idleSessions = new ArrayDeque<>();
+        this.nestingLevel = ThreadLocal.withInitial(() -> 0);
+        this.sessionsOfThread = ThreadLocal.withInitial(ArrayList::new);
+    }
+
+    /**
+     * Returns the root URL of the repository.
+     */
+    SVNURL getRootUrl() {
+        return this.rootUrl;
+    }
+
+    /**
+     * Performs an operation with a session of this pool.
+     * @param path The path relative to the repository root the session shall point at.
+     *      Use the empty string for the repository root.
+     * @param operation The operation to perform.
+     * @return The operation's result.
+     * @throws SVNException if some error occurs.
+     */
+    <T> T execute(final String path, final Operation<T> operation) throws SVNException {
+        // the sessions of the current top-level operation, indexed by nesting level; null if closed after a failure
+        final List<SVNRepository> sessions = this.sessionsOfThread.get();
+        final int level = this.nestingLevel.get();
+        if (level == 0) {
+            try {
+                this.permits.acquire();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SVNCancelException();
+            }
+        }
+        this.nestingLevel.set(level + 1);
+        try {
+            if (sessions.size() == level) {
+                sessions.add(null);
+            }
+            if (sessions.get(level) == null) {
+                sessions.set(level, this.borrowSession());
+            }
+            final SVNRepository session = sessions.get(level);
+            boolean success = false;
+            try {
+                final SVNURL location = path.isEmpty() ? this.rootUrl : this.rootUrl.appendPath(path, false);
+                if (!location.equals(session.getLocation())) {
+                    session.setLocation(location, false);
+                }
+                final T result = operation.run(session);
+                success = true;
+                return result;
+            } finally {
+                if (!success) {
+                    sessions.set(level, null);
+                    session.closeSession();
+                }
+            }
+        } finally {
+            this.nestingLevel.set(level);
+            if (level == 0) {
+                for (final SVNRepository session : sessions) {
+                    if (session != null) {
+                        this.returnSession(session);
+                    }
+                }
+                sessions.clear();
+                this.permits.release();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of sessions that have been opened by this pool so far.
+     */
+    synchronized long getNumberOfCreatedSessions() {
+        return this.numberOfCreatedSessions;
+    }
+
+    /**
+     * Returns the number of sessions that are currently idle.
+     */
+    synchronized int getNumberOfIdleSessions() {
+        return this.idleSessions.size();
+    }
+
+    /**
+     * Closes all idle sessions.
+     */
+    synchronized void close() {
+        for (final IdleSession idle : this.idleSessions) {
+            idle.session.closeSession();
+        }
+        this.idleSessions.clear();
+    }
+
+    private SVNRepository borrowSession() throws SVNException {
+        while (true) {
+            final IdleSession idle;
+            synchronized (this) {
+                this.evictIdleSessions(System.currentTimeMillis());
+                idle = this.idleSessions.pollFirst();
+                if (idle == null) {
+                    this.numberOfCreatedSessions++;
+                    break;
+                }
+            }
+            if (System.currentTimeMillis() - idle.idleSince < this.healthCheckIntervalMillis
+                    || this.isHealthy(idle.session)) {
+                return idle.session;
+            }
+            idle.session.closeSession();
+        }
+        final SVNRepository session = this.mgr.createRepository(this.rootUrl, false);
+        session.setCanceller(INTERRUPTION_CANCELLER);
+        return session;
+    }
+
+    private boolean isHealthy(final SVNRepository session) {
+        try {
+            session.testConnection();
+            return true;
+        } catch (final SVNException e) {
+            Logger.debug("discarding broken SVN session for " + this.rootUrl + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    private synchronized void returnSession(final SVNRepository session) {
+        final long now = System.currentTimeMillis();
+        this.idleSessions.addFirst(new IdleSession(session, now));
+        this.evictIdleSessions(now);
+    }
+
+    /**
+     * Closes all sessions that have been idle for too long.
+     * The most recently used sessions are at the front of the queue, so it suffices to look at the tail.
+     */
+    private void evictIdleSessions(final long now) {
+        final Iterator<IdleSession> it = this.idleSessions.descendingIterator();
+        while (it.hasNext()) {
+            final IdleSession idle = it.next();
+            if (now - idle.idleSince < this.maxIdleMillis) {
+                break;
+            }
+            it.remove();
+            idle.session.closeSession();
+        }
+    }
+}
@@ -2,10 +2,18 @@ package de.setsoftware.reviewtool.changesources.svn;
 
 import java.io.File;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 import de.setsoftware.reviewtool.diffalgorithms.DiffAlgorithmFactory;
 import de.setsoftware.reviewtool.model.api.IMutableFileHistoryGraph;
+import de.setsoftware.reviewtool.model.api.IRevision;
 import de.setsoftware.reviewtool.model.changestructure.AbstractWorkingCopy;
+import de.setsoftware.reviewtool.model.changestructure.ChangestructureFactory;
 import de.setsoftware.reviewtool.model.changestructure.FileHistoryGraph;
 import de.setsoftware.reviewtool.model.changestructure.VirtualFileHistoryGraph;
 
@@ -17,11 +25,13 @@ final class SvnWorkingCopy extends AbstractWorkingCopy {
     private final ISvnRepo repo;
     private final File workingCopyRoot;
     private final VirtualFileHistoryGraph combinedFileHistoryGraph;
+    private final SortedMap<String, CachedLogEntryPath> localChanges;
 
     SvnWorkingCopy(final ISvnRepo repo, final File workingCopyRoot) {
         this.repo = repo;
         this.workingCopyRoot = workingCopyRoot;
         this.combinedFileHistoryGraph = new VirtualFileHistoryGraph(repo.getFileHistoryGraph());
+        this.localChanges = new TreeMap<>();
         this.setLocalFileHistoryGraph(new FileHistoryGraph(DiffAlgorithmFactory.createDefault()));
     }
 
@@ -86,10 +96,83 @@ final class SvnWorkingCopy extends AbstractWorkingCopy {
 
     /**
      * Replaces the {@link SvnFileHistoryGraph} by the passed file history graph.
-     * Note that it is not possible to change the file history graph afterwards, as the combined file history graph
-     * would not recompute the connecting edges.
+     * Note that the file history graph must not be changed afterwards by other means than
+     * {@link #updateLocalChanges(Collection, SortedMap)}, as the combined file history graph
+     * would neither be locked nor recompute the connecting edges otherwise.
      */
     void setLocalFileHistoryGraph(final IMutableFileHistoryGraph localFileHistoryGraph) {
         this.combinedFileHistoryGraph.setLocalFileHistoryGraph(localFileHistoryGraph);
     }
+
+    /**
+     * Returns the repository paths of all known local changes and of all files in the local file history graph.
+     */
+    synchronized Set<String> getLocalPaths() {
+        final Set<String> paths = new LinkedHashSet<>(this.localChanges.keySet());
+        paths.addAll(this.getLocalFileHistoryGraph().getPaths());
+        return paths;
+    }
+
+    /**
+     * Replaces all known local changes and rebuilds the local file history graph from scratch.
+     * @param changes The local changes of the whole working copy.
+     */
+    synchronized void setLocalChanges(final SortedMap<String, CachedLogEntryPath> changes) {
+        this.localChanges.clear();
+        this.localChanges.putAll(changes);
+
+        final IMutableFileHistoryGraph localFileHistoryGraph =
+                new FileHistoryGraph(DiffAlgorithmFactory.createDefault());
+        new SvnWorkingCopyRevision(this, changes).integrateInto(localFileHistoryGraph);
+        this.setLocalFileHistoryGraph(localFileHistoryGraph);
+    }
+
+    /**
+     * Updates the local changes of some paths and patches the local file history graph in place.
+     * All other known local changes and their nodes are left untouched.
+     *
+     * @param checkedPaths The repository paths whose local state has been determined anew.
+     * @param changes The local changes found for these paths. Paths without a change have been reverted.
+     */
+    synchronized void updateLocalChanges(
+            final Collection<String> checkedPaths,
+            final SortedMap<String, CachedLogEntryPath> changes) {
+
+        final IMutableFileHistoryGraph localFileHistoryGraph = this.getLocalFileHistoryGraph();
+        final IRevision localRevision = ChangestructureFactory.createLocalRevision(this);
+        // the graph is in use, so concurrent queries shall not see it with the old changes removed only
+        this.combinedFileHistoryGraph.updateLocalFileHistoryGraph(() -> localFileHistoryGraph.performBatch(() -> {
+            for (final String path : checkedPaths) {
+                final CachedLogEntryPath oldChange = this.localChanges.remove(path);
+                if (oldChange != null) {
+                    this.removeLocalChange(localFileHistoryGraph, oldChange, localRevision);
+                }
+            }
+
+            this.localChanges.putAll(changes);
+            new SvnWorkingCopyRevision(this, changes).integrateInto(localFileHistoryGraph);
+        }));
+    }
+
+    /**
+     * Removes the nodes of a single local change from the local file history graph. A local change of a directory
+     * results in nodes for all files below it, so these are removed as well, together with the local changes
+     * known for them.
+     */
+    private void removeLocalChange(
+            final IMutableFileHistoryGraph localFileHistoryGraph,
+            final CachedLogEntryPath change,
+            final IRevision localRevision) {
+
+        if (change.isDir()) {
+            final String pathPrefix = change.getPath() + "/";
+            for (final String path : new ArrayList<>(localFileHistoryGraph.getPaths())) {
+                if (path.startsWith(pathPrefix)) {
+                    localFileHistoryGraph.removeFile(path, localRevision);
+                }
+            }
+            this.localChanges.keySet().removeIf((final String path) -> path.startsWith(pathPrefix));
+        }
+        localFileHistoryGraph.removeFile(change.getPath(), localRevision);
+    }
 }
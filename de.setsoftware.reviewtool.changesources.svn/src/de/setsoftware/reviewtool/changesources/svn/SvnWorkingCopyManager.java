@@ -11,6 +11,15 @@ import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.tmatesoft.svn.core.SVNDepth;
 import org.tmatesoft.svn.core.SVNException;
@@ -20,29 +29,133 @@ import org.tmatesoft.svn.core.wc.SVNClientManager;
 import org.tmatesoft.svn.core.wc.SVNInfo;
 import org.tmatesoft.svn.core.wc.SVNRevision;
 import org.tmatesoft.svn.core.wc.SVNStatus;
+import org.tmatesoft.svn.core.wc.SVNStatusClient;
 
+import de.setsoftware.reviewtool.base.Logger;
 import de.setsoftware.reviewtool.base.Pair;
-import de.setsoftware.reviewtool.diffalgorithms.DiffAlgorithmFactory;
+import de.setsoftware.reviewtool.base.ReviewtoolException;
 import de.setsoftware.reviewtool.model.api.BackgroundJobExecutor;
 import de.setsoftware.reviewtool.model.api.IChangeSourceUi;
-import de.setsoftware.reviewtool.model.api.IMutableFileHistoryGraph;
-import de.setsoftware.reviewtool.model.changestructure.FileHistoryGraph;
 
 /**
  * Manages all known local working copies.
  */
 final class SvnWorkingCopyManager {
 
+    /**
+     * The progress monitor of a single repository refresh. Progress is passed on to the shared monitor, which is
+     * used by all refreshes concurrently. The refresh counts as canceled if the shared monitor is canceled or
+     * if it has run for longer than the timeout.
+     */
+    private static final class RefreshUi implements IChangeSourceUi {
+
+        private final IChangeSourceUi sharedUi;
+        private final ISvnRepo repo;
+        private final long timeoutMillis;
+        private volatile long startTime;
+        private volatile boolean abandoned;
+
+        RefreshUi(final IChangeSourceUi sharedUi, final ISvnRepo repo, final long timeoutMillis) {
+            this.sharedUi = sharedUi;
+            this.repo = repo;
+            this.timeoutMillis = timeoutMillis;
+        }
+
+        /**
+         * Marks the start of the refresh, the timeout counts from here.
+         */
+        void start() {
+            this.startTime = System.nanoTime();
+        }
+
+        /**
+         * Returns true if the refresh has been started and is running for longer than the timeout.
+         */
+        boolean isTimedOut() {
+            final long start = this.startTime;
+            return start != 0L && System.nanoTime() - start > this.timeoutMillis * 1000000L;
+        }
+
+        /**
+         * Tells the refresh to stop as soon as possible because nobody waits for its result anymore.
+         */
+        void abandon() {
+            this.abandoned = true;
+        }
+
+        @Override
+        public boolean isCanceled() {
+            if (this.abandoned || this.isTimedOut()) {
+                return true;
+            }
+            synchronized (this.sharedUi) {
+                return this.sharedUi.isCanceled();
+            }
+        }
+
+        @Override
+        public void beginTask(final String name, final int totalWork) {
+        }
+
+        @Override
+        public void subTask(final String name) {
+            synchronized (this.sharedUi) {
+                this.sharedUi.subTask(this.repo + ": " + name);
+            }
+        }
+
+        @Override
+        public void done() {
+        }
+
+        @Override
+        public Boolean handleLocalWorkingIncomplete(final String detailInfo) {
+            synchronized (this.sharedUi) {
+                return this.sharedUi.handleLocalWorkingIncomplete(detailInfo);
+            }
+        }
+
+        @Override
+        public void increaseTaskNestingLevel() {
+            // the nesting levels of concurrent refreshes would get mixed up in the shared monitor
+        }
+
+        @Override
+        public void decreaseTaskNestingLevel() {
+        }
+    }
+
     private static final SvnWorkingCopyManager INSTANCE = new SvnWorkingCopyManager();
+    private static final int MAX_PARALLEL_REFRESHES = 4;
+    private static final long DEFAULT_REFRESH_TIMEOUT_MILLIS = 10 * 60 * 1000L;
+    private static final long REFRESH_POLL_INTERVAL_MILLIS = 200L;
 
     private final Map<String, SvnWorkingCopy> wcPerRootDirectory;
+    private final ThreadPoolExecutor refreshExecutor;
     private SVNClientManager mgr;
+    private long refreshTimeoutMillis;
 
     /**
      * Constructor.
      */
     private SvnWorkingCopyManager() {
         this.wcPerRootDirectory = new LinkedHashMap<>();
+        this.refreshTimeoutMillis = DEFAULT_REFRESH_TIMEOUT_MILLIS;
+
+        final AtomicInteger threadNumber = new AtomicInteger();
+        final ThreadFactory threadFactory = (final Runnable r) -> {
+            final Thread t = new Thread(r, "CoRT SVN refresh " + threadNumber.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        this.refreshExecutor = new ThreadPoolExecutor(
+                MAX_PARALLEL_REFRESHES,
+                MAX_PARALLEL_REFRESHES,
+                60,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                threadFactory);
+        this.refreshExecutor.allowCoreThreadTimeOut(true);
     }
 
     /**
@@ -54,10 +167,13 @@ final class SvnWorkingCopyManager {
 
     /**
      * Initializes the cache.
-     * @param mgr The {@link SVNClientManager} for retrieving information about working copies.
+     * @param mgr The {@link SVNClientManager} for retrieving information about working copies. Status requests
+     *      use client managers of their own, as they are done concurrently.
+     * @param refreshTimeoutMillis The maximal time to wait for the refresh of a single repository.
      */
-    void init(final SVNClientManager mgr) {
+    void init(final SVNClientManager mgr, final long refreshTimeoutMillis) {
         this.mgr = mgr;
+        this.refreshTimeoutMillis = refreshTimeoutMillis;
     }
 
     /**
@@ -98,31 +214,178 @@ final class SvnWorkingCopyManager {
 
     /**
      * Calls the given handler for all recent log entries of all known working copies.
+     *
+     * <p>Every repository is refreshed by a task of its own, and up to {@link #MAX_PARALLEL_REFRESHES} tasks run
+     * concurrently on a thread pool shared by all calls, so that a slow or unreachable repository does not hold up
+     * the others. If the refresh of a repository fails or takes longer than the configured timeout, this is logged
+     * and the repository is skipped. Only if no repository could be refreshed at all, the failure is passed on.
+     * Tasks that are skipped or still running when this method returns are interrupted, so that they release
+     * the repository and their thread as soon as possible.
      */
-    synchronized List<Pair<SvnWorkingCopy, SvnRepoRevision>> traverseRecentEntries(
+    List<Pair<SvnWorkingCopy, SvnRepoRevision>> traverseRecentEntries(
             final CachedLogLookupHandler handler,
             final IChangeSourceUi ui) throws SVNException {
 
+        final Map<ISvnRepo, List<SvnWorkingCopy>> wcsPerRepo = new LinkedHashMap<>();
+        for (final SvnWorkingCopy wc : this.getWorkingCopies()) {
+            wcsPerRepo.computeIfAbsent(wc.getRepository(), (final ISvnRepo repo) -> new ArrayList<>()).add(wc);
+        }
+        if (wcsPerRepo.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        final CompletionService<List<Pair<SvnWorkingCopy, SvnRepoRevision>>> completionService =
+                new ExecutorCompletionService<>(this.refreshExecutor);
+        final Map<Future<List<Pair<SvnWorkingCopy, SvnRepoRevision>>>, ISvnRepo> repoPerTask =
+                new LinkedHashMap<>();
+        final Map<ISvnRepo, RefreshUi> uiPerRepo = new LinkedHashMap<>();
+        try {
+            for (final Map.Entry<ISvnRepo, List<SvnWorkingCopy>> e : wcsPerRepo.entrySet()) {
+                final RefreshUi taskUi = new RefreshUi(ui, e.getKey(), this.refreshTimeoutMillis);
+                uiPerRepo.put(e.getKey(), taskUi);
+                repoPerTask.put(
+                        completionService.submit(() -> this.refresh(e.getKey(), e.getValue(), handler, taskUi)),
+                        e.getKey());
+            }
+            return this.collectRefreshResults(wcsPerRepo, completionService, repoPerTask, uiPerRepo, ui);
+        } finally {
+            for (final RefreshUi taskUi : uiPerRepo.values()) {
+                taskUi.abandon();
+            }
+            for (final Future<?> task : repoPerTask.keySet()) {
+                task.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Refreshes a single repository and re-examines the local state of the paths in the given working copies
+     * that have been touched by new log entries. Is called concurrently for different repositories.
+     */
+    private List<Pair<SvnWorkingCopy, SvnRepoRevision>> refresh(
+            final ISvnRepo repo,
+            final List<SvnWorkingCopy> wcs,
+            final CachedLogLookupHandler handler,
+            final RefreshUi ui) throws SVNException {
+
+        ui.start();
+        final long startTime = System.nanoTime();
+        final Pair<List<CachedLogEntry>, List<SvnRepoRevision>> getEntriesResult =
+                SvnRepositoryManager.getInstance().traverseRecentEntries(repo, handler, ui);
+
         final List<Pair<SvnWorkingCopy, SvnRepoRevision>> revisions = new ArrayList<>();
-        for (final SvnWorkingCopy wc : this.wcPerRootDirectory.values()) {
+        for (final SvnWorkingCopy wc : wcs) {
+            for (final SvnRepoRevision revision : getEntriesResult.getSecond()) {
+                revisions.add(Pair.create(wc, revision));
+            }
+
+            if (!getEntriesResult.getFirst().isEmpty()) {
+                // remote history has changed, we have to re-examine the local state of the paths touched
+                this.collectWorkingCopyChanges(wc, this.determinePathsInWc(wc, getEntriesResult.getFirst()));
+            }
+        }
+        Logger.debug("Refreshed " + repo + " in " + (System.nanoTime() - startTime) / 1000000L + " ms, "
+                + getEntriesResult.getFirst().size() + " new log entries");
+        return revisions;
+    }
+
+    /**
+     * Waits for the refresh tasks and merges their results as they complete. Tasks that fail or time out are logged
+     * and skipped. The merged revisions are ordered like the working copies.
+     */
+    private List<Pair<SvnWorkingCopy, SvnRepoRevision>> collectRefreshResults(
+            final Map<ISvnRepo, List<SvnWorkingCopy>> wcsPerRepo,
+            final CompletionService<List<Pair<SvnWorkingCopy, SvnRepoRevision>>> completionService,
+            final Map<Future<List<Pair<SvnWorkingCopy, SvnRepoRevision>>>, ISvnRepo> repoPerTask,
+            final Map<ISvnRepo, RefreshUi> uiPerRepo,
+            final IChangeSourceUi ui) throws SVNException {
+
+        final Map<ISvnRepo, List<Pair<SvnWorkingCopy, SvnRepoRevision>>> resultPerRepo = new LinkedHashMap<>();
+        final Map<ISvnRepo, Throwable> failurePerRepo = new LinkedHashMap<>();
+        while (resultPerRepo.size() + failurePerRepo.size() < repoPerTask.size()) {
             if (ui.isCanceled()) {
                 throw BackgroundJobExecutor.createOperationCanceledException();
             }
 
-            final Pair<Boolean, List<SvnRepoRevision>> getEntriesResult =
-                    SvnRepositoryManager.getInstance().traverseRecentEntries(wc.getRepository(), handler, ui);
-            for (final SvnRepoRevision revision : getEntriesResult.getSecond()) {
-                revisions.add(Pair.create(wc, revision));
+            final Future<List<Pair<SvnWorkingCopy, SvnRepoRevision>>> finishedTask;
+            try {
+                finishedTask = completionService.poll(REFRESH_POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw BackgroundJobExecutor.createOperationCanceledException();
             }
 
-            if (getEntriesResult.getFirst()) {
-                // remote history has changed, we have to rebuild the local file history graph
-                this.collectWorkingCopyChanges(wc, Collections.<File>emptyList());
+            if (finishedTask != null) {
+                final ISvnRepo repo = repoPerTask.get(finishedTask);
+                if (!failurePerRepo.containsKey(repo)) {
+                    try {
+                        resultPerRepo.put(repo, finishedTask.get());
+                    } catch (final ExecutionException e) {
+                        if (ui.isCanceled()) {
+                            throw BackgroundJobExecutor.createOperationCanceledException();
+                        }
+                        Logger.error("Problem while refreshing " + repo, e.getCause());
+                        failurePerRepo.put(repo, e.getCause());
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw BackgroundJobExecutor.createOperationCanceledException();
+                    }
+                    synchronized (ui) {
+                        ui.subTask("Refreshed " + (resultPerRepo.size() + failurePerRepo.size())
+                                + " of " + repoPerTask.size() + " repositories...");
+                    }
+                }
+            }
+
+            for (final Map.Entry<Future<List<Pair<SvnWorkingCopy, SvnRepoRevision>>>, ISvnRepo> e
+                    : repoPerTask.entrySet()) {
+                final ISvnRepo repo = e.getValue();
+                final RefreshUi taskUi = uiPerRepo.get(repo);
+                if (taskUi.isTimedOut() && !resultPerRepo.containsKey(repo) && !failurePerRepo.containsKey(repo)) {
+                    Logger.info("Refreshing " + repo + " took longer than " + this.refreshTimeoutMillis
+                            + " ms, skipping it");
+                    taskUi.abandon();
+                    // interrupting the task stops it at its next check for cancellation or while it waits
+                    // for the lock of the repository, but a request blocked in reading from the network only
+                    // ends when the connection fails
+                    e.getKey().cancel(true);
+                    failurePerRepo.put(repo, null);
+                }
+            }
+        }
+
+        if (resultPerRepo.isEmpty()) {
+            rethrowRefreshFailure(failurePerRepo);
+        }
+        final List<Pair<SvnWorkingCopy, SvnRepoRevision>> revisions = new ArrayList<>();
+        for (final ISvnRepo repo : wcsPerRepo.keySet()) {
+            final List<Pair<SvnWorkingCopy, SvnRepoRevision>> result = resultPerRepo.get(repo);
+            if (result != null) {
+                revisions.addAll(result);
             }
         }
         return revisions;
     }
 
+    /**
+     * Passes on the first failure of a repository refresh, if there was one.
+     * A refresh that timed out is represented by a {@code null} failure.
+     */
+    private static void rethrowRefreshFailure(final Map<ISvnRepo, Throwable> failurePerRepo) throws SVNException {
+        for (final Map.Entry<ISvnRepo, Throwable> e : failurePerRepo.entrySet()) {
+            final Throwable failure = e.getValue();
+            if (failure instanceof SVNException) {
+                throw (SVNException) failure;
+            } else if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            } else if (failure instanceof Error) {
+                throw (Error) failure;
+            } else if (failure == null) {
+                throw new ReviewtoolException("Timeout while refreshing " + e.getKey());
+            }
+        }
+    }
+
     /**
      * Removes a working copy.
      * @param workingCopyRoot The root directory of the working copy.
@@ -134,7 +397,7 @@ final class SvnWorkingCopyManager {
 
     /**
      * Collects all local changes and integrates them into the {@link SvnFileHistoryGraph}.
-     * @param relevantPaths The list of additional paths to check. If {@code null}, the whole working copy is analyzed.
+     * @param relevantPaths The list of paths to check. If {@code null}, the whole working copy is analyzed.
      */
     void collectWorkingCopyChanges(final List<File> relevantPaths) throws SVNException {
         for (final SvnWorkingCopy wc : SvnWorkingCopyManager.getInstance().getWorkingCopies()) {
@@ -144,9 +407,13 @@ final class SvnWorkingCopyManager {
 
     /**
      * Collects all local changes of a given working copy and integrates them into the {@link SvnFileHistoryGraph}.
-     * @param relevantPaths The list of additional paths to check. If {@code null}, the whole working copy is analyzed.
+     * If a list of paths is passed, only these paths and the paths with known local changes are checked, and
+     * the local changes known for all other paths are kept, so that the effort does not depend on the size of the
+     * working copy. The paths with known local changes are checked again, as they might have been reverted without
+     * the change being reported.
+     * @param relevantPaths The list of paths to check. If {@code null}, the whole working copy is analyzed.
      */
-    private void collectWorkingCopyChanges(final SvnWorkingCopy wc, final List<? extends File> relevantPaths)
+    private void collectWorkingCopyChanges(final SvnWorkingCopy wc, final Collection<? extends File> relevantPaths)
             throws SVNException {
 
         final SortedMap<String, CachedLogEntryPath> changeMap = new TreeMap<>();
@@ -160,54 +427,118 @@ final class SvnWorkingCopyManager {
             }
         };
 
+        final Map<File, String> filteredPaths;
         if (relevantPaths != null) {
-            final Set<File> filteredPaths = this.filterPaths(relevantPaths, wc);
-            this.collectWorkingCopyChanges(filteredPaths, handler);
+            filteredPaths = this.filterPaths(relevantPaths, wc);
+            this.addLocalPaths(filteredPaths, wc);
+            if (filteredPaths.isEmpty()) {
+                return;
+            }
         } else {
-            this.collectWorkingCopyChanges(wc, handler);
+            filteredPaths = null;
         }
 
-        final SvnWorkingCopyRevision wcRevision = new SvnWorkingCopyRevision(wc, changeMap);
-        final IMutableFileHistoryGraph localFileHistoryGraph =
-                new FileHistoryGraph(DiffAlgorithmFactory.createDefault());
-        wcRevision.integrateInto(localFileHistoryGraph);
-        wc.setLocalFileHistoryGraph(localFileHistoryGraph);
+        // working copies are refreshed concurrently, and SVNKit's clients must not be shared between threads
+        final SVNClientManager statusMgr = SVNClientManager.newInstance();
+        try {
+            if (filteredPaths != null) {
+                this.collectWorkingCopyChanges(statusMgr.getStatusClient(), filteredPaths.keySet(), handler);
+                wc.updateLocalChanges(filteredPaths.values(), changeMap);
+            } else {
+                this.collectWorkingCopyChanges(statusMgr.getStatusClient(), wc, handler);
+                wc.setLocalChanges(changeMap);
+            }
+        } finally {
+            statusMgr.dispose();
+        }
     }
 
     /**
      * Collects local changes given a set of paths.
+     * Paths that do not exist anymore, e.g. because they have been deleted, are checked through the nearest existing
+     * parent directory, as the status of a path that is neither on disk nor under version control cannot be
+     * determined directly.
+     * @param statusClient The status client to use.
      * @param paths The paths to consider.
      * @param handler Receives information about changes files.
      */
-    private void collectWorkingCopyChanges(final Set<File> paths, final ISVNStatusHandler handler)
-            throws SVNException {
+    private void collectWorkingCopyChanges(
+            final SVNStatusClient statusClient,
+            final Set<File> paths,
+            final ISVNStatusHandler handler) throws SVNException {
 
+        final Map<File, Set<File>> missingPathsPerParent = new LinkedHashMap<>();
         for (final File path : paths) {
-            this.mgr.getStatusClient().doStatus(
-                    path,
-                    SVNRevision.WORKING,
-                    SVNDepth.EMPTY,
-                    false, // no remote
-                    false, // report only modified files
-                    false, // don't include ignored files
-                    false, // ignored
-                    handler,
-                    null); // no change lists
+            if (path.exists()) {
+                this.doStatus(statusClient, path, SVNDepth.EMPTY, handler);
+            } else {
+                File parent = path.getParentFile();
+                while (parent != null && !parent.exists()) {
+                    parent = parent.getParentFile();
+                }
+                if (parent != null) {
+                    missingPathsPerParent.computeIfAbsent(parent, (final File p) -> new LinkedHashSet<>()).add(path);
+                }
+            }
+        }
+
+        for (final Map.Entry<File, Set<File>> e : missingPathsPerParent.entrySet()) {
+            final Set<File> missingPaths = e.getValue();
+            this.doStatus(statusClient, e.getKey(), SVNDepth.IMMEDIATES, (final SVNStatus status) -> {
+                // only the missing paths or the deleted directories containing them are of interest
+                for (final File missingPath : missingPaths) {
+                    if (isSameOrAncestor(status.getFile(), missingPath) && !status.getFile().equals(e.getKey())) {
+                        handler.handleStatus(status);
+                        return;
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns true iff the first file equals the second one or is one of its parent directories.
+     */
+    private static boolean isSameOrAncestor(final File file, final File descendant) {
+        for (File f = descendant; f != null; f = f.getParentFile()) {
+            if (f.equals(file)) {
+                return true;
+            }
         }
+        return false;
     }
 
     /**
      * Collects local changes within a whole working copy.
+     * @param statusClient The status client to use.
      * @param wc The working copy to consider.
      * @param handler Receives information about changes files.
      */
-    private void collectWorkingCopyChanges(final SvnWorkingCopy wc, final ISVNStatusHandler handler)
-            throws SVNException {
+    private void collectWorkingCopyChanges(
+            final SVNStatusClient statusClient,
+            final SvnWorkingCopy wc,
+            final ISVNStatusHandler handler) throws SVNException {
+
+        this.doStatus(statusClient, wc.getLocalRoot(), SVNDepth.INFINITY, handler); // analyse whole working copy
+    }
+
+    /**
+     * Determines the local state of a path in a working copy.
+     * @param statusClient The status client to use.
+     * @param path The path to consider.
+     * @param depth The depth up to which the files below the path are considered.
+     * @param handler Receives information about changes files.
+     */
+    private void doStatus(
+            final SVNStatusClient statusClient,
+            final File path,
+            final SVNDepth depth,
+            final ISVNStatusHandler handler) throws SVNException {
 
-        this.mgr.getStatusClient().doStatus(
-                wc.getLocalRoot(), // analyse whole working copy
+        statusClient.doStatus(
+                path,
                 SVNRevision.WORKING,
-                SVNDepth.INFINITY,
+                depth,
                 false, // no remote
                 false, // report only modified files
                 false, // don't include ignored files
@@ -220,24 +551,50 @@ final class SvnWorkingCopyManager {
      * Filters out paths that do not belong to passed working copy.
      * @param relevantPaths The paths to filter.
      * @param wc The relevant working copy.
-     * @return A set of filtered paths.
+     * @return A map of filtered paths to their respective paths in the repository.
      */
-    private Set<File> filterPaths(final List<? extends File> relevantPaths, final SvnWorkingCopy wc) {
-        final Set<File> paths = new LinkedHashSet<>();
+    private Map<File, String> filterPaths(final Collection<? extends File> relevantPaths, final SvnWorkingCopy wc) {
+        final Map<File, String> paths = new LinkedHashMap<>();
         for (final File path : relevantPaths) {
             final String repoPath = wc.toAbsolutePathInRepo(path);
             if (repoPath != null) {
-                paths.add(path);
+                paths.put(path, repoPath);
             }
         }
+        return paths;
+    }
 
-        for (final String repoPath : wc.getLocalFileHistoryGraph().getPaths()) {
+    /**
+     * Adds the paths of a working copy with known local changes to the given paths. Paths that do not exist anymore
+     * are added as well, as their local changes might have been reverted or turned into deletions.
+     * @param paths The paths, mapped to their respective paths in the repository.
+     * @param wc The relevant working copy.
+     */
+    private void addLocalPaths(final Map<File, String> paths, final SvnWorkingCopy wc) {
+        for (final String repoPath : wc.getLocalPaths()) {
             final File path = wc.toAbsolutePathInWc(repoPath);
-            if (path != null && path.isFile()) {
-                paths.add(path);
+            if (path != null) {
+                paths.putIfAbsent(path, repoPath);
             }
         }
+    }
 
+    /**
+     * Determines the paths in a working copy that have been touched by some log entries.
+     * @param wc The relevant working copy.
+     * @param entries The log entries.
+     * @return A set of paths in the working copy. Paths outside of the working copy are dropped.
+     */
+    private Set<File> determinePathsInWc(final SvnWorkingCopy wc, final List<CachedLogEntry> entries) {
+        final Set<File> paths = new LinkedHashSet<>();
+        for (final CachedLogEntry entry : entries) {
+            for (final String repoPath : entry.getChangedPaths().keySet()) {
+                final File path = wc.toAbsolutePathInWc(repoPath);
+                if (path != null) {
+                    paths.add(path);
+                }
+            }
+        }
         return paths;
     }
 }
@@ -0,0 +1,106 @@
+package de.setsoftware.reviewtool.base;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Measures the costs of the line offsets of a {@link LineSequence} on generated large files, compared to the
+ * former offset table that was a {@link HashMap} from line index to position.
+ * Not a unit test, run it manually.
+ */
+public class LineSequenceBenchmark {
+
+    private static final int REPETITIONS = 10;
+
+    public static void main(String[] args) throws Exception {
+        final Random random = new Random(42);
+        for (final int megabytes : new int[] {1, 4, 16}) {
+            final byte[] contents = generateFile(random, megabytes * 1024 * 1024);
+            final LineSequence sequence = new LineSequence(contents, "UTF-8");
+            final int lineCount = sequence.getNumberOfLines();
+            System.out.println(String.format("%d MiB, %d lines", megabytes, lineCount));
+
+            // both share the line strings, so that only the offsets make the difference
+            final String[] lines = sequence.getLines(0, lineCount);
+            final long sequenceMemory = retainedMemory(() -> {
+                final LineSequence copy = new LineSequence();
+                for (final String line : lines) {
+                    copy.addLine(line);
+                }
+                return copy;
+            });
+            final long linesMemory = retainedMemory(() -> new ArrayList<>(Arrays.asList(lines)));
+            final long mapMemory = retainedMemory(() -> createOffsetMap(sequence));
+            System.out.println(String.format("  offsets in int array     %8d KiB",
+                    Math.max(0, sequenceMemory - linesMemory) / 1024));
+            System.out.println(String.format("  offsets in hash map      %8d KiB", mapMemory / 1024));
+
+            final Map<Integer, Integer> offsetMap = createOffsetMap(sequence);
+            long blackhole = 0;
+            long start = System.nanoTime();
+            for (int rep = 0; rep < REPETITIONS; rep++) {
+                for (int i = 0; i <= lineCount; i++) {
+                    blackhole += offsetMap.get(i);
+                }
+            }
+            System.out.println(String.format("  all lookups in hash map  %10.3f ms",
+                    (System.nanoTime() - start) / REPETITIONS / 1000000.0));
+            start = System.nanoTime();
+            for (int rep = 0; rep < REPETITIONS; rep++) {
+                for (int i = 0; i <= lineCount; i++) {
+                    blackhole += sequence.getStartPositionOfLine(i);
+                }
+            }
+            System.out.println(String.format("  all lookups in int array %10.3f ms   (%d)",
+                    (System.nanoTime() - start) / REPETITIONS / 1000000.0, blackhole & 1));
+        }
+    }
+
+    /**
+     * Creates some object that shall be measured.
+     */
+    private interface Allocation {
+        public abstract Object allocate() throws Exception;
+    }
+
+    private static long retainedMemory(Allocation allocation) throws Exception {
+        final Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        final long before = runtime.totalMemory() - runtime.freeMemory();
+        final Object retained = allocation.allocate();
+        System.gc();
+        final long after = runtime.totalMemory() - runtime.freeMemory();
+        retained.hashCode();
+        return after - before;
+    }
+
+    private static Map<Integer, Integer> createOffsetMap(LineSequence sequence) {
+        final Map<Integer, Integer> ret = new HashMap<>();
+        for (int i = 0; i <= sequence.getNumberOfLines(); i++) {
+            ret.put(i, sequence.getStartPositionOfLine(i));
+        }
+        return ret;
+    }
+
+    /**
+     * Generates a file with lines of varying length, similar to source code.
+     */
+    private static byte[] generateFile(Random random, int size) {
+        final StringBuilder ret = new StringBuilder(size + 200);
+        while (ret.length() < size) {
+            for (int i = random.nextInt(8); i > 0; i--) {
+                ret.append("    ");
+            }
+            for (int i = random.nextInt(80); i > 0; i--) {
+                ret.append((char) ('a' + random.nextInt(26)));
+            }
+            ret.append('\n');
+        }
+        return ret.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+}
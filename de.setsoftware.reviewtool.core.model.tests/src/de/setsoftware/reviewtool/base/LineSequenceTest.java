@@ -0,0 +1,106 @@
+package de.setsoftware.reviewtool.base;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link LineSequence}.
+ */
+public class LineSequenceTest {
+
+    private static String randomLine(final Random r) {
+        final StringBuilder ret = new StringBuilder();
+        for (int i = r.nextInt(20); i > 0; i--) {
+            ret.append(r.nextInt(10) == 0 ? '\u00e4' : (char) ('a' + r.nextInt(26)));
+        }
+        return ret.toString();
+    }
+
+    private static String randomLineEnd(final Random r) {
+        switch (r.nextInt(3)) {
+        case 0:
+            return "\r\n";
+        case 1:
+            return "\r";
+        default:
+            return "\n";
+        }
+    }
+
+    /**
+     * Checks that the sequence contains the given lines and that the line positions are the sums of the lengths
+     * of the preceding lines.
+     */
+    private static void checkSequence(final LineSequence sequence, final List<String> expectedLines) {
+        assertThat(sequence.getNumberOfLines(), is(equalTo(expectedLines.size())));
+        int position = 0;
+        for (int i = 0; i < expectedLines.size(); i++) {
+            assertThat(sequence.getLine(i), is(equalTo(expectedLines.get(i))));
+            assertThat(sequence.getStartPositionOfLine(i), is(equalTo(position)));
+            position += expectedLines.get(i).length();
+        }
+        assertThat(sequence.getStartPositionOfLine(expectedLines.size()), is(equalTo(position)));
+        assertThat(sequence.getLinesConcatenated(0, expectedLines.size()),
+                is(equalTo(String.join("", expectedLines))));
+    }
+
+    @Test
+    public void testAddedLinesHaveTheSumsOfPrecedingLengthsAsPositions() {
+        final Random r = new Random(123);
+        for (int round = 0; round < 200; round++) {
+            final LineSequence sequence = new LineSequence();
+            final List<String> expectedLines = new ArrayList<>();
+            checkSequence(sequence, expectedLines);
+            final int lineCount = r.nextInt(round < 100 ? 40 : 2000);
+            for (int i = 0; i < lineCount; i++) {
+                final String line = randomLine(r) + "\n";
+                sequence.addLine(line);
+                expectedLines.add(line);
+            }
+            checkSequence(sequence, expectedLines);
+        }
+    }
+
+    @Test
+    public void testLinesAreReadFromBytesWithNormalizedLineEnds() throws Exception {
+        final Random r = new Random(456);
+        for (int round = 0; round < 200; round++) {
+            final StringBuilder contents = new StringBuilder();
+            final List<String> expectedLines = new ArrayList<>();
+            final int lineCount = r.nextInt(round < 100 ? 40 : 2000);
+            for (int i = 0; i < lineCount; i++) {
+                // an empty line after "\r" would make it "\r\n"
+                final String line = "x" + randomLine(r);
+                contents.append(line).append(randomLineEnd(r));
+                expectedLines.add(line + "\n");
+            }
+            final LineSequence sequence =
+                    new LineSequence(contents.toString().getBytes(StandardCharsets.UTF_8), "UTF-8");
+            checkSequence(sequence, expectedLines);
+        }
+    }
+
+    @Test
+    public void testPositionsOutsideOfTheSequenceAreRejected() {
+        final LineSequence sequence = new LineSequence();
+        sequence.addLine("a\n");
+        for (final int lineIndex : new int[] {-1, 2, 16}) {
+            try {
+                sequence.getStartPositionOfLine(lineIndex);
+                fail("expected exception for line " + lineIndex);
+            } catch (final IndexOutOfBoundsException e) {
+                // expected
+            }
+        }
+    }
+
+}
@@ -0,0 +1,175 @@
+package de.setsoftware.reviewtool.diffalgorithms;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import de.setsoftware.reviewtool.base.Pair;
+import de.setsoftware.reviewtool.model.api.IDiffAlgorithm;
+import de.setsoftware.reviewtool.model.changestructure.ChangestructureFactory;
+
+/**
+ * Compares the diff algorithms on a shared corpus of file pairs regarding runtime, allocated memory and
+ * number of hunks. The corpus consists of generated source-like files with many braces and blank lines
+ * of different sizes, and of mutated copies of all Java files below the directories given as arguments.
+ * Not a unit test, run it manually.
+ */
+public class DiffAlgorithmBenchmark {
+
+    private static final int REPETITIONS = 5;
+
+    /**
+     * An algorithm to compare.
+     */
+    private interface Candidate {
+        public abstract int countHunks(String[] oldLines, String[] newLines);
+    }
+
+    public static void main(String[] args) throws Exception {
+        final List<Pair<String[], String[]>> corpus = new ArrayList<>();
+        final Random random = new Random(42);
+        for (final int size : new int[] {100, 1000, 5000}) {
+            for (int i = 0; i < 3; i++) {
+                final String[] file = generateSourceFile(random, size);
+                corpus.add(Pair.create(file, mutate(random, file)));
+            }
+        }
+        for (final String dir : args) {
+            addJavaFiles(new File(dir), random, corpus);
+        }
+        System.out.println("corpus: " + corpus.size() + " file pairs");
+
+        benchmark("Myers", corpus, createCandidate(DiffAlgorithmFactory.Type.MYERS));
+        benchmark("Histogram", corpus, createCandidate(DiffAlgorithmFactory.Type.HISTOGRAM));
+        benchmark("Simple", corpus, createCandidate(DiffAlgorithmFactory.Type.SIMPLE));
+        benchmark("LongestCommonSubsequence", corpus, (String[] oldLines, String[] newLines) ->
+            new ContentView<>(new FullFileView<>(oldLines), new FullFileView<>(newLines)).lcsDiff().size());
+    }
+
+    private static Candidate createCandidate(DiffAlgorithmFactory.Type type) {
+        final IDiffAlgorithm algorithm = DiffAlgorithmFactory.create(type);
+        return (String[] oldLines, String[] newLines) -> algorithm.determineDiff(
+                ChangestructureFactory.createFileInRevision("old", null),
+                toBytes(oldLines),
+                ChangestructureFactory.createFileInRevision("new", null),
+                toBytes(newLines),
+                "UTF-8").size();
+    }
+
+    private static void benchmark(String name, List<Pair<String[], String[]>> corpus, Candidate candidate) {
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        final boolean canMeasureAllocation = threads instanceof com.sun.management.ThreadMXBean;
+
+        // warm-up
+        for (final Pair<String[], String[]> pair : corpus) {
+            candidate.countHunks(pair.getFirst(), pair.getSecond());
+        }
+
+        long hunks = 0;
+        long allocated = 0;
+        final long start = System.nanoTime();
+        for (int i = 0; i < REPETITIONS; i++) {
+            for (final Pair<String[], String[]> pair : corpus) {
+                final long allocatedBefore = allocatedBytes(threads, canMeasureAllocation);
+                hunks += candidate.countHunks(pair.getFirst(), pair.getSecond());
+                allocated += allocatedBytes(threads, canMeasureAllocation) - allocatedBefore;
+            }
+        }
+        final long duration = (System.nanoTime() - start) / REPETITIONS;
+        System.out.println(String.format("%-26s %8d ms %10s KiB allocated %8d hunks",
+                name,
+                duration / 1000000L,
+                canMeasureAllocation ? Long.toString(allocated / REPETITIONS / 1024) : "?",
+                hunks / REPETITIONS));
+    }
+
+    private static long allocatedBytes(ThreadMXBean threads, boolean canMeasureAllocation) {
+        if (!canMeasureAllocation) {
+            return 0;
+        }
+        return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static byte[] toBytes(String[] lines) {
+        return String.join("\n", lines).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Generates a file that looks like source code, with many repeated lines like braces and blank lines.
+     */
+    private static String[] generateSourceFile(Random random, int lineCount) {
+        final List<String> ret = new ArrayList<>();
+        int method = 0;
+        while (ret.size() < lineCount) {
+            ret.add("    public void method" + method++ + "() {");
+            final int statements = 1 + random.nextInt(8);
+            for (int i = 0; i < statements; i++) {
+                if (random.nextInt(4) == 0) {
+                    ret.add("        if (condition" + random.nextInt(20) + ") {");
+                    ret.add("            call" + random.nextInt(50) + "();");
+                    ret.add("        }");
+                } else {
+                    ret.add("        call" + random.nextInt(50) + "();");
+                }
+                if (random.nextInt(5) == 0) {
+                    ret.add("");
+                }
+            }
+            ret.add("    }");
+            ret.add("");
+        }
+        return ret.toArray(new String[ret.size()]);
+    }
+
+    /**
+     * Applies some typical changes: inserted, deleted, changed and moved blocks of lines.
+     */
+    private static String[] mutate(Random random, String[] file) {
+        final List<String> ret = new ArrayList<>(Arrays.asList(file));
+        final int mutations = 1 + file.length / 100;
+        for (int i = 0; i < mutations && !ret.isEmpty(); i++) {
+            final int pos = random.nextInt(ret.size());
+            final int length = Math.min(1 + random.nextInt(10), ret.size() - pos);
+            switch (random.nextInt(4)) {
+            case 0:
+                ret.addAll(pos, Arrays.asList("    }", "", "    void inserted" + i + "() {", "        work();"));
+                break;
+            case 1:
+                ret.subList(pos, pos + length).clear();
+                break;
+            case 2:
+                ret.set(pos, ret.get(pos) + " // changed");
+                break;
+            default:
+                final List<String> block = new ArrayList<>(ret.subList(pos, pos + length));
+                ret.subList(pos, pos + length).clear();
+                ret.addAll(random.nextInt(ret.size() + 1), block);
+                break;
+            }
+        }
+        return ret.toArray(new String[ret.size()]);
+    }
+
+    private static void addJavaFiles(File file, Random random, List<Pair<String[], String[]>> corpus)
+            throws IOException {
+        if (file.isDirectory()) {
+            final File[] children = file.listFiles();
+            Arrays.sort(children);
+            for (final File child : children) {
+                addJavaFiles(child, random, corpus);
+            }
+        } else if (file.getName().endsWith(".java")) {
+            final List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.ISO_8859_1);
+            final String[] content = lines.toArray(new String[lines.size()]);
+            corpus.add(Pair.create(content, mutate(random, content)));
+        }
+    }
+
+}
@@ -0,0 +1,133 @@
+package de.setsoftware.reviewtool.diffalgorithms;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.setsoftware.reviewtool.base.Pair;
+import de.setsoftware.reviewtool.model.api.IFragment;
+import de.setsoftware.reviewtool.model.changestructure.ChangestructureFactory;
+
+/**
+ * Tests for {@link HistogramDiff} and {@link HistogramSourceDiffAlgorithm}.
+ */
+public class HistogramDiffTest {
+
+    private static FullFileView<String> lines(List<String> lines) {
+        return new FullFileView<>(lines.toArray(new String[lines.size()]));
+    }
+
+    /**
+     * Checks that the path has the same form as one created by {@link MyersDiff} and that it is a valid
+     * diff between the given sequences.
+     */
+    private static void checkValidPath(PathNode path, FullFileView<String> orig, FullFileView<String> rev) {
+        assertEquals(orig.getItemCount(), path.getPosOld());
+        assertEquals(rev.getItemCount(), path.getPosNew());
+        PathNode cur = path;
+        while (cur != null) {
+            if (cur.isSnake()) {
+                assertEquals(cur.getLengthOld(), cur.getLengthNew());
+                for (int i = 0; i < cur.getLengthOld(); i++) {
+                    assertEquals(orig.getItem(cur.getStartPosOld() + i), rev.getItem(cur.getStartPosNew() + i));
+                }
+                assertTrue(cur.getPrev() != null && !cur.getPrev().isSnake());
+            } else if (cur.getPrev() != null) {
+                assertTrue(cur.getPrev().isSnake() || cur.getPrev().getPrev() == null);
+            } else {
+                assertEquals(0, cur.getPosOld());
+                assertEquals(0, cur.getPosNew());
+            }
+            cur = cur.getPrev();
+        }
+    }
+
+    private static List<String> randomLines(Random r, int count, int alphabetSize) {
+        final List<String> ret = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ret.add("line " + r.nextInt(alphabetSize));
+        }
+        return ret;
+    }
+
+    private static List<Pair<IFragment, IFragment>> determineDiff(String oldContent, String newContent)
+            throws Exception {
+        return DiffAlgorithmFactory.create(DiffAlgorithmFactory.Type.HISTOGRAM).determineDiff(
+                ChangestructureFactory.createFileInRevision("", null),
+                oldContent.getBytes("UTF-8"),
+                ChangestructureFactory.createFileInRevision("", null),
+                newContent.getBytes("UTF-8"),
+                "UTF-8");
+    }
+
+    @Test
+    public void testRandomInputsGiveValidPaths() {
+        final Random r = new Random(123);
+        for (int i = 0; i < 3000; i++) {
+            final int alphabetSize = 1 + r.nextInt(10);
+            final FullFileView<String> orig = lines(randomLines(r, r.nextInt(40), alphabetSize));
+            final FullFileView<String> rev = lines(randomLines(r, r.nextInt(40), alphabetSize));
+            checkValidPath(new HistogramDiff().buildPath(orig, rev), orig, rev);
+        }
+    }
+
+    @Test
+    public void testEmptyAndEqualInputs() {
+        final FullFileView<String> empty = lines(new ArrayList<String>());
+        final FullFileView<String> some = lines(Arrays.asList("a", "b"));
+        checkValidPath(new HistogramDiff().buildPath(empty, empty), empty, empty);
+        checkValidPath(new HistogramDiff().buildPath(empty, some), empty, some);
+        checkValidPath(new HistogramDiff().buildPath(some, empty), some, empty);
+        checkValidPath(new HistogramDiff().buildPath(some, some), some, some);
+    }
+
+    @Test
+    public void testManyRepeatedLines() {
+        final List<String> orig = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            orig.add("}");
+            orig.add("");
+        }
+        final List<String> rev = new ArrayList<>(orig);
+        rev.add(1000, "inserted");
+        rev.remove(3000);
+        checkValidPath(new HistogramDiff().buildPath(lines(orig), lines(rev)), lines(orig), lines(rev));
+    }
+
+    @Test
+    public void testMovedMethodIsNotInterleavedWithBraces() throws Exception {
+        final String oldContent =
+                "a() {\n"
+                + "    if (p) {\n"
+                + "        q();\n"
+                + "    }\n"
+                + "}\n"
+                + "\n"
+                + "b() {\n"
+                + "    r();\n"
+                + "}\n";
+        final String newContent =
+                "b() {\n"
+                + "    r();\n"
+                + "}\n"
+                + "\n"
+                + "a() {\n"
+                + "    if (p) {\n"
+                + "        q();\n"
+                + "    }\n"
+                + "}\n";
+        final List<Pair<IFragment, IFragment>> diff = determineDiff(oldContent, newContent);
+        assertEquals(2, diff.size());
+        assertEquals(ChangestructureFactory.createPositionInText(1, 1), diff.get(0).getSecond().getFrom());
+        assertEquals(ChangestructureFactory.createPositionInText(5, 1), diff.get(0).getSecond().getTo());
+        assertEquals(ChangestructureFactory.createPositionInText(6, 1), diff.get(1).getFirst().getFrom());
+        assertEquals(ChangestructureFactory.createPositionInText(10, 1), diff.get(1).getFirst().getTo());
+    }
+
+}
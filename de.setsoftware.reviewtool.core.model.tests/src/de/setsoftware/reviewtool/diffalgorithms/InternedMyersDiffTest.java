@@ -0,0 +1,117 @@
+package de.setsoftware.reviewtool.diffalgorithms;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Differential tests that compare {@link InternedMyersDiff} with {@link MyersDiff}.
+ */
+public class InternedMyersDiffTest {
+
+    private static FullFileView<String> lines(String... lines) {
+        return new FullFileView<>(lines);
+    }
+
+    private static FullFileView<String> lines(List<String> lines) {
+        return new FullFileView<>(lines.toArray(new String[lines.size()]));
+    }
+
+    /**
+     * Returns a description of the whole path, including the types of the nodes.
+     */
+    private static String describe(PathNode path) {
+        final StringBuilder ret = new StringBuilder();
+        PathNode cur = path;
+        while (cur != null) {
+            ret.append(cur.isSnake() ? "S" : "D")
+                .append('(').append(cur.getPosOld()).append(',').append(cur.getPosNew()).append(')');
+            cur = cur.getPrev();
+        }
+        return ret.toString();
+    }
+
+    private static void checkSamePath(FullFileView<String> orig, FullFileView<String> rev) {
+        final String expected = describe(new MyersDiff().buildPath(orig, rev));
+        final String actual = describe(new InternedMyersDiff().buildPath(orig, rev));
+        assertEquals("diff between\n" + orig + "and\n" + rev, expected, actual);
+    }
+
+    private static List<String> randomLines(Random r, int count, int alphabetSize) {
+        final List<String> ret = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ret.add("line " + r.nextInt(alphabetSize));
+        }
+        return ret;
+    }
+
+    private static List<String> mutate(Random r, List<String> lines, int mutationCount, int alphabetSize) {
+        final List<String> ret = new ArrayList<>(lines);
+        for (int i = 0; i < mutationCount; i++) {
+            final int pos = ret.isEmpty() ? 0 : r.nextInt(ret.size());
+            switch (r.nextInt(3)) {
+            case 0:
+                ret.add(pos, "line " + r.nextInt(alphabetSize));
+                break;
+            case 1:
+                if (!ret.isEmpty()) {
+                    ret.remove(pos);
+                }
+                break;
+            default:
+                if (!ret.isEmpty()) {
+                    ret.set(pos, "line " + r.nextInt(alphabetSize));
+                }
+                break;
+            }
+        }
+        return ret;
+    }
+
+    @Test
+    public void testEdgeCases() {
+        checkSamePath(lines(), lines());
+        checkSamePath(lines("a"), lines());
+        checkSamePath(lines(), lines("a"));
+        checkSamePath(lines("a", "b", "c"), lines("a", "b", "c"));
+        checkSamePath(lines("a", "b", "c"), lines("a", "b", "c", "d"));
+        checkSamePath(lines("x", "a", "b", "c"), lines("a", "b", "c"));
+        checkSamePath(lines("a", "b", "c"), lines("a", "x", "c"));
+        checkSamePath(lines("a", "b", "c"), lines("x", "y", "z"));
+        checkSamePath(lines("a", "a", "a"), lines("a", "a"));
+    }
+
+    @Test
+    public void testRandomMutations() {
+        final Random r = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            final int alphabetSize = 1 + r.nextInt(8);
+            final List<String> orig = randomLines(r, r.nextInt(30), alphabetSize);
+            final List<String> rev = mutate(r, orig, r.nextInt(6), alphabetSize);
+            checkSamePath(lines(orig), lines(rev));
+        }
+    }
+
+    @Test
+    public void testRandomUnrelatedSequences() {
+        final Random r = new Random(4711);
+        for (int i = 0; i < 1000; i++) {
+            final int alphabetSize = 1 + r.nextInt(5);
+            checkSamePath(
+                    lines(randomLines(r, r.nextInt(20), alphabetSize)),
+                    lines(randomLines(r, r.nextInt(20), alphabetSize)));
+        }
+    }
+
+    @Test
+    public void testLargeFileWithFewChanges() {
+        final Random r = new Random(1);
+        final List<String> orig = randomLines(r, 5000, 1000);
+        final List<String> rev = mutate(r, orig, 50, 1000);
+        checkSamePath(lines(orig), lines(rev));
+    }
+}
@@ -0,0 +1,134 @@
+package de.setsoftware.reviewtool.diffalgorithms;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link LinearSpaceMyersDiff}.
+ */
+public class LinearSpaceMyersDiffTest {
+
+    private static FullFileView<String> lines(List<String> lines) {
+        return new FullFileView<>(lines.toArray(new String[lines.size()]));
+    }
+
+    /**
+     * Checks that the path is a valid diff between the given sequences and returns its number of
+     * inserted and deleted items.
+     */
+    private static int checkValidPath(PathNode path, OneFileView<String> orig, OneFileView<String> rev) {
+        assertEquals(orig.getItemCount(), path.getPosOld());
+        assertEquals(rev.getItemCount(), path.getPosNew());
+        int editCount = 0;
+        PathNode cur = path;
+        while (cur != null) {
+            if (cur.isSnake()) {
+                assertEquals(cur.getLengthOld(), cur.getLengthNew());
+                for (int i = 0; i < cur.getLengthOld(); i++) {
+                    assertEquals(orig.getItem(cur.getStartPosOld() + i), rev.getItem(cur.getStartPosNew() + i));
+                }
+            } else {
+                editCount += cur.getLengthOld() + cur.getLengthNew();
+            }
+            cur = cur.getPrev();
+        }
+        return editCount;
+    }
+
+    private static List<String> randomLines(Random r, int count, int alphabetSize) {
+        final List<String> ret = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ret.add("line " + r.nextInt(alphabetSize));
+        }
+        return ret;
+    }
+
+    @Test
+    public void testResultIsValidAndMinimal() {
+        final Random r = new Random(99);
+        for (int i = 0; i < 3000; i++) {
+            final int alphabetSize = 1 + r.nextInt(10);
+            final FullFileView<String> orig = lines(randomLines(r, r.nextInt(40), alphabetSize));
+            final FullFileView<String> rev = lines(randomLines(r, r.nextInt(40), alphabetSize));
+            final int linearSpaceEdits = checkValidPath(new LinearSpaceMyersDiff().buildPath(orig, rev), orig, rev);
+            final int greedyEdits = checkValidPath(new InternedMyersDiff().buildPath(orig, rev), orig, rev);
+            assertEquals(greedyEdits, linearSpaceEdits);
+        }
+    }
+
+    @Test
+    public void testMemoryIsLinearForLargeFiles() {
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+            return;
+        }
+        final com.sun.management.ThreadMXBean allocation = (com.sun.management.ThreadMXBean) threads;
+
+        final int lineCount = 300000;
+        final List<String> orig = new ArrayList<>();
+        final List<String> rev = new ArrayList<>();
+        int expectedEdits = 0;
+        for (int i = 0; i < lineCount; i++) {
+            orig.add("line " + i);
+            if (i % 50 == 0) {
+                rev.add("changed line " + i);
+                expectedEdits += 2;
+            } else if (i % 77 != 0) {
+                rev.add("line " + i);
+            } else {
+                expectedEdits++;
+            }
+        }
+        final FullFileView<String> origView = lines(orig);
+        final FullFileView<String> revView = lines(rev);
+
+        final long threadId = Thread.currentThread().getId();
+        final long before = allocation.getThreadAllocatedBytes(threadId);
+        final PathNode path = new LinearSpaceMyersDiff().buildPath(origView, revView);
+        final long allocatedBytes = allocation.getThreadAllocatedBytes(threadId) - before;
+
+        // there are about 10000 differences, the greedy variant would need memory quadratic in this
+        assertEquals(expectedEdits, checkValidPath(path, origView, revView));
+        final long bytesPerLine = allocatedBytes / (orig.size() + rev.size());
+        assertTrue("allocated " + bytesPerLine + " bytes per line", bytesPerLine < 150);
+    }
+
+    @Test
+    public void testSwitchingVariantsAtThresholdKeepsResultsMinimal() {
+        final FullFileView<String> orig = lines(randomLines(new Random(1), 200, 20));
+        final FullFileView<String> rev = lines(randomLines(new Random(2), 200, 20));
+        try {
+            DiffAlgorithmFactory.setLinearSpaceThreshold(100);
+            final int linearSpaceEdits = checkValidPath(MyersSourceDiffAlgorithm.buildMyersPath(orig, rev), orig, rev);
+            DiffAlgorithmFactory.setLinearSpaceThreshold(1000);
+            final int greedyEdits = checkValidPath(MyersSourceDiffAlgorithm.buildMyersPath(orig, rev), orig, rev);
+            assertEquals(greedyEdits, linearSpaceEdits);
+        } finally {
+            DiffAlgorithmFactory.resetConfiguration();
+        }
+    }
+
+    @Test
+    public void testIdDependsOnThreshold() {
+        try {
+            DiffAlgorithmFactory.setLinearSpaceThreshold(100);
+            final String myersId = new MyersSourceDiffAlgorithm().getId();
+            final String histogramId = new HistogramSourceDiffAlgorithm().getId();
+            DiffAlgorithmFactory.setLinearSpaceThreshold(1000);
+            assertNotEquals(myersId, new MyersSourceDiffAlgorithm().getId());
+            assertNotEquals(histogramId, new HistogramSourceDiffAlgorithm().getId());
+        } finally {
+            DiffAlgorithmFactory.resetConfiguration();
+        }
+    }
+
+}
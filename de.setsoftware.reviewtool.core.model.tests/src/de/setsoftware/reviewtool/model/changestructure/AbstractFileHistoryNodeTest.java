@@ -0,0 +1,194 @@
+package de.setsoftware.reviewtool.model.changestructure;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import de.setsoftware.reviewtool.model.api.IFileDiff;
+import de.setsoftware.reviewtool.model.api.IFileHistoryEdge;
+import de.setsoftware.reviewtool.model.api.IFileHistoryGraph;
+import de.setsoftware.reviewtool.model.api.IFileHistoryNode;
+import de.setsoftware.reviewtool.model.api.IRepository;
+import de.setsoftware.reviewtool.model.api.IRevisionedFile;
+import de.setsoftware.reviewtool.model.api.IncompatibleFragmentException;
+
+/**
+ * Tests for {@link AbstractFileHistoryNode}.
+ */
+public class AbstractFileHistoryNodeTest {
+
+    private static final IRepository REPO = new TestRepository("repo");
+
+    /**
+     * A node that is connected by hand.
+     */
+    private static final class StubNode extends AbstractFileHistoryNode {
+        private final IRevisionedFile file;
+        private final Set<IFileHistoryEdge> ancestors = new LinkedHashSet<>();
+        private final Set<IFileHistoryEdge> descendants = new LinkedHashSet<>();
+
+        StubNode(final String path, final long revision) {
+            this.file = ChangestructureFactory.createFileInRevision(path, new TestRepoRevision(REPO, revision));
+        }
+
+        @Override
+        public IFileHistoryGraph getGraph() {
+            return null;
+        }
+
+        @Override
+        public IRevisionedFile getFile() {
+            return this.file;
+        }
+
+        @Override
+        public boolean isRoot() {
+            return this.ancestors.isEmpty();
+        }
+
+        @Override
+        public Type getType() {
+            return Type.CHANGED;
+        }
+
+        @Override
+        public boolean isConfirmed() {
+            return true;
+        }
+
+        @Override
+        public boolean isCopyTarget() {
+            return false;
+        }
+
+        @Override
+        public Set<? extends IFileHistoryEdge> getAncestors() {
+            return this.ancestors;
+        }
+
+        @Override
+        public Set<? extends IFileHistoryEdge> getDescendants() {
+            return this.descendants;
+        }
+    }
+
+    /**
+     * An edge with a given diff that counts how often the diff is requested.
+     */
+    private static final class StubEdge implements IFileHistoryEdge {
+        private final StubNode ancestor;
+        private final StubNode descendant;
+        private final IFileDiff diff;
+        private int diffRequests;
+
+        StubEdge(final StubNode ancestor, final StubNode descendant, final IFileDiff diff) {
+            this.ancestor = ancestor;
+            this.descendant = descendant;
+            this.diff = diff;
+            ancestor.descendants.add(this);
+            descendant.ancestors.add(this);
+        }
+
+        @Override
+        public IFileHistoryGraph getGraph() {
+            return null;
+        }
+
+        @Override
+        public IFileHistoryNode getAncestor() {
+            return this.ancestor;
+        }
+
+        @Override
+        public IFileHistoryNode getDescendant() {
+            return this.descendant;
+        }
+
+        @Override
+        public Type getType() {
+            return Type.NORMAL;
+        }
+
+        @Override
+        public IFileDiff getDiff() {
+            this.diffRequests++;
+            return this.diff;
+        }
+    }
+
+    private static StubEdge unchanged(final StubNode ancestor, final StubNode descendant) {
+        return new StubEdge(ancestor, descendant, new FileDiff(ancestor.getFile(), descendant.getFile()));
+    }
+
+    /**
+     * Creates an edge whose diff replaces the given line by two lines.
+     */
+    private static StubEdge lineReplaced(final StubNode ancestor, final StubNode descendant, final int line)
+            throws IncompatibleFragmentException {
+        final IFileDiff diff = new FileDiff(ancestor.getFile(), descendant.getFile()).merge(new Hunk(
+                ChangestructureFactory.createFragment(ancestor.getFile(),
+                        ChangestructureFactory.createPositionInText(line, 1),
+                        ChangestructureFactory.createPositionInText(line + 1, 1)),
+                ChangestructureFactory.createFragment(descendant.getFile(),
+                        ChangestructureFactory.createPositionInText(line, 1),
+                        ChangestructureFactory.createPositionInText(line + 2, 1))));
+        return new StubEdge(ancestor, descendant, diff);
+    }
+
+    @Test
+    public void testChainOfDiamondsIsHandledInPolynomialTime() throws Exception {
+        // a chain of 40 diamonds has 2^40 paths from its start to its end
+        final int diamondCount = 40;
+        final List<StubEdge> edges = new ArrayList<>();
+        final StubNode start = new StubNode("/a", 0);
+        StubNode top = start;
+        for (int i = 0; i < diamondCount; i++) {
+            final StubNode left = new StubNode("/left", 3 * i + 1);
+            final StubNode right = new StubNode("/right", 3 * i + 1);
+            final StubNode merged = new StubNode("/a", 3 * i + 2);
+            final StubNode next = new StubNode("/a", 3 * i + 3);
+            edges.add(unchanged(top, left));
+            edges.add(unchanged(top, right));
+            edges.add(unchanged(left, merged));
+            edges.add(unchanged(right, merged));
+            edges.add(lineReplaced(merged, next, 2 * i + 1));
+            top = next;
+        }
+
+        final Set<? extends IFileDiff> histories = top.buildHistories(start);
+
+        assertThat(histories.size(), is(equalTo(1)));
+        final IFileDiff history = histories.iterator().next();
+        assertThat(history.getFrom(), is(equalTo(start.getFile())));
+        assertThat(history.getTo(), is(equalTo(top.getFile())));
+        assertThat(history.getHunks().size(), is(equalTo(diamondCount)));
+        for (final StubEdge edge : edges) {
+            assertThat(edge.diffRequests, is(equalTo(1)));
+        }
+    }
+
+    @Test
+    public void testDifferentHistoriesAreKept() throws Exception {
+        final StubNode start = new StubNode("/a", 0);
+        final StubNode left = new StubNode("/left", 1);
+        final StubNode right = new StubNode("/right", 1);
+        final StubNode merged = new StubNode("/a", 2);
+        lineReplaced(start, left, 3);
+        unchanged(start, right);
+        unchanged(left, merged);
+        unchanged(right, merged);
+
+        final Set<? extends IFileDiff> histories = merged.buildHistories(start);
+        assertThat(histories.size(), is(equalTo(2)));
+        assertThat(start.buildHistories(start).size(), is(equalTo(1)));
+        assertThat(start.buildHistories(merged).size(), is(equalTo(0)));
+    }
+
+}
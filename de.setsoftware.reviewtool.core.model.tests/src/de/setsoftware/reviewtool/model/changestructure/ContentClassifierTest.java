@@ -0,0 +1,124 @@
+package de.setsoftware.reviewtool.model.changestructure;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.setsoftware.reviewtool.model.api.IRevisionedFile;
+
+/**
+ * Tests for {@link ContentClassifier}.
+ */
+public class ContentClassifierTest {
+
+    private static boolean isValidUtf8ByDecoder(final byte[] content) {
+        try {
+            StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .decode(ByteBuffer.wrap(content));
+            return true;
+        } catch (final CharacterCodingException e) {
+            return false;
+        }
+    }
+
+    @Test
+    public void testUtf8ValidationIsEquivalentToDecoder() {
+        final Random r = new Random(17);
+        final byte[] interesting = new byte[] {
+            'a', '\n', (byte) 0x80, (byte) 0x9F, (byte) 0xA0, (byte) 0xBF, (byte) 0xC0, (byte) 0xC2, (byte) 0xDF,
+            (byte) 0xE0, (byte) 0xED, (byte) 0xEF, (byte) 0xF0, (byte) 0xF4, (byte) 0xF5, (byte) 0x8F, (byte) 0x90,
+            (byte) 0xFF
+        };
+        for (int i = 0; i < 200000; i++) {
+            final byte[] content = new byte[r.nextInt(8)];
+            for (int j = 0; j < content.length; j++) {
+                content[j] = interesting[r.nextInt(interesting.length)];
+            }
+            assertThat(Arrays.toString(content),
+                    ContentClassifier.isValidUtf8(content), is(equalTo(isValidUtf8ByDecoder(content))));
+        }
+    }
+
+    @Test
+    public void testValidTextInSeveralScripts() {
+        final byte[] content = "public class \u00c4\u00f6\u00fc { String s = \"\u20ac \ud83d\ude00 \u4e2d\"; }\r\n\t"
+                .getBytes(StandardCharsets.UTF_8);
+        assertThat(ContentClassifier.isValidUtf8(content), is(equalTo(true)));
+        final byte[] latin1 = "\u00c4\u00f6\u00fc".getBytes(StandardCharsets.ISO_8859_1);
+        assertThat(ContentClassifier.isValidUtf8(latin1), is(equalTo(false)));
+    }
+
+    @Test
+    public void testOnlyPrefixIsUsedForBinaryDetection() {
+        final byte[] content = new byte[1000];
+        Arrays.fill(content, (byte) 'x');
+        content[ContentClassifier.BINARY_PREFIX_LENGTH] = 0;
+        assertThat(ContentClassifier.looksBinary(content, content.length), is(equalTo(false)));
+        content[ContentClassifier.BINARY_PREFIX_LENGTH - 1] = 0;
+        assertThat(ContentClassifier.looksBinary(content, content.length), is(equalTo(true)));
+        assertThat(ContentClassifier.looksBinary(new byte[0], 0), is(equalTo(false)));
+    }
+
+    @Test
+    public void testClassificationIsCachedPerContentHash() {
+        final ContentClassifier classifier = new ContentClassifier(10);
+        final byte[] content = "a\nb\n".getBytes(StandardCharsets.UTF_8);
+        final ContentClassifier.ContentType first = classifier.classify(content);
+        final ContentClassifier.ContentType second = classifier.classify(content.clone());
+        assertThat(second, is(sameInstance(first)));
+        assertThat(first.getSize(), is(equalTo(4)));
+        assertThat(first.isBinary(), is(equalTo(false)));
+        assertThat(first.isValidUtf8(), is(equalTo(true)));
+
+        final ContentClassifier.ContentType binary = classifier.classify(new byte[] {1, 2, (byte) 0xFF});
+        assertThat(binary.isBinary(), is(equalTo(true)));
+        assertThat(binary.isValidUtf8(), is(equalTo(false)));
+        assertThat(ContentClassifier.guessEncoding(first, binary), is(equalTo("ISO-8859-1")));
+        assertThat(ContentClassifier.guessEncoding(first, first), is(equalTo("UTF-8")));
+    }
+
+    @Test
+    public void testSizeOfLocalFileIsCheckedWithoutReadingIt() throws Exception {
+        final File dir = Files.createTempDirectory("classifier").toFile();
+        try {
+            final File textFile = new File(dir, "text.txt");
+            Files.write(textFile.toPath(), "some text\n".getBytes(StandardCharsets.UTF_8));
+            final File binaryFile = new File(dir, "binary.bin");
+            Files.write(binaryFile.toPath(), new byte[] {'a', 0, 'b'});
+
+            final TestWorkingCopy wc = new TestWorkingCopy(new TestRepository("repo"), dir);
+            final IRevisionedFile text = ChangestructureFactory.createFileInRevision(
+                    textFile.getPath(), ChangestructureFactory.createLocalRevision(wc));
+            final IRevisionedFile binary = ChangestructureFactory.createFileInRevision(
+                    binaryFile.getPath(), ChangestructureFactory.createLocalRevision(wc));
+            final IRevisionedFile missing = ChangestructureFactory.createFileInRevision(
+                    new File(dir, "missing").getPath(), ChangestructureFactory.createLocalRevision(wc));
+
+            final ContentClassifier classifier = new ContentClassifier(10);
+            assertThat(classifier.isTextWithMaxSize(text, 100), is(equalTo(true)));
+            assertThat(classifier.isTextWithMaxSize(text, 5), is(equalTo(false)));
+            assertThat(classifier.isTextWithMaxSize(binary, 100), is(equalTo(false)));
+            assertThat(classifier.isTextWithMaxSize(missing, 100), is(equalTo(true)));
+        } finally {
+            for (final File f : dir.listFiles()) {
+                f.delete();
+            }
+            dir.delete();
+        }
+    }
+
+}
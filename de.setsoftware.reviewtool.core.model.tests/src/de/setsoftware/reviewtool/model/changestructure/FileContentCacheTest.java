@@ -0,0 +1,185 @@
+package de.setsoftware.reviewtool.model.changestructure;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import de.setsoftware.reviewtool.base.ComparableWrapper;
+import de.setsoftware.reviewtool.model.api.IRevisionedFile;
+
+/**
+ * Tests for {@link FileContentCache}.
+ */
+public class FileContentCacheTest {
+
+    private static IRevisionedFile file(final String path, final long revision) {
+        return ChangestructureFactory.createFileInRevision(
+                path, ChangestructureFactory.createRepoRevision(ComparableWrapper.wrap(revision), StubRepo.INSTANCE));
+    }
+
+    private static byte[] bytes(final String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testContentsAreLoadedOnlyOnce() throws Exception {
+        final FileContentCache cache = new FileContentCache(1024);
+        final AtomicInteger loadCount = new AtomicInteger();
+        final FileContentCache.ContentLoader loader = () -> {
+            loadCount.incrementAndGet();
+            return bytes("abc");
+        };
+
+        final byte[] first = cache.getContents(file("/a", 1), loader);
+        final byte[] second = cache.getContents(file("/a", 1), loader);
+
+        assertArrayEquals(first, second);
+        assertThat(loadCount.get(), is(equalTo(1)));
+        assertThat(cache.getStatistics().getRequests(), is(equalTo(2L)));
+        assertThat(cache.getStatistics().getHits(), is(equalTo(1L)));
+        assertThat(cache.getStatistics().getLoads(), is(equalTo(1L)));
+    }
+
+    @Test
+    public void testModifyingReturnedContentsDoesNotChangeTheCache() throws Exception {
+        final FileContentCache cache = new FileContentCache(1024);
+        final byte[] first = cache.getContents(file("/a", 1), () -> bytes("abc"));
+        first[0] = 'x';
+        final byte[] second = cache.getContents(file("/a", 1), () -> bytes("other"));
+
+        assertThat(second, is(not(sameInstance(first))));
+        assertThat(new String(second, StandardCharsets.UTF_8), is(equalTo("abc")));
+    }
+
+    @Test
+    public void testSharedContentsAreNotCopied() throws Exception {
+        final FileContentCache cache = new FileContentCache(1024);
+        final byte[] first = cache.getSharedContents(file("/a", 1), () -> bytes("abc"));
+        final byte[] second = cache.getSharedContents(file("/a", 1), () -> bytes("other"));
+        final byte[] copy = cache.getContents(file("/a", 1), () -> bytes("other"));
+
+        assertThat(second, is(sameInstance(first)));
+        assertThat(copy, is(not(sameInstance(first))));
+        assertArrayEquals(first, copy);
+    }
+
+    @Test
+    public void testEqualContentsAreShared() throws Exception {
+        final FileContentCache cache = new FileContentCache(1024);
+        final byte[] first = cache.getContents(file("/a", 1), () -> bytes("same"));
+        final byte[] second = cache.getContents(file("/a", 2), () -> bytes("same"));
+        final byte[] third = cache.getContents(file("/b", 2), () -> bytes("other"));
+
+        assertArrayEquals(first, second);
+        assertThat(new String(third, StandardCharsets.UTF_8), is(equalTo("other")));
+        final FileContentCache.Statistics stats = cache.getStatistics();
+        assertThat(stats.getFiles(), is(equalTo(3)));
+        assertThat(stats.getContents(), is(equalTo(2)));
+        assertThat(stats.getSharedContents(), is(equalTo(1L)));
+        assertThat(stats.getBytes(), is(equalTo(9L)));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedContentsAreEvicted() throws Exception {
+        final FileContentCache cache = new FileContentCache(80);
+        for (int i = 0; i < 8; i++) {
+            final String contents = "content_" + i;
+            cache.getContents(file("/f" + i, 1), () -> bytes(contents));
+        }
+        cache.getContents(file("/f0", 1), () -> {
+            throw new AssertionError("should be cached");
+        });
+        cache.getContents(file("/f8", 1), () -> bytes("content_8"));
+
+        final FileContentCache.Statistics stats = cache.getStatistics();
+        assertThat(stats.getEvictions(), is(equalTo(1L)));
+        assertThat(stats.getBytes(), is(equalTo(72L)));
+        final AtomicInteger loadCount = new AtomicInteger();
+        cache.getContents(file("/f0", 1), () -> {
+            loadCount.incrementAndGet();
+            return bytes("content_0");
+        });
+        cache.getContents(file("/f1", 1), () -> {
+            loadCount.incrementAndGet();
+            return bytes("content_1");
+        });
+        assertThat(loadCount.get(), is(equalTo(1)));
+    }
+
+    @Test
+    public void testLargeContentsAreNotCached() throws Exception {
+        final FileContentCache cache = new FileContentCache(80);
+        cache.getContents(file("/a", 1), () -> new byte[11]);
+        cache.getContents(file("/a", 1), () -> new byte[11]);
+
+        final FileContentCache.Statistics stats = cache.getStatistics();
+        assertThat(stats.getTooLarge(), is(equalTo(2L)));
+        assertThat(stats.getLoads(), is(equalTo(2L)));
+        assertThat(stats.getBytes(), is(equalTo(0L)));
+    }
+
+    @Test
+    public void testFailedLoadIsNotCached() throws Exception {
+        final FileContentCache cache = new FileContentCache(1024);
+        try {
+            cache.getContents(file("/a", 1), () -> {
+                throw new IOException("not available");
+            });
+            fail("expected exception");
+        } catch (final IOException e) {
+            assertThat(e.getMessage(), is(equalTo("not available")));
+        }
+        assertThat(new String(cache.getContents(file("/a", 1), () -> bytes("x")), StandardCharsets.UTF_8),
+                is(equalTo("x")));
+    }
+
+    @Test
+    public void testConcurrentRequestsShareOneLoad() throws Exception {
+        final FileContentCache cache = new FileContentCache(1024);
+        final CountDownLatch loadStarted = new CountDownLatch(1);
+        final CountDownLatch mayFinish = new CountDownLatch(1);
+        final AtomicInteger loadCount = new AtomicInteger();
+        final FileContentCache.ContentLoader loader = () -> {
+            loadCount.incrementAndGet();
+            loadStarted.countDown();
+            mayFinish.await();
+            return bytes("slow");
+        };
+
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        final List<Future<byte[]>> results = new ArrayList<>();
+        results.add(executor.submit(() -> cache.getContents(file("/a", 1), loader)));
+        loadStarted.await();
+        for (int i = 0; i < 7; i++) {
+            results.add(executor.submit(() -> cache.getContents(file("/a", 1), loader)));
+        }
+        while (cache.getStatistics().getRequests() < 8) {
+            Thread.sleep(1);
+        }
+        mayFinish.countDown();
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+
+        for (final Future<byte[]> result : results) {
+            assertArrayEquals(results.get(0).get(), result.get());
+        }
+        assertThat(loadCount.get(), is(equalTo(1)));
+    }
+}
@@ -0,0 +1,324 @@
+package de.setsoftware.reviewtool.model.changestructure;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import de.setsoftware.reviewtool.base.ComparableWrapper;
+import de.setsoftware.reviewtool.base.ReviewtoolException;
+import de.setsoftware.reviewtool.model.api.IDelta;
+import de.setsoftware.reviewtool.model.api.IFileDiff;
+import de.setsoftware.reviewtool.model.api.IFragment;
+import de.setsoftware.reviewtool.model.api.IFragmentList;
+import de.setsoftware.reviewtool.model.api.IHunk;
+import de.setsoftware.reviewtool.model.api.IPositionInText;
+import de.setsoftware.reviewtool.model.api.IRevisionedFile;
+import de.setsoftware.reviewtool.model.api.IncompatibleFragmentException;
+
+/**
+ * Randomized test that compares merging hunks into a {@link FileDiff} with the former implementation based on
+ * iterating over a list of all hunks.
+ */
+public class FileDiffMergeEquivalenceTest {
+
+    /**
+     * The former implementation of {@link FileDiff#merge(IHunk)} and {@link FileDiff#merge(Collection)}.
+     */
+    private static final class ReferenceDiff {
+        private final List<IHunk> hunks = new ArrayList<>();
+        private final IRevisionedFile fromRevision;
+        private final IRevisionedFile toRevision;
+
+        ReferenceDiff(final IRevisionedFile fromRevision, final IRevisionedFile toRevision) {
+            this.fromRevision = fromRevision;
+            this.toRevision = toRevision;
+        }
+
+        ReferenceDiff merge(final IHunk hunkToMerge) throws IncompatibleFragmentException {
+            final ReferenceDiff result = new ReferenceDiff(this.fromRevision, hunkToMerge.getTarget().getFile());
+            final List<IHunk> stashedHunks = new ArrayList<>();
+            final IDelta hunkDelta = hunkToMerge.getDelta();
+            final int hunkStartLine = hunkToMerge.getSource().getFrom().getLine();
+            boolean hunkCreated = false;
+            for (final IHunk hunk : this.hunks) {
+                if (hunk.getTarget().overlaps(hunkToMerge.getSource())) {
+                    stashedHunks.add(hunk);
+                } else if (hunk.getTarget().getTo().compareTo(hunkToMerge.getSource().getFrom()) <= 0) {
+                    result.hunks.add(hunk.adjustTargetFile(result.toRevision));
+                } else if (hunkCreated) {
+                    result.hunks.add(
+                            hunk.adjustTarget(hunkDelta.ignoreColumnOffset(
+                                    hunk.getTarget().getFrom().getLine() != hunkStartLine))
+                            .adjustTargetFile(result.toRevision));
+                } else {
+                    result.hunks.add(this.createCombinedHunk(stashedHunks, hunkToMerge)
+                            .adjustSourceFile(this.fromRevision)
+                            .adjustTargetFile(result.toRevision));
+                    result.hunks.add(
+                            hunk.adjustTarget(hunkDelta.ignoreColumnOffset(
+                                    hunk.getTarget().getFrom().getLine() != hunkStartLine))
+                            .adjustTargetFile(result.toRevision));
+                    hunkCreated = true;
+                }
+            }
+            if (!hunkCreated) {
+                result.hunks.add(this.createCombinedHunk(stashedHunks, hunkToMerge)
+                        .adjustSourceFile(this.fromRevision)
+                        .adjustTargetFile(result.toRevision));
+            }
+            return result;
+        }
+
+        ReferenceDiff merge(final Collection<? extends IHunk> hunksToMerge) throws IncompatibleFragmentException {
+            ReferenceDiff result = this;
+            IDelta delta = new Delta();
+            int lastLine = 0;
+            for (final IHunk hunk : hunksToMerge) {
+                delta = delta.ignoreColumnOffset(hunk.getSource().getFrom().getLine() != lastLine);
+                result = result.merge(hunk.adjustSource(delta));
+                delta = delta.plus(hunk.getDelta());
+                lastLine = hunk.getSource().getTo().getLine();
+            }
+            return result;
+        }
+
+        private IHunk createCombinedHunk(final Collection<? extends IHunk> hunks, final IHunk hunkToMerge)
+                throws IncompatibleFragmentException {
+            final IFragmentList sources = new FragmentList();
+            try {
+                for (final IHunk hunk : hunks) {
+                    sources.addFragment(hunk.getSource());
+                }
+            } catch (final IncompatibleFragmentException e) {
+                throw new ReviewtoolException(e);
+            }
+
+            final IFragmentList targets = new FragmentList();
+            try {
+                for (final IHunk hunk : hunks) {
+                    targets.addFragment(hunk.getTarget());
+                }
+            } catch (final IncompatibleFragmentException e) {
+                throw new ReviewtoolException(e);
+            }
+
+            return new Hunk(
+                    this.combineSources(hunkToMerge, sources, targets),
+                    this.combineTargets(hunkToMerge, targets));
+        }
+
+        private IFragment combineSources(
+                final IHunk hunkToMerge,
+                final IFragmentList sources,
+                final IFragmentList targets) throws IncompatibleFragmentException {
+            final IFragmentList combinedSources = new FragmentList();
+            combinedSources.addFragmentList(sources);
+
+            for (final IFragment fragment : hunkToMerge.getSource().subtract(targets).getFragments()) {
+                combinedSources.addFragment(fragment.adjust(
+                        this.computeDeltaViaTargetFragmentUpTo(fragment.getFrom()).negate()));
+            }
+
+            combinedSources.coalesce();
+            if (combinedSources.getFragments().size() != 1) {
+                throw new IncompatibleFragmentException();
+            }
+            return combinedSources.getFragments().get(0);
+        }
+
+        private IFragment combineTargets(final IHunk hunkToMerge, final IFragmentList targets)
+                throws IncompatibleFragmentException {
+
+            final IFragmentList adjustedTargets = new FragmentList();
+            final IDelta hunkDelta = hunkToMerge.getDelta();
+            final IFragment hunkTarget = hunkToMerge.getTarget();
+            final IPositionInText hunkTargetStart = hunkTarget.getFrom();
+            final Set<IFragment> hunkOrigins = new LinkedHashSet<>();
+            hunkOrigins.add(hunkTarget);
+            try {
+                for (final IFragment curTarget : targets.getFragments()) {
+                    if (curTarget.overlaps(hunkToMerge.getSource())) {
+                        hunkOrigins.add(curTarget);
+                        final IFragmentList pieces = curTarget.subtract(hunkToMerge.getSource());
+                        for (final IFragment piece : pieces.getFragments()) {
+                            if (piece.getTo().compareTo(hunkTargetStart) <= 0) {
+                                adjustedTargets.addFragment(piece);
+                            } else {
+                                adjustedTargets.addFragment(piece.adjust(hunkDelta));
+                            }
+                        }
+                    } else if (curTarget.getTo().compareTo(hunkTargetStart) <= 0) {
+                        adjustedTargets.addFragment(curTarget);
+                    } else {
+                        adjustedTargets.addFragment(curTarget.adjust(hunkDelta));
+                    }
+                }
+            } catch (final IncompatibleFragmentException e) {
+                throw new ReviewtoolException(e);
+            }
+
+            final IFragment newHunkTarget = new Fragment(
+                    hunkTarget.getFile(),
+                    hunkTarget.getFrom(),
+                    hunkTarget.getTo(),
+                    hunkOrigins);
+            final IFragmentList combinedTargets = adjustedTargets.overlayBy(newHunkTarget);
+
+            combinedTargets.coalesce();
+            if (combinedTargets.getFragments().size() != 1) {
+                throw new IncompatibleFragmentException();
+            }
+            return combinedTargets.getFragments().get(0);
+        }
+
+        private IDelta computeDeltaViaTargetFragmentUpTo(final IPositionInText pos) {
+            IDelta delta = new Delta();
+            int lastLine = 0;
+            for (final IHunk hunk : this.hunks) {
+                if (hunk.getTarget().getTo().compareTo(pos) <= 0) {
+                    delta = delta.ignoreColumnOffset(hunk.getTarget().getFrom().getLine() != lastLine);
+                    delta = delta.plus(hunk.getDelta());
+                    lastLine = hunk.getTarget().getTo().getLine();
+                } else {
+                    break;
+                }
+            }
+            return delta.ignoreColumnOffset(pos.getLine() != lastLine);
+        }
+    }
+
+    private static FileInRevision file(final int revision) {
+        return new FileInRevision("file", new RepoRevision<>(ComparableWrapper.wrap(revision), StubRepo.INSTANCE));
+    }
+
+    private static List<String> randomLines(final Random r, final int count) {
+        final List<String> ret = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ret.add("line " + r.nextInt(1000));
+        }
+        return ret;
+    }
+
+    private static Fragment lines(final IRevisionedFile file, final int start, final int end) {
+        return new Fragment(file, new PositionInText(start + 1, 1), new PositionInText(end + 1, 1));
+    }
+
+    /**
+     * Replaces some random non-adjacent ranges of the given lines and returns the hunks a diff algorithm would find
+     * for the change.
+     */
+    private static List<IHunk> randomChange(
+            final Random r,
+            final List<String> text,
+            final int maxChangeCount,
+            final IRevisionedFile oldFile,
+            final IRevisionedFile newFile) {
+        final List<String> oldText = new ArrayList<>(text);
+        final List<IHunk> hunks = new ArrayList<>();
+        text.clear();
+        int oldPos = 0;
+        final int changeCount = 1 + r.nextInt(maxChangeCount);
+        for (int i = 0; i < changeCount; i++) {
+            final int start = oldPos + (hunks.isEmpty() ? 0 : 1) + r.nextInt(8);
+            if (start > oldText.size()) {
+                break;
+            }
+            final int end = start + r.nextInt(Math.min(4, oldText.size() - start) + 1);
+            final List<String> replacement = randomLines(r, r.nextInt(4));
+            if (start == end && replacement.isEmpty()) {
+                continue;
+            }
+            text.addAll(oldText.subList(oldPos, start));
+            final int newStart = text.size();
+            text.addAll(replacement);
+            hunks.add(new Hunk(lines(oldFile, start, end), lines(newFile, newStart, text.size())));
+            oldPos = end;
+        }
+        text.addAll(oldText.subList(oldPos, oldText.size()));
+        return hunks;
+    }
+
+    private static void assertSameResult(final ReferenceDiff expected, final IFileDiff actual) {
+        assertEquals(expected == null, actual == null);
+        if (expected != null) {
+            assertEquals(expected.hunks, actual.getHunks());
+            assertEquals(expected.fromRevision, actual.getFrom());
+            assertEquals(expected.toRevision, actual.getTo());
+        }
+    }
+
+    @Test
+    public void testMergingChangesIsEquivalent() {
+        for (int seed = 0; seed < 500; seed++) {
+            final Random r = new Random(seed);
+            final List<String> text = randomLines(r, 40);
+            ReferenceDiff expected = new ReferenceDiff(file(0), file(0));
+            IFileDiff actual = new FileDiff(file(0));
+            for (int revision = 1; revision <= 20 && expected != null; revision++) {
+                final List<IHunk> hunks = randomChange(r, text, 6, file(revision - 1), file(revision));
+                try {
+                    expected = expected.merge(hunks);
+                } catch (final IncompatibleFragmentException | ReviewtoolException e) {
+                    expected = null;
+                }
+                try {
+                    actual = actual.merge(hunks);
+                } catch (final IncompatibleFragmentException | ReviewtoolException e) {
+                    actual = null;
+                }
+                assertSameResult(expected, actual);
+            }
+        }
+    }
+
+    @Test
+    public void testMergingSingleHunksIsEquivalent() {
+        for (int seed = 0; seed < 500; seed++) {
+            final Random r = new Random(seed);
+            final List<String> text = randomLines(r, 40);
+            ReferenceDiff expected = new ReferenceDiff(file(0), file(0));
+            IFileDiff actual = new FileDiff(file(0));
+            for (int revision = 1; revision <= 20 && expected != null; revision++) {
+                for (final IHunk hunk : randomChange(r, text, 1, file(revision - 1), file(revision))) {
+                    try {
+                        expected = expected.merge(hunk);
+                    } catch (final IncompatibleFragmentException | ReviewtoolException e) {
+                        expected = null;
+                    }
+                    try {
+                        actual = actual.merge(hunk);
+                    } catch (final IncompatibleFragmentException | ReviewtoolException e) {
+                        actual = null;
+                    }
+                    assertSameResult(expected, actual);
+                    if (expected == null) {
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testMergingManyHunks() throws Exception {
+        final int count = 20000;
+        final List<IHunk> hunks = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            hunks.add(new Hunk(
+                    new Fragment(file(0), new PositionInText(2 * i + 1, 1), new PositionInText(2 * i + 2, 1)),
+                    new Fragment(file(1), new PositionInText(3 * i + 1, 1), new PositionInText(3 * i + 3, 1))));
+        }
+        final IFileDiff merged = new FileDiff(file(0)).merge(hunks);
+        assertEquals(count, merged.getHunks().size());
+        final IHunk last = merged.getHunks().get(count - 1);
+        assertEquals(new PositionInText(3 * count - 2, 1), last.getTarget().getFrom());
+    }
+
+}
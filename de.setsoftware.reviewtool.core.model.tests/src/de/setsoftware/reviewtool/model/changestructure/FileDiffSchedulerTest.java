@@ -0,0 +1,249 @@
+package de.setsoftware.reviewtool.model.changestructure;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import de.setsoftware.reviewtool.base.ReviewtoolException;
+import de.setsoftware.reviewtool.model.api.IFileDiff;
+import de.setsoftware.reviewtool.model.api.IFileHistoryEdge;
+import de.setsoftware.reviewtool.model.api.IFileHistoryGraph;
+import de.setsoftware.reviewtool.model.api.IFileHistoryNode;
+
+/**
+ * Tests for {@link FileDiffScheduler}.
+ */
+public class FileDiffSchedulerTest {
+
+    /**
+     * An edge whose diff computation is recorded and can be blocked.
+     */
+    private static class StubEdge implements IFileHistoryEdge {
+        private final String name;
+        private final List<String> computed;
+        private final AtomicInteger computations = new AtomicInteger();
+
+        StubEdge(final String name, final List<String> computed) {
+            this.name = name;
+            this.computed = computed;
+        }
+
+        @Override
+        public IFileHistoryGraph getGraph() {
+            return null;
+        }
+
+        @Override
+        public IFileHistoryNode getAncestor() {
+            return null;
+        }
+
+        @Override
+        public IFileHistoryNode getDescendant() {
+            return null;
+        }
+
+        @Override
+        public Type getType() {
+            return Type.NORMAL;
+        }
+
+        @Override
+        public IFileDiff getDiff() {
+            this.computations.incrementAndGet();
+            this.computed.add(this.name);
+            return new FileDiff(null);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            return o == this;
+        }
+
+        @Override
+        public int hashCode() {
+            return this.name.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return this.name;
+        }
+    }
+
+    /**
+     * An edge that occupies a background thread until it is released.
+     */
+    private static final class BlockingEdge extends StubEdge {
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch released = new CountDownLatch(1);
+
+        BlockingEdge(final List<String> computed) {
+            super("blocker", computed);
+        }
+
+        @Override
+        public IFileDiff getDiff() {
+            this.started.countDown();
+            try {
+                this.released.await(10, TimeUnit.SECONDS);
+            } catch (final InterruptedException e) {
+                throw new ReviewtoolException(e);
+            }
+            return super.getDiff();
+        }
+
+        void awaitStart() throws InterruptedException {
+            assertThat(this.started.await(10, TimeUnit.SECONDS), is(true));
+        }
+
+        void release() {
+            this.released.countDown();
+        }
+    }
+
+    @Test
+    public void testEdgeScheduledSeveralTimesIsComputedOnce() throws Exception {
+        final FileDiffScheduler scheduler = new FileDiffScheduler(1);
+        final List<String> computed = Collections.synchronizedList(new ArrayList<>());
+        final BlockingEdge blocker = new BlockingEdge(computed);
+        scheduler.schedule(blocker, 0);
+        blocker.awaitStart();
+
+        final StubEdge edge = new StubEdge("a", computed);
+        final CompletableFuture<IFileDiff> f1 = scheduler.schedule(edge, 5);
+        final CompletableFuture<IFileDiff> f2 = scheduler.schedule(edge, 1);
+        final CompletableFuture<IFileDiff> f3 = scheduler.schedule(edge, 7);
+        assertThat(f2, is(sameInstance(f1)));
+        assertThat(f3, is(sameInstance(f1)));
+
+        blocker.release();
+        f1.get(10, TimeUnit.SECONDS);
+        assertThat(edge.computations.get(), is(equalTo(1)));
+    }
+
+    @Test
+    public void testMoreUrgentEdgesAreComputedFirst() throws Exception {
+        final FileDiffScheduler scheduler = new FileDiffScheduler(1);
+        final List<String> computed = Collections.synchronizedList(new ArrayList<>());
+        final BlockingEdge blocker = new BlockingEdge(computed);
+        scheduler.schedule(blocker, 0);
+        blocker.awaitStart();
+
+        final StubEdge a = new StubEdge("a", computed);
+        final StubEdge b = new StubEdge("b", computed);
+        final StubEdge c = new StubEdge("c", computed);
+        final StubEdge d = new StubEdge("d", computed);
+        final CompletableFuture<IFileDiff> fa = scheduler.schedule(a, 3);
+        final CompletableFuture<IFileDiff> fb = scheduler.schedule(b, 1);
+        final CompletableFuture<IFileDiff> fc = scheduler.schedule(c, 2);
+        final CompletableFuture<IFileDiff> fd = scheduler.schedule(d, 2);
+        assertThat(scheduler.schedule(a, 0), is(sameInstance(fa)));
+
+        blocker.release();
+        CompletableFuture.allOf(fa, fb, fc, fd).get(10, TimeUnit.SECONDS);
+        assertThat(computed, is(equalTo(Arrays.asList("blocker", "a", "b", "c", "d"))));
+        assertThat(a.computations.get(), is(equalTo(1)));
+        assertThat(scheduler.getPendingCount(), is(equalTo(0)));
+    }
+
+    @Test
+    public void testDiffIsNotComputedWhenNotNeeded() throws Exception {
+        final FileDiffScheduler scheduler = new FileDiffScheduler(2);
+        final List<String> computed = Collections.synchronizedList(new ArrayList<>());
+        final StubEdge binary = new StubEdge("binary", computed);
+        final StubEdge failing = new StubEdge("failing", computed);
+
+        final CompletableFuture<IFileDiff> f1 = scheduler.schedule(binary, 0, (e) -> false);
+        final CompletableFuture<IFileDiff> f2 = scheduler.schedule(failing, 0, (e) -> {
+            throw new Exception("cannot load contents");
+        });
+
+        assertThat(f1.get(10, TimeUnit.SECONDS), is(nullValue()));
+        assertThat(f2.get(10, TimeUnit.SECONDS), is(nullValue()));
+        assertThat(computed.isEmpty(), is(true));
+    }
+
+    @Test
+    public void testFailureIsPassedToTheFuture() throws Exception {
+        final FileDiffScheduler scheduler = new FileDiffScheduler(1);
+        final StubEdge edge = new StubEdge("a", new ArrayList<>()) {
+            @Override
+            public IFileDiff getDiff() {
+                throw new ReviewtoolException("broken");
+            }
+        };
+
+        try {
+            scheduler.schedule(edge, 0).join();
+            fail("expected exception");
+        } catch (final CompletionException e) {
+            assertThat(e.getCause().getMessage(), is(equalTo("broken")));
+        }
+    }
+
+    @Test
+    public void testCancelRemovesEdgesNotStartedYet() throws Exception {
+        final FileDiffScheduler scheduler = new FileDiffScheduler(1);
+        final List<String> computed = Collections.synchronizedList(new ArrayList<>());
+        final BlockingEdge blocker = new BlockingEdge(computed);
+        final CompletableFuture<IFileDiff> blocked = scheduler.schedule(blocker, 0);
+        blocker.awaitStart();
+
+        final FileDiffScheduler.Batch batch = scheduler.startBatch();
+        final StubEdge edge = new StubEdge("a", computed);
+        final CompletableFuture<IFileDiff> pending = batch.schedule(edge, 1, (e) -> true);
+        batch.schedule(edge, 0, (e) -> true);
+        batch.cancel();
+        assertThat(pending.isCancelled(), is(true));
+
+        blocker.release();
+        blocked.get(10, TimeUnit.SECONDS);
+        assertThat(computed, is(equalTo(Arrays.asList("blocker"))));
+        assertThat(scheduler.getPendingCount(), is(equalTo(0)));
+    }
+
+    @Test
+    public void testCancelKeepsEdgesNeededOutsideOfTheBatch() throws Exception {
+        final FileDiffScheduler scheduler = new FileDiffScheduler(1);
+        final List<String> computed = Collections.synchronizedList(new ArrayList<>());
+        final BlockingEdge blocker = new BlockingEdge(computed);
+        scheduler.schedule(blocker, 0);
+        blocker.awaitStart();
+
+        final StubEdge a = new StubEdge("a", computed);
+        final StubEdge b = new StubEdge("b", computed);
+        final StubEdge c = new StubEdge("c", computed);
+        final StubEdge d = new StubEdge("d", computed);
+        final FileDiffScheduler.Batch batch1 = scheduler.startBatch();
+        final FileDiffScheduler.Batch batch2 = scheduler.startBatch();
+        final CompletableFuture<IFileDiff> fa = batch1.schedule(a, 1, (e) -> true);
+        final CompletableFuture<IFileDiff> fb = batch1.schedule(b, 1, (e) -> true);
+        batch2.schedule(b, 1, (e) -> true);
+        final CompletableFuture<IFileDiff> fc = batch2.schedule(c, 1, (e) -> true);
+        batch1.schedule(d, 1, (e) -> true);
+        final CompletableFuture<IFileDiff> fd = scheduler.schedule(d, 1);
+
+        batch1.cancel();
+        assertThat(fa.isCancelled(), is(true));
+        blocker.release();
+        CompletableFuture.allOf(fb, fc, fd).get(10, TimeUnit.SECONDS);
+        assertThat(computed, is(equalTo(Arrays.asList("blocker", "b", "c", "d"))));
+    }
+
+}
@@ -0,0 +1,260 @@
+package de.setsoftware.reviewtool.model.changestructure;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import de.setsoftware.reviewtool.base.ComparableWrapper;
+import de.setsoftware.reviewtool.base.Pair;
+import de.setsoftware.reviewtool.diffalgorithms.DiffAlgorithmFactory;
+import de.setsoftware.reviewtool.model.api.IDiffAlgorithm;
+import de.setsoftware.reviewtool.model.api.IFragment;
+import de.setsoftware.reviewtool.model.api.IRevisionedFile;
+
+/**
+ * Tests for {@link FileDiffStore}.
+ */
+public class FileDiffStoreTest {
+
+    /**
+     * Counts the invocations of the default diff algorithm.
+     */
+    private static final class CountingDiffAlgorithm implements IDiffAlgorithm {
+        private static final long serialVersionUID = 1L;
+
+        private final IDiffAlgorithm delegate = DiffAlgorithmFactory.createDefault();
+        private final AtomicInteger invocations = new AtomicInteger();
+
+        @Override
+        public List<Pair<IFragment, IFragment>> determineDiff(
+                final IRevisionedFile fileOldInfo,
+                final byte[] fileOldContent,
+                final IRevisionedFile fileNewInfo,
+                final byte[] fileNewContent,
+                final String charset) {
+            this.invocations.incrementAndGet();
+            return this.delegate.determineDiff(fileOldInfo, fileOldContent, fileNewInfo, fileNewContent, charset);
+        }
+
+        @Override
+        public String getId() {
+            return this.delegate.getId();
+        }
+    }
+
+    /**
+     * Like the default diff algorithm, but with another identity.
+     */
+    private static final class OtherDiffAlgorithm implements IDiffAlgorithm {
+        private static final long serialVersionUID = 1L;
+
+        private final IDiffAlgorithm delegate = DiffAlgorithmFactory.createDefault();
+
+        @Override
+        public List<Pair<IFragment, IFragment>> determineDiff(
+                final IRevisionedFile fileOldInfo,
+                final byte[] fileOldContent,
+                final IRevisionedFile fileNewInfo,
+                final byte[] fileNewContent,
+                final String charset) {
+            return this.delegate.determineDiff(fileOldInfo, fileOldContent, fileNewInfo, fileNewContent, charset);
+        }
+
+        @Override
+        public String getId() {
+            return "other-1";
+        }
+    }
+
+    private static final byte[] OLD_CONTENT = "a\nb\nc\nd\ne\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] NEW_CONTENT = "a\nx\nc\nd\ne\nf\n".getBytes(StandardCharsets.UTF_8);
+
+    private static IRevisionedFile file(final String path, final long revision) {
+        return ChangestructureFactory.createFileInRevision(
+                path, ChangestructureFactory.createRepoRevision(ComparableWrapper.wrap(revision), StubRepo.INSTANCE));
+    }
+
+    private static List<Pair<IFragment, IFragment>> diff(
+            final FileDiffStore store,
+            final IDiffAlgorithm algorithm,
+            final IRevisionedFile oldFile,
+            final IRevisionedFile newFile) {
+        return store.determineDiff(algorithm, oldFile, OLD_CONTENT, newFile, NEW_CONTENT, "UTF-8");
+    }
+
+    private static File diffWithNewContent(
+            final FileDiffStore store,
+            final IDiffAlgorithm algorithm,
+            final File dir,
+            final String newContent) {
+        final byte[] newBytes = newContent.getBytes(StandardCharsets.UTF_8);
+        store.determineDiff(algorithm, file("/a", 1), OLD_CONTENT, file("/a", 2), newBytes, "UTF-8");
+        final String oldHash = ContentHash.of(OLD_CONTENT).toString();
+        return new File(new File(dir, oldHash.substring(0, 2)),
+                oldHash + "-" + ContentHash.of(newBytes) + "." + algorithm.getId().replaceAll("[^A-Za-z0-9_\\-]", "_")
+                    + ".UTF-8");
+    }
+
+    private static void deleteRecursively(final File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (final File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+
+    private static File storedFile(final File dir) {
+        final File[] subdirs = dir.listFiles();
+        assertThat(subdirs.length, is(equalTo(1)));
+        final File[] files = subdirs[0].listFiles();
+        assertThat(files.length, is(equalTo(1)));
+        return files[0];
+    }
+
+    @Test
+    public void testStoredDiffIsReadInsteadOfComputed() throws IOException {
+        final File dir = Files.createTempDirectory("diffstore").toFile();
+        try {
+            final CountingDiffAlgorithm algorithm = new CountingDiffAlgorithm();
+            final FileDiffStore store = new FileDiffStore();
+            store.setDirectory(dir);
+            final List<Pair<IFragment, IFragment>> computed = diff(store, algorithm, file("/a", 1), file("/a", 2));
+            assertThat(algorithm.invocations.get(), is(equalTo(1)));
+
+            final FileDiffStore reopened = new FileDiffStore();
+            reopened.setDirectory(dir);
+            final List<Pair<IFragment, IFragment>> read = diff(reopened, algorithm, file("/a", 1), file("/a", 2));
+            assertThat(algorithm.invocations.get(), is(equalTo(1)));
+            assertThat(read, is(equalTo(computed)));
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    @Test
+    public void testStoredDiffIsSharedByFilesWithEqualContents() throws IOException {
+        final File dir = Files.createTempDirectory("diffstore").toFile();
+        try {
+            final CountingDiffAlgorithm algorithm = new CountingDiffAlgorithm();
+            final FileDiffStore store = new FileDiffStore();
+            store.setDirectory(dir);
+            diff(store, algorithm, file("/a", 1), file("/a", 2));
+
+            final List<Pair<IFragment, IFragment>> read = diff(store, algorithm, file("/b", 7), file("/c", 9));
+            assertThat(algorithm.invocations.get(), is(equalTo(1)));
+            final CountingDiffAlgorithm expectedAlgorithm = new CountingDiffAlgorithm();
+            assertThat(read, is(equalTo(expectedAlgorithm.determineDiff(
+                    file("/b", 7), OLD_CONTENT, file("/c", 9), NEW_CONTENT, "UTF-8"))));
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    @Test
+    public void testUnreadableDiffIsComputedAgain() throws IOException {
+        final File dir = Files.createTempDirectory("diffstore").toFile();
+        try {
+            final CountingDiffAlgorithm algorithm = new CountingDiffAlgorithm();
+            final FileDiffStore store = new FileDiffStore();
+            store.setDirectory(dir);
+            final List<Pair<IFragment, IFragment>> computed = diff(store, algorithm, file("/a", 1), file("/a", 2));
+            Files.write(storedFile(dir).toPath(), new byte[] {0, 0, 0});
+
+            final List<Pair<IFragment, IFragment>> recomputed = diff(store, algorithm, file("/a", 1), file("/a", 2));
+            assertThat(algorithm.invocations.get(), is(equalTo(2)));
+            assertThat(recomputed, is(equalTo(computed)));
+            assertThat(storedFile(dir).length() > 3, is(equalTo(true)));
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    @Test
+    public void testCharsetIsPartOfTheKey() throws IOException {
+        final File dir = Files.createTempDirectory("diffstore").toFile();
+        try {
+            final CountingDiffAlgorithm algorithm = new CountingDiffAlgorithm();
+            final FileDiffStore store = new FileDiffStore(Runnable::run);
+            store.setDirectory(dir);
+            store.determineDiff(algorithm, file("/a", 1), OLD_CONTENT, file("/a", 2), NEW_CONTENT, "UTF-8");
+            store.determineDiff(algorithm, file("/a", 1), OLD_CONTENT, file("/a", 2), NEW_CONTENT, "ISO-8859-1");
+            assertThat(algorithm.invocations.get(), is(equalTo(2)));
+            store.determineDiff(algorithm, file("/a", 1), OLD_CONTENT, file("/a", 2), NEW_CONTENT, "ISO-8859-1");
+            assertThat(algorithm.invocations.get(), is(equalTo(2)));
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    @Test
+    public void testLeastRecentlyUsedDiffsAreDeletedWhenOverBudget() throws IOException {
+        final File dir = Files.createTempDirectory("diffstore").toFile();
+        try {
+            final CountingDiffAlgorithm algorithm = new CountingDiffAlgorithm();
+            final FileDiffStore store = new FileDiffStore(Runnable::run);
+            store.setDirectory(dir);
+            final File f1 = diffWithNewContent(store, algorithm, dir, "a\nx\n");
+            final File f2 = diffWithNewContent(store, algorithm, dir, "a\ny\n");
+            final File f3 = diffWithNewContent(store, algorithm, dir, "a\nz\n");
+            final long now = System.currentTimeMillis();
+            f1.setLastModified(now - 30000);
+            f2.setLastModified(now - 20000);
+            f3.setLastModified(now - 10000);
+            // reading marks the oldest diff as recently used
+            diffWithNewContent(store, algorithm, dir, "a\nx\n");
+            assertThat(algorithm.invocations.get(), is(equalTo(3)));
+
+            store.setByteBudget(f1.length() + f3.length());
+            store.cleanup();
+            assertThat(f1.exists(), is(true));
+            assertThat(f2.exists(), is(false));
+            assertThat(f3.exists(), is(true));
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    @Test
+    public void testDiffsOfUnusedAlgorithmsAreDeleted() throws IOException {
+        final File dir = Files.createTempDirectory("diffstore").toFile();
+        try {
+            final FileDiffStore store = new FileDiffStore(Runnable::run);
+            store.setDirectory(dir);
+            final File oldAlgorithmFile = diffWithNewContent(store, new CountingDiffAlgorithm(), dir, "a\nx\n");
+            final File stale = new File(oldAlgorithmFile.getParentFile(), "0000-1111.someAlgorithm");
+            Files.write(stale.toPath(), new byte[] {0});
+
+            final FileDiffStore reopened = new FileDiffStore(Runnable::run);
+            reopened.setDirectory(dir);
+            assertThat(oldAlgorithmFile.exists(), is(true));
+            assertThat(stale.exists(), is(false));
+
+            final File newAlgorithmFile = diffWithNewContent(reopened, new OtherDiffAlgorithm(), dir, "a\nx\n");
+            reopened.cleanup();
+            assertThat(oldAlgorithmFile.exists(), is(false));
+            assertThat(newAlgorithmFile.exists(), is(true));
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    @Test
+    public void testNothingIsStoredWithoutDirectory() {
+        final CountingDiffAlgorithm algorithm = new CountingDiffAlgorithm();
+        final FileDiffStore store = new FileDiffStore();
+        diff(store, algorithm, file("/a", 1), file("/a", 2));
+        diff(store, algorithm, file("/a", 1), file("/a", 2));
+        assertThat(algorithm.invocations.get(), is(equalTo(2)));
+    }
+}
@@ -0,0 +1,263 @@
+package de.setsoftware.reviewtool.model.changestructure;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+import de.setsoftware.reviewtool.diffalgorithms.DiffAlgorithmFactory;
+import de.setsoftware.reviewtool.model.api.IFileHistoryEdge;
+import de.setsoftware.reviewtool.model.api.IFileHistoryNode;
+import de.setsoftware.reviewtool.model.api.IRevision;
+import de.setsoftware.reviewtool.model.api.IRevisionedFile;
+
+/**
+ * Stress test for concurrent queries and mutations of a {@link FileHistoryGraph} and a
+ * {@link VirtualFileHistoryGraph} built on top of it.
+ */
+public class FileHistoryGraphConcurrencyTest {
+
+    private static final int PATHS_PER_WRITER = 10;
+    private static final int REVISION_COUNT = 400;
+
+    private static final int LOCAL_UPDATE_COUNT = 400;
+
+    private static final TestRepository REPO = new TestRepository("repo");
+    private static final IRevision LOCAL_REVISION =
+            ChangestructureFactory.createLocalRevision(new TestWorkingCopy(REPO, new File("/wc")));
+
+    private static String path(final int writer, final int index) {
+        return "/trunk/w" + writer + "/file" + index;
+    }
+
+    private static IRevisionedFile file(final String path, final long revision) {
+        return ChangestructureFactory.createFileInRevision(path, new TestRepoRevision(REPO, revision));
+    }
+
+    private static long revisionOf(final IRevisionedFile file) {
+        return ((TestRepoRevision) file.getRevision()).getId().getWrappedComparable();
+    }
+
+    /**
+     * Each writer adds one revision after the other, changing all of its paths in a single batch.
+     */
+    private static Thread writer(final FileHistoryGraph graph, final int writer, final Queue<Throwable> errors) {
+        return new Thread(() -> {
+            try {
+                for (long rev = 1; rev <= REVISION_COUNT; rev++) {
+                    final long revision = rev;
+                    graph.performBatch(() -> {
+                        for (int i = 0; i < PATHS_PER_WRITER; i++) {
+                            graph.addChange(path(writer, i), new TestRepoRevision(REPO, revision),
+                                    Collections.singleton(new TestRepoRevision(REPO, revision - 1)));
+                        }
+                    });
+                }
+            } catch (final Throwable t) {
+                errors.add(t);
+            }
+        });
+    }
+
+    /**
+     * Each reader traces the first revision of random paths to the latest one and checks that it never sees a
+     * partially applied batch or a revision older than one it has seen before.
+     */
+    private static Thread reader(
+            final FileHistoryGraph graph,
+            final int seed,
+            final AtomicBoolean done,
+            final Queue<Throwable> errors) {
+        return new Thread(() -> {
+            try {
+                final Random r = new Random(seed);
+                final long[] lastSeen = new long[2];
+                while (!done.get()) {
+                    final int writer = r.nextInt(2);
+                    final String path = path(writer, 0);
+                    if (graph.getNodeFor(file(path, 1)) == null) {
+                        continue;
+                    }
+                    final List<IRevisionedFile> latest = graph.getLatestFiles(file(path, 1), false);
+                    assertThat(latest.size(), is(equalTo(1)));
+                    final long latestRevision = revisionOf(latest.get(0));
+                    assertThat(latestRevision >= lastSeen[writer], is(equalTo(true)));
+                    lastSeen[writer] = latestRevision;
+
+                    // all other paths of the batch have to exist in the same revision
+                    final String otherPath = path(writer, PATHS_PER_WRITER - 1);
+                    assertThat(graph.getNodeFor(file(otherPath, latestRevision)) == null, is(equalTo(false)));
+
+                    final Set<ProxyableFileHistoryNode> ancestors =
+                            graph.findAncestorsFor(file(otherPath, latestRevision + 1));
+                    assertThat(ancestors.size(), is(equalTo(1)));
+                    assertThat(ancestors.iterator().next().getFile(), is(equalTo(file(otherPath, latestRevision))));
+                }
+            } catch (final Throwable t) {
+                errors.add(t);
+            }
+        });
+    }
+
+    /**
+     * Alternately adds and removes local changes of all paths, patching the local graph in place.
+     */
+    private static Thread localWriter(
+            final VirtualFileHistoryGraph virtualGraph,
+            final FileHistoryGraph localGraph,
+            final Queue<Throwable> errors) {
+        return new Thread(() -> {
+            try {
+                for (int update = 0; update < LOCAL_UPDATE_COUNT; update++) {
+                    final boolean add = update % 2 == 0;
+                    for (int i = 0; i < PATHS_PER_WRITER; i++) {
+                        final String path = path(0, i);
+                        virtualGraph.updateLocalFileHistoryGraph(() -> localGraph.performBatch(() -> {
+                            if (add) {
+                                localGraph.addChange(path, LOCAL_REVISION,
+                                        Collections.singleton(new TestRepoRevision(REPO, 2L)));
+                            } else {
+                                localGraph.removeFile(path, LOCAL_REVISION);
+                            }
+                        }));
+                    }
+                }
+            } catch (final Throwable t) {
+                errors.add(t);
+            }
+        });
+    }
+
+    /**
+     * Walks all ancestors or descendants of the given node and checks that they all belong to the node's path.
+     */
+    private static void walk(final IFileHistoryNode node, final boolean ancestors) {
+        final Set<? extends IFileHistoryEdge> edges = ancestors ? node.getAncestors() : node.getDescendants();
+        for (final IFileHistoryEdge edge : edges) {
+            final IFileHistoryNode next = ancestors ? edge.getAncestor() : edge.getDescendant();
+            assertThat(next.getFile().getPath(), is(equalTo(node.getFile().getPath())));
+            walk(next, ancestors);
+        }
+    }
+
+    /**
+     * Each reader queries the virtual graph for random paths and traverses the nodes it finds in both directions.
+     */
+    private static Thread virtualReader(
+            final VirtualFileHistoryGraph graph,
+            final int seed,
+            final AtomicBoolean done,
+            final Queue<Throwable> errors) {
+        return new Thread(() -> {
+            try {
+                final Random r = new Random(seed);
+                while (!done.get()) {
+                    final String path = path(0, r.nextInt(PATHS_PER_WRITER));
+
+                    final List<IRevisionedFile> latest = graph.getLatestFiles(file(path, 1), false);
+                    assertThat(latest.size(), is(equalTo(1)));
+                    assertThat(latest.get(0).getPath(), is(equalTo(path)));
+
+                    final IFileHistoryNode localNode =
+                            graph.getNodeFor(ChangestructureFactory.createFileInRevision(path, LOCAL_REVISION));
+                    if (localNode != null) {
+                        walk(localNode, true);
+                    }
+                    walk(graph.getNodeFor(file(path, 1)), false);
+                }
+            } catch (final Throwable t) {
+                errors.add(t);
+            }
+        });
+    }
+
+    @Test
+    public void testConcurrentQueriesOfVirtualGraphSeeConsistentGraph() throws Exception {
+        final FileHistoryGraph remoteGraph = new FileHistoryGraph(DiffAlgorithmFactory.createDefault());
+        for (int i = 0; i < PATHS_PER_WRITER; i++) {
+            remoteGraph.addAddition(path(0, i), new TestRepoRevision(REPO, 1L));
+            remoteGraph.addChange(path(0, i), new TestRepoRevision(REPO, 2L),
+                    Collections.singleton(new TestRepoRevision(REPO, 1L)));
+        }
+        final FileHistoryGraph localGraph = new FileHistoryGraph(DiffAlgorithmFactory.createDefault());
+        final VirtualFileHistoryGraph virtualGraph = new VirtualFileHistoryGraph(remoteGraph);
+        virtualGraph.setLocalFileHistoryGraph(localGraph);
+        final Queue<Throwable> errors = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean done = new AtomicBoolean();
+
+        final Thread writer = localWriter(virtualGraph, localGraph, errors);
+        final List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            readers.add(virtualReader(virtualGraph, i, done, errors));
+        }
+
+        for (final Thread t : readers) {
+            t.start();
+        }
+        writer.start();
+        writer.join();
+        done.set(true);
+        for (final Thread t : readers) {
+            t.join();
+        }
+
+        assertThat(errors.toString(), errors.isEmpty(), is(equalTo(true)));
+        for (int i = 0; i < PATHS_PER_WRITER; i++) {
+            final String path = path(0, i);
+            assertThat(virtualGraph.getLatestFiles(file(path, 1), false),
+                    is(equalTo(Collections.singletonList(file(path, 2)))));
+        }
+    }
+
+    @Test
+    public void testConcurrentQueriesSeeConsistentGraph() throws Exception {
+        final FileHistoryGraph graph = new FileHistoryGraph(DiffAlgorithmFactory.createDefault());
+        final Queue<Throwable> errors = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean done = new AtomicBoolean();
+
+        final List<Thread> writers = new ArrayList<>();
+        for (int w = 0; w < 2; w++) {
+            writers.add(writer(graph, w, errors));
+        }
+        final List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            readers.add(reader(graph, i, done, errors));
+        }
+
+        for (final Thread t : readers) {
+            t.start();
+        }
+        for (final Thread t : writers) {
+            t.start();
+        }
+        for (final Thread t : writers) {
+            t.join();
+        }
+        done.set(true);
+        for (final Thread t : readers) {
+            t.join();
+        }
+
+        assertThat(errors.toString(), errors.isEmpty(), is(equalTo(true)));
+        assertThat(graph.getPaths().size(), is(equalTo(2 * PATHS_PER_WRITER)));
+        for (int w = 0; w < 2; w++) {
+            for (int i = 0; i < PATHS_PER_WRITER; i++) {
+                final String path = path(w, i);
+                assertThat(graph.getLatestFiles(file(path, 1), false),
+                        is(equalTo(Collections.singletonList(file(path, REVISION_COUNT)))));
+            }
+        }
+    }
+
+}
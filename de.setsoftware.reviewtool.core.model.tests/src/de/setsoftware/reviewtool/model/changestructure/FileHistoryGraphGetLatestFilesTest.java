@@ -4,6 +4,7 @@ import static org.junit.Assert.assertEquals;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Random;
 
 import org.junit.Test;
 
@@ -257,4 +258,61 @@ public class FileHistoryGraphGetLatestFilesTest {
                 Arrays.asList(file("/b", 6)),
                 g.getLatestFiles(file("/b", 6), false)); //b@6 is non-existing
     }
+
+    @Test
+    public void testMemoizedResultsAreInvalidatedByChangesDownstream() {
+        final FileHistoryGraph g = new FileHistoryGraph(DiffAlgorithmFactory.createDefault());
+        g.addChange("/a", rev(1), Collections.singleton(rev(0)));
+        g.addChange("/a", rev(3), Collections.singleton(rev(2)));
+        g.addChange("/b", rev(2), Collections.singleton(rev(1)));
+        assertEquals(Arrays.asList(file("/a", 3)), g.getLatestFiles(file("/a", 1), false));
+        assertEquals(Arrays.asList(file("/b", 2)), g.getLatestFiles(file("/b", 2), false));
+
+        // querying again and changing other paths does not compute anything anew
+        final int computations = g.getLatestFilesMemo().getComputationCount();
+        g.addChange("/b", rev(5), Collections.singleton(rev(4)));
+        assertEquals(Arrays.asList(file("/a", 3)), g.getLatestFiles(file("/a", 1), false));
+        assertEquals(computations, g.getLatestFilesMemo().getComputationCount());
+
+        g.addChange("/a", rev(7), Collections.singleton(rev(6)));
+        assertEquals(Arrays.asList(file("/a", 7)), g.getLatestFiles(file("/a", 1), false));
+        g.addCopy("/a", rev(7), "/c", rev(8));
+        assertEquals(Arrays.asList(file("/a", 7), file("/c", 8)), g.getLatestFiles(file("/a", 3), false));
+        g.addDeletion("/a", rev(9));
+        assertEquals(Arrays.asList(file("/c", 8)), g.getLatestFiles(file("/a", 1), false));
+        g.removeFile("/c", rev(8));
+        assertEquals(Arrays.asList(file("/a", 7)), g.getLatestFiles(file("/a", 1), false));
+        g.addCopy("/a", rev(7), "/d", rev(11));
+        assertEquals(Arrays.asList(file("/d", 11)), g.getLatestFiles(file("/a", 1), false));
+    }
+
+    @Test
+    public void testTracingManyStopsComputesEachNodeAtMostOnce() {
+        final FileHistoryGraph g = new FileHistoryGraph(DiffAlgorithmFactory.createDefault());
+        final int pathCount = 20;
+        final int revisionCount = 300;
+        final Random r = new Random(123);
+        for (int rev = 1; rev <= revisionCount; rev++) {
+            final String path = "/file" + r.nextInt(pathCount);
+            g.addChange(path, rev(rev), Collections.singleton(rev(rev - 1)));
+            if (r.nextInt(20) == 0) {
+                g.addCopy(path, rev(rev), "/copy" + rev, rev(rev + 1));
+            }
+        }
+        int nodeCount = 0;
+        for (final String path : g.getPaths()) {
+            nodeCount += g.lookupFile(file(path, 0)).size();
+        }
+
+        // the stops of a review refer to the revisions of the changes, often many stops to the same revision
+        for (int i = 0; i < 2000; i++) {
+            final String path = "/file" + r.nextInt(pathCount);
+            final long revision = 1 + r.nextInt(revisionCount);
+            if (g.getNodeFor(file(path, revision)) != null) {
+                g.getLatestFiles(file(path, revision), false);
+            }
+        }
+
+        assertEquals(true, g.getLatestFilesMemo().getComputationCount() <= nodeCount);
+    }
 }
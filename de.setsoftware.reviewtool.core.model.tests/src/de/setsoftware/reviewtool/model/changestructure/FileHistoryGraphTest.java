@@ -579,6 +579,61 @@ public final class FileHistoryGraphTest {
         assertEquals(Collections.singleton(createAlphaNode(repo, g, aDelNode)), aDelNode.getAncestors());
     }
 
+    @Test
+    public void testRemovalOfChangedFile() {
+        final IRepository repo = new TestRepository("123");
+        final FileHistoryGraph g = graph();
+
+        final IRevisionedFile aRevPrev =
+                ChangestructureFactory.createFileInRevision("/trunk/a", new TestRepoRevision(repo, 1L));
+        final IRevisionedFile aRev =
+                ChangestructureFactory.createFileInRevision("/trunk/a", new TestRepoRevision(repo, 2L));
+        final IRevisionedFile aRevAlpha =
+                ChangestructureFactory.createFileInRevision("/trunk/a",
+                        ChangestructureFactory.createUnknownRevision(repo));
+
+        g.addChange(aRev.getPath(), aRev.getRevision(), Collections.singleton(aRevPrev.getRevision()));
+        assertEquals(Collections.singleton(g.getNodeFor(aRevPrev)), g.getIncompleteFlowStarts());
+
+        g.removeFile(aRev.getPath(), aRev.getRevision());
+
+        assertNull(g.getNodeFor(aRev));
+        assertNull(g.getNodeFor(aRevPrev));
+        assertNull(g.getNodeFor(aRevAlpha));
+        assertEquals(Collections.emptySet(), g.getPaths());
+        assertEquals(Collections.emptySet(), g.getIncompleteFlowStarts());
+    }
+
+    @Test
+    public void testRemovalOfCopyTargetKeepsSharedSource() {
+        final IRepository repo = new TestRepository("123");
+        final FileHistoryGraph g = graph();
+
+        final IRevisionedFile aRev =
+                ChangestructureFactory.createFileInRevision("/trunk/a", new TestRepoRevision(repo, 1L));
+        final IRevisionedFile bRev =
+                ChangestructureFactory.createFileInRevision("/trunk/b", new TestRepoRevision(repo, 2L));
+        final IRevisionedFile cRev =
+                ChangestructureFactory.createFileInRevision("/trunk/c", new TestRepoRevision(repo, 2L));
+
+        g.addCopy(aRev.getPath(), aRev.getRevision(), bRev.getPath(), bRev.getRevision());
+        g.addCopy(aRev.getPath(), aRev.getRevision(), cRev.getPath(), cRev.getRevision());
+
+        g.removeFile(bRev.getPath(), bRev.getRevision());
+
+        assertNull(g.getNodeFor(bRev));
+        final ProxyableFileHistoryNode aNode = g.getNodeFor(aRev);
+        final ProxyableFileHistoryNode cNode = g.getNodeFor(cRev);
+        final FileHistoryEdge cEdge = new FileHistoryEdge(g, aNode, cNode, IFileHistoryEdge.Type.COPY);
+        assertEquals(Collections.singleton(cEdge), aNode.getDescendants());
+        assertEquals(Collections.singleton(cEdge), cNode.getAncestors());
+
+        g.removeFile(cRev.getPath(), cRev.getRevision());
+
+        assertNull(g.getNodeFor(aRev));
+        assertEquals(Collections.emptySet(), g.getPaths());
+    }
+
     @Test
     public void testGetPaths() {
         final IRepository repo = new TestRepository("123");
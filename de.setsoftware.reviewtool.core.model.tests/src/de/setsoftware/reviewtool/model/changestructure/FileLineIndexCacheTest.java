@@ -0,0 +1,75 @@
+package de.setsoftware.reviewtool.model.changestructure;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import de.setsoftware.reviewtool.base.ComparableWrapper;
+import de.setsoftware.reviewtool.base.LineSequence;
+import de.setsoftware.reviewtool.model.api.IRevisionedFile;
+
+/**
+ * Tests for {@link FileLineIndexCache}.
+ */
+public class FileLineIndexCacheTest {
+
+    private static IRevisionedFile file(final String path, final long revision) {
+        return ChangestructureFactory.createFileInRevision(
+                path, ChangestructureFactory.createRepoRevision(ComparableWrapper.wrap(revision), StubRepo.INSTANCE));
+    }
+
+    private static byte[] bytes(final String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testLinesAreBuiltOncePerContents() throws Exception {
+        final FileLineIndexCache cache = new FileLineIndexCache(1024);
+        final byte[] contents = bytes("a\nb\n");
+
+        final LineSequence lines = cache.getLines(file("/a", 1), contents);
+        assertThat(lines.getNumberOfLines(), is(equalTo(2)));
+        assertThat(cache.getLines(file("/a", 1), contents), is(sameInstance(lines)));
+        assertThat(cache.getLines(file("/a", 1), bytes("a\nb\n")), is(sameInstance(lines)));
+        assertThat(cache.getBuildCount(), is(equalTo(1L)));
+
+        final LineSequence changed = cache.getLines(file("/a", 1), bytes("a\nb\nc\n"));
+        assertThat(changed.getNumberOfLines(), is(equalTo(3)));
+        assertThat(cache.getBuildCount(), is(equalTo(2L)));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntriesAreEvicted() throws Exception {
+        final FileLineIndexCache cache = new FileLineIndexCache(10);
+        final byte[] a = bytes("aaaa\n");
+        final byte[] b = bytes("bbbb\n");
+        final byte[] c = bytes("cccc\n");
+
+        cache.getLines(file("/a", 1), a);
+        cache.getLines(file("/b", 1), b);
+        cache.getLines(file("/a", 1), a);
+        cache.getLines(file("/c", 1), c);
+        assertThat(cache.getBuildCount(), is(equalTo(3L)));
+
+        cache.getLines(file("/a", 1), a);
+        assertThat(cache.getBuildCount(), is(equalTo(3L)));
+        cache.getLines(file("/b", 1), b);
+        assertThat(cache.getBuildCount(), is(equalTo(4L)));
+    }
+
+    @Test
+    public void testTooLargeContentsAreNotCached() throws Exception {
+        final FileLineIndexCache cache = new FileLineIndexCache(4);
+        final byte[] contents = bytes("aaaa\n");
+
+        cache.getLines(file("/a", 1), contents);
+        cache.getLines(file("/a", 1), contents);
+        assertThat(cache.getBuildCount(), is(equalTo(2L)));
+    }
+
+}
@@ -4,9 +4,14 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.Random;
+
 import org.junit.Test;
 
 import de.setsoftware.reviewtool.model.api.IFragment;
+import de.setsoftware.reviewtool.model.api.IPositionInText;
 
 /**
  * Tests for {@link Fragment}.
@@ -394,4 +399,66 @@ public class FragmentTest {
         final IFragment f1 = new Fragment(fileWithContent(content), pos(2, 3), pos(3, 5));
         assertEquals("cdefgh\nABCD", f1.getContent());
     }
+
+    /**
+     * Extracts the full lines of a fragment by reading the whole content, as it was done before the lines of files
+     * were cached.
+     */
+    private static String extractFullLinesByReading(String content, IPositionInText from, IPositionInText to)
+            throws Exception {
+        final BufferedReader r = new BufferedReader(new StringReader(content));
+        final StringBuilder ret = new StringBuilder();
+        int lineNumber = 1;
+        String lineContent;
+        while ((lineContent = r.readLine()) != null) {
+            if (lineNumber >= from.getLine()
+                    && (lineNumber < to.getLine() || (lineNumber == to.getLine() && to.getColumn() > 1))) {
+                ret.append(lineContent).append('\n');
+            }
+            lineNumber++;
+        }
+        return ret.toString();
+    }
+
+    @Test
+    public void testContentFullLinesAreTheSameAsWhenReadingTheWholeContent() throws Exception {
+        final Random r = new Random(99);
+        for (int round = 0; round < 50; round++) {
+            final StringBuilder content = new StringBuilder();
+            final int lineCount = r.nextInt(30);
+            for (int i = 0; i < lineCount; i++) {
+                for (int j = r.nextInt(10); j > 0; j--) {
+                    content.append((char) ('a' + r.nextInt(26)));
+                }
+                content.append(r.nextBoolean() ? "\n" : "\r\n");
+            }
+            if (r.nextBoolean()) {
+                content.append("no line end");
+            }
+            final FileInRevision file = fileWithContent(content.toString());
+            for (int i = 0; i < 20; i++) {
+                final int fromLine = r.nextInt(lineCount + 3);
+                final PositionInText from = pos(fromLine, 1);
+                final PositionInText to = pos(fromLine + r.nextInt(lineCount + 3), 1 + r.nextInt(3));
+                assertEquals(extractFullLinesByReading(content.toString(), from, to),
+                        new Fragment(file, from, to).getContentFullLines());
+            }
+        }
+    }
+
+    @Test
+    public void testLinesOfAFileAreSharedByItsFragments() {
+        final StringBuilder content = new StringBuilder();
+        for (int i = 1; i <= 1000; i++) {
+            content.append("line ").append(i).append('\n');
+        }
+        final FileInRevision file = fileWithContent(content.toString());
+
+        final long buildsBefore = FileLineIndexCache.getInstance().getBuildCount();
+        for (int i = 1; i <= 300; i++) {
+            assertEquals("line " + i + "\nline " + (i + 1) + "\n",
+                    new Fragment(file, pos(i, 1), pos(i + 2, 1)).getContentFullLines());
+        }
+        assertEquals(1, FileLineIndexCache.getInstance().getBuildCount() - buildsBefore);
+    }
 }
@@ -0,0 +1,136 @@
+package de.setsoftware.reviewtool.model.changestructure;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import de.setsoftware.reviewtool.model.api.IPositionInText;
+
+/**
+ * Measures the construction and lookup costs of {@link PositionLookupTable} on generated multi-megabyte files,
+ * compared to the former implementation that read single characters into a list of boxed offsets.
+ * Not a unit test, run it manually.
+ */
+public class PositionLookupTableBenchmark {
+
+    private static final int REPETITIONS = 10;
+    private static final int LOOKUPS = 1000000;
+
+    /**
+     * The former implementation, as a baseline.
+     */
+    private static final class BoxedTable {
+        private final List<Integer> charCountAtEndOfLine = new ArrayList<>();
+
+        BoxedTable(StringReader reader) throws IOException {
+            int ch;
+            int charCount = 0;
+            this.charCountAtEndOfLine.add(0);
+            while ((ch = reader.read()) >= 0) {
+                charCount++;
+                if (ch == '\n') {
+                    this.charCountAtEndOfLine.add(charCount);
+                }
+            }
+            this.charCountAtEndOfLine.add(charCount);
+        }
+
+        int getCharsSinceFileStart(IPositionInText pos) {
+            if (pos.getLine() <= 0) {
+                return 0;
+            }
+            if (pos.getLine() >= this.charCountAtEndOfLine.size()) {
+                return this.charCountAtEndOfLine.get(this.charCountAtEndOfLine.size() - 1);
+            }
+            return this.charCountAtEndOfLine.get(pos.getLine() - 1) + pos.getColumn() - 1;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        final Random random = new Random(42);
+        for (final int megabytes : new int[] {1, 4, 16}) {
+            final String contents = generateFile(random, megabytes * 1024 * 1024);
+            final byte[] bytes = contents.getBytes(StandardCharsets.UTF_8);
+            final List<IPositionInText> positions = new ArrayList<>();
+            final int lineCount = PositionLookupTable.create(new StringReader(contents)).getLineCount();
+            for (int i = 0; i < LOOKUPS; i++) {
+                positions.add(new PositionInText(1 + random.nextInt(lineCount), 1 + random.nextInt(10)));
+            }
+            final int[] offsets = new int[LOOKUPS];
+            for (int i = 0; i < LOOKUPS; i++) {
+                offsets[i] = random.nextInt(contents.length());
+            }
+            System.out.println(String.format("%d MiB, %d lines", megabytes, lineCount));
+
+            measure("  create boxed list", () -> new BoxedTable(new StringReader(contents)).hashCode());
+            measure("  create int array", () -> PositionLookupTable.create(new StringReader(contents)).hashCode());
+            measure("  create cached (hit)", () -> PositionLookupTable.create(bytes, "UTF-8").hashCode());
+
+            final BoxedTable boxed = new BoxedTable(new StringReader(contents));
+            final PositionLookupTable table = PositionLookupTable.create(bytes, "UTF-8");
+            measure("  " + LOOKUPS + " lookups boxed list", () -> {
+                int sum = 0;
+                for (final IPositionInText pos : positions) {
+                    sum += boxed.getCharsSinceFileStart(pos);
+                }
+                return sum;
+            });
+            measure("  " + LOOKUPS + " lookups int array", () -> {
+                int sum = 0;
+                for (final IPositionInText pos : positions) {
+                    sum += table.getCharsSinceFileStart(pos);
+                }
+                return sum;
+            });
+            measure("  " + LOOKUPS + " reverse lookups", () -> {
+                int sum = 0;
+                for (final int offset : offsets) {
+                    sum += table.getPositionAt(offset).getLine();
+                }
+                return sum;
+            });
+        }
+    }
+
+    /**
+     * A measured operation. Returns some value derived from its result, so that it is not optimized away.
+     */
+    private interface Operation {
+        public abstract int run() throws IOException;
+    }
+
+    private static void measure(String name, Operation operation) throws IOException {
+        int blackhole = 0;
+        // warm-up
+        for (int i = 0; i < REPETITIONS; i++) {
+            blackhole += operation.run();
+        }
+        final long start = System.nanoTime();
+        for (int i = 0; i < REPETITIONS; i++) {
+            blackhole += operation.run();
+        }
+        final long duration = (System.nanoTime() - start) / REPETITIONS;
+        System.out.println(String.format("%-36s %10.3f ms   (%d)", name, duration / 1000000.0, blackhole & 1));
+    }
+
+    /**
+     * Generates a file with lines of varying length, similar to source code.
+     */
+    private static String generateFile(Random random, int size) {
+        final StringBuilder ret = new StringBuilder(size + 200);
+        while (ret.length() < size) {
+            for (int i = random.nextInt(8); i > 0; i--) {
+                ret.append("    ");
+            }
+            for (int i = random.nextInt(80); i > 0; i--) {
+                ret.append((char) ('a' + random.nextInt(26)));
+            }
+            ret.append('\n');
+        }
+        return ret.toString();
+    }
+
+}
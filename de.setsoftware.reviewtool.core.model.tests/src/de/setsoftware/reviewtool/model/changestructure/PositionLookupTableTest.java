@@ -1,8 +1,12 @@
 package de.setsoftware.reviewtool.model.changestructure;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 
 import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
 
 import org.junit.Test;
 
@@ -47,4 +51,59 @@ public class PositionLookupTableTest {
         assertEquals(45, t.getCharsSinceFileStart(pos(6, 6)));
     }
 
+    @Test
+    public void testPositionAt() throws Exception {
+        final PositionLookupTable t = PositionLookupTable.create(new StringReader(
+                "zeile 1\r\n"
+                        + "zeile 2\r\n"
+                        + "\n"
+                        + "letzte zeile\n"));
+
+        assertEquals(5, t.getLineCount());
+        assertEquals(pos(1, 1), t.getPositionAt(0));
+        assertEquals(pos(1, 9), t.getPositionAt(8));
+        assertEquals(pos(2, 1), t.getPositionAt(9));
+        assertEquals(pos(3, 1), t.getPositionAt(18));
+        assertEquals(pos(4, 1), t.getPositionAt(19));
+        assertEquals(pos(5, 1), t.getPositionAt(32));
+        assertEquals(pos(1, 1), t.getPositionAt(-3));
+        assertEquals(pos(5, 1), t.getPositionAt(40));
+    }
+
+    @Test
+    public void testLargeContentsAreReadCompletely() throws Exception {
+        final Random r = new Random(17);
+        final StringBuilder contents = new StringBuilder();
+        for (int line = 1; line <= 50000; line++) {
+            for (int i = r.nextInt(12); i > 0; i--) {
+                contents.append((char) ('a' + r.nextInt(26)));
+            }
+            contents.append('\n');
+        }
+        final PositionLookupTable t = PositionLookupTable.create(new StringReader(contents.toString()));
+
+        assertEquals(50001, t.getLineCount());
+        int start = 0;
+        for (int line = 1; line <= 50000; line++) {
+            assertEquals(start, t.getCharsSinceFileStart(pos(line, 1)));
+            assertEquals(pos(line, 1), t.getPositionAt(start));
+            start = contents.indexOf("\n", start) + 1;
+        }
+        assertEquals(contents.length(), t.getCharsSinceFileStart(pos(50001, 1)));
+    }
+
+    @Test
+    public void testTablesAreSharedForEqualContents() throws Exception {
+        final byte[] contents = "erste zeile\nzweite zeile \u00e4\u00f6\u00fc\nletzte zeile"
+                .getBytes(StandardCharsets.UTF_8);
+        final PositionLookupTable t = PositionLookupTable.create(contents, "UTF-8");
+
+        assertSame(t, PositionLookupTable.create(contents.clone(), "UTF-8"));
+        assertEquals(29, t.getCharsSinceFileStart(pos(3, 1)));
+
+        final PositionLookupTable latin1 = PositionLookupTable.create(contents, "ISO-8859-1");
+        assertNotSame(t, latin1);
+        assertEquals(32, latin1.getCharsSinceFileStart(pos(3, 1)));
+    }
+
 }
@@ -0,0 +1,134 @@
+package de.setsoftware.reviewtool.model.changestructure;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import de.setsoftware.reviewtool.base.PartialOrderAlgorithms;
+import de.setsoftware.reviewtool.diffalgorithms.DiffAlgorithmFactory;
+import de.setsoftware.reviewtool.model.api.IFileHistoryNode;
+import de.setsoftware.reviewtool.model.api.IRepository;
+import de.setsoftware.reviewtool.model.api.IRevision;
+import de.setsoftware.reviewtool.model.api.IRevisionedFile;
+
+/**
+ * Tests for {@link RevisionIndex}.
+ */
+public class RevisionIndexTest {
+
+    private static final String PATH = "/trunk/a";
+
+    private static final IRepository REPO_A = new TestRepository("a");
+    private static final IRepository REPO_B = new TestRepository("b");
+
+    /**
+     * The linear search for ancestors that was used before the index existed.
+     */
+    private static Set<ProxyableFileHistoryNode> findAncestorsLinearly(
+            final List<ProxyableFileHistoryNode> nodes, final IRevisionedFile file) {
+        final Map<IRevisionedFile, ProxyableFileHistoryNode> ancestorNodes = nodes.stream().filter(
+                (final ProxyableFileHistoryNode node) ->
+                    node.getFile().le(file) && !file.le(node.getFile()))
+                .collect(Collectors.toMap(ProxyableFileHistoryNode::getFile, Function.identity()));
+
+        final List<IRevisionedFile> maximalRevisions =
+                PartialOrderAlgorithms.getAllMaximalElements(PartialOrderAlgorithms.topoSort(ancestorNodes.keySet()));
+
+        return maximalRevisions.stream()
+                .map((final IRevisionedFile ancestorFile) -> ancestorNodes.get(ancestorFile))
+                .filter((final ProxyableFileHistoryNode node) -> !node.getType().equals(IFileHistoryNode.Type.DELETED))
+                .collect(Collectors.toSet());
+    }
+
+    private static IRevision randomRevision(final Random r) {
+        switch (r.nextInt(10)) {
+        case 0:
+            return ChangestructureFactory.createUnknownRevision(REPO_A);
+        case 1:
+            return ChangestructureFactory.createLocalRevision(StubWorkingCopy.INSTANCE);
+        case 2:
+            return ChangestructureFactory.createRepoRevision(
+                    new PartiallyOrderedID(Integer.toString(r.nextInt(1000))), PartiallyOrderedRepo.INSTANCE);
+        case 3:
+        case 4:
+            return new TestRepoRevision(REPO_B, (long) r.nextInt(50));
+        default:
+            return new TestRepoRevision(REPO_A, (long) r.nextInt(50));
+        }
+    }
+
+    private static IRevisionedFile randomFile(final Random r) {
+        return ChangestructureFactory.createFileInRevision(PATH, randomRevision(r));
+    }
+
+    @Test
+    public void testLookupIsEquivalentToLinearSearch() {
+        final Random r = new Random(42);
+        final FileHistoryGraph graph = new FileHistoryGraph(DiffAlgorithmFactory.createDefault());
+        for (int round = 0; round < 300; round++) {
+            final RevisionIndex index = new RevisionIndex();
+            final List<ProxyableFileHistoryNode> nodes = new ArrayList<>();
+            final int nodeCount = r.nextInt(40);
+            for (int i = 0; i < nodeCount; i++) {
+                final IRevisionedFile file = randomFile(r);
+                if (index.get(file.getRevision()) != null) {
+                    continue;
+                }
+                final FileHistoryNode node = new FileHistoryNode(graph, file, IFileHistoryNode.Type.CHANGED);
+                if (r.nextInt(5) == 0) {
+                    node.makeDeleted();
+                }
+                index.add(node);
+                nodes.add(node);
+            }
+            for (int i = 0; i < nodes.size() / 4; i++) {
+                final ProxyableFileHistoryNode removed = nodes.remove(r.nextInt(nodes.size()));
+                index.remove(removed);
+                assertThat(index.get(removed.getFile().getRevision()), is(equalTo(null)));
+            }
+
+            for (final ProxyableFileHistoryNode node : nodes) {
+                assertThat(index.get(node.getFile().getRevision()), is(sameInstance(node)));
+            }
+            for (int i = 0; i < 30; i++) {
+                final IRevisionedFile file = randomFile(r);
+                assertThat(file.toString(),
+                        index.findAncestorsFor(file), is(equalTo(findAncestorsLinearly(nodes, file))));
+            }
+        }
+    }
+
+    @Test
+    public void testGraphFindsNearestPredecessorAmongManyRevisions() {
+        final FileHistoryGraph graph = new FileHistoryGraph(DiffAlgorithmFactory.createDefault());
+        for (long i = 1; i <= 5000; i += 2) {
+            graph.addChange(PATH, new TestRepoRevision(REPO_A, i),
+                    Collections.singleton(new TestRepoRevision(REPO_A, i - 1)));
+        }
+
+        final IRevisionedFile file = ChangestructureFactory.createFileInRevision(
+                PATH, new TestRepoRevision(REPO_A, 2000L));
+        final Set<ProxyableFileHistoryNode> ancestors = graph.findAncestorsFor(file);
+        assertThat(ancestors.size(), is(equalTo(1)));
+        assertThat(ancestors.iterator().next().getFile().getRevision(),
+                is(equalTo((IRevision) new TestRepoRevision(REPO_A, 1999L))));
+
+        final IRevisionedFile local = ChangestructureFactory.createFileInRevision(
+                PATH, ChangestructureFactory.createLocalRevision(StubWorkingCopy.INSTANCE));
+        assertThat(graph.findAncestorsFor(local).iterator().next().getFile().getRevision(),
+                is(equalTo((IRevision) new TestRepoRevision(REPO_A, 4999L))));
+    }
+
+}
@@ -0,0 +1,199 @@
+package de.setsoftware.reviewtool.model.changestructure;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+import de.setsoftware.reviewtool.base.ComparableWrapper;
+import de.setsoftware.reviewtool.model.api.FileChangeType;
+import de.setsoftware.reviewtool.model.api.IFileHistoryGraph;
+import de.setsoftware.reviewtool.model.api.IFragment;
+import de.setsoftware.reviewtool.model.api.IFragmentTracer;
+import de.setsoftware.reviewtool.model.api.IRevisionedFile;
+import de.setsoftware.reviewtool.model.api.IWorkingCopy;
+
+/**
+ * Tests for {@link ToursInReview}.
+ */
+public class ToursInReviewTest {
+
+    private static final IWorkingCopy WC = new TestWorkingCopy(new TestRepository("repo"), new File("/"));
+
+    /**
+     * Simulates local changes by moving lines and renaming files. Counts the traced fragments.
+     */
+    private static final class StubTracer implements IFragmentTracer {
+        private final Map<String, Integer> lineShifts = new HashMap<>();
+        private final Map<String, String> renames = new HashMap<>();
+        private int tracedFragments;
+
+        @Override
+        public List<? extends IFragment> traceFragment(
+                final IFileHistoryGraph fileHistoryGraph,
+                final IFragment fragment,
+                final boolean ignoreNonLocalCopies) {
+            this.tracedFragments++;
+            final int shift = this.lineShifts.getOrDefault(fragment.getFile().getPath(), 0);
+            return Collections.singletonList(new Fragment(
+                    this.traceFile(fragment.getFile()),
+                    pos(fragment.getFrom().getLine() + shift, 1),
+                    pos(fragment.getTo().getLine() + shift, 1)));
+        }
+
+        @Override
+        public List<IRevisionedFile> traceFile(
+                final IFileHistoryGraph fileHistoryGraph,
+                final IRevisionedFile file,
+                final boolean ignoreNonLocalCopies) {
+            return Collections.singletonList(this.traceFile(file));
+        }
+
+        private IRevisionedFile traceFile(final IRevisionedFile file) {
+            return file(this.renames.getOrDefault(file.getPath(), file.getPath()), 3);
+        }
+    }
+
+    /**
+     * Records the marker operations.
+     */
+    private static final class RecordingMarkerFactory implements IStopMarkerFactory {
+        private final List<File> clearedFiles = new ArrayList<>();
+        private final List<IFragment> createdMarkers = new ArrayList<>();
+
+        @Override
+        public IStopMarker createStopMarker(final IRevisionedFile file, final boolean tourActive, final String message) {
+            throw new AssertionError("only stops with fragments are used");
+        }
+
+        @Override
+        public IStopMarker createStopMarker(
+                final IRevisionedFile file, final boolean tourActive, final String message, final IFragment pos) {
+            this.createdMarkers.add(pos);
+            return null;
+        }
+
+        @Override
+        public void clearStopMarkers() {
+            throw new AssertionError("only the markers of single files shall be cleared");
+        }
+
+        @Override
+        public void clearStopMarkers(final File absolutePath) {
+            this.clearedFiles.add(absolutePath);
+        }
+    }
+
+    private static PositionInText pos(final int line, final int column) {
+        return new PositionInText(line, column);
+    }
+
+    private static FileInRevision file(final String name, final int revision) {
+        return new FileInRevision(name, new RepoRevision<>(ComparableWrapper.wrap(revision), StubRepo.INSTANCE));
+    }
+
+    private static File local(final String path) {
+        return new File(path).getAbsoluteFile();
+    }
+
+    private static Stop stop(final String path, final int line) {
+        final IFragment from = new Fragment(file(path, 1), pos(line, 1), pos(line + 1, 1));
+        final IFragment to = new Fragment(file(path, 2), pos(line, 1), pos(line + 1, 1));
+        final Fragment current = new Fragment(file(path, 2), pos(line, 1), pos(line + 1, 1));
+        return new Stop(new TextualChangeHunk(WC, FileChangeType.OTHER, from, to, Classification.NONE), current);
+    }
+
+    private static ToursInReview createTours() {
+        return ToursInReview.create(Arrays.asList(
+                new Tour("tour 1", Arrays.asList(stop("/a.java", 1), stop("/b.java", 5))),
+                new Tour("tour 2", Arrays.asList(stop("/a.java", 10)))));
+    }
+
+    private static Set<File> files(final String... paths) {
+        final Set<File> ret = new LinkedHashSet<>();
+        for (final String path : paths) {
+            ret.add(local(path));
+        }
+        return ret;
+    }
+
+    @Test
+    public void testOnlyStopsInChangedFilesAreRetraced() {
+        final ToursInReview tours = createTours();
+        final StubTracer tracer = new StubTracer();
+
+        tours.updateMostRecentFragmentsWithLocalChanges(null, tracer);
+        assertThat(tracer.tracedFragments, is(equalTo(3)));
+
+        tracer.tracedFragments = 0;
+        assertThat(tours.updateMostRecentFragmentsWithLocalChanges(Arrays.asList(new File("/c.java")), tracer),
+                is(equalTo(files())));
+        assertThat(tracer.tracedFragments, is(equalTo(0)));
+
+        assertThat(tours.updateMostRecentFragmentsWithLocalChanges(Arrays.asList(new File("/b.java")), tracer),
+                is(equalTo(files())));
+        assertThat(tracer.tracedFragments, is(equalTo(1)));
+
+        tracer.tracedFragments = 0;
+        tracer.lineShifts.put("/a.java", 2);
+        assertThat(tours.updateMostRecentFragmentsWithLocalChanges(Arrays.asList(new File("/a.java")), tracer),
+                is(equalTo(files("/a.java"))));
+        assertThat(tracer.tracedFragments, is(equalTo(2)));
+        assertThat(tours.getStopsFor(local("/a.java")).get(0).getMostRecentFragment().getFrom(),
+                is(equalTo(pos(3, 1))));
+        assertThat(tours.getStopsFor(local("/b.java")).get(0).getMostRecentFragment().getFrom(),
+                is(equalTo(pos(5, 1))));
+    }
+
+    @Test
+    public void testMovedStopsAreIndexedByTheirNewFile() {
+        final ToursInReview tours = createTours();
+        final StubTracer tracer = new StubTracer();
+        tours.updateMostRecentFragmentsWithLocalChanges(null, tracer);
+
+        tracer.tracedFragments = 0;
+        tracer.renames.put("/a.java", "/c.java");
+        assertThat(tours.updateMostRecentFragmentsWithLocalChanges(
+                        Arrays.asList(new File("/a.java"), new File("/c.java")), tracer),
+                is(equalTo(files("/a.java", "/c.java"))));
+        assertThat(tracer.tracedFragments, is(equalTo(2)));
+        assertThat(tours.getStopsFor(local("/c.java")).size(), is(equalTo(2)));
+
+        tracer.tracedFragments = 0;
+        tours.updateMostRecentFragmentsWithLocalChanges(Arrays.asList(new File("/a.java")), tracer);
+        assertThat(tracer.tracedFragments, is(equalTo(0)));
+        tours.updateMostRecentFragmentsWithLocalChanges(Arrays.asList(new File("/c.java")), tracer);
+        assertThat(tracer.tracedFragments, is(equalTo(2)));
+    }
+
+    @Test
+    public void testMarkersAreOnlyRefreshedForTheGivenFiles() {
+        final ToursInReview tours = createTours();
+        final StubTracer tracer = new StubTracer();
+        tours.updateMostRecentFragmentsWithLocalChanges(null, tracer);
+
+        tracer.renames.put("/a.java", "/c.java");
+        final Set<File> filesToRefresh = tours.updateMostRecentFragmentsWithLocalChanges(
+                Arrays.asList(new File("/a.java"), new File("/c.java")), tracer);
+        final RecordingMarkerFactory markerFactory = new RecordingMarkerFactory();
+        tours.refreshMarkers(markerFactory, filesToRefresh);
+
+        assertThat(markerFactory.clearedFiles, is(equalTo(Arrays.asList(local("/a.java"), local("/c.java")))));
+        assertThat(markerFactory.createdMarkers.size(), is(equalTo(2)));
+        for (final IFragment marker : markerFactory.createdMarkers) {
+            assertThat(marker.getFile().getPath(), is(equalTo("/c.java")));
+        }
+    }
+
+}
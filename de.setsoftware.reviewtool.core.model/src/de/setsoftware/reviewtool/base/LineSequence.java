@@ -5,9 +5,8 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Manages a sequence of lines and remembers the absolute character start and end positions of each line. Line and
@@ -15,16 +14,22 @@ import java.util.Map;
  */
 public class LineSequence {
 
+    private static final int INITIAL_CAPACITY = 16;
+
     private final List<String> lines;
-    private final Map<Integer, Integer> lineOffsets;
+
+    /**
+     * The start position of each line, followed by the end position of the last line. Only the first
+     * {@code lines.size() + 1} entries are used, the array grows when lines are added.
+     */
+    private int[] lineOffsets;
 
     /**
      * Default constructor. Creates an empty LineSequence.
      */
     public LineSequence() {
         this.lines = new ArrayList<>();
-        this.lineOffsets = new HashMap<>();
-        this.lineOffsets.put(0, 0);
+        this.lineOffsets = new int[INITIAL_CAPACITY];
     }
 
     /**
@@ -48,7 +53,11 @@ public class LineSequence {
      */
     public void addLine(final String line) {
         this.lines.add(line);
-        this.lineOffsets.put(this.lines.size(), this.lineOffsets.get(this.lines.size() - 1) + line.length());
+        final int size = this.lines.size();
+        if (size == this.lineOffsets.length) {
+            this.lineOffsets = Arrays.copyOf(this.lineOffsets, 2 * size);
+        }
+        this.lineOffsets[size] = this.lineOffsets[size - 1] + line.length();
     }
 
     /**
@@ -97,6 +106,9 @@ public class LineSequence {
      * @return The absolute character index pointing at the start of the line.
      */
     public int getStartPositionOfLine(final int lineIndex) {
-        return this.lineOffsets.get(lineIndex);
+        if (lineIndex < 0 || lineIndex > this.lines.size()) {
+            throw new IndexOutOfBoundsException("line " + lineIndex + " of " + this.lines.size());
+        }
+        return this.lineOffsets[lineIndex];
     }
 }
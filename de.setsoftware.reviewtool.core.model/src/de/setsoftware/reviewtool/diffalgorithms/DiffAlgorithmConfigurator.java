@@ -0,0 +1,47 @@
+package de.setsoftware.reviewtool.diffalgorithms;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Locale;
+
+import org.w3c.dom.Element;
+
+import de.setsoftware.reviewtool.base.ReviewtoolException;
+import de.setsoftware.reviewtool.config.IConfigurator;
+import de.setsoftware.reviewtool.config.IReviewConfigurable;
+
+/**
+ * Configures the diff algorithm used by the change sources, e.g. {@code <diffAlgorithm type="histogram"/>}.
+ * Possible types are "myers" (the default), "histogram" and "simple". Optionally, the attribute
+ * "linearSpaceThreshold" sets the total number of lines above which the linear space variant of Myers' algorithm
+ * is used (see {@link DiffAlgorithmFactory#setLinearSpaceThreshold(int)}).
+ */
+public class DiffAlgorithmConfigurator implements IConfigurator {
+
+    @Override
+    public Collection<String> getRelevantElementNames() {
+        return Collections.singleton("diffAlgorithm");
+    }
+
+    @Override
+    public void configure(final Element xml, final IReviewConfigurable configurable) {
+        final String type = xml.getAttribute("type");
+        if (!type.isEmpty()) {
+            try {
+                DiffAlgorithmFactory.setDefaultType(
+                        DiffAlgorithmFactory.Type.valueOf(type.toUpperCase(Locale.ROOT)));
+            } catch (final IllegalArgumentException e) {
+                throw new ReviewtoolException("unknown diff algorithm type: " + type, e);
+            }
+        }
+        final String threshold = xml.getAttribute("linearSpaceThreshold");
+        if (!threshold.isEmpty()) {
+            try {
+                DiffAlgorithmFactory.setLinearSpaceThreshold(Integer.parseInt(threshold));
+            } catch (final NumberFormatException e) {
+                throw new ReviewtoolException("invalid linearSpaceThreshold: " + threshold, e);
+            }
+        }
+    }
+
+}
@@ -8,11 +8,86 @@ import de.setsoftware.reviewtool.model.api.IDiffAlgorithm;
  */
 public class DiffAlgorithmFactory {
 
+    /**
+     * The available types of diff algorithms.
+     */
+    public static enum Type {
+        /**
+         * Myers diff with post-processing for source files.
+         */
+        MYERS,
+        /**
+         * Histogram diff with post-processing for source files.
+         */
+        HISTOGRAM,
+        /**
+         * Diff based on logical chunks and the longest common subsequence.
+         */
+        SIMPLE
+    }
+
+    private static final Type DEFAULT_TYPE = Type.MYERS;
+
+    /**
+     * Default for the total number of lines above which the linear space variant of Myers' algorithm is used.
+     */
+    public static final int DEFAULT_LINEAR_SPACE_THRESHOLD = 50000;
+
+    private static volatile Type defaultType = DEFAULT_TYPE;
+    private static volatile int linearSpaceThreshold = DEFAULT_LINEAR_SPACE_THRESHOLD;
+
     /**
      * Creates the default diff algorithm.
      */
     public static IDiffAlgorithm createDefault() {
-        return new MyersSourceDiffAlgorithm();
+        return create(defaultType);
+    }
+
+    /**
+     * Creates a diff algorithm of the given type.
+     */
+    public static IDiffAlgorithm create(final Type type) {
+        switch (type) {
+        case HISTOGRAM:
+            return new HistogramSourceDiffAlgorithm();
+        case SIMPLE:
+            return new SimpleSourceDiffAlgorithm();
+        case MYERS:
+        default:
+            return new MyersSourceDiffAlgorithm();
+        }
+    }
+
+    /**
+     * Sets the type of diff algorithm that is returned by {@link #createDefault()}.
+     */
+    public static void setDefaultType(final Type type) {
+        defaultType = type;
+    }
+
+    /**
+     * Sets the total number of lines of old and new file above which the Myers based algorithms switch to
+     * the linear space variant of Myers' algorithm. It is slower, but the memory needed by the standard variant
+     * grows quadratically with the number of differences, which can exhaust the heap for very large files.
+     */
+    public static void setLinearSpaceThreshold(final int lineCount) {
+        linearSpaceThreshold = lineCount;
+    }
+
+    /**
+     * Returns the total number of lines above which the linear space variant of Myers' algorithm is used.
+     */
+    public static int getLinearSpaceThreshold() {
+        return linearSpaceThreshold;
+    }
+
+    /**
+     * Resets the type of diff algorithm that is returned by {@link #createDefault()} and the threshold for
+     * the linear space variant to the built-in defaults.
+     */
+    public static void resetConfiguration() {
+        defaultType = DEFAULT_TYPE;
+        linearSpaceThreshold = DEFAULT_LINEAR_SPACE_THRESHOLD;
     }
 
 }
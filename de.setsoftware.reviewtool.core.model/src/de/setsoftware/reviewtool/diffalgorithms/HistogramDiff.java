@@ -0,0 +1,163 @@
+package de.setsoftware.reviewtool.diffalgorithms;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An implementation of the histogram diff algorithm (as known from JGit and git), an extension of patience diff.
+ *
+ * <p>In each region, the longest common run of lines that contains the rarest lines of the original sequence
+ * is used as an anchor, and the regions before and after it are handled in the same way. As lines that occur
+ * very often (like braces or blank lines) are not used as anchors, the resulting diffs tend to follow the
+ * structure of source files better than those of {@link MyersDiff}, and runtime does not degrade for files with
+ * many repeated lines. Regions in which all common lines occur too often are handled by Myers' algorithm.
+ *
+ * <p>The result is a path in the same form as created by {@link MyersDiff}, so that it can be post-processed
+ * in the same way.
+ */
+class HistogramDiff {
+
+    /**
+     * Lines that occur more often than this in a region are not used as anchors.
+     */
+    private static final int MAX_CHAIN_LENGTH = 64;
+
+    private int[] a;
+    private int[] b;
+    private int[] occurrences;
+    private int[] firstPosition;
+    private int[] nextPosition;
+    private OneFileView<String> orig;
+    private OneFileView<String> rev;
+
+    /**
+     * Computes a diffpath that expresses the differences between the original and revised sequences.
+     */
+    public PathNode buildPath(OneFileView<String> orig, OneFileView<String> rev) {
+        final Map<String, Integer> ids = new HashMap<>();
+        this.orig = orig;
+        this.rev = rev;
+        this.a = InternedMyersDiff.intern(orig, ids);
+        this.b = InternedMyersDiff.intern(rev, ids);
+        this.occurrences = new int[ids.size()];
+        this.firstPosition = new int[ids.size()];
+        Arrays.fill(this.firstPosition, -1);
+        this.nextPosition = new int[this.a.length];
+
+        final List<int[]> edits = new ArrayList<>();
+        final Deque<int[]> regions = new ArrayDeque<>();
+        regions.push(new int[] {0, this.a.length, 0, this.b.length});
+        while (!regions.isEmpty()) {
+            final int[] region = regions.pop();
+            this.diffRegion(region[0], region[1], region[2], region[3], edits, regions);
+        }
+        return PathNode.fromEdits(edits, this.a.length, this.b.length);
+    }
+
+    /**
+     * Handles the given region. Resulting edits are added to the given list, regions that still
+     * have to be handled are pushed to the given stack.
+     */
+    private void diffRegion(int startOld, int endOld, int startNew, int endNew,
+            List<int[]> edits, Deque<int[]> regions) {
+
+        int as = startOld;
+        int bs = startNew;
+        while (as < endOld && bs < endNew && this.a[as] == this.b[bs]) {
+            as++;
+            bs++;
+        }
+        int ae = endOld;
+        int be = endNew;
+        while (ae > as && be > bs && this.a[ae - 1] == this.b[be - 1]) {
+            ae--;
+            be--;
+        }
+        if (as == ae || bs == be) {
+            if (as < ae || bs < be) {
+                edits.add(new int[] {as, ae, bs, be});
+            }
+            return;
+        }
+
+        for (int i = ae - 1; i >= as; i--) {
+            final int id = this.a[i];
+            this.occurrences[id]++;
+            this.nextPosition[i] = this.firstPosition[id];
+            this.firstPosition[id] = i;
+        }
+
+        boolean hasCommonLine = false;
+        int bestCount = MAX_CHAIN_LENGTH + 1;
+        int bestLength = 0;
+        int bestStartOld = 0;
+        int bestStartNew = 0;
+        int bi = bs;
+        while (bi < be) {
+            final int id = this.b[bi];
+            final int count = this.occurrences[id];
+            int nextBi = bi + 1;
+            if (count > 0) {
+                hasCommonLine = true;
+            }
+            if (count > 0 && count <= bestCount) {
+                for (int ai = this.firstPosition[id]; ai >= 0; ai = this.nextPosition[ai]) {
+                    int sa = ai;
+                    int sb = bi;
+                    int regionCount = count;
+                    while (sa > as && sb > bs && this.a[sa - 1] == this.b[sb - 1]) {
+                        sa--;
+                        sb--;
+                        regionCount = Math.min(regionCount, this.occurrences[this.a[sa]]);
+                    }
+                    int ea = ai + 1;
+                    int eb = bi + 1;
+                    while (ea < ae && eb < be && this.a[ea] == this.b[eb]) {
+                        regionCount = Math.min(regionCount, this.occurrences[this.a[ea]]);
+                        ea++;
+                        eb++;
+                    }
+                    if (regionCount < bestCount || (regionCount == bestCount && ea - sa > bestLength)) {
+                        bestCount = regionCount;
+                        bestLength = ea - sa;
+                        bestStartOld = sa;
+                        bestStartNew = sb;
+                    }
+                    nextBi = Math.max(nextBi, eb);
+                }
+            }
+            bi = nextBi;
+        }
+
+        for (int i = as; i < ae; i++) {
+            this.occurrences[this.a[i]] = 0;
+            this.firstPosition[this.a[i]] = -1;
+        }
+
+        if (bestLength > 0) {
+            regions.push(new int[] {bestStartOld + bestLength, ae, bestStartNew + bestLength, be});
+            regions.push(new int[] {as, bestStartOld, bs, bestStartNew});
+        } else if (hasCommonLine) {
+            this.diffRegionWithMyers(as, ae, bs, be, edits);
+        } else {
+            edits.add(new int[] {as, ae, bs, be});
+        }
+    }
+
+    private void diffRegionWithMyers(int as, int ae, int bs, int be, List<int[]> edits) {
+        PathNode cur = MyersSourceDiffAlgorithm.buildMyersPath(this.orig.subrange(as, ae), this.rev.subrange(bs, be));
+        while (cur != null) {
+            if (!cur.isSnake() && (cur.getLengthOld() > 0 || cur.getLengthNew() > 0)) {
+                edits.add(new int[] {
+                    as + cur.getStartPosOld(), as + cur.getPosOld(), bs + cur.getStartPosNew(), bs + cur.getPosNew()});
+            }
+            cur = cur.getPrev();
+        }
+    }
+
+}
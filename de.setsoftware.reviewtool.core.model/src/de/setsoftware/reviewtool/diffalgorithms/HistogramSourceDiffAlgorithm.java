@@ -0,0 +1,22 @@
+package de.setsoftware.reviewtool.diffalgorithms;
+
+/**
+ * Performs a line-based histogram diff (see {@link HistogramDiff}) and postprocesses the result
+ * in the same way as {@link MyersSourceDiffAlgorithm}.
+ */
+class HistogramSourceDiffAlgorithm extends MyersSourceDiffAlgorithm {
+
+    private static final long serialVersionUID = 3861349024183760117L;
+
+    private static final String ID = "histogramSource-1";
+
+    @Override
+    PathNode buildPath(FullFileView<String> fileOld, FullFileView<String> fileNew) {
+        return new HistogramDiff().buildPath(fileOld, fileNew);
+    }
+
+    @Override
+    public String getId() {
+        return ID + linearSpaceSuffix();
+    }
+}
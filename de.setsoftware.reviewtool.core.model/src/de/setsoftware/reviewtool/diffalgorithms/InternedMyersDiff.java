@@ -0,0 +1,224 @@
+package de.setsoftware.reviewtool.diffalgorithms;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A variant of {@link MyersDiff} that computes exactly the same path, but is considerably cheaper for large inputs.
+ *
+ * <p>The lines are interned to int ids first, so that the inner loop only compares ints instead of strings.
+ * The common prefix and suffix are determined on the ids and the search only covers the remaining range.
+ * During the search, the furthest reaching path on each diagonal is kept in primitive arrays, and only the snakes
+ * are recorded (also in a primitive array). {@link PathNode}s are only created for the final path.
+ */
+public class InternedMyersDiff {
+
+    /**
+     * Marker for a missing predecessor.
+     */
+    private static final int NONE = -1;
+
+    /**
+     * Marker for the diff node at (0, 0) that starts every path that does not start with a snake.
+     */
+    private static final int ORIGIN = -2;
+
+    /**
+     * Number of ints stored per snake: end position old, end position new, start position old,
+     * start position new, index of the previous snake (or {@link #NONE} or {@link #ORIGIN}).
+     */
+    private static final int SNAKE_SIZE = 5;
+
+    private int[] snakes = new int[SNAKE_SIZE * 64];
+    private int snakeCount;
+
+    /**
+     * Computes the minimum diffpath that expresses the differences between the original and revised sequences.
+     * The result is the same as that of {@link MyersDiff#buildPath}.
+     *
+     * @param orig The original sequence.
+     * @param rev The revised sequence.
+     * @return A minimum {@link PathNode Path} across the differences graph.
+     */
+    public PathNode buildPath(final OneFileView<String> orig, final OneFileView<String> rev) {
+        final Map<String, Integer> ids = new HashMap<>();
+        final int[] a = intern(orig, ids);
+        final int[] b = intern(rev, ids);
+        this.snakeCount = 0;
+
+        final int commonSuffixLength = determineCommonSuffixLength(a, b);
+        final int n = a.length - commonSuffixLength;
+        final int m = b.length - commonSuffixLength;
+        final int commonPrefixLength = determineCommonPrefixLength(a, b, n, m);
+
+        final int max = n + m - 2 * commonPrefixLength + 1;
+        final int size = 1 + 2 * max;
+        final int middle = size / 2;
+        // for each diagonal: the position in the original sequence reached so far, whether the path ends with
+        //  a snake, and either the index of that snake or the predecessor of the diff node the path ends with
+        final int[] posOld = new int[size];
+        final boolean[] endsWithSnake = new boolean[size];
+        final int[] ref = new int[size];
+
+        // the greedy search always starts with a snake along the common prefix (if there is one)
+        posOld[middle] = commonPrefixLength;
+        if (commonPrefixLength > 0) {
+            endsWithSnake[middle] = true;
+            ref[middle] = this.addSnake(commonPrefixLength, commonPrefixLength, 0, 0, NONE);
+        } else {
+            ref[middle] = NONE;
+        }
+        if (commonPrefixLength >= n && commonPrefixLength >= m) {
+            return this.addCommonSuffixSnake(this.toPath(posOld, endsWithSnake, ref, middle, 0), commonSuffixLength);
+        }
+
+        for (int d = 1; d < max; d++) {
+            for (int k = -d; k <= d; k += 2) {
+                final int kmiddle = middle + k;
+                final int kplus = kmiddle + 1;
+                final int kminus = kmiddle - 1;
+
+                final int prev;
+                int i;
+                if ((k == -d) || (k != d && posOld[kminus] < posOld[kplus])) {
+                    i = posOld[kplus];
+                    prev = previousSnake(endsWithSnake, ref, kplus);
+                } else {
+                    i = posOld[kminus] + 1;
+                    prev = previousSnake(endsWithSnake, ref, kminus);
+                }
+
+                int j = i - k;
+                final int startOld = i;
+                while (i < n && j < m && a[i] == b[j]) {
+                    i++;
+                    j++;
+                }
+
+                posOld[kmiddle] = i;
+                if (i > startOld) {
+                    endsWithSnake[kmiddle] = true;
+                    ref[kmiddle] = this.addSnake(i, j, startOld, startOld - k, prev);
+                } else {
+                    endsWithSnake[kmiddle] = false;
+                    ref[kmiddle] = prev;
+                }
+
+                if (i >= n && j >= m) {
+                    return this.addCommonSuffixSnake(
+                            this.toPath(posOld, endsWithSnake, ref, kmiddle, k), commonSuffixLength);
+                }
+            }
+        }
+        // According to Myers, this cannot happen
+        throw new Error("could not find a diff path");
+    }
+
+    /**
+     * Maps the lines of the given file to int ids. Equal lines get equal ids, and ids are assigned consecutively.
+     */
+    static int[] intern(final OneFileView<String> file, final Map<String, Integer> ids) {
+        final int[] ret = new int[file.getItemCount()];
+        for (int i = 0; i < ret.length; i++) {
+            final String item = file.getItem(i);
+            Integer id = ids.get(item);
+            if (id == null) {
+                id = ids.size();
+                ids.put(item, id);
+            }
+            ret[i] = id;
+        }
+        return ret;
+    }
+
+    private static int determineCommonSuffixLength(final int[] a, final int[] b) {
+        final int max = Math.min(a.length, b.length);
+        int suffixLength = 0;
+        while (suffixLength < max && a[a.length - 1 - suffixLength] == b[b.length - 1 - suffixLength]) {
+            suffixLength++;
+        }
+        return suffixLength;
+    }
+
+    private static int determineCommonPrefixLength(final int[] a, final int[] b, final int n, final int m) {
+        final int max = Math.min(n, m);
+        int prefixLength = 0;
+        while (prefixLength < max && a[prefixLength] == b[prefixLength]) {
+            prefixLength++;
+        }
+        return prefixLength;
+    }
+
+    /**
+     * Returns the reference that a new diff node following the path on the given diagonal gets as its
+     * predecessor (see {@link PathNode#previousSnake()}).
+     */
+    private static int previousSnake(final boolean[] endsWithSnake, final int[] ref, final int index) {
+        if (endsWithSnake[index]) {
+            return ref[index];
+        }
+        return ref[index] == NONE ? ORIGIN : ref[index];
+    }
+
+    private int addSnake(final int endOld, final int endNew, final int startOld, final int startNew, final int prev) {
+        if (this.snakes.length < (this.snakeCount + 1) * SNAKE_SIZE) {
+            final int[] newSnakes = new int[this.snakes.length * 2];
+            System.arraycopy(this.snakes, 0, newSnakes, 0, this.snakes.length);
+            this.snakes = newSnakes;
+        }
+        final int offset = this.snakeCount * SNAKE_SIZE;
+        this.snakes[offset] = endOld;
+        this.snakes[offset + 1] = endNew;
+        this.snakes[offset + 2] = startOld;
+        this.snakes[offset + 3] = startNew;
+        this.snakes[offset + 4] = prev;
+        return this.snakeCount++;
+    }
+
+    /**
+     * Creates the {@link PathNode}s for the path ending on the given diagonal.
+     */
+    private PathNode toPath(
+            final int[] posOld, final boolean[] endsWithSnake, final int[] ref, final int index, final int k) {
+        if (endsWithSnake[index]) {
+            return this.toPath(ref[index]);
+        }
+        return new DiffNode(posOld[index], posOld[index] - k, this.toPath(ref[index]));
+    }
+
+    /**
+     * Creates the {@link PathNode}s for the path ending with the given snake (or marker).
+     * The path is built starting from its beginning, to avoid deep recursion.
+     */
+    private PathNode toPath(final int last) {
+        final List<Integer> chain = new ArrayList<>();
+        int cur = last;
+        while (cur >= 0) {
+            chain.add(cur);
+            cur = this.snakes[cur * SNAKE_SIZE + 4];
+        }
+
+        PathNode node = cur == ORIGIN ? new DiffNode(0, 0, null) : null;
+        for (int i = chain.size() - 1; i >= 0; i--) {
+            final int offset = chain.get(i) * SNAKE_SIZE;
+            final PathNode diff = new DiffNode(this.snakes[offset + 2], this.snakes[offset + 3], node);
+            node = new Snake(this.snakes[offset], this.snakes[offset + 1], diff);
+        }
+        return node;
+    }
+
+    private PathNode addCommonSuffixSnake(final PathNode pathNode, final int commonSuffixLength) {
+        if (pathNode.isSnake()) {
+            pathNode.enlargeBy(commonSuffixLength);
+            return pathNode;
+        } else {
+            return new Snake(
+                    pathNode.getPosOld() + commonSuffixLength,
+                    pathNode.getPosNew() + commonSuffixLength,
+                    pathNode);
+        }
+    }
+
+}
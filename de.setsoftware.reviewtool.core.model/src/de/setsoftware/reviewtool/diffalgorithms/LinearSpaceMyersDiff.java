@@ -0,0 +1,174 @@
+package de.setsoftware.reviewtool.diffalgorithms;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The linear space variant of Myers' algorithm: Each region is split at the middle snake of its optimal path,
+ * which is found by searching from both ends at the same time, and the parts before and after it are handled
+ * in the same way.
+ *
+ * <p>In contrast to {@link MyersDiff} and {@link InternedMyersDiff}, which keep information about every step of
+ * the search and therefore need memory quadratic in the number of differences, the memory needed is linear in the
+ * size of the input. The resulting path is minimal as well, but can differ from the one found by {@link MyersDiff}
+ * if there are several minimal paths. It is used for very large inputs (see
+ * {@link DiffAlgorithmFactory#setLinearSpaceThreshold(int)}).
+ */
+class LinearSpaceMyersDiff {
+
+    private int[] a;
+    private int[] b;
+    private int[] forward;
+    private int[] backward;
+
+    /**
+     * Computes a minimum diffpath that expresses the differences between the original and revised sequences.
+     */
+    public PathNode buildPath(OneFileView<String> orig, OneFileView<String> rev) {
+        final Map<String, Integer> ids = new HashMap<>();
+        this.a = InternedMyersDiff.intern(orig, ids);
+        this.b = InternedMyersDiff.intern(rev, ids);
+        final int maxD = (this.a.length + this.b.length + 1) / 2;
+        this.forward = new int[2 * maxD + 2];
+        this.backward = new int[2 * maxD + 2];
+
+        final List<int[]> edits = new ArrayList<>();
+        final Deque<int[]> regions = new ArrayDeque<>();
+        regions.push(new int[] {0, this.a.length, 0, this.b.length});
+        while (!regions.isEmpty()) {
+            final int[] region = regions.pop();
+            this.diffRegion(region[0], region[1], region[2], region[3], edits, regions);
+        }
+        return PathNode.fromEdits(edits, this.a.length, this.b.length);
+    }
+
+    /**
+     * Handles the given region. Resulting edits are added to the given list, regions that still
+     * have to be handled are pushed to the given stack.
+     */
+    private void diffRegion(int startOld, int endOld, int startNew, int endNew,
+            List<int[]> edits, Deque<int[]> regions) {
+
+        int as = startOld;
+        int bs = startNew;
+        while (as < endOld && bs < endNew && this.a[as] == this.b[bs]) {
+            as++;
+            bs++;
+        }
+        int ae = endOld;
+        int be = endNew;
+        while (ae > as && be > bs && this.a[ae - 1] == this.b[be - 1]) {
+            ae--;
+            be--;
+        }
+        if (as == ae || bs == be) {
+            if (as < ae || bs < be) {
+                edits.add(new int[] {as, ae, bs, be});
+            }
+            return;
+        }
+
+        final long split = this.findMiddleSnake(as, ae, bs, be);
+        final int splitOld = (int) (split >>> 32);
+        final int splitNew = (int) split;
+        if (split < 0 || (splitOld == as && splitNew == bs) || (splitOld == ae && splitNew == be)) {
+            // should not happen, but would lead to an endless loop
+            edits.add(new int[] {as, ae, bs, be});
+            return;
+        }
+        regions.push(new int[] {splitOld, ae, splitNew, be});
+        regions.push(new int[] {as, splitOld, bs, splitNew});
+    }
+
+    /**
+     * Searches forward from the start and backward from the end of the region until the two searches overlap.
+     * Returns the point where they overlap, encoded as (position old &lt;&lt; 32 | position new),
+     * or -1 if they do not.
+     */
+    private long findMiddleSnake(int as, int ae, int bs, int be) {
+        final int n = ae - as;
+        final int m = be - bs;
+        final int maxD = (n + m + 1) / 2;
+        final int offset = maxD;
+        final int length = 2 * maxD;
+        Arrays.fill(this.forward, 0, length + 2, -1);
+        Arrays.fill(this.backward, 0, length + 2, -1);
+        this.forward[offset + 1] = 0;
+        this.backward[offset + 1] = 0;
+        final int delta = n - m;
+        // if the total number of items is odd, the front path will collide with the reverse path
+        final boolean front = (delta % 2 != 0);
+        // offsets for the start and end of the k loops, to avoid checking diagonals outside the region
+        int k1start = 0;
+        int k1end = 0;
+        int k2start = 0;
+        int k2end = 0;
+        for (int d = 0; d < maxD; d++) {
+            for (int k1 = -d + k1start; k1 <= d - k1end; k1 += 2) {
+                final int k1Offset = offset + k1;
+                int x1;
+                if (k1 == -d || (k1 != d && this.forward[k1Offset - 1] < this.forward[k1Offset + 1])) {
+                    x1 = this.forward[k1Offset + 1];
+                } else {
+                    x1 = this.forward[k1Offset - 1] + 1;
+                }
+                int y1 = x1 - k1;
+                while (x1 < n && y1 < m && this.a[as + x1] == this.b[bs + y1]) {
+                    x1++;
+                    y1++;
+                }
+                this.forward[k1Offset] = x1;
+                if (x1 > n) {
+                    k1end += 2;
+                } else if (y1 > m) {
+                    k1start += 2;
+                } else if (front) {
+                    final int k2Offset = offset + delta - k1;
+                    if (k2Offset >= 0 && k2Offset < length && this.backward[k2Offset] != -1) {
+                        final int x2 = n - this.backward[k2Offset];
+                        if (x1 >= x2) {
+                            return ((long) (as + x1) << 32) | (bs + y1);
+                        }
+                    }
+                }
+            }
+
+            for (int k2 = -d + k2start; k2 <= d - k2end; k2 += 2) {
+                final int k2Offset = offset + k2;
+                int x2;
+                if (k2 == -d || (k2 != d && this.backward[k2Offset - 1] < this.backward[k2Offset + 1])) {
+                    x2 = this.backward[k2Offset + 1];
+                } else {
+                    x2 = this.backward[k2Offset - 1] + 1;
+                }
+                int y2 = x2 - k2;
+                while (x2 < n && y2 < m && this.a[ae - 1 - x2] == this.b[be - 1 - y2]) {
+                    x2++;
+                    y2++;
+                }
+                this.backward[k2Offset] = x2;
+                if (x2 > n) {
+                    k2end += 2;
+                } else if (y2 > m) {
+                    k2start += 2;
+                } else if (!front) {
+                    final int k1Offset = offset + delta - k2;
+                    if (k1Offset >= 0 && k1Offset < length && this.forward[k1Offset] != -1) {
+                        final int x1 = this.forward[k1Offset];
+                        final int y1 = offset + x1 - k1Offset;
+                        if (x1 >= n - x2) {
+                            return ((long) (as + x1) << 32) | (bs + y1);
+                        }
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+}
@@ -22,13 +22,15 @@ class MyersSourceDiffAlgorithm implements IDiffAlgorithm {
 
     private static final long serialVersionUID = -2135531518214950624L;
 
+    private static final String ID = "myersSource-1";
+
     @Override
     public List<Pair<IFragment, IFragment>> determineDiff(IRevisionedFile fileOldInfo, byte[] fileOldContent,
             IRevisionedFile fileNewInfo, byte[] fileNewContent, String charset) {
 
         final FullFileView<String> fileOld = this.toLines(fileOldContent, charset);
         final FullFileView<String> fileNew = this.toLines(fileNewContent, charset);
-        final PathNode path = new MyersDiff().buildPath(fileOld, fileNew);
+        final PathNode path = this.buildPath(fileOld, fileNew);
 
         this.postprocessPath(path, fileOld, fileNew);
 
@@ -38,6 +40,36 @@ class MyersSourceDiffAlgorithm implements IDiffAlgorithm {
         return fragments;
     }
 
+    /**
+     * Determines the raw diff path. The path is post-processed afterwards to get better results for source files.
+     */
+    PathNode buildPath(FullFileView<String> fileOld, FullFileView<String> fileNew) {
+        return buildMyersPath(fileOld, fileNew);
+    }
+
+    /**
+     * Determines a path with Myers' algorithm. For very large inputs, the linear space variant is used.
+     */
+    static PathNode buildMyersPath(OneFileView<String> fileOld, OneFileView<String> fileNew) {
+        if (fileOld.getItemCount() + fileNew.getItemCount() > DiffAlgorithmFactory.getLinearSpaceThreshold()) {
+            return new LinearSpaceMyersDiff().buildPath(fileOld, fileNew);
+        }
+        return new InternedMyersDiff().buildPath(fileOld, fileNew);
+    }
+
+    @Override
+    public String getId() {
+        return ID + linearSpaceSuffix();
+    }
+
+    /**
+     * Returns the part of the identifier that depends on the linear space threshold. The linear space variant can
+     * find a different (equally minimal) path, so results computed with different thresholds may differ.
+     */
+    static String linearSpaceSuffix() {
+        return "-ls" + DiffAlgorithmFactory.getLinearSpaceThreshold();
+    }
+
     private void postprocessPath(PathNode pathEnd, FullFileView<String> fileOld, FullFileView<String> fileNew) {
         //the algorithm generally has a bias to start diffs too far downwards, so we try to move diffs
         //  upwards to make them look better to the human eye
@@ -1,5 +1,8 @@
 package de.setsoftware.reviewtool.diffalgorithms;
 
+import java.util.Comparator;
+import java.util.List;
+
 /**
  * A node in a diffpath.
  */
@@ -136,4 +139,38 @@ public abstract class PathNode {
         this.posOld += length;
         this.posNew += length;
     }
-}
\ No newline at end of file
+
+    /**
+     * Creates a path from the given edits, in the same form as created by {@link MyersDiff}:
+     * Snakes and diff nodes alternate, and a diff node at (0, 0) starts the path.
+     * An edit is given as an array (start old, end old, start new, end new). The edits must not overlap,
+     * but do not have to be sorted.
+     */
+    static PathNode fromEdits(List<int[]> edits, int lengthOld, int lengthNew) {
+        edits.sort(Comparator.<int[]>comparingInt(e -> e[0]).thenComparingInt(e -> e[2]));
+        PathNode node = new DiffNode(0, 0, null);
+        int posOld = 0;
+        int posNew = 0;
+        for (int i = 0; i < edits.size(); i++) {
+            final int[] edit = edits.get(i);
+            int endOld = edit[1];
+            int endNew = edit[3];
+            // adjacent edits are joined, as in a path created by Myers
+            while (i + 1 < edits.size() && edits.get(i + 1)[0] == endOld && edits.get(i + 1)[2] == endNew) {
+                i++;
+                endOld = edits.get(i)[1];
+                endNew = edits.get(i)[3];
+            }
+            if (edit[0] > posOld) {
+                node = new Snake(edit[0], edit[2], node);
+            }
+            node = new DiffNode(endOld, endNew, node);
+            posOld = endOld;
+            posNew = endNew;
+        }
+        if (posOld < lengthOld || posNew < lengthNew || edits.isEmpty()) {
+            node = new Snake(lengthOld, lengthNew, node);
+        }
+        return node;
+    }
+}
@@ -23,6 +23,8 @@ class SimpleSourceDiffAlgorithm implements IDiffAlgorithm {
 
     private static final long serialVersionUID = -45643400400146359L;
 
+    private static final String ID = "simpleSource-1";
+
     /**
      * A part of the file that is logically related, e.g. a method.
      * The algorithm first tries to identify whole chunks and only looks at the
@@ -116,6 +118,11 @@ class SimpleSourceDiffAlgorithm implements IDiffAlgorithm {
         return this.toFragments(fileOldInfo, fileNewInfo, linesWithDifferences);
     }
 
+    @Override
+    public String getId() {
+        return ID;
+    }
+
     private FullFileView<LogicalChunk> chunk(FullFileView<String> lines) {
         final List<LogicalChunk> logicalChunks = new ArrayList<>();
         int curChunkStart = 0;
@@ -23,4 +23,10 @@ public interface IDiffAlgorithm extends Serializable {
             byte[] fileNewContent,
             String charset);
 
+    /**
+     * Returns an identifier for this algorithm. The identifier has to change whenever the algorithm is changed
+     * in a way that leads to different results, as stored results are looked up by it.
+     */
+    public abstract String getId();
+
 }
@@ -45,4 +45,19 @@ public interface IMutableFileHistoryGraph extends IFileHistoryGraph, Serializabl
             IRevision revisionFrom,
             String pathTo,
             IRevision revisionTo);
+
+    /**
+     * Removes the node for the path {@code path} in revision {@code revision} together with all edges touching it.
+     * Unconfirmed ancestor nodes that only existed to connect the removed node are removed as well.
+     * Former descendants of the removed node become roots. If no such node exists, nothing happens.
+     */
+    public abstract void removeFile(
+            String path,
+            IRevision revision);
+
+    /**
+     * Performs the mutations done by the given {@link Runnable} as a batch. Concurrent queries of the graph see
+     * either none or all of them.
+     */
+    public abstract void performBatch(Runnable mutations);
 }
@@ -132,6 +132,24 @@ public abstract class AbstractChangeSource implements IChangeSource {
         return changes;
     }
 
+    /**
+     * Schedules the computation of the diffs that {@link #determineChangesInFile} will need for the given node in
+     * the background, as part of the given batch. The diffs of nodes scheduled with smaller priority values are
+     * computed first.
+     */
+    protected final void scheduleDiffsInFile(
+            final FileDiffScheduler.Batch batch,
+            final IFileHistoryNode node,
+            final int priority) {
+        for (final IFileHistoryEdge ancestorEdge : node.getAncestors()) {
+            batch.schedule(
+                    ancestorEdge,
+                    priority,
+                    (final IFileHistoryEdge edge) -> this.isUseTextualDiff(edge.getAncestor().getFile())
+                        && this.isUseTextualDiff(edge.getDescendant().getFile()));
+        }
+    }
+
     private IBinaryChange createBinaryChange(
             final IWorkingCopy wc,
             final IFileHistoryNode node,
@@ -164,27 +182,7 @@ public abstract class AbstractChangeSource implements IChangeSource {
             //binary detection does not work well for PDFs, so force them to binary
             return false;
         }
-        final byte[] newFileContent = file.getContents();
-        return !contentLooksBinary(newFileContent) && newFileContent.length <= this.maxTextDiffThreshold;
-    }
-
-    private static boolean contentLooksBinary(final byte[] fileContent) {
-        if (fileContent.length == 0) {
-            return false;
-        }
-        final int max = Math.min(128, fileContent.length);
-        for (int i = 0; i < max; i++) {
-            if (isStrangeChar(fileContent[i])) {
-                //we only count ASCII control chars as "strange" (to be UTF-8 agnostic), so
-                //  a single strange char should suffice to declare a file non-text
-                return true;
-            }
-        }
-        return false;
-    }
-
-    private static boolean isStrangeChar(final byte b) {
-        return b != '\n' && b != '\r' && b != '\t' && b < 0x20 && b >= 0;
+        return ContentClassifier.getInstance().isTextWithMaxSize(file, this.maxTextDiffThreshold);
     }
 
 }
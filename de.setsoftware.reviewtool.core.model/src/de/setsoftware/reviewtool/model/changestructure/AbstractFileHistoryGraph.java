@@ -5,6 +5,9 @@ import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import de.setsoftware.reviewtool.base.PartialOrderAlgorithms;
 import de.setsoftware.reviewtool.model.api.IFileHistoryEdge;
@@ -19,17 +22,52 @@ import de.setsoftware.reviewtool.model.api.IUnknownRevision;
 
 /**
  * Contains behaviour common to all {@link IFileHistoryGraph} implementations.
+ *
+ * <p>Access to the graph is guarded by a read/write lock. Queries only need the read lock, so that several threads
+ * (e.g. tracing in the UI and diff computation in the background) can query the graph at the same time, while
+ * mutations need the write lock and are therefore never observed half done.
  */
 public abstract class AbstractFileHistoryGraph implements IFileHistoryGraph {
 
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Returns the lock to be held while querying the graph.
+     */
+    protected final Lock getReadLock() {
+        return this.lock.readLock();
+    }
+
+    /**
+     * Returns the lock to be held while changing the graph. The write lock may be acquired again by the
+     * thread holding it, and a thread holding the write lock may also acquire the read lock.
+     */
+    protected final Lock getWriteLock() {
+        return this.lock.writeLock();
+    }
+
+    /**
+     * Returns the memo for the results of {@link #getLatestFiles(IRevisionedFile, boolean)}, or {@code null} if
+     * the results are not memoized. Graphs whose nodes can change without the graph noticing must not memoize.
+     */
+    LatestFilesMemo getLatestFilesMemo() {
+        return null;
+    }
+
     @Override
-    public final synchronized List<IRevisionedFile> getLatestFiles(
+    public final List<IRevisionedFile> getLatestFiles(
             final IRevisionedFile file,
             final boolean ignoreNonLocalCopies) {
 
-        Set<IFileHistoryNode> nodes = this.getLatestFilesHelper(file, ignoreNonLocalCopies, false);
-        if (nodes.isEmpty()) {
-            nodes = this.getLatestFilesHelper(file, ignoreNonLocalCopies, true);
+        final Set<IFileHistoryNode> nodes;
+        this.getReadLock().lock();
+        try {
+            final Set<IFileHistoryNode> existingNodes = this.getLatestFilesHelper(file, ignoreNonLocalCopies, false);
+            nodes = existingNodes.isEmpty()
+                    ? this.getLatestFilesHelper(file, ignoreNonLocalCopies, true)
+                    : existingNodes;
+        } finally {
+            this.getReadLock().unlock();
         }
 
         if (nodes.isEmpty()) {
@@ -77,6 +115,28 @@ public abstract class AbstractFileHistoryGraph implements IFileHistoryGraph {
             final boolean ignoreNonLocalCopies,
             final boolean returnDeletions) {
 
+        final LatestFilesMemo memo = this.getLatestFilesMemo();
+        if (memo == null) {
+            return this.computeLatestFiles(node, ignoreNonLocalCopies, returnDeletions);
+        }
+        final Set<IFileHistoryNode> memoized = memo.get(node, ignoreNonLocalCopies, returnDeletions);
+        if (memoized != null) {
+            return memoized;
+        }
+        final Set<IFileHistoryNode> result = this.computeLatestFiles(node, ignoreNonLocalCopies, returnDeletions);
+        memo.put(node, ignoreNonLocalCopies, returnDeletions, result);
+        return result;
+    }
+
+    /**
+     * Computes the latest known successor nodes of the given node, using
+     * {@link #getLatestFilesHelper(IFileHistoryNode, boolean, boolean)} for its descendants.
+     */
+    private Set<IFileHistoryNode> computeLatestFiles(
+            final IFileHistoryNode node,
+            final boolean ignoreNonLocalCopies,
+            final boolean returnDeletions) {
+
         // deletion nodes are never returned
         if (!node.getType().equals(Type.DELETED)) {
             if (node.getDescendants().isEmpty()) {
@@ -2,8 +2,10 @@ package de.setsoftware.reviewtool.model.changestructure;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import de.setsoftware.reviewtool.base.ReviewtoolException;
@@ -23,16 +25,40 @@ public abstract class AbstractFileHistoryNode implements IFileHistoryNode {
         }
     };
 
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * The histories are computed by dynamic programming over the ancestors: the histories of each ancestor node
+     * are computed only once and shared by all its descendants, and equal histories reaching a node on different
+     * paths are only kept once. Therefore, diamonds in the graph (e.g. because of merges, or because a node was
+     * copied and changed in the same revision) do not result in exponential effort.
+     */
     @Override
     public final Set<? extends IFileDiff> buildHistories(final IFileHistoryNode from) {
-        if (from.equals(this)) {
-            return Collections.singleton(new FileDiff(from.getFile(), from.getFile()));
+        return buildHistories(this, from, new HashMap<>());
+    }
+
+    /**
+     * Returns the histories from the given origin node to the given node.
+     * @param historiesByNode The histories computed so far for the given origin node.
+     */
+    private static Set<IFileDiff> buildHistories(
+            final IFileHistoryNode node,
+            final IFileHistoryNode from,
+            final Map<IFileHistoryNode, Set<IFileDiff>> historiesByNode) {
+
+        final Set<IFileDiff> cached = historiesByNode.get(node);
+        if (cached != null) {
+            return cached;
         }
 
-        if (!this.isRoot()) {
-            final Set<IFileDiff> result = new LinkedHashSet<>();
-            for (final IFileHistoryEdge ancestorEdge : this.getAncestors()) {
-                for (final IFileDiff diff : ancestorEdge.getAncestor().buildHistories(from)) {
+        final Set<IFileDiff> result;
+        if (from.equals(node)) {
+            result = Collections.singleton(new FileDiff(from.getFile(), from.getFile()));
+        } else if (!node.isRoot()) {
+            result = new LinkedHashSet<>();
+            for (final IFileHistoryEdge ancestorEdge : node.getAncestors()) {
+                for (final IFileDiff diff : buildHistories(ancestorEdge.getAncestor(), from, historiesByNode)) {
                     try {
                         result.add(diff.merge(ancestorEdge.getDiff()));
                     } catch (final Exception e) {
@@ -40,10 +66,11 @@ public abstract class AbstractFileHistoryNode implements IFileHistoryNode {
                     }
                 }
             }
-            return result;
         } else {
-            return Collections.emptySet(); // ancestor revision not found
+            result = Collections.emptySet(); // ancestor revision not found
         }
+        historiesByNode.put(node, result);
+        return result;
     }
 
     /**
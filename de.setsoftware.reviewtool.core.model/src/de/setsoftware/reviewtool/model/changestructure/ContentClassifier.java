@@ -0,0 +1,283 @@
+package de.setsoftware.reviewtool.model.changestructure;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import de.setsoftware.reviewtool.model.api.ILocalRevision;
+import de.setsoftware.reviewtool.model.api.IRepoRevision;
+import de.setsoftware.reviewtool.model.api.IRevisionVisitorE;
+import de.setsoftware.reviewtool.model.api.IRevisionedFile;
+import de.setsoftware.reviewtool.model.api.IUnknownRevision;
+
+/**
+ * Determines whether file contents are binary or text and which encoding text contents have.
+ *
+ * <p>Binary detection only looks at a short prefix of the contents, and the size threshold for textual diffs is
+ * checked before anything is read, so that large files in the working copy are not read completely. The encoding
+ * is determined by validating UTF-8 in a single pass without decoding, stopping at the first invalid byte.
+ * Complete classifications are cached by {@link ContentHash}, so that contents shared by several revisions or
+ * edges in the history graph are only classified once.
+ */
+public final class ContentClassifier {
+
+    /**
+     * The classification of some contents.
+     */
+    public static final class ContentType {
+        private final int size;
+        private final boolean binary;
+        private final boolean validUtf8;
+
+        ContentType(final int size, final boolean binary, final boolean validUtf8) {
+            this.size = size;
+            this.binary = binary;
+            this.validUtf8 = validUtf8;
+        }
+
+        /**
+         * Returns the size of the contents in bytes.
+         */
+        public int getSize() {
+            return this.size;
+        }
+
+        /**
+         * Returns true iff the contents look like binary data.
+         */
+        public boolean isBinary() {
+            return this.binary;
+        }
+
+        /**
+         * Returns true iff the contents are syntactically valid UTF-8.
+         */
+        public boolean isValidUtf8() {
+            return this.validUtf8;
+        }
+
+        @Override
+        public String toString() {
+            return this.size + " bytes, " + (this.binary ? "binary" : "text") + (this.validUtf8 ? ", UTF-8" : "");
+        }
+    }
+
+    /**
+     * The number of bytes at the start of the contents that are examined to detect binary contents.
+     */
+    public static final int BINARY_PREFIX_LENGTH = 128;
+
+    private static final int DEFAULT_MAX_ENTRIES = 10000;
+
+    private static final ContentClassifier INSTANCE = new ContentClassifier(DEFAULT_MAX_ENTRIES);
+
+    private final Map<ContentHash, ContentType> cache;
+
+    /**
+     * Constructor.
+     * @param maxEntries The maximal number of cached classifications.
+     */
+    ContentClassifier(final int maxEntries) {
+        this.cache = new LinkedHashMap<ContentHash, ContentType>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<ContentHash, ContentType> eldest) {
+                return this.size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the classifier shared by all change sources and file history graphs.
+     */
+    public static ContentClassifier getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Classifies the given contents. The contents are hashed, use {@link #classify(ContentHash, byte[])} when the
+     * hash is already known.
+     */
+    public ContentType classify(final byte[] contents) {
+        return this.classify(ContentHash.of(contents), contents);
+    }
+
+    /**
+     * Classifies the given contents with the given hash. If contents with the same hash have been classified
+     * before, the cached result is returned.
+     */
+    public ContentType classify(final ContentHash hash, final byte[] contents) {
+        synchronized (this.cache) {
+            final ContentType cached = this.cache.get(hash);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        final ContentType type = new ContentType(
+                contents.length,
+                looksBinary(contents, contents.length),
+                isValidUtf8(contents));
+        synchronized (this.cache) {
+            this.cache.put(hash, type);
+        }
+        return type;
+    }
+
+    /**
+     * Returns true iff the given file is not too large and does not look binary, so that a textual diff
+     * makes sense for it. For files in the working copy, the size is taken from the file system and only
+     * the start of the file is read. For files in the repository, the contents are taken from the
+     * {@link FileContentCache}.
+     */
+    public boolean isTextWithMaxSize(final IRevisionedFile file, final long maxSize) throws Exception {
+        return file.getRevision().accept(new IRevisionVisitorE<Boolean, Exception>() {
+
+            @Override
+            public Boolean handleLocalRevision(final ILocalRevision revision) throws IOException {
+                final File localFile = file.toLocalPath(revision.getWorkingCopy());
+                if (!localFile.exists()) {
+                    return 0 <= maxSize;
+                }
+                if (localFile.length() > maxSize) {
+                    return false;
+                }
+                try (InputStream in = new FileInputStream(localFile)) {
+                    return !looksBinary(in);
+                }
+            }
+
+            @Override
+            public Boolean handleRepoRevision(final IRepoRevision<?> revision) throws Exception {
+                return this.isText(file.getContents());
+            }
+
+            @Override
+            public Boolean handleUnknownRevision(final IUnknownRevision revision) throws Exception {
+                return this.isText(file.getContents());
+            }
+
+            private boolean isText(final byte[] contents) {
+                return contents.length <= maxSize && !looksBinary(contents, contents.length);
+            }
+
+        });
+    }
+
+    /**
+     * Returns the encoding to use for a diff between the given contents: UTF-8 if both are valid UTF-8,
+     * ISO-8859-1 otherwise.
+     */
+    public static String guessEncoding(final ContentType oldContents, final ContentType newContents) {
+        if (oldContents.isValidUtf8() && newContents.isValidUtf8()) {
+            return "UTF-8";
+        } else {
+            return "ISO-8859-1";
+        }
+    }
+
+    /**
+     * Returns true iff the first {@link #BINARY_PREFIX_LENGTH} bytes of the given contents with the given length
+     * look binary.
+     */
+    static boolean looksBinary(final byte[] contents, final int length) {
+        final int max = Math.min(BINARY_PREFIX_LENGTH, length);
+        for (int i = 0; i < max; i++) {
+            if (isStrangeChar(contents[i])) {
+                //we only count ASCII control chars as "strange" (to be UTF-8 agnostic), so
+                //  a single strange char should suffice to declare a file non-text
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns true iff the start of the given stream looks binary. At most {@link #BINARY_PREFIX_LENGTH}
+     * bytes are read.
+     */
+    static boolean looksBinary(final InputStream in) throws IOException {
+        final byte[] prefix = new byte[BINARY_PREFIX_LENGTH];
+        int length = 0;
+        while (length < prefix.length) {
+            final int read = in.read(prefix, length, prefix.length - length);
+            if (read < 0) {
+                break;
+            }
+            length += read;
+        }
+        return looksBinary(prefix, length);
+    }
+
+    private static boolean isStrangeChar(final byte b) {
+        return b != '\n' && b != '\r' && b != '\t' && b < 0x20 && b >= 0;
+    }
+
+    /**
+     * Returns true iff the given bytes are syntactically valid UTF-8. Overlong encodings, surrogates and code points
+     * above U+10FFFF are invalid, just like for the strict decoder of the JDK.
+     */
+    static boolean isValidUtf8(final byte[] content) {
+        int i = 0;
+        final int length = content.length;
+        while (i < length) {
+            final int b0 = content[i];
+            if (b0 >= 0) {
+                i++;
+                continue;
+            }
+            final int lead = b0 & 0xFF;
+            if (lead < 0xC2) {
+                // continuation byte without lead byte or overlong two byte sequence
+                return false;
+            } else if (lead < 0xE0) {
+                if (i + 1 >= length || !isContinuation(content[i + 1])) {
+                    return false;
+                }
+                i += 2;
+            } else if (lead < 0xF0) {
+                if (i + 2 >= length || !isContinuation(content[i + 2])) {
+                    return false;
+                }
+                final int b1 = content[i + 1] & 0xFF;
+                final int min = lead == 0xE0 ? 0xA0 : 0x80;
+                final int max = lead == 0xED ? 0x9F : 0xBF;
+                if (b1 < min || b1 > max) {
+                    return false;
+                }
+                i += 3;
+            } else if (lead < 0xF5) {
+                if (i + 3 >= length || !isContinuation(content[i + 2]) || !isContinuation(content[i + 3])) {
+                    return false;
+                }
+                final int b1 = content[i + 1] & 0xFF;
+                final int min = lead == 0xF0 ? 0x90 : 0x80;
+                final int max = lead == 0xF4 ? 0x8F : 0xBF;
+                if (b1 < min || b1 > max) {
+                    return false;
+                }
+                i += 4;
+            } else {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isContinuation(final byte b) {
+        return (b & 0xC0) == 0x80;
+    }
+
+    /**
+     * Removes all cached classifications.
+     */
+    public void clear() {
+        synchronized (this.cache) {
+            this.cache.clear();
+        }
+    }
+
+}
@@ -0,0 +1,61 @@
+package de.setsoftware.reviewtool.model.changestructure;
+
+import java.io.Serializable;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import de.setsoftware.reviewtool.base.ReviewtoolException;
+
+/**
+ * The hash of the contents of a file. Equal contents have equal hashes, so the hash can be used to identify
+ * contents independently of the file and revision they belong to.
+ */
+public final class ContentHash implements Serializable {
+
+    private static final long serialVersionUID = -6195283476119934617L;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final byte[] digest;
+    private final int hashCode;
+
+    private ContentHash(final byte[] digest) {
+        this.digest = digest;
+        this.hashCode = Arrays.hashCode(digest);
+    }
+
+    /**
+     * Computes the hash of the given contents.
+     */
+    public static ContentHash of(final byte[] contents) {
+        try {
+            final MessageDigest md = MessageDigest.getInstance("SHA-1");
+            return new ContentHash(md.digest(contents));
+        } catch (final NoSuchAlgorithmException e) {
+            throw new ReviewtoolException(e);
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return this.hashCode;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (!(o instanceof ContentHash)) {
+            return false;
+        }
+        return Arrays.equals(this.digest, ((ContentHash) o).digest);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder(2 * this.digest.length);
+        for (final byte b : this.digest) {
+            sb.append(HEX_DIGITS[(b >> 4) & 0xF]).append(HEX_DIGITS[b & 0xF]);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,351 @@
+package de.setsoftware.reviewtool.model.changestructure;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import de.setsoftware.reviewtool.base.ReviewtoolException;
+import de.setsoftware.reviewtool.model.api.IRevisionedFile;
+
+/**
+ * A bounded cache for the contents of files in repository revisions, shared by everything that needs file contents
+ * (see {@link FileInRevision#getContents()}).
+ *
+ * <p>The cache is keyed by the revisioned file, i.e. by repository, revision and path. The contents themselves are
+ * stored by their {@link ContentHash}, so that revisions of a file that did not change and copies of a file share
+ * the same array. The total size of the stored contents is kept below a byte budget by evicting the least recently
+ * used contents. Concurrent requests for the same file are served by a single load.
+ *
+ * <p>Every caller of {@link #getContents} gets its own copy of the cached contents, so that modifying it cannot
+ * corrupt the cache. Code that only reads the contents can use {@link #getSharedContents} instead, which returns
+ * the cached array itself and thereby avoids the copy and allows recognizing the contents by identity.
+ */
+public final class FileContentCache {
+
+    /**
+     * Loads the contents of a file that are not in the cache.
+     */
+    @FunctionalInterface
+    public static interface ContentLoader {
+        public abstract byte[] load() throws Exception;
+    }
+
+    /**
+     * A snapshot of the statistics of the cache.
+     */
+    public static final class Statistics {
+        private final long requests;
+        private final long hits;
+        private final long loads;
+        private final long sharedContents;
+        private final long evictions;
+        private final long tooLarge;
+        private final int files;
+        private final int contents;
+        private final long bytes;
+        private final long byteBudget;
+
+        private Statistics(final FileContentCache cache) {
+            this.requests = cache.requests;
+            this.hits = cache.hits;
+            this.loads = cache.loads;
+            this.sharedContents = cache.sharedContents;
+            this.evictions = cache.evictions;
+            this.tooLarge = cache.tooLarge;
+            this.files = cache.contentPerFile.size();
+            this.contents = cache.contentPerHash.size();
+            this.bytes = cache.bytes;
+            this.byteBudget = cache.byteBudget;
+        }
+
+        /**
+         * Returns the number of requested files.
+         */
+        public long getRequests() {
+            return this.requests;
+        }
+
+        /**
+         * Returns the number of requests that were served from the cache, including requests that waited
+         * for a load of the same file that was already running.
+         */
+        public long getHits() {
+            return this.hits;
+        }
+
+        /**
+         * Returns the number of times contents had to be loaded.
+         */
+        public long getLoads() {
+            return this.loads;
+        }
+
+        /**
+         * Returns the number of loaded contents that were already in the cache for a different file or revision.
+         */
+        public long getSharedContents() {
+            return this.sharedContents;
+        }
+
+        /**
+         * Returns the number of contents that have been evicted to stay within the byte budget.
+         */
+        public long getEvictions() {
+            return this.evictions;
+        }
+
+        /**
+         * Returns the number of loaded contents that were not cached because they were too large.
+         */
+        public long getTooLarge() {
+            return this.tooLarge;
+        }
+
+        /**
+         * Returns the number of files currently in the cache.
+         */
+        public int getFiles() {
+            return this.files;
+        }
+
+        /**
+         * Returns the number of distinct contents currently in the cache.
+         */
+        public int getContents() {
+            return this.contents;
+        }
+
+        /**
+         * Returns the total size of the contents currently in the cache.
+         */
+        public long getBytes() {
+            return this.bytes;
+        }
+
+        /**
+         * Returns the maximal total size of the contents in the cache.
+         */
+        public long getByteBudget() {
+            return this.byteBudget;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "%d requests, %d hits, %d loads, %d shared, %d evicted, %d too large; "
+                        + "%d files with %d contents, %d of %d KiB",
+                    this.requests,
+                    this.hits,
+                    this.loads,
+                    this.sharedContents,
+                    this.evictions,
+                    this.tooLarge,
+                    this.files,
+                    this.contents,
+                    this.bytes / 1024,
+                    this.byteBudget / 1024);
+        }
+    }
+
+    /**
+     * Some contents together with the files that have them.
+     */
+    private static final class Content {
+        private final ContentHash hash;
+        private final byte[] data;
+        private final Set<IRevisionedFile> files;
+
+        Content(final ContentHash hash, final byte[] data) {
+            this.hash = hash;
+            this.data = data;
+            this.files = new HashSet<>();
+        }
+    }
+
+    public static final long DEFAULT_BYTE_BUDGET = 64L * 1024 * 1024;
+
+    /**
+     * Contents larger than this fraction of the byte budget are not cached, as they would evict too much.
+     */
+    private static final int MAX_CONTENT_FRACTION = 8;
+
+    private static final FileContentCache INSTANCE = new FileContentCache(DEFAULT_BYTE_BUDGET);
+
+    private final Map<IRevisionedFile, Content> contentPerFile;
+    private final LinkedHashMap<ContentHash, Content> contentPerHash;
+    private final Map<IRevisionedFile, CompletableFuture<byte[]>> runningLoads;
+    private long byteBudget;
+    private long bytes;
+
+    private long requests;
+    private long hits;
+    private long loads;
+    private long sharedContents;
+    private long evictions;
+    private long tooLarge;
+
+    /**
+     * Constructor.
+     * @param byteBudget The maximal total size of the cached contents.
+     */
+    FileContentCache(final long byteBudget) {
+        this.contentPerFile = new HashMap<>();
+        this.contentPerHash = new LinkedHashMap<>(16, 0.75f, true);
+        this.runningLoads = new HashMap<>();
+        this.byteBudget = byteBudget;
+    }
+
+    /**
+     * Returns the cache shared by all files.
+     */
+    public static FileContentCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns a copy of the contents of the given file. If they are not cached, they are loaded with the given
+     * loader. The loader is called without holding any lock of the cache.
+     */
+    public byte[] getContents(final IRevisionedFile file, final ContentLoader loader) throws Exception {
+        return copy(this.getSharedContents(file, loader));
+    }
+
+    /**
+     * Returns the contents of the given file like {@link #getContents}, but without copying them. The returned
+     * array is shared with the cache and all other callers and must not be changed.
+     */
+    byte[] getSharedContents(final IRevisionedFile file, final ContentLoader loader) throws Exception {
+        final CompletableFuture<byte[]> load;
+        final boolean ownLoad;
+        synchronized (this) {
+            this.requests++;
+            final Content content = this.contentPerFile.get(file);
+            if (content != null) {
+                this.hits++;
+                this.contentPerHash.get(content.hash); // mark as recently used
+                return content.data;
+            }
+            final CompletableFuture<byte[]> runningLoad = this.runningLoads.get(file);
+            ownLoad = runningLoad == null;
+            if (ownLoad) {
+                this.loads++;
+                load = new CompletableFuture<>();
+                this.runningLoads.put(file, load);
+            } else {
+                this.hits++;
+                load = runningLoad;
+            }
+        }
+
+        if (!ownLoad) {
+            return waitFor(load);
+        }
+        try {
+            final byte[] data = this.put(file, loader.load());
+            load.complete(data);
+            return data;
+        } catch (final Exception | Error e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            synchronized (this) {
+                this.runningLoads.remove(file);
+            }
+        }
+    }
+
+    private static byte[] copy(final byte[] data) {
+        return data == null ? null : data.clone();
+    }
+
+    private static byte[] waitFor(final CompletableFuture<byte[]> load) throws Exception {
+        try {
+            return load.get();
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            } else {
+                throw new ReviewtoolException(e);
+            }
+        }
+    }
+
+    /**
+     * Stores the contents of the given file. If the same contents are already cached, they are shared.
+     * @return The array that is stored in the cache.
+     */
+    private byte[] put(final IRevisionedFile file, final byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        final ContentHash hash = ContentHash.of(data);
+        synchronized (this) {
+            if (data.length > this.byteBudget / MAX_CONTENT_FRACTION) {
+                this.tooLarge++;
+                return data;
+            }
+            Content content = this.contentPerHash.get(hash);
+            if (content == null) {
+                content = new Content(hash, data);
+                this.contentPerHash.put(hash, content);
+                this.bytes += data.length;
+            } else {
+                this.sharedContents++;
+            }
+            content.files.add(file);
+            this.contentPerFile.put(file, content);
+            this.evictIfNecessary();
+            return content.data;
+        }
+    }
+
+    private void evictIfNecessary() {
+        final Iterator<Content> iter = this.contentPerHash.values().iterator();
+        while (this.bytes > this.byteBudget && iter.hasNext()) {
+            final Content eldest = iter.next();
+            iter.remove();
+            this.bytes -= eldest.data.length;
+            for (final IRevisionedFile file : eldest.files) {
+                this.contentPerFile.remove(file);
+            }
+            this.evictions++;
+        }
+    }
+
+    /**
+     * Changes the maximal total size of the cached contents. Contents are evicted if necessary.
+     */
+    public synchronized void setByteBudget(final long byteBudget) {
+        this.byteBudget = byteBudget;
+        this.evictIfNecessary();
+    }
+
+    /**
+     * Removes all contents from the cache. The statistics are kept.
+     */
+    public synchronized void clear() {
+        this.contentPerFile.clear();
+        this.contentPerHash.clear();
+        this.bytes = 0;
+    }
+
+    /**
+     * Returns a snapshot of the statistics of this cache.
+     */
+    public synchronized Statistics getStatistics() {
+        return new Statistics(this);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return this.getStatistics().toString();
+    }
+}
@@ -0,0 +1,36 @@
+package de.setsoftware.reviewtool.model.changestructure;
+
+import java.util.Collection;
+import java.util.Collections;
+
+import org.w3c.dom.Element;
+
+import de.setsoftware.reviewtool.base.ReviewtoolException;
+import de.setsoftware.reviewtool.config.IConfigurator;
+import de.setsoftware.reviewtool.config.IReviewConfigurable;
+
+/**
+ * Configures the cache for file contents shared by all change sources, e.g.
+ * {@code <fileContentCache maxSizeMiB="128"/>}. The attribute "maxSizeMiB" sets the maximal total size of the
+ * cached contents in MiB (see {@link FileContentCache#setByteBudget(long)}), the default is 64 MiB.
+ */
+public class FileContentCacheConfigurator implements IConfigurator {
+
+    @Override
+    public Collection<String> getRelevantElementNames() {
+        return Collections.singleton("fileContentCache");
+    }
+
+    @Override
+    public void configure(final Element xml, final IReviewConfigurable configurable) {
+        final String maxSize = xml.getAttribute("maxSizeMiB");
+        if (!maxSize.isEmpty()) {
+            try {
+                FileContentCache.getInstance().setByteBudget(Long.parseLong(maxSize) * 1024 * 1024);
+            } catch (final NumberFormatException e) {
+                throw new ReviewtoolException("invalid maxSizeMiB: " + maxSize, e);
+            }
+        }
+    }
+
+}
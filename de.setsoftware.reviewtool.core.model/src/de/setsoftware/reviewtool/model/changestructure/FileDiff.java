@@ -27,6 +27,7 @@ public final class FileDiff implements IFileDiff {
     /**
      * The hunks this FileDiff object is made of. Later hunks depend on earlier hunks, i.e. the source/target fragment
      * positions of later hunks take the deltas of earlier hunks into consideration.
+     * While merging, the hunks are put into a {@link HunkTree}, so that merging many hunks is not quadratic.
      */
     private final List<IHunk> hunks;
     private final IRevisionedFile fromRevision;
@@ -104,52 +105,43 @@ public final class FileDiff implements IFileDiff {
 
     @Override
     public IFileDiff merge(final IHunk hunkToMerge) throws IncompatibleFragmentException {
-        final FileDiff result = new FileDiff(this.fromRevision, hunkToMerge.getTarget().getFile());
-        final List<IHunk> stashedHunks = new ArrayList<>();
-        final IDelta hunkDelta = hunkToMerge.getDelta();
-        final int hunkStartLine = hunkToMerge.getSource().getFrom().getLine();
-        boolean hunkCreated = false;
-        for (final IHunk hunk : this.hunks) {
-            if (hunk.getTarget().overlaps(hunkToMerge.getSource())) {
-                stashedHunks.add(hunk);
-            } else if (hunk.getTarget().getTo().compareTo(hunkToMerge.getSource().getFrom()) <= 0) {
-                result.hunks.add(hunk.adjustTargetFile(result.toRevision));
-            } else if (hunkCreated) {
-                result.hunks.add(
-                        hunk.adjustTarget(hunkDelta.ignoreColumnOffset(
-                                hunk.getTarget().getFrom().getLine() != hunkStartLine))
-                        .adjustTargetFile(result.toRevision));
-            } else {
-                result.hunks.add(this.createCombinedHunk(stashedHunks, hunkToMerge)
-                        .adjustSourceFile(this.fromRevision)
-                        .adjustTargetFile(result.toRevision));
-                result.hunks.add(
-                        hunk.adjustTarget(hunkDelta.ignoreColumnOffset(
-                                hunk.getTarget().getFrom().getLine() != hunkStartLine))
-                        .adjustTargetFile(result.toRevision));
-                hunkCreated = true;
-            }
-        }
-        if (!hunkCreated) {
-            result.hunks.add(this.createCombinedHunk(stashedHunks, hunkToMerge)
-                    .adjustSourceFile(this.fromRevision)
-                    .adjustTargetFile(result.toRevision));
-        }
-        return result;
+        final HunkTree tree = new HunkTree(this.hunks);
+        this.mergeInto(tree, hunkToMerge);
+        return new FileDiff(this.fromRevision, hunkToMerge.getTarget().getFile(), tree.toList());
     }
 
     @Override
     public IFileDiff merge(final Collection<? extends IHunk> hunksToMerge) throws IncompatibleFragmentException {
-        IFileDiff result = this;
+        if (hunksToMerge.isEmpty()) {
+            return this;
+        }
+        final HunkTree tree = new HunkTree(this.hunks);
+        IRevisionedFile newTo = this.toRevision;
         IDelta delta = new Delta();
         int lastLine = 0;
         for (final IHunk hunk : hunksToMerge) {
             delta = delta.ignoreColumnOffset(hunk.getSource().getFrom().getLine() != lastLine);
-            result = result.merge(hunk.adjustSource(delta));
+            this.mergeInto(tree, hunk.adjustSource(delta));
+            newTo = hunk.getTarget().getFile();
             delta = delta.plus(hunk.getDelta());
             lastLine = hunk.getSource().getTo().getLine();
         }
-        return result;
+        return new FileDiff(this.fromRevision, newTo, tree.toList());
+    }
+
+    /**
+     * Merges a hunk into the given tree containing the hunks of this FileDiff and of the hunks merged before.
+     * Hunks whose targets overlap the source of the hunk to merge are combined with it, following hunks are moved.
+     * Afterwards, the targets of all hunks belong to the target file of the merged hunk.
+     */
+    private void mergeInto(final HunkTree tree, final IHunk hunkToMerge) throws IncompatibleFragmentException {
+        final IRevisionedFile newTo = hunkToMerge.getTarget().getFile();
+        final IHunk combinedHunk = this.createCombinedHunk(
+                tree, tree.getOverlapping(hunkToMerge.getSource()), hunkToMerge)
+                .adjustSourceFile(this.fromRevision)
+                .adjustTargetFile(newTo);
+        tree.replaceOverlapping(hunkToMerge, combinedHunk);
+        tree.setTargetFile(newTo);
     }
 
     @Override
@@ -160,14 +152,17 @@ public final class FileDiff implements IFileDiff {
     /**
      * Combines a list of neighbour hunks with a new hunk to be merged.
      *
+     * @param tree All hunks merged so far.
      * @param hunks The neighbour hunks.
      * @param hunkToMerge The hunk to be merged.
      * @return The combined hunk.
      * @throws IncompatibleFragmentException if the hunk to be merged overlaps with some hunk in the hunk list
      *      or if the resulting parts cannot be combined into one hunk.
      */
-    private IHunk createCombinedHunk(final Collection<? extends IHunk> hunks, final IHunk hunkToMerge)
-            throws IncompatibleFragmentException {
+    private IHunk createCombinedHunk(
+            final HunkTree tree,
+            final Collection<? extends IHunk> hunks,
+            final IHunk hunkToMerge) throws IncompatibleFragmentException {
         final IFragmentList sources = new FragmentList();
         try {
             for (final IHunk hunk : hunks) {
@@ -187,7 +182,7 @@ public final class FileDiff implements IFileDiff {
         }
 
         return new Hunk(
-                this.combineSources(hunkToMerge, sources, targets),
+                this.combineSources(tree, hunkToMerge, sources, targets),
                 this.combineTargets(hunkToMerge, targets));
     }
 
@@ -251,6 +246,7 @@ public final class FileDiff implements IFileDiff {
      * Combines the source fragments of neighbour hunks with the source fragment of a hunk to be merged. The result
      * needs to be a single fragment.
      *
+     * @param tree All hunks merged so far.
      * @param hunkToMerge The hunk to be merged.
      * @param sources The source fragments of neighbour hunks.
      * @param targets The target fragments of neighbour hunks.
@@ -259,6 +255,7 @@ public final class FileDiff implements IFileDiff {
      *              or if the resulting source parts cannot be combined into one fragment.
      */
     private IFragment combineSources(
+            final HunkTree tree,
             final IHunk hunkToMerge,
             final IFragmentList sources,
             final IFragmentList targets) throws IncompatibleFragmentException {
@@ -267,7 +264,7 @@ public final class FileDiff implements IFileDiff {
 
         for (final IFragment fragment : hunkToMerge.getSource().subtract(targets).getFragments()) {
             combinedSources.addFragment(fragment.adjust(
-                    this.computeDeltaViaTargetFragmentUpTo(fragment.getFrom()).negate()));
+                    tree.computeDeltaUpTo(fragment.getFrom()).negate()));
         }
 
         combinedSources.coalesce();
@@ -332,26 +329,19 @@ public final class FileDiff implements IFileDiff {
         return combinedTargets.getFragments().get(0);
     }
 
-    /**
-     * Returns the target line delta to be added given a target {@link IPositionInText} because of hunks applied
-     * before this line. It is computed as the number of lines earlier hunks added minus the number of lines
-     * earlier hunks deleted.
-     *
-     * @param pos The position in the target file.
-     * @return The line delta.
-     */
-    private IDelta computeDeltaViaTargetFragmentUpTo(final IPositionInText pos) {
-        IDelta delta = new Delta();
-        int lastLine = 0;
-        for (final IHunk hunk : this.hunks) {
-            if (hunk.getTarget().getTo().compareTo(pos) <= 0) {
-                delta = delta.ignoreColumnOffset(hunk.getTarget().getFrom().getLine() != lastLine);
-                delta = delta.plus(hunk.getDelta());
-                lastLine = hunk.getTarget().getTo().getLine();
-            } else {
-                break;
-            }
+    @Override
+    public boolean equals(final Object obj) {
+        if (!(obj instanceof FileDiff)) {
+            return false;
         }
-        return delta.ignoreColumnOffset(pos.getLine() != lastLine);
+        final FileDiff other = (FileDiff) obj;
+        return this.fromRevision.equals(other.fromRevision)
+            && this.toRevision.equals(other.toRevision)
+            && this.hunks.equals(other.hunks);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.fromRevision.hashCode() ^ this.toRevision.hashCode() ^ this.hunks.hashCode();
     }
 }
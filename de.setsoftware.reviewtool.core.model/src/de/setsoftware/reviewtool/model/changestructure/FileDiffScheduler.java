@@ -0,0 +1,318 @@
+package de.setsoftware.reviewtool.model.changestructure;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.setsoftware.reviewtool.base.Logger;
+import de.setsoftware.reviewtool.base.ReviewtoolException;
+import de.setsoftware.reviewtool.model.api.IFileDiff;
+import de.setsoftware.reviewtool.model.api.IFileHistoryEdge;
+
+/**
+ * Computes the diffs of {@link IFileHistoryEdge}s in advance on a bounded pool of background threads.
+ *
+ * <p>Edges are scheduled with a priority, and the diffs of edges with smaller priority values are computed first.
+ * There is at most one computation per edge: Scheduling an edge again only raises its priority, and a caller that
+ * needs the diff of a scheduled edge (see {@link FileHistoryEdge#getDiff()}) either waits for the running
+ * computation or, if it has not started yet, does it on its own thread. Therefore scheduling never makes
+ * a caller wait longer than computing the diff itself.
+ *
+ * <p>Edges scheduled in a {@link Batch} can be cancelled together, e.g. when the operation that needed them is
+ * finished. An edge is only cancelled when no other batch and no direct call to {@link #schedule} still needs it.
+ */
+public final class FileDiffScheduler {
+
+    /**
+     * Decides on a background thread whether the diff of a scheduled edge is needed at all.
+     */
+    @FunctionalInterface
+    public static interface IDiffCondition {
+        public abstract boolean isDiffNeeded(IFileHistoryEdge edge) throws Exception;
+    }
+
+    /**
+     * The computation of the diff of one edge. It is done at most once, by whoever claims it first.
+     */
+    private final class Task {
+        private final IFileHistoryEdge edge;
+        private final IDiffCondition condition;
+        private final CompletableFuture<IFileDiff> result = new CompletableFuture<>();
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private int priority = Integer.MAX_VALUE;
+        private int batchCount;
+        private boolean neededWithoutBatch;
+        private boolean cancelled;
+
+        Task(final IFileHistoryEdge edge, final IDiffCondition condition) {
+            this.edge = edge;
+            this.condition = condition;
+        }
+
+        /**
+         * Registers that the task is needed by a batch or, if the batch is null, until it is done.
+         * @return false iff the task has already been cancelled and must not be used anymore.
+         */
+        synchronized boolean hold(final Batch batch) {
+            if (this.cancelled) {
+                return false;
+            }
+            if (batch == null) {
+                this.neededWithoutBatch = true;
+            } else {
+                this.batchCount++;
+            }
+            return true;
+        }
+
+        /**
+         * Registers that a batch does not need the task anymore. The task is cancelled if it has not been claimed
+         * yet and is not needed otherwise.
+         */
+        synchronized void release() {
+            this.batchCount--;
+            if (this.batchCount == 0 && !this.neededWithoutBatch && this.claimed.compareAndSet(false, true)) {
+                this.cancelled = true;
+                FileDiffScheduler.this.tasks.remove(this.edge, this);
+                this.result.cancel(false);
+            }
+        }
+
+        /**
+         * Enqueues the task with the given priority if it is more urgent than all earlier requests.
+         */
+        synchronized void enqueue(final int newPriority) {
+            if (newPriority < this.priority) {
+                this.priority = newPriority;
+                FileDiffScheduler.this.executor.execute(new QueueEntry(this, newPriority));
+            }
+        }
+
+        /**
+         * Computes the diff if the task has not been claimed yet.
+         * @param needed If false, the condition of the task decides whether the diff is computed.
+         */
+        void run(final boolean needed) {
+            if (!this.claimed.compareAndSet(false, true)) {
+                return;
+            }
+            // the task is removed before completion, so that callers that are notified do not find it anymore
+            try {
+                final IFileDiff diff = needed || this.isNeeded() ? diffOf(this.edge) : null;
+                FileDiffScheduler.this.tasks.remove(this.edge, this);
+                this.result.complete(diff);
+            } catch (final RuntimeException | Error e) {
+                FileDiffScheduler.this.tasks.remove(this.edge, this);
+                this.result.completeExceptionally(e);
+            }
+        }
+
+        private boolean isNeeded() {
+            try {
+                return this.condition.isDiffNeeded(this.edge);
+            } catch (final Exception e) {
+                Logger.debug("not computing diff in advance for " + this.edge + ": " + e);
+                return false;
+            }
+        }
+
+    }
+
+    /**
+     * A group of scheduled edges that can be cancelled together.
+     */
+    public final class Batch {
+        private final Set<Task> tasks = Collections.newSetFromMap(new IdentityHashMap<>());
+        private boolean cancelled;
+
+        private Batch() {
+        }
+
+        /**
+         * Schedules the computation of the diff of the given edge in the background as part of this batch.
+         * See {@link FileDiffScheduler#schedule(IFileHistoryEdge, int, IDiffCondition)}.
+         */
+        public synchronized CompletableFuture<IFileDiff> schedule(
+                final IFileHistoryEdge edge,
+                final int priority,
+                final IDiffCondition condition) {
+            if (this.cancelled) {
+                throw new IllegalStateException("batch has already been cancelled");
+            }
+            final Task task = FileDiffScheduler.this.scheduleTask(edge, priority, condition, this);
+            if (!this.tasks.add(task)) {
+                // only hold the task once per batch
+                task.release();
+            }
+            return task.result;
+        }
+
+        /**
+         * Cancels the computations of the edges of this batch that have not started yet, unless they are still
+         * needed by other batches. The futures of the cancelled edges are cancelled.
+         */
+        public synchronized void cancel() {
+            this.cancelled = true;
+            for (final Task task : this.tasks) {
+                task.release();
+            }
+            this.tasks.clear();
+        }
+    }
+
+    /**
+     * An entry in the queue of the executor. A task can be enqueued several times with increasing priority, the
+     * later entries are no-ops.
+     */
+    private final class QueueEntry implements Runnable, Comparable<QueueEntry> {
+        private final Task task;
+        private final int priority;
+        private final long sequenceNumber;
+
+        QueueEntry(final Task task, final int priority) {
+            this.task = task;
+            this.priority = priority;
+            this.sequenceNumber = FileDiffScheduler.this.sequence.getAndIncrement();
+        }
+
+        @Override
+        public void run() {
+            this.task.run(false);
+        }
+
+        @Override
+        public int compareTo(final QueueEntry o) {
+            final int cmp = Integer.compare(this.priority, o.priority);
+            return cmp != 0 ? cmp : Long.compare(this.sequenceNumber, o.sequenceNumber);
+        }
+    }
+
+    private static final FileDiffScheduler INSTANCE =
+            new FileDiffScheduler(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+
+    private final Map<IFileHistoryEdge, Task> tasks = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Constructor.
+     * @param threadCount The maximal number of threads that compute diffs in the background.
+     */
+    FileDiffScheduler(final int threadCount) {
+        final AtomicInteger threadNumber = new AtomicInteger();
+        final ThreadFactory threadFactory = (final Runnable r) -> {
+            final Thread t = new Thread(r, "CoRT diff computation " + threadNumber.incrementAndGet());
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        };
+        this.executor = new ThreadPoolExecutor(
+                threadCount, threadCount, 10, TimeUnit.SECONDS, new PriorityBlockingQueue<>(), threadFactory);
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Returns the scheduler shared by all file history graphs.
+     */
+    public static FileDiffScheduler getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Schedules the computation of the diff of the given edge in the background.
+     *
+     * @param priority Edges with smaller values are computed first.
+     * @param condition Is checked on the background thread before the diff is computed. When it is false or fails,
+     *      the returned future is completed with {@code null}.
+     * @return The future diff. It is also completed when the diff is requested by other means in the meantime.
+     */
+    public CompletableFuture<IFileDiff> schedule(
+            final IFileHistoryEdge edge,
+            final int priority,
+            final IDiffCondition condition) {
+        return this.scheduleTask(edge, priority, condition, null).result;
+    }
+
+    /**
+     * Returns a new, empty batch.
+     */
+    public Batch startBatch() {
+        return new Batch();
+    }
+
+    private Task scheduleTask(
+            final IFileHistoryEdge edge,
+            final int priority,
+            final IDiffCondition condition,
+            final Batch batch) {
+        final IFileHistoryEdge key =
+                edge instanceof FileHistoryEdgeProxy ? ((FileHistoryEdgeProxy) edge).getTarget() : edge;
+        Task task;
+        do {
+            task = this.tasks.computeIfAbsent(key, (final IFileHistoryEdge e) -> new Task(e, condition));
+        } while (!task.hold(batch));
+        task.enqueue(priority);
+        return task;
+    }
+
+    /**
+     * Schedules the computation of the diff of the given edge in the background.
+     *
+     * @param priority Edges with smaller values are computed first.
+     * @return The future diff.
+     */
+    public CompletableFuture<IFileDiff> schedule(final IFileHistoryEdge edge, final int priority) {
+        return this.schedule(edge, priority, (final IFileHistoryEdge e) -> true);
+    }
+
+    /**
+     * Returns the diff of the given edge, which is computed on the calling thread unless its computation is
+     * already running.
+     * @throws ReviewtoolException if an error occurred while loading file contents or computing difference.
+     */
+    IFileDiff getDiff(final FileHistoryEdge edge) {
+        final Task task = this.tasks.get(edge);
+        if (task == null) {
+            return edge.determineDiff();
+        }
+        task.run(true);
+        try {
+            final IFileDiff ret = task.result.join();
+            // the task might have been cancelled or found the diff not needed, so fall back to computing it
+            return ret != null ? ret : edge.determineDiff();
+        } catch (final CompletionException e) {
+            // tasks only fail with unchecked exceptions
+            final Throwable cause = e.getCause();
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw (RuntimeException) cause;
+        } catch (final CancellationException e) {
+            return edge.determineDiff();
+        }
+    }
+
+    private static IFileDiff diffOf(final IFileHistoryEdge edge) {
+        return edge instanceof FileHistoryEdge ? ((FileHistoryEdge) edge).determineDiff() : edge.getDiff();
+    }
+
+    /**
+     * Returns the number of edges that are scheduled or being computed.
+     */
+    int getPendingCount() {
+        return this.tasks.size();
+    }
+
+}
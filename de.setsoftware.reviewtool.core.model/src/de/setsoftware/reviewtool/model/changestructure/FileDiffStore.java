@@ -0,0 +1,344 @@
+package de.setsoftware.reviewtool.model.changestructure;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.setsoftware.reviewtool.base.Logger;
+import de.setsoftware.reviewtool.base.Pair;
+import de.setsoftware.reviewtool.model.api.IDiffAlgorithm;
+import de.setsoftware.reviewtool.model.api.IFragment;
+import de.setsoftware.reviewtool.model.api.IPositionInText;
+import de.setsoftware.reviewtool.model.api.IRevisionedFile;
+
+/**
+ * Persists the results of diff algorithms, so that they do not have to be recomputed after a restart.
+ *
+ * <p>A result is identified by the {@link ContentHash}es of the old and new contents and by the
+ * {@link IDiffAlgorithm#getId() identity} of the algorithm and the charset used to decode the contents. It therefore
+ * stays valid for every pair of files with these contents, independently of their paths and revisions. Each result is
+ * stored in a file of its own in a compact binary form, containing only the positions of the changed fragments.
+ * Results are only read when they are needed.
+ *
+ * <p>The total size of the stored results is kept below a byte budget: When enough has been written since the last
+ * cleanup, the least recently used results (by modification time, which is updated on reads) are deleted in the
+ * background. The cleanup also deletes the results of algorithms that have not been used since the store was opened,
+ * as soon as some algorithm has been used.
+ *
+ * <p>As long as no directory has been set, results are not persisted.
+ */
+public final class FileDiffStore {
+
+    /**
+     * Identifies a stored diff.
+     */
+    private static final class Key {
+        private final ContentHash oldContents;
+        private final ContentHash newContents;
+        private final String algorithmId;
+        private final String charset;
+
+        Key(final ContentHash oldContents, final ContentHash newContents, final String algorithmId,
+                final String charset) {
+            this.oldContents = oldContents;
+            this.newContents = newContents;
+            this.algorithmId = algorithmId;
+            this.charset = charset;
+        }
+
+        File getFile(final File directory) {
+            final String oldHash = this.oldContents.toString();
+            return new File(new File(directory, oldHash.substring(0, 2)),
+                    oldHash + "-" + this.newContents + "." + toFileNamePart(this.algorithmId)
+                        + "." + toFileNamePart(this.charset));
+        }
+
+        @Override
+        public String toString() {
+            return this.oldContents + "->" + this.newContents + " (" + this.algorithmId + ", " + this.charset + ")";
+        }
+    }
+
+    private static final int FORMAT_VERSION = 1;
+
+    public static final long DEFAULT_BYTE_BUDGET = 64L * 1024 * 1024;
+
+    /**
+     * A cleanup is started when this fraction of the byte budget has been written since the last one.
+     */
+    private static final int CLEANUP_FRACTION = 8;
+
+    private static final FileDiffStore INSTANCE = new FileDiffStore();
+
+    private final Executor cleanupExecutor;
+    private final Set<String> usedAlgorithmIds = ConcurrentHashMap.newKeySet();
+    private final AtomicLong bytesWrittenSinceCleanup = new AtomicLong();
+    private final AtomicBoolean cleanupRunning = new AtomicBoolean();
+    private volatile File directory;
+    private volatile long byteBudget = DEFAULT_BYTE_BUDGET;
+
+    /**
+     * Constructor. Cleanups are done on a background thread.
+     */
+    FileDiffStore() {
+        this((final Runnable r) -> {
+            final Thread t = new Thread(r, "CoRT diff store cleanup");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            t.start();
+        });
+    }
+
+    /**
+     * Constructor.
+     * @param cleanupExecutor Executes the cleanups of the store.
+     */
+    FileDiffStore(final Executor cleanupExecutor) {
+        this.cleanupExecutor = cleanupExecutor;
+    }
+
+    /**
+     * Returns the store shared by all file history graphs.
+     */
+    public static FileDiffStore getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Sets the directory the diffs are stored in. When set to null, diffs are not persisted. Results from earlier
+     * sessions that exceed the byte budget are deleted in the background.
+     */
+    public void setDirectory(final File directory) {
+        this.directory = directory;
+        this.usedAlgorithmIds.clear();
+        if (directory != null) {
+            this.startCleanup();
+        }
+    }
+
+    /**
+     * Sets the maximal total size of the stored results.
+     */
+    public void setByteBudget(final long byteBudget) {
+        this.byteBudget = byteBudget;
+    }
+
+    /**
+     * Returns the differences between the given contents as determined by the given diff algorithm
+     * (see {@link IDiffAlgorithm#determineDiff}). If the result has been stored before, it is read from the store,
+     * otherwise it is computed and stored.
+     */
+    public List<Pair<IFragment, IFragment>> determineDiff(
+            final IDiffAlgorithm algorithm,
+            final IRevisionedFile fileOldInfo,
+            final byte[] fileOldContent,
+            final IRevisionedFile fileNewInfo,
+            final byte[] fileNewContent,
+            final String charset) {
+
+        if (this.directory == null) {
+            return algorithm.determineDiff(fileOldInfo, fileOldContent, fileNewInfo, fileNewContent, charset);
+        }
+        return this.determineDiff(
+                algorithm,
+                fileOldInfo,
+                fileOldContent,
+                ContentHash.of(fileOldContent),
+                fileNewInfo,
+                fileNewContent,
+                ContentHash.of(fileNewContent),
+                charset);
+    }
+
+    /**
+     * Like {@link #determineDiff(IDiffAlgorithm, IRevisionedFile, byte[], IRevisionedFile, byte[], String)},
+     * but with already known hashes of the contents.
+     */
+    public List<Pair<IFragment, IFragment>> determineDiff(
+            final IDiffAlgorithm algorithm,
+            final IRevisionedFile fileOldInfo,
+            final byte[] fileOldContent,
+            final ContentHash fileOldHash,
+            final IRevisionedFile fileNewInfo,
+            final byte[] fileNewContent,
+            final ContentHash fileNewHash,
+            final String charset) {
+
+        final File dir = this.directory;
+        if (dir == null) {
+            return algorithm.determineDiff(fileOldInfo, fileOldContent, fileNewInfo, fileNewContent, charset);
+        }
+
+        final String algorithmId = algorithm.getId();
+        this.usedAlgorithmIds.add(toFileNamePart(algorithmId));
+        final Key key = new Key(fileOldHash, fileNewHash, algorithmId, charset);
+        final File file = key.getFile(dir);
+        if (file.exists()) {
+            try {
+                final List<Pair<IFragment, IFragment>> ret = read(file, fileOldInfo, fileNewInfo);
+                // the modification time is used to determine the least recently used results
+                file.setLastModified(System.currentTimeMillis());
+                return ret;
+            } catch (final IOException e) {
+                Logger.warn("stored diff " + key + " could not be read, computing it again", e);
+            }
+        }
+
+        final List<Pair<IFragment, IFragment>> diff =
+                algorithm.determineDiff(fileOldInfo, fileOldContent, fileNewInfo, fileNewContent, charset);
+        try {
+            write(file, diff);
+            final long written = this.bytesWrittenSinceCleanup.addAndGet(file.length());
+            if (written > this.byteBudget / CLEANUP_FRACTION) {
+                this.startCleanup();
+            }
+        } catch (final IOException e) {
+            Logger.warn("diff " + key + " could not be stored", e);
+        }
+        return diff;
+    }
+
+    private static String toFileNamePart(final String s) {
+        return s.replaceAll("[^A-Za-z0-9_\\-]", "_");
+    }
+
+    private void startCleanup() {
+        if (this.cleanupRunning.compareAndSet(false, true)) {
+            this.bytesWrittenSinceCleanup.set(0);
+            this.cleanupExecutor.execute(() -> {
+                try {
+                    this.cleanup();
+                } catch (final RuntimeException e) {
+                    Logger.warn("cleanup of stored diffs failed", e);
+                } finally {
+                    this.cleanupRunning.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * Deletes the stored results of algorithms that have not been used since the directory was set (if any algorithm
+     * has been used) and results in an unknown format. Then deletes the least recently used results until their
+     * total size is within the byte budget.
+     */
+    void cleanup() {
+        final File dir = this.directory;
+        final File[] subdirs = dir == null ? null : dir.listFiles();
+        if (subdirs == null) {
+            return;
+        }
+        final Set<String> algorithmIdsInUse = this.usedAlgorithmIds;
+        final List<File> remaining = new ArrayList<>();
+        long totalSize = 0;
+        for (final File subdir : subdirs) {
+            final File[] files = subdir.listFiles();
+            if (files == null) {
+                continue;
+            }
+            for (final File file : files) {
+                final String[] nameParts = file.getName().split("\\.");
+                if (nameParts.length == 2 && nameParts[1].equals("tmp")) {
+                    // might be written at the moment
+                    continue;
+                }
+                if (nameParts.length != 3
+                        || (!algorithmIdsInUse.isEmpty() && !algorithmIdsInUse.contains(nameParts[1]))) {
+                    file.delete();
+                    continue;
+                }
+                remaining.add(file);
+                totalSize += file.length();
+            }
+        }
+
+        final long budget = this.byteBudget;
+        if (totalSize <= budget) {
+            return;
+        }
+        remaining.sort(Comparator.comparingLong(File::lastModified));
+        for (final File file : remaining) {
+            if (totalSize <= budget) {
+                break;
+            }
+            final long size = file.length();
+            if (file.delete()) {
+                totalSize -= size;
+            }
+        }
+    }
+
+    private static List<Pair<IFragment, IFragment>> read(
+            final File file,
+            final IRevisionedFile fileOldInfo,
+            final IRevisionedFile fileNewInfo) throws IOException {
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            final int version = in.readInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("unsupported format version " + version);
+            }
+            final int count = in.readInt();
+            final List<Pair<IFragment, IFragment>> ret = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                final IFragment oldFragment = readFragment(in, fileOldInfo);
+                final IFragment newFragment = readFragment(in, fileNewInfo);
+                ret.add(Pair.create(oldFragment, newFragment));
+            }
+            return ret;
+        }
+    }
+
+    private static IFragment readFragment(final DataInputStream in, final IRevisionedFile file) throws IOException {
+        final IPositionInText from = ChangestructureFactory.createPositionInText(in.readInt(), in.readInt());
+        final IPositionInText to = ChangestructureFactory.createPositionInText(in.readInt(), in.readInt());
+        return ChangestructureFactory.createFragment(file, from, to);
+    }
+
+    /**
+     * Writes the given diff to a temporary file first and then moves it to its final place, so that concurrent
+     * readers never see a partially written diff.
+     */
+    private static void write(final File file, final List<Pair<IFragment, IFragment>> diff) throws IOException {
+        final File dir = file.getParentFile();
+        dir.mkdirs();
+        final File tempFile = File.createTempFile("diff", ".tmp", dir);
+        try {
+            try (DataOutputStream out =
+                    new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(diff.size());
+                for (final Pair<IFragment, IFragment> pair : diff) {
+                    writeFragment(out, pair.getFirst());
+                    writeFragment(out, pair.getSecond());
+                }
+            }
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            tempFile.delete();
+        }
+    }
+
+    private static void writeFragment(final DataOutputStream out, final IFragment fragment) throws IOException {
+        out.writeInt(fragment.getFrom().getLine());
+        out.writeInt(fragment.getFrom().getColumn());
+        out.writeInt(fragment.getTo().getLine());
+        out.writeInt(fragment.getTo().getColumn());
+    }
+
+}
@@ -1,9 +1,5 @@
 package de.setsoftware.reviewtool.model.changestructure;
 
-import java.nio.ByteBuffer;
-import java.nio.charset.CharacterCodingException;
-import java.nio.charset.CodingErrorAction;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -27,7 +23,7 @@ final class FileHistoryEdge extends ProxyableFileHistoryEdge {
     private final ProxyableFileHistoryNode ancestor;
     private final ProxyableFileHistoryNode descendant;
     private Type type;
-    private IFileDiff diff;
+    private volatile IFileDiff diff;
 
     /**
      * Constructor.
@@ -73,6 +69,22 @@ final class FileHistoryEdge extends ProxyableFileHistoryEdge {
 
     @Override
     public IFileDiff getDiff() {
+        final IFileDiff known = this.diff;
+        if (known != null) {
+            return known;
+        }
+        // when the diff has been scheduled, it might already be computed in the background (possibly for an
+        //  equal edge)
+        final IFileDiff determined = FileDiffScheduler.getInstance().getDiff(this);
+        this.diff = determined;
+        return determined;
+    }
+
+    /**
+     * Returns the difference between the file contents of ancestor and descendant, computing it if necessary.
+     * @throws ReviewtoolException if an error occurred while loading file contents or computing difference.
+     */
+    IFileDiff determineDiff() {
         if (this.diff == null) {
             this.diff = this.computeDiff();
         }
@@ -97,7 +109,7 @@ final class FileHistoryEdge extends ProxyableFileHistoryEdge {
 
     /**
      * Computes the difference between the file contents of ancestor and descendant by using the diff algorithm
-     * associated with our {@link IFileHistoryGraph}.
+     * associated with our {@link IFileHistoryGraph}. Results computed earlier are taken from the {@link FileDiffStore}.
      * @throws ReviewtoolException if an error occurred while loading file contents or computing difference.
      */
     private IFileDiff computeDiff() {
@@ -112,12 +124,22 @@ final class FileHistoryEdge extends ProxyableFileHistoryEdge {
             throw new ReviewtoolException(e);
         }
 
-        final List<Pair<IFragment, IFragment>> textChanges = this.graph.getDiffAlgorithm().determineDiff(
+        final ContentHash oldHash = ContentHash.of(oldFileContents);
+        final ContentHash newHash = ContentHash.of(newFileContents);
+        final ContentClassifier classifier = ContentClassifier.getInstance();
+        final String encoding = ContentClassifier.guessEncoding(
+                classifier.classify(oldHash, oldFileContents),
+                classifier.classify(newHash, newFileContents));
+
+        final List<Pair<IFragment, IFragment>> textChanges = FileDiffStore.getInstance().determineDiff(
+                this.graph.getDiffAlgorithm(),
                 this.ancestor.getFile(),
                 oldFileContents,
+                oldHash,
                 this.descendant.getFile(),
                 newFileContents,
-                this.guessEncoding(oldFileContents, newFileContents));
+                newHash,
+                encoding);
 
         final List<IHunk> hunks = new ArrayList<>();
         for (final Pair<IFragment, IFragment> pos : textChanges) {
@@ -131,29 +153,6 @@ final class FileHistoryEdge extends ProxyableFileHistoryEdge {
         }
     }
 
-    private String guessEncoding(final byte[] oldFileContent, final byte[] newFileContent) {
-        if (this.isValidUtf8(oldFileContent) && this.isValidUtf8(newFileContent)) {
-            return "UTF-8";
-        } else {
-            return "ISO-8859-1";
-        }
-    }
-
-    /**
-     * Returns true iff the given bytes are syntactically valid UTF-8.
-     */
-    private boolean isValidUtf8(final byte[] content) {
-        try {
-            StandardCharsets.UTF_8.newDecoder()
-                    .onMalformedInput(CodingErrorAction.REPORT)
-                    .onUnmappableCharacter(CodingErrorAction.REPORT)
-                    .decode(ByteBuffer.wrap(content));
-            return true;
-        } catch (final CharacterCodingException e) {
-            return false;
-        }
-    }
-
     /**
      * Replaces this object by a proxy when serializing.
      */
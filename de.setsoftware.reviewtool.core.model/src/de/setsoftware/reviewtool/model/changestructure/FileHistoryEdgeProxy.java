@@ -69,7 +69,7 @@ final class FileHistoryEdgeProxy extends ProxyableFileHistoryEdge {
     /**
      * Returns the proxy target. The first time this method is called, it is looked up in the graph.
      */
-    private synchronized FileHistoryEdge getTarget() {
+    synchronized FileHistoryEdge getTarget() {
         if (this.target == null) {
             final ProxyableFileHistoryNode ancestor = this.graph.getNodeFor(this.ancestorFile);
             assert ancestor != null;
@@ -1,16 +1,16 @@
 package de.setsoftware.reviewtool.model.changestructure;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 
 import de.setsoftware.reviewtool.base.Multimap;
-import de.setsoftware.reviewtool.base.PartialOrderAlgorithms;
 import de.setsoftware.reviewtool.model.api.IDiffAlgorithm;
 import de.setsoftware.reviewtool.model.api.IFileHistoryEdge;
 import de.setsoftware.reviewtool.model.api.IFileHistoryNode;
@@ -28,6 +28,8 @@ public final class FileHistoryGraph extends AbstractFileHistoryGraph implements
     private final IDiffAlgorithm diffAlgorithm;
     private final Multimap<String, ProxyableFileHistoryNode> index;
     private final Multimap<IRevisionedFile, IFileHistoryNode> incompleteFlowStarts;
+    private transient volatile Map<String, RevisionIndex> revisionIndex;
+    private transient volatile LatestFilesMemo latestFilesMemo;
 
     /**
      * Constructor.
@@ -40,31 +42,64 @@ public final class FileHistoryGraph extends AbstractFileHistoryGraph implements
     }
 
     @Override
-    public final synchronized Set<String> getPaths() {
-        return this.index.keySet();
+    public final Set<String> getPaths() {
+        this.getReadLock().lock();
+        try {
+            return new LinkedHashSet<>(this.index.keySet());
+        } finally {
+            this.getReadLock().unlock();
+        }
+    }
+
+    @Override
+    public final void performBatch(final Runnable mutations) {
+        this.getWriteLock().lock();
+        try {
+            mutations.run();
+        } finally {
+            this.getWriteLock().unlock();
+        }
     }
 
     @Override
-    public final synchronized void addAddition(
+    public final void addAddition(
             final String path,
             final IRevision revision) {
 
-        final IRevisionedFile file = ChangestructureFactory.createFileInRevision(path, revision);
-        final ProxyableFileHistoryNode node = this.getOrCreateConnectedNode(file, IFileHistoryNode.Type.ADDED);
-        if (node.getType().equals(IFileHistoryNode.Type.DELETED)) {
-            node.makeReplaced();
-        } else if (node.getType().equals(IFileHistoryNode.Type.UNCONFIRMED)) {
-            node.makeAdded();
+        this.getWriteLock().lock();
+        try {
+            final IRevisionedFile file = ChangestructureFactory.createFileInRevision(path, revision);
+            final ProxyableFileHistoryNode node = this.getOrCreateConnectedNode(file, IFileHistoryNode.Type.ADDED);
+            if (node.getType().equals(IFileHistoryNode.Type.DELETED)) {
+                node.makeReplaced();
+            } else if (node.getType().equals(IFileHistoryNode.Type.UNCONFIRMED)) {
+                node.makeAdded();
+            }
+        } finally {
+            this.getWriteLock().unlock();
         }
     }
 
     @Override
-    public final synchronized void addChange(
+    public final void addChange(
             final String path,
             final IRevision revision,
             final Set<? extends IRevision> ancestorRevisions) {
 
         assert !ancestorRevisions.isEmpty();
+        this.getWriteLock().lock();
+        try {
+            this.addChangeLocked(path, revision, ancestorRevisions);
+        } finally {
+            this.getWriteLock().unlock();
+        }
+    }
+
+    private void addChangeLocked(
+            final String path,
+            final IRevision revision,
+            final Set<? extends IRevision> ancestorRevisions) {
+
         final IRevisionedFile file = ChangestructureFactory.createFileInRevision(path, revision);
         final ProxyableFileHistoryNode node = this.getOrCreateUnconnectedNode(file, IFileHistoryNode.Type.CHANGED);
         assert !node.getType().equals(IFileHistoryNode.Type.DELETED);
@@ -98,17 +133,36 @@ public final class FileHistoryGraph extends AbstractFileHistoryGraph implements
     }
 
     @Override
-    public final synchronized void addDeletion(
+    public final void addDeletion(
             final String path,
             final IRevision revision) {
 
-        final IRevisionedFile file = ChangestructureFactory.createFileInRevision(path, revision);
-        final ProxyableFileHistoryNode node = this.getOrCreateConnectedNode(file, IFileHistoryNode.Type.CHANGED);
-        node.makeDeleted();
+        this.getWriteLock().lock();
+        try {
+            final IRevisionedFile file = ChangestructureFactory.createFileInRevision(path, revision);
+            final ProxyableFileHistoryNode node = this.getOrCreateConnectedNode(file, IFileHistoryNode.Type.CHANGED);
+            node.makeDeleted();
+        } finally {
+            this.getWriteLock().unlock();
+        }
     }
 
     @Override
-    public final synchronized void addCopy(
+    public final void addCopy(
+            final String pathFrom,
+            final IRevision revisionFrom,
+            final String pathTo,
+            final IRevision revisionTo) {
+
+        this.getWriteLock().lock();
+        try {
+            this.addCopyLocked(pathFrom, revisionFrom, pathTo, revisionTo);
+        } finally {
+            this.getWriteLock().unlock();
+        }
+    }
+
+    private void addCopyLocked(
             final String pathFrom,
             final IRevision revisionFrom,
             final String pathTo,
@@ -150,6 +204,56 @@ public final class FileHistoryGraph extends AbstractFileHistoryGraph implements
         fromNode.addDescendant(toNode, IFileHistoryEdge.Type.COPY);
     }
 
+    @Override
+    public final void removeFile(
+            final String path,
+            final IRevision revision) {
+
+        this.getWriteLock().lock();
+        try {
+            final ProxyableFileHistoryNode node =
+                    this.getNodeFor(ChangestructureFactory.createFileInRevision(path, revision));
+            if (node != null) {
+                this.removeNode(node);
+            }
+        } finally {
+            this.getWriteLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a node together with all edges touching it. Ancestor nodes that are unconfirmed and have no
+     * descendants left afterwards are removed recursively, as they only existed to connect the removed node.
+     *
+     * @param node The node to remove.
+     */
+    private void removeNode(final ProxyableFileHistoryNode node) {
+        this.invalidateLatestFiles(node);
+        for (final ProxyableFileHistoryEdge descendantEdge : new ArrayList<>(node.getDescendants())) {
+            node.removeDescendant(descendantEdge);
+            descendantEdge.getDescendant().removeAncestor(descendantEdge);
+        }
+
+        for (final ProxyableFileHistoryEdge ancestorEdge : new ArrayList<>(node.getAncestors())) {
+            final ProxyableFileHistoryNode ancestor = ancestorEdge.getAncestor();
+            node.removeAncestor(ancestorEdge);
+            ancestor.removeDescendant(ancestorEdge);
+            if (!ancestor.isConfirmed() && ancestor.getDescendants().isEmpty()) {
+                this.removeNode(ancestor);
+            }
+        }
+
+        this.index.removeValue(node.getFile().getPath(), node);
+        final RevisionIndex nodesForPath = this.getRevisionIndex().get(node.getFile().getPath());
+        if (nodesForPath != null) {
+            nodesForPath.remove(node);
+            if (nodesForPath.isEmpty()) {
+                this.getRevisionIndex().remove(node.getFile().getPath());
+            }
+        }
+        this.incompleteFlowStarts.removeValue(node.getFile(), node);
+    }
+
     /**
      * Returns or creates a {@link ProxyableFileHistoryNode} for a given {@link IRevisionedFile}
      * which inherits copy associations from its parent node if possible.
@@ -202,6 +306,7 @@ public final class FileHistoryGraph extends AbstractFileHistoryGraph implements
         if (node == null) {
             node = new FileHistoryNode(this, file, nodeType);
             this.index.put(file.getPath(), node);
+            this.getRevisionIndex().computeIfAbsent(file.getPath(), (final String p) -> new RevisionIndex()).add(node);
 
             if (connected) {
                 final Set<ProxyableFileHistoryNode> ancestors = node.getType().equals(IFileHistoryNode.Type.ADDED)
@@ -275,6 +380,7 @@ public final class FileHistoryGraph extends AbstractFileHistoryGraph implements
             if (descendantOfAncestorEdge.getType().equals(IFileHistoryEdge.Type.NORMAL)) {
                 final ProxyableFileHistoryNode descendantOfAncestor = descendantOfAncestorEdge.getDescendant();
                 it.remove();
+                this.invalidateLatestFiles(ancestor);
                 descendantOfAncestor.removeAncestor(descendantOfAncestorEdge);
                 interiorNode.addDescendant(
                         descendantOfAncestor,
@@ -286,43 +392,89 @@ public final class FileHistoryGraph extends AbstractFileHistoryGraph implements
 
     @Override
     public final ProxyableFileHistoryNode getNodeFor(final IRevisionedFile file) {
-        final List<ProxyableFileHistoryNode> nodesForKey = this.index.get(file.getPath());
-        for (final ProxyableFileHistoryNode node : nodesForKey) {
-            if (node.getFile().getRevision().equals(file.getRevision())) {
-                return node;
-            }
+        this.getReadLock().lock();
+        try {
+            final RevisionIndex nodesForPath = this.getRevisionIndex().get(file.getPath());
+            return nodesForPath == null ? null : nodesForPath.get(file.getRevision());
+        } finally {
+            this.getReadLock().unlock();
         }
-        return null;
     }
 
     @Override
-    public synchronized Set<ProxyableFileHistoryNode> findAncestorsFor(final IRevisionedFile file) {
-        final List<ProxyableFileHistoryNode> nodesForKey = this.lookupFile(file);
-
-        final Map<IRevisionedFile, ProxyableFileHistoryNode> ancestorNodes = nodesForKey.stream().filter(
-                (final ProxyableFileHistoryNode node) ->
-                    node.getFile().le(file) && !file.le(node.getFile()))
-                .collect(Collectors.toMap(ProxyableFileHistoryNode::getFile, Function.identity()));
-
-        final List<IRevisionedFile> maximalRevisions =
-                PartialOrderAlgorithms.getAllMaximalElements(PartialOrderAlgorithms.topoSort(ancestorNodes.keySet()));
+    public Set<ProxyableFileHistoryNode> findAncestorsFor(final IRevisionedFile file) {
+        this.getReadLock().lock();
+        try {
+            final RevisionIndex nodesForPath = this.getRevisionIndex().get(file.getPath());
+            return nodesForPath == null ? new LinkedHashSet<>() : nodesForPath.findAncestorsFor(file);
+        } finally {
+            this.getReadLock().unlock();
+        }
+    }
 
-        final Set<ProxyableFileHistoryNode> result = maximalRevisions.stream()
-                .map((final IRevisionedFile ancestorFile) -> ancestorNodes.get(ancestorFile))
-                .filter((final ProxyableFileHistoryNode node) -> !node.getType().equals(IFileHistoryNode.Type.DELETED))
-                .collect(Collectors.toSet());
+    /**
+     * Returns the nodes of each path indexed by their revisions. The index is not serialized, it is rebuilt
+     * from the nodes on first use after deserialization. As this can happen while only holding the read lock,
+     * the rebuild itself is synchronized.
+     */
+    private Map<String, RevisionIndex> getRevisionIndex() {
+        Map<String, RevisionIndex> result = this.revisionIndex;
+        if (result == null) {
+            synchronized (this) {
+                result = this.revisionIndex;
+                if (result == null) {
+                    result = new HashMap<>();
+                    for (final String path : this.index.keySet()) {
+                        final RevisionIndex nodesForPath = new RevisionIndex();
+                        for (final ProxyableFileHistoryNode node : this.index.get(path)) {
+                            nodesForPath.add(node);
+                        }
+                        result.put(path, nodesForPath);
+                    }
+                    this.revisionIndex = result;
+                }
+            }
+        }
         return result;
     }
 
     @Override
-    public final synchronized Set<IFileHistoryNode> getIncompleteFlowStarts() {
-        final Set<IFileHistoryNode> result = new LinkedHashSet<>();
-        for (final IRevisionedFile file : this.incompleteFlowStarts.keySet()) {
-            result.addAll(this.incompleteFlowStarts.get(file));
+    LatestFilesMemo getLatestFilesMemo() {
+        LatestFilesMemo result = this.latestFilesMemo;
+        if (result == null) {
+            synchronized (this) {
+                result = this.latestFilesMemo;
+                if (result == null) {
+                    result = new LatestFilesMemo();
+                    this.latestFilesMemo = result;
+                }
+            }
         }
         return result;
     }
 
+    /**
+     * Removes the memoized latest files that may depend on the given node, which has been changed.
+     * May only be called while holding the write lock.
+     */
+    void invalidateLatestFiles(final IFileHistoryNode changedNode) {
+        this.getLatestFilesMemo().invalidate(changedNode);
+    }
+
+    @Override
+    public final Set<IFileHistoryNode> getIncompleteFlowStarts() {
+        this.getReadLock().lock();
+        try {
+            final Set<IFileHistoryNode> result = new LinkedHashSet<>();
+            for (final IRevisionedFile file : this.incompleteFlowStarts.keySet()) {
+                result.addAll(this.incompleteFlowStarts.get(file));
+            }
+            return result;
+        } finally {
+            this.getReadLock().unlock();
+        }
+    }
+
     /**
      * Performs a file lookup in the index.
      * @param file The file to look for.
@@ -337,8 +489,25 @@ public final class FileHistoryGraph extends AbstractFileHistoryGraph implements
         return this.diffAlgorithm;
     }
 
+    /**
+     * Holds the read lock while the graph is serialized, so that it is not changed meanwhile.
+     */
+    private void writeObject(final ObjectOutputStream out) throws IOException {
+        this.getReadLock().lock();
+        try {
+            out.defaultWriteObject();
+        } finally {
+            this.getReadLock().unlock();
+        }
+    }
+
     @Override
-    public synchronized String toString() {
-        return this.index.toString();
+    public String toString() {
+        this.getReadLock().lock();
+        try {
+            return this.index.toString();
+        } finally {
+            this.getReadLock().unlock();
+        }
     }
 }
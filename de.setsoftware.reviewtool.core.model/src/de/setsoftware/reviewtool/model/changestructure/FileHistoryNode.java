@@ -139,13 +139,21 @@ final class FileHistoryNode extends ProxyableFileHistoryNode {
     @Override
     void addDescendant(final ProxyableFileHistoryNode descendant, final IFileHistoryEdge.Type type) {
         final ProxyableFileHistoryEdge edge = new FileHistoryEdge(this.graph, this, descendant, type);
+        this.graph.invalidateLatestFiles(this);
         this.descendants.add(edge);
         descendant.addAncestor(edge);
     }
 
+    @Override
+    void removeDescendant(final ProxyableFileHistoryEdge descendant) {
+        this.graph.invalidateLatestFiles(this);
+        this.descendants.remove(descendant);
+    }
+
     @Override
     void makeDeleted() {
         assert !this.type.equals(Type.DELETED);
+        this.graph.invalidateLatestFiles(this);
         this.type = Type.DELETED;
 
         final Iterator<ProxyableFileHistoryEdge> it = this.ancestors.iterator();
@@ -160,6 +168,7 @@ final class FileHistoryNode extends ProxyableFileHistoryNode {
     @Override
     void makeReplaced() {
         assert this.type.equals(Type.DELETED);
+        this.graph.invalidateLatestFiles(this);
         this.type = Type.REPLACED;
     }
 
@@ -97,6 +97,11 @@ final class FileHistoryNodeProxy extends ProxyableFileHistoryNode {
         this.getTarget().addDescendant(descendant, type);
     }
 
+    @Override
+    void removeDescendant(final ProxyableFileHistoryEdge descendant) {
+        this.getTarget().removeDescendant(descendant);
+    }
+
     @Override
     void makeDeleted() {
         this.getTarget().makeDeleted();
@@ -68,7 +68,9 @@ public class FileInRevision implements IRevisionedFile {
 
             @Override
             public byte[] handleRepoRevision(final IRepoRevision<?> revision) throws Exception {
-                return FileInRevision.this.getRepository().getFileContents(FileInRevision.this.path, revision);
+                return FileContentCache.getInstance().getContents(
+                        FileInRevision.this,
+                        FileInRevision.this.createLoader(revision));
             }
 
             @Override
@@ -79,6 +81,23 @@ public class FileInRevision implements IRevisionedFile {
         });
     }
 
+    /**
+     * Returns the contents of this file like {@link #getContents()}. Contents of repository revisions are not copied
+     * from the {@link FileContentCache}, so the returned array may be shared and must not be changed.
+     */
+    byte[] getSharedContents() throws Exception {
+        if (!(this.revision instanceof IRepoRevision)) {
+            return this.getContents();
+        }
+        return FileContentCache.getInstance().getSharedContents(
+                this,
+                this.createLoader((IRepoRevision<?>) this.revision));
+    }
+
+    private FileContentCache.ContentLoader createLoader(final IRepoRevision<?> revision) {
+        return () -> this.getRepository().getFileContents(this.path, revision);
+    }
+
     @Override
     public String toString() {
         return this.path + "@" + this.revision;
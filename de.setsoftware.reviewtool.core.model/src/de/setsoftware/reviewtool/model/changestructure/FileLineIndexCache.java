@@ -0,0 +1,102 @@
+package de.setsoftware.reviewtool.model.changestructure;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import de.setsoftware.reviewtool.base.LineSequence;
+import de.setsoftware.reviewtool.model.api.IRevisionedFile;
+
+/**
+ * A bounded cache for the lines of files in revisions, so that the contents of a file are split into lines only
+ * once for all fragments of the file (see {@link Fragment#getContentFullLines()}).
+ *
+ * <p>An entry belongs to a revisioned file and remembers the contents it was built from. It is only used for the
+ * same contents: Arrays that are passed again (e.g. the shared contents of the {@link FileContentCache}) are
+ * recognized by identity, other contents (e.g. local files, that are read again every time) are compared. The total
+ * size of the contents of the entries is kept below a budget by evicting the least recently used entries.
+ */
+final class FileLineIndexCache {
+
+    /**
+     * The lines of some contents.
+     */
+    private static final class Entry {
+        private final byte[] contents;
+        private final LineSequence lines;
+
+        Entry(final byte[] contents, final LineSequence lines) {
+            this.contents = contents;
+            this.lines = lines;
+        }
+
+        boolean isFor(final byte[] otherContents) {
+            return this.contents == otherContents || Arrays.equals(this.contents, otherContents);
+        }
+    }
+
+    public static final long DEFAULT_BYTE_BUDGET = 16L * 1024 * 1024;
+
+    private static final FileLineIndexCache INSTANCE = new FileLineIndexCache(DEFAULT_BYTE_BUDGET);
+
+    private final LinkedHashMap<IRevisionedFile, Entry> entries;
+    private final long byteBudget;
+    private long bytes;
+    private long builds;
+
+    /**
+     * Constructor.
+     * @param byteBudget The maximal total size of the contents of the cached entries.
+     */
+    FileLineIndexCache(final long byteBudget) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.byteBudget = byteBudget;
+    }
+
+    /**
+     * Returns the cache shared by all fragments.
+     */
+    static FileLineIndexCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the lines of the given contents of the given file, decoded as UTF-8. The returned sequence is shared
+     * and must not be changed.
+     */
+    LineSequence getLines(final IRevisionedFile file, final byte[] contents) throws IOException {
+        synchronized (this) {
+            final Entry entry = this.entries.get(file);
+            if (entry != null && entry.isFor(contents)) {
+                return entry.lines;
+            }
+        }
+
+        final LineSequence lines = new LineSequence(contents, "UTF-8");
+        synchronized (this) {
+            this.builds++;
+            if (contents.length <= this.byteBudget) {
+                final Entry old = this.entries.put(file, new Entry(contents, lines));
+                if (old != null) {
+                    this.bytes -= old.contents.length;
+                }
+                this.bytes += contents.length;
+                final Iterator<Entry> iter = this.entries.values().iterator();
+                while (this.bytes > this.byteBudget) {
+                    this.bytes -= iter.next().contents.length;
+                    iter.remove();
+                }
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Returns the number of times contents have been split into lines.
+     */
+    synchronized long getBuildCount() {
+        return this.builds;
+    }
+
+}
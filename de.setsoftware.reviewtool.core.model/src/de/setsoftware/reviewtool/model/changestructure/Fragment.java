@@ -1,15 +1,13 @@
 package de.setsoftware.reviewtool.model.changestructure;
 
-import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.Set;
 
+import de.setsoftware.reviewtool.base.LineSequence;
 import de.setsoftware.reviewtool.base.ReviewtoolException;
 import de.setsoftware.reviewtool.model.api.IDelta;
 import de.setsoftware.reviewtool.model.api.IFragment;
@@ -163,30 +161,24 @@ public final class Fragment implements IFragment {
 
         final byte[] contents;
         try {
-            contents = this.file.getContents();
+            // the shared contents are only read and let the line index cache recognize them by identity
+            contents = this.file instanceof FileInRevision
+                    ? ((FileInRevision) this.file).getSharedContents()
+                    : this.file.getContents();
         } catch (final Exception e) {
             return "?";
         }
 
         try {
-            final BufferedReader r = new BufferedReader(new InputStreamReader(
-                    new ByteArrayInputStream(contents), "UTF-8"));
-            final StringBuilder ret = new StringBuilder();
-            int lineNumber = 1;
-            String lineContent;
-            while ((lineContent = r.readLine()) != null) {
-                if (lineNumber >= this.from.getLine()) {
-                    if (lineNumber < this.to.getLine()) {
-                        ret.append(lineContent).append('\n');
-                    } else if (lineNumber == this.to.getLine()) {
-                        if (this.to.getColumn() > 1) {
-                            ret.append(lineContent).append('\n');
-                        }
-                    }
-                }
-                lineNumber++;
+            final LineSequence lines = FileLineIndexCache.getInstance().getLines(this.file, contents);
+            //the last line only belongs to the fragment when the fragment does not end at its start
+            final int fromIndex = Math.max(0, this.from.getLine() - 1);
+            final int toIndex = Math.min(lines.getNumberOfLines(),
+                    this.to.getColumn() > 1 ? this.to.getLine() : this.to.getLine() - 1);
+            if (fromIndex >= toIndex) {
+                return "";
             }
-            return ret.toString();
+            return lines.getLinesConcatenated(fromIndex, toIndex);
         } catch (final IOException e) {
             throw new AssertionError("unexpected exception", e);
         }
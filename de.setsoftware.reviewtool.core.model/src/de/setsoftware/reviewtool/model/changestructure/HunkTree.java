@@ -0,0 +1,285 @@
+package de.setsoftware.reviewtool.model.changestructure;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import de.setsoftware.reviewtool.model.api.IDelta;
+import de.setsoftware.reviewtool.model.api.IFragment;
+import de.setsoftware.reviewtool.model.api.IHunk;
+import de.setsoftware.reviewtool.model.api.IPositionInText;
+import de.setsoftware.reviewtool.model.api.IRevisionedFile;
+
+/**
+ * The hunks of a {@link FileDiff} while hunks are merged into it, ordered by their target fragments.
+ *
+ * <p>The hunks are stored in a treap (a randomized balanced search tree). Shifting all hunks following some position
+ * by some lines is recorded lazily in the root of the affected subtree and only applied to a hunk when it is visited.
+ * In the same way, the target file of all hunks is only changed when they are visited. Each subtree knows the sum of
+ * the line deltas of its hunks. Therefore, finding the hunks overlapping a fragment, determining the accumulated
+ * delta up to a position and shifting the following hunks take logarithmic time.
+ *
+ * <p>The hunks in the tree must not overlap regarding their targets, which holds for the hunks of a {@link FileDiff}.
+ */
+final class HunkTree {
+
+    /**
+     * A node of the treap. The target of the hunk in the node does not contain the pending line shifts of the node
+     * and of its ancestors.
+     */
+    private static final class Node {
+        private IHunk hunk;
+        private final int priority;
+        private Node left;
+        private Node right;
+        private int pendingLineShift;
+        private int lineDeltaSum;
+
+        Node(final IHunk hunk) {
+            this.hunk = hunk;
+            this.priority = ThreadLocalRandom.current().nextInt();
+            this.lineDeltaSum = hunk.getDelta().getLineOffset();
+        }
+    }
+
+    /**
+     * A condition on the targets of hunks that holds for a prefix of the hunks.
+     */
+    private static interface TargetCondition {
+        public abstract boolean holds(IFragment target);
+    }
+
+    private Node root;
+    private IRevisionedFile targetFile;
+
+    /**
+     * Creates a tree containing the given hunks. The hunks have to be sorted by their targets.
+     */
+    HunkTree(final List<? extends IHunk> sortedHunks) {
+        // build the treap in linear time by maintaining its right spine
+        final Deque<Node> rightSpine = new ArrayDeque<>();
+        for (final IHunk hunk : sortedHunks) {
+            final Node node = new Node(hunk);
+            Node lastPopped = null;
+            while (!rightSpine.isEmpty() && rightSpine.peek().priority < node.priority) {
+                lastPopped = rightSpine.pop();
+                update(lastPopped);
+            }
+            node.left = lastPopped;
+            if (!rightSpine.isEmpty()) {
+                rightSpine.peek().right = node;
+            }
+            rightSpine.push(node);
+        }
+        Node last = null;
+        while (!rightSpine.isEmpty()) {
+            last = rightSpine.pop();
+            update(last);
+        }
+        this.root = last;
+    }
+
+    /**
+     * Sets the file of the targets of all hunks in the tree.
+     */
+    void setTargetFile(final IRevisionedFile file) {
+        this.targetFile = file;
+    }
+
+    /**
+     * Returns the hunks whose targets overlap the given fragment, in order.
+     */
+    List<IHunk> getOverlapping(final IFragment fragment) {
+        final Node[] beforeAndRest = this.split(this.root, isBefore(fragment));
+        final Node[] overlappingAndAfter = this.split(beforeAndRest[1], startsBeforeEndOf(fragment));
+        final List<IHunk> ret = new ArrayList<>();
+        this.collect(overlappingAndAfter[0], ret);
+        this.root = merge(beforeAndRest[0], merge(overlappingAndAfter[0], overlappingAndAfter[1]));
+        return ret;
+    }
+
+    /**
+     * Returns the target line delta to be added to the given target position because of the hunks whose targets end
+     * before or at the position. The column delta is only kept when the last of these hunks ends on the line of the
+     * position, and only contains the column deltas of the hunks directly preceding it on the same lines.
+     */
+    IDelta computeDeltaUpTo(final IPositionInText pos) {
+        final Node[] beforeAndRest =
+                this.split(this.root, (final IFragment target) -> target.getTo().compareTo(pos) <= 0);
+        final int lineOffset = beforeAndRest[0] == null ? 0 : beforeAndRest[0].lineDeltaSum;
+        int columnOffset = 0;
+        int lineOfPreviousEnd = pos.getLine();
+        final Deque<Node> stack = new ArrayDeque<>();
+        Node cur = beforeAndRest[0];
+        // traverse the preceding hunks backwards as long as they are chained on the same lines
+        while (cur != null || !stack.isEmpty()) {
+            if (cur != null) {
+                this.push(cur);
+                stack.push(cur);
+                cur = cur.right;
+            } else {
+                final Node node = stack.pop();
+                final IFragment target = node.hunk.getTarget();
+                if (target.getTo().getLine() != lineOfPreviousEnd) {
+                    break;
+                }
+                columnOffset += node.hunk.getDelta().getColumnOffset();
+                lineOfPreviousEnd = target.getFrom().getLine();
+                cur = node.left;
+            }
+        }
+        this.root = merge(beforeAndRest[0], beforeAndRest[1]);
+        return new Delta(lineOffset, columnOffset);
+    }
+
+    /**
+     * Replaces the hunks whose targets overlap the source of the given merged hunk by the given combined hunk.
+     * The targets of the following hunks are adjusted by the delta of the merged hunk. The column offset is only
+     * applied to hunks starting on the line where the merged hunk starts.
+     */
+    void replaceOverlapping(final IHunk mergedHunk, final IHunk combinedHunk) {
+        final IFragment source = mergedHunk.getSource();
+        final Node[] beforeAndRest = this.split(this.root, isBefore(source));
+        final Node[] overlappingAndAfter = this.split(beforeAndRest[1], startsBeforeEndOf(source));
+
+        final int startLine = source.getFrom().getLine();
+        final IDelta delta = mergedHunk.getDelta();
+        final Node[] sameLineAndOther = this.split(overlappingAndAfter[1],
+                (final IFragment target) -> target.getFrom().getLine() == startLine);
+        this.adjustAll(sameLineAndOther[0], delta);
+        if (sameLineAndOther[1] != null) {
+            sameLineAndOther[1].pendingLineShift += delta.getLineOffset();
+        }
+
+        this.root = merge(
+                beforeAndRest[0],
+                merge(new Node(combinedHunk), merge(sameLineAndOther[0], sameLineAndOther[1])));
+    }
+
+    /**
+     * Returns all hunks in order, with their final targets.
+     */
+    List<IHunk> toList() {
+        final List<IHunk> ret = new ArrayList<>();
+        this.collect(this.root, ret);
+        return ret;
+    }
+
+    private static TargetCondition isBefore(final IFragment fragment) {
+        return (final IFragment target) -> target.getTo().compareTo(fragment.getFrom()) <= 0;
+    }
+
+    private static TargetCondition startsBeforeEndOf(final IFragment fragment) {
+        return (final IFragment target) -> target.getFrom().compareTo(fragment.getTo()) < 0;
+    }
+
+    /**
+     * Applies the pending line shift of the given node to its hunk and passes it on to its children. Also sets the
+     * current target file.
+     */
+    private void push(final Node node) {
+        pushLineShift(node);
+        if (this.targetFile != null && !this.targetFile.equals(node.hunk.getTarget().getFile())) {
+            node.hunk = node.hunk.adjustTargetFile(this.targetFile);
+        }
+    }
+
+    private static void update(final Node node) {
+        node.lineDeltaSum = node.hunk.getDelta().getLineOffset()
+                + (node.left == null ? 0 : node.left.lineDeltaSum)
+                + (node.right == null ? 0 : node.right.lineDeltaSum);
+    }
+
+    /**
+     * Splits the given subtree into the prefix of hunks whose targets fulfill the given condition and the rest.
+     */
+    private Node[] split(final Node node, final TargetCondition inPrefix) {
+        if (node == null) {
+            return new Node[2];
+        }
+        this.push(node);
+        if (inPrefix.holds(node.hunk.getTarget())) {
+            final Node[] parts = this.split(node.right, inPrefix);
+            node.right = parts[0];
+            update(node);
+            parts[0] = node;
+            return parts;
+        } else {
+            final Node[] parts = this.split(node.left, inPrefix);
+            node.left = parts[1];
+            update(node);
+            parts[1] = node;
+            return parts;
+        }
+    }
+
+    /**
+     * Concatenates the given subtrees. All hunks in the first subtree have to precede the hunks in the second.
+     */
+    private static Node merge(final Node first, final Node second) {
+        if (first == null) {
+            return second;
+        }
+        if (second == null) {
+            return first;
+        }
+        if (first.priority > second.priority) {
+            pushLineShift(first);
+            first.right = merge(first.right, second);
+            update(first);
+            return first;
+        } else {
+            pushLineShift(second);
+            second.left = merge(first, second.left);
+            update(second);
+            return second;
+        }
+    }
+
+    /**
+     * Passes the pending line shift of the given node on to its children, so that they can be combined with other
+     * subtrees.
+     */
+    private static void pushLineShift(final Node node) {
+        if (node.pendingLineShift != 0) {
+            node.hunk = node.hunk.adjustTarget(new Delta(node.pendingLineShift, 0));
+            if (node.left != null) {
+                node.left.pendingLineShift += node.pendingLineShift;
+            }
+            if (node.right != null) {
+                node.right.pendingLineShift += node.pendingLineShift;
+            }
+            node.pendingLineShift = 0;
+        }
+    }
+
+    private void adjustAll(final Node node, final IDelta delta) {
+        if (node == null) {
+            return;
+        }
+        this.push(node);
+        node.hunk = node.hunk.adjustTarget(delta);
+        this.adjustAll(node.left, delta);
+        this.adjustAll(node.right, delta);
+        update(node);
+    }
+
+    private void collect(final Node node, final List<IHunk> result) {
+        final Deque<Node> stack = new ArrayDeque<>();
+        Node cur = node;
+        while (cur != null || !stack.isEmpty()) {
+            if (cur != null) {
+                this.push(cur);
+                stack.push(cur);
+                cur = cur.left;
+            } else {
+                final Node next = stack.pop();
+                result.add(next.hunk);
+                cur = next.right;
+            }
+        }
+    }
+
+}
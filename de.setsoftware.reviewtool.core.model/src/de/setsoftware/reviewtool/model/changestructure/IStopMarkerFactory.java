@@ -1,5 +1,7 @@
 package de.setsoftware.reviewtool.model.changestructure;
 
+import java.io.File;
+
 import de.setsoftware.reviewtool.model.api.IFragment;
 import de.setsoftware.reviewtool.model.api.IRevisionedFile;
 
@@ -15,4 +17,9 @@ public interface IStopMarkerFactory {
             IRevisionedFile file, boolean tourActive, String message, IFragment pos);
 
     public abstract void clearStopMarkers();
+
+    /**
+     * Clears the tour stop markers in the file with the given absolute local path.
+     */
+    public abstract void clearStopMarkers(File absolutePath);
 }
@@ -0,0 +1,89 @@
+package de.setsoftware.reviewtool.model.changestructure;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import de.setsoftware.reviewtool.model.api.IFileHistoryEdge;
+import de.setsoftware.reviewtool.model.api.IFileHistoryNode;
+import de.setsoftware.reviewtool.model.api.IRevisionedFile;
+
+/**
+ * Memoizes the latest known nodes of the nodes of a {@link FileHistoryGraph}, as determined by
+ * {@link AbstractFileHistoryGraph#getLatestFiles(IRevisionedFile, boolean)}.
+ *
+ * <p>The latest nodes of a node only depend on the node and the nodes reachable from it. When a node is changed,
+ * the entries of the node and of all nodes it is reachable from are removed. Whenever an entry for a node exists,
+ * entries exist for all nodes its result depends on, because they were memoized while computing it. Therefore,
+ * the removal can stop at nodes without an entry, and entries of nodes that are not upstream of the change
+ * stay valid.
+ *
+ * <p>Entries are added by concurrent readers, but only removed while the graph is locked for writing.
+ */
+final class LatestFilesMemo {
+
+    private static final int VARIANT_COUNT = 4;
+
+    private final Map<IRevisionedFile, AtomicReferenceArray<Set<IFileHistoryNode>>> entries =
+            new ConcurrentHashMap<>();
+    private final AtomicInteger computationCount = new AtomicInteger();
+
+    /**
+     * Returns the memoized latest nodes of the given node, or {@code null} if they are not known.
+     */
+    Set<IFileHistoryNode> get(
+            final IFileHistoryNode node,
+            final boolean ignoreNonLocalCopies,
+            final boolean returnDeletions) {
+        final AtomicReferenceArray<Set<IFileHistoryNode>> variants = this.entries.get(node.getFile());
+        return variants == null ? null : variants.get(variant(ignoreNonLocalCopies, returnDeletions));
+    }
+
+    /**
+     * Memoizes the latest nodes of the given node. The set must not be changed afterwards.
+     */
+    void put(
+            final IFileHistoryNode node,
+            final boolean ignoreNonLocalCopies,
+            final boolean returnDeletions,
+            final Set<IFileHistoryNode> latestNodes) {
+        this.computationCount.incrementAndGet();
+        this.entries.computeIfAbsent(
+                node.getFile(),
+                (final IRevisionedFile f) -> new AtomicReferenceArray<>(VARIANT_COUNT))
+            .set(variant(ignoreNonLocalCopies, returnDeletions), latestNodes);
+    }
+
+    /**
+     * Removes the entries that may depend on the given node, which has been changed.
+     */
+    void invalidate(final IFileHistoryNode changedNode) {
+        final Deque<IFileHistoryNode> toRemove = new ArrayDeque<>();
+        toRemove.push(changedNode);
+        while (!toRemove.isEmpty()) {
+            final IFileHistoryNode node = toRemove.pop();
+            if (this.entries.remove(node.getFile()) != null) {
+                for (final IFileHistoryEdge ancestorEdge : node.getAncestors()) {
+                    toRemove.push(ancestorEdge.getAncestor());
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of results that have been memoized so far, including results that have been removed
+     * again. Every such result has been computed by looking at the descendants of its node.
+     */
+    int getComputationCount() {
+        return this.computationCount.get();
+    }
+
+    private static int variant(final boolean ignoreNonLocalCopies, final boolean returnDeletions) {
+        return (ignoreNonLocalCopies ? 2 : 0) + (returnDeletions ? 1 : 0);
+    }
+
+}
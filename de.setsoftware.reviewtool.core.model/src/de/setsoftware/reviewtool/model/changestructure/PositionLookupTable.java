@@ -1,55 +1,143 @@
 package de.setsoftware.reviewtool.model.changestructure;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.Reader;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 
+import de.setsoftware.reviewtool.base.Pair;
 import de.setsoftware.reviewtool.model.api.IPositionInText;
 
 /**
  * Allows the transformation from position in the form (line,column) to
  * "number of characters since file start" and caches relevant information.
+ *
+ * <p>Tables that are created from the raw contents of a file are shared between all users of the same contents.
+ * They are kept in a small cache keyed by the {@link ContentHash} and charset of the contents.
  */
 public class PositionLookupTable {
 
-    private final List<Integer> charCountAtEndOfLine = new ArrayList<>();
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int INITIAL_LINE_CAPACITY = 256;
+    private static final int MAX_CACHED_TABLES = 32;
 
-    private PositionLookupTable() {
+    private static final LinkedHashMap<Pair<ContentHash, String>, PositionLookupTable> CACHE =
+            new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * The number of characters before the start of each line. The last entry contains the total number of
+     * characters, so there is one more entry than lines.
+     */
+    private final int[] charCountAtEndOfLine;
+
+    private PositionLookupTable(final int[] charCountAtEndOfLine) {
+        this.charCountAtEndOfLine = charCountAtEndOfLine;
     }
 
     /**
      * Creates a lookup table for the contents from the given reader.
      */
-    public static PositionLookupTable create(Reader reader) throws IOException {
-        final PositionLookupTable ret = new PositionLookupTable();
-        int ch;
+    public static PositionLookupTable create(final Reader reader) throws IOException {
+        final char[] buffer = new char[BUFFER_SIZE];
+        int[] charCounts = new int[INITIAL_LINE_CAPACITY];
+        int size = 0;
+        charCounts[size++] = 0;
         int charCount = 0;
-        ret.charCountAtEndOfLine.add(0);
-        while ((ch = reader.read()) >= 0) {
-            charCount++;
-            if (ch == '\n') {
-                ret.charCountAtEndOfLine.add(charCount);
+        int read;
+        while ((read = reader.read(buffer)) >= 0) {
+            for (int i = 0; i < read; i++) {
+                if (buffer[i] == '\n') {
+                    if (size == charCounts.length) {
+                        charCounts = Arrays.copyOf(charCounts, 2 * size);
+                    }
+                    charCounts[size++] = charCount + i + 1;
+                }
+            }
+            charCount += read;
+        }
+        if (size == charCounts.length) {
+            charCounts = Arrays.copyOf(charCounts, size + 1);
+        }
+        charCounts[size++] = charCount;
+        return new PositionLookupTable(Arrays.copyOf(charCounts, size));
+    }
+
+    /**
+     * Returns the lookup table for the given contents of a file, which are decoded with the given charset.
+     * The table is shared with all other users of the same contents.
+     */
+    public static PositionLookupTable create(final byte[] contents, final String charset) throws IOException {
+        final Pair<ContentHash, String> key = Pair.create(ContentHash.of(contents), charset);
+        synchronized (CACHE) {
+            final PositionLookupTable cached = CACHE.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        final PositionLookupTable ret = create(new InputStreamReader(new ByteArrayInputStream(contents), charset));
+        synchronized (CACHE) {
+            CACHE.put(key, ret);
+            final Iterator<PositionLookupTable> iter = CACHE.values().iterator();
+            while (CACHE.size() > MAX_CACHED_TABLES) {
+                iter.next();
+                iter.remove();
             }
         }
-        ret.charCountAtEndOfLine.add(charCount);
         return ret;
     }
 
+    /**
+     * Returns the lookup table for the contents from the given stream, which are decoded with the given charset.
+     * The stream is read completely but not closed.
+     */
+    public static PositionLookupTable create(final InputStream stream, final String charset) throws IOException {
+        final ByteArrayOutputStream contents = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = stream.read(buffer)) >= 0) {
+            contents.write(buffer, 0, read);
+        }
+        return create(contents.toByteArray(), charset);
+    }
+
     /**
      * Returns the number of characters from the start of the file up to (and including) the given position.
      */
-    public int getCharsSinceFileStart(IPositionInText pos) {
+    public int getCharsSinceFileStart(final IPositionInText pos) {
         //when tracing of changes does not work properly, there can be positions that are out of the file and
         //  that have to be handled in some way
         if (pos.getLine() <= 0) {
             return 0;
         }
-        if (pos.getLine() >= this.charCountAtEndOfLine.size()) {
-            return this.charCountAtEndOfLine.get(this.charCountAtEndOfLine.size() - 1);
+        if (pos.getLine() >= this.charCountAtEndOfLine.length) {
+            return this.charCountAtEndOfLine[this.charCountAtEndOfLine.length - 1];
         }
 
-        return this.charCountAtEndOfLine.get(pos.getLine() - 1) + pos.getColumn() - 1;
+        return this.charCountAtEndOfLine[pos.getLine() - 1] + pos.getColumn() - 1;
+    }
+
+    /**
+     * Returns the position (line,column) of the character with the given number of characters before it.
+     * Values outside of the file are moved to its start or end.
+     */
+    public IPositionInText getPositionAt(final int charsSinceFileStart) {
+        final int lineCount = this.charCountAtEndOfLine.length - 1;
+        final int chars = Math.max(0, Math.min(charsSinceFileStart, this.charCountAtEndOfLine[lineCount]));
+        final int index = Arrays.binarySearch(this.charCountAtEndOfLine, 0, lineCount, chars);
+        final int line = index >= 0 ? index + 1 : -index - 1;
+        return ChangestructureFactory.createPositionInText(line, chars - this.charCountAtEndOfLine[line - 1] + 1);
+    }
+
+    /**
+     * Returns the number of lines. A line break at the end of the contents starts an additional empty line.
+     */
+    public int getLineCount() {
+        return this.charCountAtEndOfLine.length - 1;
     }
 
 }
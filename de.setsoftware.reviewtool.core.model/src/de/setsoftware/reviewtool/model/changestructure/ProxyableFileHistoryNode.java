@@ -37,6 +37,12 @@ abstract class ProxyableFileHistoryNode extends AbstractFileHistoryNode implemen
      */
     abstract void addDescendant(final ProxyableFileHistoryNode descendant, final IFileHistoryEdge.Type type);
 
+    /**
+     * Removes some descendant {@link ProxyableFileHistoryEdge} of this node.
+     * The caller is responsible for removing the edge from the descendant node as well.
+     */
+    abstract void removeDescendant(final ProxyableFileHistoryEdge descendant);
+
     /**
      * Makes this node a deleted node. Requires that the node is a {@link Type#ADDED}, {@link Type#CHANGED}
      * or {@link Type#UNCONFIRMED} node.
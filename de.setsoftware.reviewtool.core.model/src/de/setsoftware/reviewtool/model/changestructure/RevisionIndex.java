@@ -0,0 +1,186 @@
+package de.setsoftware.reviewtool.model.changestructure;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import de.setsoftware.reviewtool.base.ComparableWrapper;
+import de.setsoftware.reviewtool.base.Pair;
+import de.setsoftware.reviewtool.base.PartialOrderAlgorithms;
+import de.setsoftware.reviewtool.model.api.IFileHistoryNode;
+import de.setsoftware.reviewtool.model.api.IRepoRevision;
+import de.setsoftware.reviewtool.model.api.IRepository;
+import de.setsoftware.reviewtool.model.api.IRevision;
+import de.setsoftware.reviewtool.model.api.IRevisionedFile;
+
+/**
+ * The nodes of a {@link FileHistoryGraph} belonging to a single path, indexed by their revisions.
+ *
+ * <p>Nodes can be looked up by their exact revision in constant time. Revisions of one repository whose ids are
+ * totally ordered (i.e. wrapped in a {@link ComparableWrapper}) form a chain that is kept in a sorted map, so that
+ * the nearest preceding node in the chain is found in logarithmic time. All other nodes (unknown and local
+ * revisions as well as revisions with partially ordered ids) are kept in a separate set and are checked one by one.
+ */
+final class RevisionIndex {
+
+    private final Map<IRevision, ProxyableFileHistoryNode> nodesByRevision = new HashMap<>();
+    private final Map<Pair<IRepository, Class<?>>, TreeMap<Comparable<Object>, ProxyableFileHistoryNode>> chains =
+            new HashMap<>();
+    private final Set<ProxyableFileHistoryNode> others = new LinkedHashSet<>();
+
+    /**
+     * Adds a node to the index. There must not be another node with the same revision in the index.
+     */
+    void add(final ProxyableFileHistoryNode node) {
+        final IRevision revision = node.getFile().getRevision();
+        this.nodesByRevision.put(revision, node);
+        final Pair<IRepository, Class<?>> chainKey = getChainKey(revision);
+        if (chainKey == null) {
+            this.others.add(node);
+            return;
+        }
+        final TreeMap<Comparable<Object>, ProxyableFileHistoryNode> chain =
+                this.chains.computeIfAbsent(chainKey, (final Pair<IRepository, Class<?>> k) -> new TreeMap<>());
+        final Comparable<Object> key = getOrderKey(revision);
+        if (chain.containsKey(key)) {
+            // same id in an equal but not identical repository, does not fit into the chain
+            this.others.add(node);
+        } else {
+            chain.put(key, node);
+        }
+    }
+
+    /**
+     * Removes a node from the index.
+     */
+    void remove(final ProxyableFileHistoryNode node) {
+        final IRevision revision = node.getFile().getRevision();
+        if (this.nodesByRevision.get(revision) == node) {
+            this.nodesByRevision.remove(revision);
+        }
+        if (this.others.remove(node)) {
+            return;
+        }
+        final Pair<IRepository, Class<?>> chainKey = getChainKey(revision);
+        final TreeMap<Comparable<Object>, ProxyableFileHistoryNode> chain = this.chains.get(chainKey);
+        if (chain != null) {
+            chain.remove(getOrderKey(revision), node);
+            if (chain.isEmpty()) {
+                this.chains.remove(chainKey);
+            }
+        }
+    }
+
+    /**
+     * Returns true iff the index contains no nodes.
+     */
+    boolean isEmpty() {
+        return this.nodesByRevision.isEmpty();
+    }
+
+    /**
+     * Returns the node with the given revision, or {@code null} if there is none.
+     */
+    ProxyableFileHistoryNode get(final IRevision revision) {
+        return this.nodesByRevision.get(revision);
+    }
+
+    /**
+     * Returns the nearest non-deleted nodes whose revisions are strictly smaller than the revision of the given file.
+     * The result is the same as computing the maximal elements of all strictly smaller nodes, but only the nearest
+     * node of each chain has to be considered for this.
+     */
+    Set<ProxyableFileHistoryNode> findAncestorsFor(final IRevisionedFile file) {
+        final IRevision revision = file.getRevision();
+        final Pair<IRepository, Class<?>> ownChainKey = getChainKey(revision);
+        final List<ProxyableFileHistoryNode> candidates = new ArrayList<>();
+        for (final Map.Entry<Pair<IRepository, Class<?>>, TreeMap<Comparable<Object>, ProxyableFileHistoryNode>> e
+                : this.chains.entrySet()) {
+            final ProxyableFileHistoryNode nearest;
+            if (e.getKey().equals(ownChainKey)) {
+                final Map.Entry<Comparable<Object>, ProxyableFileHistoryNode> lower =
+                        e.getValue().lowerEntry(getOrderKey(revision));
+                nearest = lower == null ? null : lower.getValue();
+            } else {
+                nearest = findNearestBefore(e.getValue(), file);
+            }
+            if (nearest != null) {
+                candidates.add(nearest);
+            }
+        }
+        for (final ProxyableFileHistoryNode node : this.others) {
+            if (isStrictlyBefore(node, file)) {
+                candidates.add(node);
+            }
+        }
+
+        final Map<IRevisionedFile, ProxyableFileHistoryNode> ancestorNodes = candidates.stream()
+                .collect(Collectors.toMap(ProxyableFileHistoryNode::getFile, Function.identity()));
+
+        final List<IRevisionedFile> maximalRevisions =
+                PartialOrderAlgorithms.getAllMaximalElements(PartialOrderAlgorithms.topoSort(ancestorNodes.keySet()));
+
+        return maximalRevisions.stream()
+                .map((final IRevisionedFile ancestorFile) -> ancestorNodes.get(ancestorFile))
+                .filter((final ProxyableFileHistoryNode node) -> !node.getType().equals(IFileHistoryNode.Type.DELETED))
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Returns the greatest node of a chain that is strictly before the given file, which does not belong to the chain.
+     * As the order is transitive, the nodes before the file form a prefix of the chain. In the common cases (a local
+     * revision following all repository revisions, or an unknown revision preceding them) the first or the last
+     * node already decides the result.
+     */
+    private static ProxyableFileHistoryNode findNearestBefore(
+            final TreeMap<Comparable<Object>, ProxyableFileHistoryNode> chain,
+            final IRevisionedFile file) {
+        if (!isStrictlyBefore(chain.firstEntry().getValue(), file)) {
+            return null;
+        }
+        for (final ProxyableFileHistoryNode node : chain.descendingMap().values()) {
+            if (isStrictlyBefore(node, file)) {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isStrictlyBefore(final ProxyableFileHistoryNode node, final IRevisionedFile file) {
+        return node.getFile().le(file) && !file.le(node.getFile());
+    }
+
+    /**
+     * Returns the key of the chain the given revision belongs to, or {@code null} if its id is not totally ordered.
+     */
+    private static Pair<IRepository, Class<?>> getChainKey(final IRevision revision) {
+        if (!(revision instanceof IRepoRevision)) {
+            return null;
+        }
+        final IRepoRevision<?> repoRevision = (IRepoRevision<?>) revision;
+        if (!(repoRevision.getId() instanceof ComparableWrapper)) {
+            return null;
+        }
+        return Pair.create(
+                repoRevision.getRepository(),
+                ((ComparableWrapper<?>) repoRevision.getId()).getWrappedComparable().getClass());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Comparable<Object> getOrderKey(final IRevision revision) {
+        return (Comparable<Object>) ((ComparableWrapper<?>) ((IRepoRevision<?>) revision).getId())
+                .getWrappedComparable();
+    }
+
+    @Override
+    public String toString() {
+        return this.nodesByRevision.values().toString();
+    }
+
+}
@@ -2,10 +2,15 @@ package de.setsoftware.reviewtool.model.changestructure;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 
 import de.setsoftware.reviewtool.base.Logger;
@@ -147,6 +152,13 @@ public class ToursInReview {
     private final WeakListeners<IToursInReviewChangeListener> listeners = new WeakListeners<>();
     private final Set<? extends IClassification> irrelevantCategories;
 
+    /**
+     * The stops of all tours, indexed by the absolute local path of their most recent file.
+     * Built lazily and kept up to date when stops are re-traced.
+     */
+    private Map<File, List<Stop>> stopsByFile;
+    private Map<Stop, Integer> topmostTourIndexByStop;
+
     private ToursInReview(
             final List<? extends Tour> topmostTours,
             final Set<? extends IClassification> irrelevantCategories) {
@@ -223,6 +235,7 @@ public class ToursInReview {
                     }
                 });
         Logger.info("after ordering tours=" + formatSizes(toursToShow));
+        Logger.info("file content cache: " + FileContentCache.getInstance().getStatistics());
 
         return new ToursInReview(toursToShow, filteredChanges.toMakeIrrelevant);
     }
@@ -257,15 +270,87 @@ public class ToursInReview {
         }
     }
 
-    public synchronized void updateMostRecentFragmentsWithLocalChanges() {
-        final IFragmentTracer tracer = new FragmentTracer();
-        for (final Tour tour : this.topmostTours) {
-            for (final Stop stop : tour.getStops()) {
-                stop.updateMostRecentData(tracer);
+    /**
+     * Re-traces all stops to make them aware of the current local changes.
+     */
+    public void updateMostRecentFragmentsWithLocalChanges() {
+        this.updateMostRecentFragmentsWithLocalChanges(null);
+    }
+
+    /**
+     * Re-traces the stops whose most recent files are among the given changed files to make them aware of the
+     * current local changes. The stops in other files are not affected by the changes and are left alone.
+     * When {@code null} is given, all stops are re-traced.
+     *
+     * @return The absolute local paths of the files whose stops moved or changed. These are the files whose
+     *      markers have to be refreshed, see {@link #refreshMarkers(IStopMarkerFactory, Collection)}.
+     */
+    public Set<File> updateMostRecentFragmentsWithLocalChanges(final Collection<File> changedFiles) {
+        return this.updateMostRecentFragmentsWithLocalChanges(changedFiles, new FragmentTracer());
+    }
+
+    synchronized Set<File> updateMostRecentFragmentsWithLocalChanges(
+            final Collection<File> changedFiles,
+            final IFragmentTracer tracer) {
+        final Collection<Stop> toUpdate;
+        if (changedFiles == null || this.stopsByFile == null) {
+            toUpdate = new ArrayList<>();
+            for (final Tour tour : this.topmostTours) {
+                toUpdate.addAll(tour.getStops());
+            }
+        } else {
+            toUpdate = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (final File file : changedFiles) {
+                final List<Stop> stops = this.stopsByFile.get(file.getAbsoluteFile());
+                if (stops != null) {
+                    toUpdate.addAll(stops);
+                }
+            }
+        }
+
+        final Set<File> filesToRefresh = new LinkedHashSet<>();
+        for (final Stop stop : toUpdate) {
+            final File oldFile = stop.getAbsoluteFile();
+            final IRevisionedFile oldMostRecentFile = stop.getMostRecentFile();
+            final IFragment oldMostRecentFragment = stop.getMostRecentFragment();
+            stop.updateMostRecentData(tracer);
+            if (!oldMostRecentFile.equals(stop.getMostRecentFile())
+                    || !Objects.equals(oldMostRecentFragment, stop.getMostRecentFragment())) {
+                final File newFile = stop.getAbsoluteFile();
+                filesToRefresh.add(oldFile);
+                filesToRefresh.add(newFile);
+                if (this.stopsByFile != null && !oldFile.equals(newFile)) {
+                    this.removeFromIndex(oldFile, stop);
+                    this.stopsByFile.computeIfAbsent(newFile, (final File f) -> new ArrayList<>()).add(stop);
+                }
+            }
+        }
+        if (this.stopsByFile == null) {
+            this.buildStopIndex();
+        }
+        return filesToRefresh;
+    }
+
+    private void buildStopIndex() {
+        this.stopsByFile = new HashMap<>();
+        this.topmostTourIndexByStop = new IdentityHashMap<>();
+        for (int i = 0; i < this.topmostTours.size(); i++) {
+            for (final Stop stop : this.topmostTours.get(i).getStops()) {
+                this.stopsByFile.computeIfAbsent(stop.getAbsoluteFile(), (final File f) -> new ArrayList<>())
+                    .add(stop);
+                this.topmostTourIndexByStop.put(stop, i);
             }
         }
     }
 
+    private void removeFromIndex(final File file, final Stop stop) {
+        final List<Stop> stops = this.stopsByFile.get(file);
+        stops.removeIf((final Stop s) -> s == stop);
+        if (stops.isEmpty()) {
+            this.stopsByFile.remove(file);
+        }
+    }
+
     private static UserSelectedReductions filterChanges(
             final List<? extends IChangeClassifier> changeClassificationStrategies,
             final List<? extends ICommit> changes,
@@ -467,6 +552,24 @@ public class ToursInReview {
         }
     }
 
+    /**
+     * Recreates the markers of the stops in the given files, e.g. for the files returned by
+     * {@link #updateMostRecentFragmentsWithLocalChanges(Collection)}. Markers in other files are left alone.
+     */
+    public synchronized void refreshMarkers(final IStopMarkerFactory markerFactory, final Collection<File> files) {
+        if (this.stopsByFile == null) {
+            this.buildStopIndex();
+        }
+        for (final File file : files) {
+            markerFactory.clearStopMarkers(file);
+            for (final Stop stop : this.stopsByFile.getOrDefault(file, Collections.emptyList())) {
+                final int tourIndex = this.topmostTourIndexByStop.get(stop);
+                this.createMarkerFor(markerFactory, this.topmostTours.get(tourIndex), stop,
+                        tourIndex == this.currentTourIndex);
+            }
+        }
+    }
+
     private IStopMarker createMarkerFor(
             final IStopMarkerFactory markerFactory,
             final Tour topmostTour,
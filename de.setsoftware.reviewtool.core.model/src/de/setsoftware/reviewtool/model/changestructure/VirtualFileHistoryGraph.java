@@ -36,19 +36,48 @@ public final class VirtualFileHistoryGraph extends AbstractFileHistoryGraph {
      * Returns the underlying local file history graph.
      * @return The {@link IFileHistoryGraph local file history graph}. May be {@code null}.
      */
-    public synchronized IFileHistoryGraph getLocalFileHistoryGraph() {
-        return this.localFileHistoryGraph;
+    public IFileHistoryGraph getLocalFileHistoryGraph() {
+        this.getReadLock().lock();
+        try {
+            return this.localFileHistoryGraph;
+        } finally {
+            this.getReadLock().unlock();
+        }
     }
 
     /**
      * Sets or unsets the local file history graph.
      * @param localFileHistoryGraph The new local file history graph. May be {@code null}.
      */
-    public synchronized void setLocalFileHistoryGraph(final IFileHistoryGraph localFileHistoryGraph) {
-        this.localFileHistoryGraph = localFileHistoryGraph;
-        this.virtualNodes.clear();
-        if (this.localFileHistoryGraph != null) {
-            this.computeIntermediateNodes();
+    public void setLocalFileHistoryGraph(final IFileHistoryGraph localFileHistoryGraph) {
+        this.getWriteLock().lock();
+        try {
+            this.localFileHistoryGraph = localFileHistoryGraph;
+            this.virtualNodes.clear();
+            if (this.localFileHistoryGraph != null) {
+                this.computeIntermediateNodes();
+            }
+        } finally {
+            this.getWriteLock().unlock();
+        }
+    }
+
+    /**
+     * Changes the local file history graph in place and recomputes the nodes connecting it to the remote graph.
+     * The mutations are performed while holding the write lock of this graph, so that neither queries of this graph
+     * nor traversals of its nodes observe the local graph while it is changed.
+     * @param mutations The mutations of the local file history graph.
+     */
+    public void updateLocalFileHistoryGraph(final Runnable mutations) {
+        this.getWriteLock().lock();
+        try {
+            mutations.run();
+            this.virtualNodes.clear();
+            if (this.localFileHistoryGraph != null) {
+                this.computeIntermediateNodes();
+            }
+        } finally {
+            this.getWriteLock().unlock();
         }
     }
 
@@ -100,15 +129,29 @@ public final class VirtualFileHistoryGraph extends AbstractFileHistoryGraph {
     }
 
     @Override
-    public synchronized Set<String> getPaths() {
-        final Set<String> result = new LinkedHashSet<>();
-        result.addAll(this.remoteFileHistoryGraph.getPaths());
-        result.addAll(this.localFileHistoryGraph.getPaths());
-        return result;
+    public Set<String> getPaths() {
+        this.getReadLock().lock();
+        try {
+            final Set<String> result = new LinkedHashSet<>();
+            result.addAll(this.remoteFileHistoryGraph.getPaths());
+            result.addAll(this.localFileHistoryGraph.getPaths());
+            return result;
+        } finally {
+            this.getReadLock().unlock();
+        }
     }
 
     @Override
-    public synchronized IFileHistoryNode getNodeFor(final IRevisionedFile file) {
+    public IFileHistoryNode getNodeFor(final IRevisionedFile file) {
+        this.getReadLock().lock();
+        try {
+            return this.getNodeForLocked(file);
+        } finally {
+            this.getReadLock().unlock();
+        }
+    }
+
+    private IFileHistoryNode getNodeForLocked(final IRevisionedFile file) {
         final IFileHistoryNode virtualNode = this.virtualNodes.get(file);
         if (virtualNode != null) {
             return virtualNode;
@@ -137,7 +180,16 @@ public final class VirtualFileHistoryGraph extends AbstractFileHistoryGraph {
     }
 
     @Override
-    public synchronized Set<VirtualFileHistoryNode> findAncestorsFor(final IRevisionedFile file) {
+    public Set<VirtualFileHistoryNode> findAncestorsFor(final IRevisionedFile file) {
+        this.getReadLock().lock();
+        try {
+            return this.findAncestorsForLocked(file);
+        } finally {
+            this.getReadLock().unlock();
+        }
+    }
+
+    private Set<VirtualFileHistoryNode> findAncestorsForLocked(final IRevisionedFile file) {
         final Multimap<IRevisionedFile, IFileHistoryNode> nodeMap = new Multimap<>();
 
         final Set<? extends IFileHistoryNode> remoteAncestors = this.remoteFileHistoryGraph.findAncestorsFor(file);
@@ -165,11 +217,16 @@ public final class VirtualFileHistoryGraph extends AbstractFileHistoryGraph {
     }
 
     @Override
-    public final synchronized Set<IFileHistoryNode> getIncompleteFlowStarts() {
-        final Set<IFileHistoryNode> result = new LinkedHashSet<>();
-        result.addAll(this.remoteFileHistoryGraph.getIncompleteFlowStarts());
-        result.addAll(this.localFileHistoryGraph.getIncompleteFlowStarts());
-        return result;
+    public final Set<IFileHistoryNode> getIncompleteFlowStarts() {
+        this.getReadLock().lock();
+        try {
+            final Set<IFileHistoryNode> result = new LinkedHashSet<>();
+            result.addAll(this.remoteFileHistoryGraph.getIncompleteFlowStarts());
+            result.addAll(this.localFileHistoryGraph.getIncompleteFlowStarts());
+            return result;
+        } finally {
+            this.getReadLock().unlock();
+        }
     }
 
     /**
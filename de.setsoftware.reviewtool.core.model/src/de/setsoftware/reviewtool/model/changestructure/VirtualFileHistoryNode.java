@@ -5,6 +5,7 @@ import java.util.Collection;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.locks.Lock;
 
 import de.setsoftware.reviewtool.base.ReviewtoolException;
 import de.setsoftware.reviewtool.model.api.IFileDiff;
@@ -110,12 +111,44 @@ final class VirtualFileHistoryNode extends AbstractFileHistoryNode {
         return false;
     }
 
+    /**
+     * Returns a copy of the ancestor or descendant edges of an underlying node. The copy is taken while holding
+     * the read lock of the node's graph, as the underlying graphs may be changed while this node is traversed.
+     */
+    private static List<IFileHistoryEdge> getEdgesOf(final IFileHistoryNode node, final boolean ancestorEdges) {
+        final Lock lock = node.getGraph() instanceof AbstractFileHistoryGraph
+                ? ((AbstractFileHistoryGraph) node.getGraph()).getReadLock()
+                : null;
+        if (lock != null) {
+            lock.lock();
+        }
+        try {
+            return new ArrayList<>(ancestorEdges ? node.getAncestors() : node.getDescendants());
+        } finally {
+            if (lock != null) {
+                lock.unlock();
+            }
+        }
+    }
+
     @Override
     public Set<? extends IFileHistoryEdge> getAncestors() {
+        this.graph.getReadLock().lock();
+        try {
+            return this.getAncestorsLocked();
+        } finally {
+            this.graph.getReadLock().unlock();
+        }
+    }
+
+    /**
+     * Computes the ancestor edges of this node. Must be called while holding the read lock of the graph.
+     */
+    private Set<? extends IFileHistoryEdge> getAncestorsLocked() {
         final Set<IFileHistoryEdge> edges = new LinkedHashSet<>(this.ancestors);
         final Set<IFileHistoryEdge> alphaEdges = new LinkedHashSet<>();
         for (final IFileHistoryNode node : this.nodes) {
-            for (final IFileHistoryEdge ancestorEdge : node.getAncestors()) {
+            for (final IFileHistoryEdge ancestorEdge : getEdgesOf(node, true)) {
                 final IRevisionedFile ancestorFile = ancestorEdge.getAncestor().getFile();
                 final VirtualFileHistoryEdge edge = new VirtualFileHistoryEdge(
                         this.graph,
@@ -202,18 +235,23 @@ final class VirtualFileHistoryNode extends AbstractFileHistoryNode {
 
     @Override
     public Set<? extends IFileHistoryEdge> getDescendants() {
-        final Set<IFileHistoryEdge> edges = new LinkedHashSet<>(this.descendants);
-        for (final IFileHistoryNode node : this.nodes) {
-            for (final IFileHistoryEdge descendantEdge : node.getDescendants()) {
-                edges.add(new VirtualFileHistoryEdge(
-                        this.graph,
-                        this.graph.getNodeFor(descendantEdge.getAncestor().getFile()),
-                        this.graph.getNodeFor(descendantEdge.getDescendant().getFile()),
-                        descendantEdge.getType(),
-                        descendantEdge.getDiff()));
+        this.graph.getReadLock().lock();
+        try {
+            final Set<IFileHistoryEdge> edges = new LinkedHashSet<>(this.descendants);
+            for (final IFileHistoryNode node : this.nodes) {
+                for (final IFileHistoryEdge descendantEdge : getEdgesOf(node, false)) {
+                    edges.add(new VirtualFileHistoryEdge(
+                            this.graph,
+                            this.graph.getNodeFor(descendantEdge.getAncestor().getFile()),
+                            this.graph.getNodeFor(descendantEdge.getDescendant().getFile()),
+                            descendantEdge.getType(),
+                            descendantEdge.getDiff()));
+                }
             }
+            return edges;
+        } finally {
+            this.graph.getReadLock().unlock();
         }
-        return edges;
     }
 
     /**
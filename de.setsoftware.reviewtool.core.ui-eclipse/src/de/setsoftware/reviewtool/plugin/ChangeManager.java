@@ -39,6 +39,18 @@ public final class ChangeManager {
 
     private static final long PROCESSING_DELAY = 1000L * 10;
 
+    /**
+     * Interface for observers of the processing of local changes.
+     */
+    public static interface IChangeManagerListener {
+        /**
+         * Is called after local changes have been analyzed.
+         *
+         * @param changedFiles The files that have been analyzed. If {@code null}, all local files have been checked.
+         */
+        public abstract void localChangesAnalyzed(List<File> changedFiles);
+    }
+
     /**
      * Singleton scheduling rule preventing two update jobs to run concurrently.
      */
@@ -164,7 +176,7 @@ public final class ChangeManager {
 
     private final Set<File> projectDirs;
     private final CopyOnWriteArrayList<IChangeSource> changeSourceRef;
-    private final WeakListeners<Runnable> changeManagerListeners = new WeakListeners<>();
+    private final WeakListeners<IChangeManagerListener> changeManagerListeners = new WeakListeners<>();
     private final AtomicLong lastChangeTime = new AtomicLong();
     private final ConcurrentLinkedQueue<LocalChangeWorkItem> workQueue = new ConcurrentLinkedQueue<>();
     private final AtomicBoolean changeTrackingEnabled = new AtomicBoolean(true);
@@ -241,7 +253,7 @@ public final class ChangeManager {
      *
      * @param changeManagerListener The listener to add.
      */
-    public synchronized void addListener(final Runnable changeManagerListener) {
+    public synchronized void addListener(final IChangeManagerListener changeManagerListener) {
         this.changeManagerListeners.add(changeManagerListener);
     }
 
@@ -255,7 +267,7 @@ public final class ChangeManager {
     private void analyzeLocalChanges(final IChangeSource changeSource, final List<File> filesToAnalyze)
             throws ChangeSourceException {
         changeSource.analyzeLocalChanges(filesToAnalyze);
-        this.changeManagerListeners.notifyListeners(listener -> listener.run());
+        this.changeManagerListeners.notifyListeners(listener -> listener.localChangesAnalyzed(filesToAnalyze));
     }
 
     /**
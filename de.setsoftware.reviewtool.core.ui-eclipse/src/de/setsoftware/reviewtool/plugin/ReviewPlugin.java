@@ -60,6 +60,8 @@ import de.setsoftware.reviewtool.base.WeakListeners;
 import de.setsoftware.reviewtool.config.ConfigurationInterpreter;
 import de.setsoftware.reviewtool.config.IConfigurator;
 import de.setsoftware.reviewtool.config.IReviewConfigurable;
+import de.setsoftware.reviewtool.diffalgorithms.DiffAlgorithmConfigurator;
+import de.setsoftware.reviewtool.diffalgorithms.DiffAlgorithmFactory;
 import de.setsoftware.reviewtool.irrelevancestrategies.basicfilters.BasicIrrelevanceFilterConfigurator;
 import de.setsoftware.reviewtool.irrelevancestrategies.basicfilters.BinaryFileFilterConfigurator;
 import de.setsoftware.reviewtool.irrelevancestrategies.basicfilters.FileDeletionFilterConfigurator;
@@ -87,6 +89,8 @@ import de.setsoftware.reviewtool.model.api.ICommit;
 import de.setsoftware.reviewtool.model.api.Mode;
 import de.setsoftware.reviewtool.model.changestructure.ChangestructureFactory;
 import de.setsoftware.reviewtool.model.changestructure.CurrentStop;
+import de.setsoftware.reviewtool.model.changestructure.FileContentCacheConfigurator;
+import de.setsoftware.reviewtool.model.changestructure.FileDiffStore;
 import de.setsoftware.reviewtool.model.changestructure.IChangeClassifier;
 import de.setsoftware.reviewtool.model.changestructure.Tour;
 import de.setsoftware.reviewtool.model.changestructure.ToursInReview;
@@ -307,6 +311,7 @@ public class ReviewPlugin implements IReviewConfigurable {
     private final ReviewStateManager persistence;
     private final ChangeManager changeManager = new ChangeManager(true);
     private ToursInReview toursInReview;
+    private ChangeManager.IChangeManagerListener localChangeListener;
     private Mode mode = Mode.IDLE;
     private final WeakListeners<ReviewModeListener> modeListeners = new WeakListeners<>();
     private final ConfigurationInterpreter configInterpreter = new ConfigurationInterpreter();
@@ -327,12 +332,16 @@ public class ReviewPlugin implements IReviewConfigurable {
                 new RealUi());
         
         PositionTransformer.setProjectSource(this::determineProjectPaths);
+        FileDiffStore.getInstance().setDirectory(
+                new File(Activator.getDefault().getStateLocation().toFile(), "diffs"));
 
         final Version bundleVersion = Activator.getDefault().getBundle().getVersion();
         this.configInterpreter.addConfigurator(new TelemetryConfigurator(bundleVersion));
         this.configInterpreter.addConfigurator(new VersionChecker(bundleVersion));
         this.configInterpreter.addConfigurator(new SurveyAtEndConfigurator());
         this.configInterpreter.addConfigurator(new StopViewConfigurator());
+        this.configInterpreter.addConfigurator(new DiffAlgorithmConfigurator());
+        this.configInterpreter.addConfigurator(new FileContentCacheConfigurator());
         this.configInterpreter.addConfigurator(new PathRegexStrategyConfigurator());
         this.configInterpreter.addConfigurator(new BasicIrrelevanceFilterConfigurator());
         this.configInterpreter.addConfigurator(new PathIrrelevanceFilterConfigurator());
@@ -387,6 +396,7 @@ public class ReviewPlugin implements IReviewConfigurable {
         this.endReviewExtensions.clear();
         this.preferredTransitionStrategies.clear();
         this.relevanceFilters.clear();
+        DiffAlgorithmFactory.resetConfiguration();
 
         try {
             final Document config = ConfigurationInterpreter.load(configFile);
@@ -668,6 +678,7 @@ public class ReviewPlugin implements IReviewConfigurable {
         }
         if (mode == Mode.IDLE) {
             this.toursInReview = null;
+            this.localChangeListener = null;
         }
     }
 
@@ -963,7 +974,11 @@ public class ReviewPlugin implements IReviewConfigurable {
             if (this.toursInReview == null) {
                 return false;
             }
-            changeManager.addListener(toursInReview::updateMostRecentFragmentsWithLocalChanges);
+            //the listener is only weakly referenced by the change manager
+            final ToursInReview tours = this.toursInReview;
+            this.localChangeListener = (final List<File> changedFiles) -> tours.refreshMarkers(
+                    new RealMarkerFactory(), tours.updateMostRecentFragmentsWithLocalChanges(changedFiles));
+            changeManager.addListener(this.localChangeListener);
 
             sourceUi.subTask("Creating stop markers...");
             this.toursInReview.createMarkers(new RealMarkerFactory(), sourceUi);
@@ -3,8 +3,6 @@ package de.setsoftware.reviewtool.ui.dialogs;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.Reader;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -144,6 +142,24 @@ public class RealMarkerFactory implements IStopMarkerFactory, IMarkerFactory {
         }
     }
 
+    /**
+     * Clears the tour stop markers in the given file.
+     */
+    @Override
+    public void clearStopMarkers(File absolutePath) {
+        final IResource resource = getResourceForPath(absolutePath);
+        if (resource instanceof IWorkspaceRoot) {
+            return;
+        }
+        try {
+            resource.deleteMarkers(Constants.STOPMARKER_ID, true, IResource.DEPTH_ZERO);
+            resource.deleteMarkers(Constants.INACTIVESTOPMARKER_ID, true, IResource.DEPTH_ZERO);
+        } catch (CoreException e) {
+            throw new ReviewtoolException(e);
+        }
+        this.lookupTables.remove(resource);
+    }
+
     /**
      * Creates a lookup table for the contents from the given file.
      */
@@ -154,8 +170,7 @@ public class RealMarkerFactory implements IStopMarkerFactory, IMarkerFactory {
             }
             final InputStream stream = file.getContents();
             try {
-                final Reader r = new InputStreamReader(stream, file.getCharset());
-                return PositionLookupTable.create(r);
+                return PositionLookupTable.create(stream, file.getCharset());
             } finally {
                 stream.close();
             }
@@ -2,8 +2,6 @@ package de.setsoftware.reviewtool.ui.views;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.Reader;
 
 import org.eclipse.core.filesystem.EFS;
 import org.eclipse.core.filesystem.IFileStore;
@@ -20,8 +18,7 @@ public class FileStoreLookupTable {
             throws IOException, CoreException {
         final InputStream stream = fileStore.openInputStream(EFS.NONE, null);
         try {
-            final Reader r = new InputStreamReader(stream, "UTF-8");
-            return PositionLookupTable.create(r);
+            return PositionLookupTable.create(stream, "UTF-8");
         } finally {
             stream.close();
         }